@@ -0,0 +1,91 @@
+package edu.kit.ipd.sdq.kamp.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.ecore.EObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.ipd.sdq.kamp.architecture.ArchitectureModelLookup;
+import edu.kit.ipd.sdq.kamp.architecture.ModificationMarkIndex;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticModelConfiguration;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticModelGenerator;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+
+/**
+ * Benchmarks the queries of {@link ArchitectureModelLookup} on the (already built)
+ * {@link ModificationMarkIndex} and the building of the index itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchitectureModelLookupBenchmark {
+
+	@Param({"10", "50"})
+	public int stepCount;
+
+	@Param({"100", "1000"})
+	public int modificationsPerStep;
+
+	@Param({"2"})
+	public int causeFanOut;
+
+	private SyntheticArchitectureVersion version;
+
+	@Setup
+	public void generate() {
+		SyntheticModelConfiguration configuration = new SyntheticModelConfiguration();
+		configuration.setStepCount(this.stepCount);
+		configuration.setModificationsPerStep(this.modificationsPerStep);
+		configuration.setCauseFanOut(this.causeFanOut);
+		this.version = new SyntheticModelGenerator(configuration).generateVersion("lookup");
+		ModificationMarkIndex.getIndex(this.version.getModificationMarkRepository());
+	}
+
+	@Benchmark
+	public Set<EObject> lookUpMarkedObjects() {
+		return ArchitectureModelLookup.lookUpMarkedObjectsOfAType(this.version, EObject.class);
+	}
+
+	@Benchmark
+	public Set<EObject> lookUpMarkedObjectsInSeedModifications() {
+		return ArchitectureModelLookup.lookUpMarkedObjectsOfATypeInSeedModifications(this.version, EObject.class);
+	}
+
+	@Benchmark
+	public Set<Modification> lookUpAllModificationMarks() {
+		return ArchitectureModelLookup.lookUpAllModificationMarksOfAType(this.version, Modification.class);
+	}
+
+	@Benchmark
+	public Set<Object> lookUpExcludedElements() {
+		return ArchitectureModelLookup.lookUpExcludedElements(this.version.getModificationMarkRepository());
+	}
+
+	/**
+	 * Builds the index, runs a query and detaches the index again, so each invocation
+	 * starts without index.
+	 */
+	@Benchmark
+	public Set<EObject> buildIndexAndLookUp() {
+		ModificationMarkIndex index = ModificationMarkIndex.getIndex(this.version.getModificationMarkRepository());
+		Set<EObject> result = index.getAffectedElements(EObject.class);
+		index.dispose();
+		return result;
+	}
+
+}
@@ -0,0 +1,30 @@
+package edu.kit.ipd.sdq.kamp.benchmarks;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the KAMP benchmarks with JMH. Without arguments, all benchmarks of this package are
+ * run with their default parameters; otherwise the arguments are the usual JMH command line
+ * options (e.g. <code>WorkplanBenchmark -p stepCount=100 -rf json</code>).<br>
+ * The benchmark classes are generated by the JMH annotation processor (see the
+ * <code>.factorypath</code> of this project, which expects the JMH jars in the local Maven
+ * repository <code>M2_REPO</code>).
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] arguments) throws RunnerException, CommandLineOptionException {
+		Options options;
+		if (arguments.length > 0) {
+			options = new CommandLineOptions(arguments);
+		} else {
+			options = new OptionsBuilder().include(BenchmarkRunner.class.getPackage().getName() + ".*").build();
+		}
+		new Runner(options).run();
+	}
+
+}
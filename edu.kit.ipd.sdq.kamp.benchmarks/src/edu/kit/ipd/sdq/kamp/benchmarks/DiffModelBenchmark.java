@@ -0,0 +1,67 @@
+package edu.kit.ipd.sdq.kamp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.ecore.EObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticModelConfiguration;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticModelGenerator;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticVersionPair;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractWorkplanDerivation;
+
+/**
+ * Benchmarks the comparison of a base and a target architecture with
+ * {@link AbstractWorkplanDerivation#calculateDiffModel(EObject, EObject)} (EMF Compare with
+ * the default configuration) and with the identifier-based comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffModelBenchmark {
+
+	@Param({"100", "1000"})
+	public int componentCount;
+
+	@Param({"0.1"})
+	public double changeRatio;
+
+	private EObject baseArchitecture;
+	private EObject targetArchitecture;
+
+	@Setup
+	public void generate() {
+		SyntheticModelConfiguration configuration = new SyntheticModelConfiguration();
+		configuration.setComponentCount(this.componentCount);
+		configuration.setChangeRatio(this.changeRatio);
+		SyntheticVersionPair versionPair = new SyntheticModelGenerator(configuration).generateVersionPair("base", "target");
+		this.baseArchitecture = versionPair.getBaseVersion().getArchitecture();
+		this.targetArchitecture = versionPair.getTargetVersion().getArchitecture();
+	}
+
+	@Benchmark
+	public List<Diff> calculateDiffModel() {
+		return AbstractWorkplanDerivation.calculateDiffModel(this.baseArchitecture, this.targetArchitecture);
+	}
+
+	@Benchmark
+	public List<Diff> calculateDiffModelByIdentifiers() {
+		return AbstractWorkplanDerivation.calculateDiffModelByIdentifiers(this.baseArchitecture, this.targetArchitecture);
+	}
+
+}
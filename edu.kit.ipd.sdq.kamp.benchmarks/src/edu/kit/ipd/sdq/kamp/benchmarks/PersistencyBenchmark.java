@@ -0,0 +1,83 @@
+package edu.kit.ipd.sdq.kamp.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticModelConfiguration;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticModelGenerator;
+import edu.kit.ipd.sdq.kamp.headless.HeadlessAnalysisRunner;
+
+/**
+ * Benchmarks loading and saving architecture versions (architecture and modification 
+ * marks as XMI, or the modification marks in the binary format) with the 
+ * {@link AbstractArchitectureVersionPersistency}. <code>platform:/resource</code> is
+ * mapped to a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistencyBenchmark {
+
+	private static final String FOLDER_PATH = "/benchmark/version";
+	private static final String FILENAME = "model";
+
+	@Param({"10", "50"})
+	public int stepCount;
+
+	@Param({"100", "1000"})
+	public int modificationsPerStep;
+
+	@Param({"2"})
+	public int causeFanOut;
+
+	@Param({"false", "true"})
+	public boolean binaryPersistency;
+
+	private SyntheticArchitectureVersionPersistency persistency;
+	private SyntheticArchitectureVersion version;
+
+	@Setup
+	public void generate() throws IOException {
+		HeadlessAnalysisRunner.mapWorkspaceDirectory(Files.createTempDirectory("kamp-benchmark").toFile());
+		this.persistency = new SyntheticArchitectureVersionPersistency();
+		this.persistency.setBinaryPersistency(this.binaryPersistency);
+		SyntheticModelConfiguration configuration = new SyntheticModelConfiguration();
+		configuration.setStepCount(this.stepCount);
+		configuration.setModificationsPerStep(this.modificationsPerStep);
+		configuration.setCauseFanOut(this.causeFanOut);
+		this.version = new SyntheticModelGenerator(configuration).generateVersion(FILENAME);
+		this.persistency.save(FOLDER_PATH, FILENAME, this.version);
+	}
+
+	@Benchmark
+	public SyntheticArchitectureVersion load() {
+		return this.persistency.load(FOLDER_PATH, FILENAME, "target");
+	}
+
+	@Benchmark
+	public File save() {
+		this.persistency.save(FOLDER_PATH, FILENAME, this.version);
+		return AbstractArchitectureVersionPersistency.getWorkspaceDirectory();
+	}
+
+}
@@ -0,0 +1,73 @@
+package edu.kit.ipd.sdq.kamp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticModelConfiguration;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticModelGenerator;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.propagation.UserDecisionAnalysis;
+
+/**
+ * Benchmarks {@link UserDecisionAnalysis}. As the analysis removes modifications from the
+ * repository, a new repository is generated before each invocation (the generation is not
+ * measured).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class UserDecisionAnalysisBenchmark {
+
+	@Param({"10", "50"})
+	public int stepCount;
+
+	@Param({"100", "1000"})
+	public int modificationsPerStep;
+
+	@Param({"1", "4"})
+	public int causeFanOut;
+
+	@Param({"0.05"})
+	public double excludedRatio;
+
+	private ModificationRepository repository;
+
+	@Setup(Level.Invocation)
+	public void generate() {
+		SyntheticModelConfiguration configuration = new SyntheticModelConfiguration();
+		configuration.setStepCount(this.stepCount);
+		configuration.setModificationsPerStep(this.modificationsPerStep);
+		configuration.setCauseFanOut(this.causeFanOut);
+		configuration.setExcludedRatio(this.excludedRatio);
+		this.repository = new SyntheticModelGenerator(configuration).generateVersion("userdecisions").
+				getModificationMarkRepository();
+	}
+
+	@Benchmark
+	public ModificationRepository considerUserDecisions() {
+		UserDecisionAnalysis.considerUserDecisions(this.repository);
+		return this.repository;
+	}
+
+	@Benchmark
+	public ModificationRepository considerUserDecisionsWithoutResolving() {
+		UserDecisionAnalysis.considerUserDecisionsWithoutResolving(this.repository);
+		return this.repository;
+	}
+
+}
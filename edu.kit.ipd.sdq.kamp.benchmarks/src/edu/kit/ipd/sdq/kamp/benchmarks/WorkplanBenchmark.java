@@ -0,0 +1,78 @@
+package edu.kit.ipd.sdq.kamp.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticModelConfiguration;
+import edu.kit.ipd.sdq.kamp.benchmarks.generator.SyntheticModelGenerator;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.WorkplanDuplicateRemoval;
+import edu.kit.ipd.sdq.kamp.workplan.WorkplanSorter;
+
+/**
+ * Benchmarks the post-processing of derived work plans: {@link WorkplanDuplicateRemoval}
+ * and {@link WorkplanSorter}. The work plan has one activity per modification of a
+ * generated repository (see {@link SyntheticModelGenerator#generateWorkplan(SyntheticArchitectureVersion)}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkplanBenchmark {
+
+	@Param({"10", "50"})
+	public int stepCount;
+
+	@Param({"100", "1000"})
+	public int modificationsPerStep;
+
+	@Param({"2"})
+	public int causeFanOut;
+
+	private List<Activity> workplan;
+	private List<Activity> duplicateFreeWorkplan;
+
+	@Setup
+	public void generate() {
+		SyntheticModelConfiguration configuration = new SyntheticModelConfiguration();
+		configuration.setStepCount(this.stepCount);
+		configuration.setModificationsPerStep(this.modificationsPerStep);
+		configuration.setCauseFanOut(this.causeFanOut);
+		SyntheticArchitectureVersion version = new SyntheticModelGenerator(configuration).generateVersion("workplan");
+		this.workplan = SyntheticModelGenerator.generateWorkplan(version);
+		this.duplicateFreeWorkplan = WorkplanDuplicateRemoval.removeModificationDuplicates(this.workplan);
+	}
+
+	@Benchmark
+	public List<Activity> removeModificationDuplicates() {
+		return WorkplanDuplicateRemoval.removeModificationDuplicates(this.workplan);
+	}
+
+	/**
+	 * Sorts a copy of the top-level list of the duplicate-free work plan (the sub-activity 
+	 * lists are sorted in place, which is cheap after the first invocation).
+	 */
+	@Benchmark
+	public List<Activity> sortWorkplanActivities() {
+		List<Activity> activities = new ArrayList<Activity>(this.duplicateFreeWorkplan);
+		WorkplanSorter.sortWorkplanActivities(activities);
+		return activities;
+	}
+
+}
@@ -0,0 +1,37 @@
+package edu.kit.ipd.sdq.kamp.benchmarks.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.testmodel.ComponentModel;
+
+/**
+ * An architecture version of the {@link ComponentModel}: one architecture and its
+ * modification marks.
+ */
+public class SyntheticArchitectureVersion extends AbstractArchitectureVersion<ModificationRepository> {
+
+	private final EObject architecture;
+
+	public SyntheticArchitectureVersion(String name, EObject architecture,
+			ModificationRepository modificationMarkRepository) {
+		super(name, modificationMarkRepository);
+		this.architecture = architecture;
+	}
+
+	public EObject getArchitecture() {
+		return architecture;
+	}
+
+	@Override
+	public List<EObject> getModelRoots() {
+		List<EObject> modelRoots = new ArrayList<EObject>();
+		modelRoots.add(this.architecture);
+		return modelRoots;
+	}
+
+}
@@ -0,0 +1,74 @@
+package edu.kit.ipd.sdq.kamp.benchmarks.generator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.testmodel.ComponentModel;
+import edu.kit.ipd.sdq.kamp.util.FileAndFolderManagement;
+
+/**
+ * Loads and saves {@link SyntheticArchitectureVersion}s: the architecture
+ * (<code>*.testmodel</code>) and the modification marks. If no resource factory is
+ * registered for the other file extensions (as without the Eclipse platform), the XMI 
+ * resource factory is registered for them, so the persistency also works standalone
+ * (with <code>platform:/resource</code> mapped to a directory, see {@link edu.kit.ipd.sdq.kamp.headless.HeadlessAnalysisRunner#mapWorkspaceDirectory(java.io.File)}).
+ */
+public class SyntheticArchitectureVersionPersistency extends AbstractArchitectureVersionPersistency<SyntheticArchitectureVersion> {
+
+	static {
+		Map<String, Object> extensionToFactoryMap = Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap();
+		if (!extensionToFactoryMap.containsKey(Resource.Factory.Registry.DEFAULT_EXTENSION)) {
+			extensionToFactoryMap.put(Resource.Factory.Registry.DEFAULT_EXTENSION, new XMIResourceFactoryImpl());
+		}
+	}
+
+	@Override
+	public SyntheticArchitectureVersion load(String folderpath, String filename, String versionname) {
+		List<String> filePaths = new ArrayList<String>();
+		filePaths.add(filename + "." + ComponentModel.FILE_EXTENSION);
+		filePaths.add(filename + "." + this.getModificationMarkFileExtension());
+		Map<String, EObject> roots = this.loadEmfModelsFromResources(folderpath, filePaths, new ResourceSetImpl());
+		return new SyntheticArchitectureVersion(versionname, roots.get(filePaths.get(0)),
+				(ModificationRepository) roots.get(filePaths.get(1)));
+	}
+
+	@Override
+	public SyntheticArchitectureVersion load(IContainer folder, String versionname) {
+		IFile architectureFile = FileAndFolderManagement.retrieveFileWithExtension(folder, ComponentModel.FILE_EXTENSION);
+		if (architectureFile == null) {
+			return null;
+		}
+		return this.load(folder.getFullPath().toString(),
+				architectureFile.getFullPath().removeFileExtension().lastSegment(), versionname);
+	}
+
+	@Override
+	public void save(String targetDirectoryPath, String filename, SyntheticArchitectureVersion version) {
+		saveEmfModelToResource(version.getArchitecture(), targetDirectoryPath,
+				filename + "." + ComponentModel.FILE_EXTENSION, new ResourceSetImpl());
+		try {
+			this.saveModificationMarkFile(targetDirectoryPath, filename, version);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	protected void registerEPackages(ResourceSet resourceSet) {
+		super.registerEPackages(resourceSet);
+		resourceSet.getPackageRegistry().put(ComponentModel.PACKAGE.getNsURI(), ComponentModel.PACKAGE);
+	}
+
+}
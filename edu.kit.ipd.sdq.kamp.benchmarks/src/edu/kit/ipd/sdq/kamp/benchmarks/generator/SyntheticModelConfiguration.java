@@ -0,0 +1,163 @@
+package edu.kit.ipd.sdq.kamp.benchmarks.generator;
+
+/**
+ * The parameters of the {@link SyntheticModelGenerator}: the size of the architecture,
+ * the changes of the target version and the volume of the modification marks. Together
+ * with the <code>seed</code>, the parameters determine the generated models completely, so
+ * a configuration (see {@link #toString()} and {@link #parse(String)}) is enough to
+ * reproduce a benchmark run or a bug report.
+ */
+public class SyntheticModelConfiguration {
+
+	public static final long DEFAULT_SEED = 42L;
+
+	private long seed = DEFAULT_SEED;
+	private int componentCount = 0;
+	private double referenceDensity = 2.0;
+	private double changeRatio = 0.1;
+	private int stepCount = 10;
+	private int modificationsPerStep = 100;
+	private int causeFanOut = 2;
+	private double excludedRatio = 0.05;
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the number of components of the base architecture. If it is not set, it is
+	 * half the number of modifications, so most components are affected twice (like in
+	 * real propagation results).
+	 */
+	public int getComponentCount() {
+		if (this.componentCount > 0) {
+			return this.componentCount;
+		}
+		return Math.max(this.modificationsPerStep, (this.stepCount + 1) * this.modificationsPerStep / 2);
+	}
+
+	public void setComponentCount(int componentCount) {
+		this.componentCount = componentCount;
+	}
+
+	/**
+	 * Returns the average number of components required by a component.
+	 */
+	public double getReferenceDensity() {
+		return referenceDensity;
+	}
+
+	public void setReferenceDensity(double referenceDensity) {
+		this.referenceDensity = referenceDensity;
+	}
+
+	/**
+	 * Returns the share of the components which are changed, removed or added (one third
+	 * each) in the target version.
+	 */
+	public double getChangeRatio() {
+		return changeRatio;
+	}
+
+	public void setChangeRatio(double changeRatio) {
+		this.changeRatio = changeRatio;
+	}
+
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	public void setStepCount(int stepCount) {
+		this.stepCount = stepCount;
+	}
+
+	/**
+	 * Returns the number of modifications of each propagation step and of the seed
+	 * modifications.
+	 */
+	public int getModificationsPerStep() {
+		return modificationsPerStep;
+	}
+
+	public void setModificationsPerStep(int modificationsPerStep) {
+		this.modificationsPerStep = modificationsPerStep;
+	}
+
+	/**
+	 * Returns the number of causing elements of each calculated modification.
+	 */
+	public int getCauseFanOut() {
+		return causeFanOut;
+	}
+
+	public void setCauseFanOut(int causeFanOut) {
+		this.causeFanOut = causeFanOut;
+	}
+
+	/**
+	 * Returns the share of seed modifications which are excluded by the user.
+	 */
+	public double getExcludedRatio() {
+		return excludedRatio;
+	}
+
+	public void setExcludedRatio(double excludedRatio) {
+		this.excludedRatio = excludedRatio;
+	}
+
+	/**
+	 * Sets a parameter by its name, e.g. <code>set("stepCount", "50")</code>.
+	 */
+	public void set(String name, String value) {
+		if ("seed".equals(name)) {
+			this.setSeed(Long.parseLong(value));
+		} else if ("componentCount".equals(name)) {
+			this.setComponentCount(Integer.parseInt(value));
+		} else if ("referenceDensity".equals(name)) {
+			this.setReferenceDensity(Double.parseDouble(value));
+		} else if ("changeRatio".equals(name)) {
+			this.setChangeRatio(Double.parseDouble(value));
+		} else if ("stepCount".equals(name)) {
+			this.setStepCount(Integer.parseInt(value));
+		} else if ("modificationsPerStep".equals(name)) {
+			this.setModificationsPerStep(Integer.parseInt(value));
+		} else if ("causeFanOut".equals(name)) {
+			this.setCauseFanOut(Integer.parseInt(value));
+		} else if ("excludedRatio".equals(name)) {
+			this.setExcludedRatio(Double.parseDouble(value));
+		} else {
+			throw new IllegalArgumentException("Unknown parameter " + name);
+		}
+	}
+
+	/**
+	 * Parses a configuration in the format of {@link #toString()}; parameters which are
+	 * not contained keep their default values.
+	 */
+	public static SyntheticModelConfiguration parse(String parameters) {
+		SyntheticModelConfiguration configuration = new SyntheticModelConfiguration();
+		for (String parameter: parameters.trim().split("\\s+")) {
+			if (!parameter.isEmpty()) {
+				int separator = parameter.indexOf('=');
+				if (separator < 0) {
+					throw new IllegalArgumentException("Parameter without value: " + parameter);
+				}
+				configuration.set(parameter.substring(0, separator), parameter.substring(separator + 1));
+			}
+		}
+		return configuration;
+	}
+
+	@Override
+	public String toString() {
+		return "seed=" + seed + " componentCount=" + this.getComponentCount()
+				+ " referenceDensity=" + referenceDensity + " changeRatio=" + changeRatio
+				+ " stepCount=" + stepCount + " modificationsPerStep=" + modificationsPerStep
+				+ " causeFanOut=" + causeFanOut + " excludedRatio=" + excludedRatio;
+	}
+
+}
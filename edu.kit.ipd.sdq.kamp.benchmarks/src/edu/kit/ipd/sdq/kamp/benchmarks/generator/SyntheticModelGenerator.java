@@ -0,0 +1,324 @@
+package edu.kit.ipd.sdq.kamp.benchmarks.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksFactory;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.SeedModifications;
+import edu.kit.ipd.sdq.kamp.testmodel.ComponentModel;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractActivityElementType;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractActivityType;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.BasicActivity;
+
+/**
+ * Generates architecture versions of the {@link ComponentModel} in the sizes given by a
+ * {@link SyntheticModelConfiguration}, in memory or as files:
+ * <ul><li>an architecture (a root component with the components as its children) of
+ * components which require other components (according to the reference density),</li>
+ * <li>a target architecture which is a changed copy of the base architecture (according
+ * to the change ratio), and</li>
+ * <li>a {@link ModificationRepository} with seed modifications and propagation steps;
+ * each modification of a step is caused by elements affected in the previous step.</li></ul>
+ * Each part is generated with its own random generator, seeded by the seed of the
+ * configuration, so the same configuration always produces the same models (e.g. the
+ * target architecture does not depend on whether the modification marks are generated).
+ */
+public class SyntheticModelGenerator {
+
+	private static final long CHANGE_SEED_OFFSET = 1L;
+	private static final long MODIFICATION_MARKS_SEED_OFFSET = 2L;
+
+	private final SyntheticModelConfiguration configuration;
+
+	public SyntheticModelGenerator(SyntheticModelConfiguration configuration) {
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Generates a version whose modification marks affect the (base) architecture, each
+	 * in its own resource of a new resource set (<code>name.testmodel</code> and
+	 * <code>name.modificationmarks</code>).
+	 */
+	public SyntheticArchitectureVersion generateVersion(String name) {
+		EObject architecture = this.generateArchitecture();
+		return createVersion(name, architecture, this.generateModificationRepository(architecture));
+	}
+
+	/**
+	 * Generates a base version (without modification marks) and a target version with the
+	 * changed architecture and the modification marks.
+	 */
+	public SyntheticVersionPair generateVersionPair(String baseName, String targetName) {
+		EObject baseArchitecture = this.generateArchitecture();
+		EObject targetArchitecture = this.generateChangedArchitecture(baseArchitecture);
+		ModificationRepository baseRepository = ModificationmarksFactory.eINSTANCE.createModificationRepository();
+		baseRepository.setSeedModifications(ComponentModel.createSeedModifications());
+		return new SyntheticVersionPair(this.configuration,
+				createVersion(baseName, baseArchitecture, baseRepository),
+				createVersion(targetName, targetArchitecture, this.generateModificationRepository(targetArchitecture)));
+	}
+
+	private static SyntheticArchitectureVersion createVersion(String name, EObject architecture,
+			ModificationRepository repository) {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		addToResource(resourceSet, name + "." + ComponentModel.FILE_EXTENSION, architecture);
+		addToResource(resourceSet, name + "." + AbstractArchitectureVersionPersistency.FILEEXTENSION_MODIFICATIONMARK,
+				repository);
+		return new SyntheticArchitectureVersion(name, architecture, repository);
+	}
+
+	private static void addToResource(ResourceSet resourceSet, String fileName, EObject root) {
+		Resource resource = new XMIResourceImpl(URI.createURI(fileName));
+		resourceSet.getResources().add(resource);
+		resource.getContents().add(root);
+	}
+
+	public EObject generateArchitecture() {
+		Random random = new Random(this.configuration.getSeed());
+		EObject architecture = ComponentModel.createComponent("architecture");
+		List<EObject> components = ComponentModel.getChildren(architecture);
+		for (int i = 0; i < this.configuration.getComponentCount(); i++) {
+			EObject component = ComponentModel.createComponent("c" + i);
+			if (i > 0) {
+				int referenceCount = drawCount(random, this.configuration.getReferenceDensity());
+				for (int j = 0; j < referenceCount; j++) {
+					ComponentModel.getRequires(component).add(components.get(random.nextInt(i)));
+				}
+			}
+			components.add(component);
+		}
+		return architecture;
+	}
+
+	/**
+	 * Returns the integer part of the <code>average</code> plus one with the probability of
+	 * its fractional part.
+	 */
+	private static int drawCount(Random random, double average) {
+		int count = (int) average;
+		return random.nextDouble() < average - count ? count + 1 : count;
+	}
+
+	/**
+	 * Returns a changed copy of the architecture: the share of components given by the
+	 * change ratio is changed (it requires another component), removed or replaced by new
+	 * components (one third each). The names identify the components, so a changed 
+	 * component keeps its name.
+	 */
+	public EObject generateChangedArchitecture(EObject architecture) {
+		Random random = new Random(this.configuration.getSeed() + CHANGE_SEED_OFFSET);
+		EObject changedArchitecture = EcoreUtil.copy(architecture);
+		List<EObject> components = ComponentModel.getChildren(changedArchitecture);
+		int changeCount = (int) (components.size() * this.configuration.getChangeRatio());
+		for (int i = 0; i < changeCount; i++) {
+			EObject component = components.get(random.nextInt(components.size()));
+			switch (i % 3) {
+			case 0:
+				ComponentModel.getRequires(component).add(components.get(random.nextInt(components.size())));
+				break;
+			case 1:
+				EcoreUtil.delete(component);
+				break;
+			default:
+				EObject newComponent = ComponentModel.createComponent("n" + i);
+				ComponentModel.getRequires(newComponent).add(component);
+				components.add(newComponent);
+			}
+		}
+		return changedArchitecture;
+	}
+
+	public ModificationRepository generateModificationRepository(EObject architecture) {
+		Random random = new Random(this.configuration.getSeed() + MODIFICATION_MARKS_SEED_OFFSET);
+		List<EObject> components = ComponentModel.getChildren(architecture);
+		ModificationRepository repository = ModificationmarksFactory.eINSTANCE.createModificationRepository();
+		SeedModifications seedModifications = ComponentModel.createSeedModifications();
+		repository.setSeedModifications(seedModifications);
+
+		int modificationCount = 0;
+		List<EObject> previouslyAffected = new ArrayList<EObject>();
+		for (int i = 0; i < this.configuration.getModificationsPerStep(); i++) {
+			EObject affected = components.get(random.nextInt(components.size()));
+			Modification modification = createModification("m" + modificationCount++, affected, false);
+			if (random.nextDouble() < this.configuration.getExcludedRatio()) {
+				modification.setUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
+			}
+			ComponentModel.getModifications(seedModifications).add(modification);
+			previouslyAffected.add(affected);
+		}
+
+		for (int step = 0; step < this.configuration.getStepCount(); step++) {
+			ChangePropagationStep changePropagationStep = ComponentModel.createChangePropagationStep();
+			repository.getChangePropagationSteps().add(changePropagationStep);
+			List<EObject> affectedInStep = new ArrayList<EObject>();
+			for (int i = 0; i < this.configuration.getModificationsPerStep(); i++) {
+				EObject affected = components.get(random.nextInt(components.size()));
+				Modification modification = createModification("m" + modificationCount++, affected, true);
+				for (int j = 0; j < this.configuration.getCauseFanOut(); j++) {
+					modification.getCausingElements().add(previouslyAffected.get(random.nextInt(previouslyAffected.size())));
+				}
+				ComponentModel.getModifications(changePropagationStep).add(modification);
+				affectedInStep.add(affected);
+			}
+			previouslyAffected = affectedInStep;
+		}
+		return repository;
+	}
+
+	private static Modification createModification(String id, EObject affected, boolean toolderived) {
+		Modification modification = ModificationmarksFactory.eINSTANCE.createModification();
+		modification.setId(id);
+		modification.setAffectedElement(affected);
+		modification.setToolderived(toolderived);
+		return modification;
+	}
+
+	/**
+	 * Saves the architecture and the modification marks of the version as XMI files
+	 * <code>filename.testmodel</code> and <code>filename.modificationmarks</code> into the
+	 * <code>directory</code>. The resources of the version keep the file URIs, so the
+	 * version can still be used in memory.
+	 */
+	public static void save(SyntheticArchitectureVersion version, File directory, String filename) {
+		directory.mkdirs();
+		Resource architectureResource = version.getArchitecture().eResource();
+		Resource modificationMarkResource = version.getModificationMarkRepository().eResource();
+		architectureResource.setURI(URI.createFileURI(new File(directory,
+				filename + "." + ComponentModel.FILE_EXTENSION).getAbsolutePath()));
+		modificationMarkResource.setURI(URI.createFileURI(new File(directory,
+				filename + "." + AbstractArchitectureVersionPersistency.FILEEXTENSION_MODIFICATIONMARK).getAbsolutePath()));
+		try {
+			architectureResource.save(null);
+			modificationMarkResource.save(null);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Saves the base version into the <code>directory</code> and the target version into
+	 * its sub-folder <code>targetFolderName</code>, which is the folder structure expected
+	 * by the actions and the {@link edu.kit.ipd.sdq.kamp.headless.HeadlessAnalysisRunner}.
+	 */
+	public static void save(SyntheticVersionPair versionPair, File directory, String targetFolderName, String filename) {
+		save(versionPair.getBaseVersion(), directory, filename);
+		save(versionPair.getTargetVersion(), new File(directory, targetFolderName), filename);
+	}
+
+	/**
+	 * Derives a work plan like the work plan derivations of the KAMP sub-projects do: one
+	 * modification activity per modification (so elements affected several times have
+	 * duplicate activities) with a sub-activity per causing element.
+	 */
+	public static List<Activity> generateWorkplan(SyntheticArchitectureVersion version) {
+		List<Activity> workplan = new ArrayList<Activity>();
+		List<EObject> seedModificationsAndSteps = new ArrayList<EObject>();
+		seedModificationsAndSteps.add(version.getModificationMarkRepository().getSeedModifications());
+		seedModificationsAndSteps.addAll(version.getModificationMarkRepository().getChangePropagationSteps());
+		for (EObject seedModificationsOrStep: seedModificationsAndSteps) {
+			for (Modification modification: ComponentModel.getModifications(seedModificationsOrStep)) {
+				Set<String> causingElementsNames = new LinkedHashSet<String>();
+				for (EObject cause: modification.getCausingElements()) {
+					causingElementsNames.add(getName(cause));
+				}
+				Activity activity = createActivity(modification.getAffectedElement(), causingElementsNames);
+				for (EObject cause: modification.getCausingElements()) {
+					activity.addSubActivity(createActivity(cause, null));
+				}
+				workplan.add(activity);
+			}
+		}
+		return workplan;
+	}
+
+	private static Activity createActivity(EObject element, Set<String> causingElementsNames) {
+		return new Activity(SyntheticActivityType.IMPLEMENTATION, SyntheticActivityElementType.COMPONENT,
+				element, getName(element), causingElementsNames, BasicActivity.MODIFY,
+				"Modify component " + getName(element) + ".");
+	}
+
+	private static String getName(EObject component) {
+		return ComponentModel.getName(component);
+	}
+
+	public SyntheticModelConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * Generates a base and a target version and saves them into a directory (the target
+	 * version into the sub-folder <code>target</code>), e.g. for load tests in Eclipse or
+	 * with the headless application.<br>
+	 * Arguments: <code>&lt;directory&gt; [&lt;parameter&gt;=&lt;value&gt; ...]</code> with
+	 * the parameters of {@link SyntheticModelConfiguration#parse(String)}.
+	 */
+	public static void main(String[] arguments) {
+		if (arguments.length < 1) {
+			System.err.println("Usage: <directory> [<parameter>=<value> ...]");
+			System.exit(2);
+		}
+		StringBuilder parameters = new StringBuilder();
+		for (int i = 1; i < arguments.length; i++) {
+			parameters.append(arguments[i]).append(' ');
+		}
+		SyntheticModelConfiguration configuration = SyntheticModelConfiguration.parse(parameters.toString());
+		SyntheticVersionPair versionPair = new SyntheticModelGenerator(configuration).generateVersionPair("base", "target");
+		save(versionPair, new File(arguments[0]), "target", "model");
+		System.out.println(configuration);
+	}
+
+	public enum SyntheticActivityType implements AbstractActivityType {
+		IMPLEMENTATION("Implementation");
+
+		private final String name;
+
+		private SyntheticActivityType(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+	}
+
+	public enum SyntheticActivityElementType implements AbstractActivityElementType {
+		COMPONENT("Component");
+
+		private final String name;
+
+		private SyntheticActivityElementType(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public Class<?> getElementClass() {
+			return EObject.class;
+		}
+	}
+
+}
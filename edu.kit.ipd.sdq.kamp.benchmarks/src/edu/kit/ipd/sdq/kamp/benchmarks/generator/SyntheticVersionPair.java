@@ -0,0 +1,32 @@
+package edu.kit.ipd.sdq.kamp.benchmarks.generator;
+
+/**
+ * A base version and a target version generated by the {@link SyntheticModelGenerator},
+ * together with the configuration they were generated with.
+ */
+public class SyntheticVersionPair {
+
+	private final SyntheticModelConfiguration configuration;
+	private final SyntheticArchitectureVersion baseVersion;
+	private final SyntheticArchitectureVersion targetVersion;
+
+	public SyntheticVersionPair(SyntheticModelConfiguration configuration, SyntheticArchitectureVersion baseVersion,
+			SyntheticArchitectureVersion targetVersion) {
+		this.configuration = configuration;
+		this.baseVersion = baseVersion;
+		this.targetVersion = targetVersion;
+	}
+
+	public SyntheticModelConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	public SyntheticArchitectureVersion getBaseVersion() {
+		return baseVersion;
+	}
+
+	public SyntheticArchitectureVersion getTargetVersion() {
+		return targetVersion;
+	}
+
+}
@@ -0,0 +1,222 @@
+package edu.kit.ipd.sdq.kamp.benchmarks.generator;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.headless.HeadlessAnalysisRunner;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.testmodel.ComponentModel;
+
+/**
+ * Checks that the {@link SyntheticModelGenerator} generates the same models for the same
+ * (printed and parsed) configuration, that the generated models have the configured sizes,
+ * and that the saved version pair is loaded by the persistency as it was generated.
+ */
+public class SyntheticModelGeneratorTest {
+
+	private File workspaceDirectory;
+
+	@Before
+	public void setUp() throws IOException {
+		this.workspaceDirectory = Files.createTempDirectory("workspace").toFile();
+		HeadlessAnalysisRunner.mapWorkspaceDirectory(this.workspaceDirectory);
+	}
+
+	@After
+	public void tearDown() {
+		URIConverter.URI_MAP.remove(URI.createPlatformResourceURI("/", true));
+		delete(this.workspaceDirectory);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child: children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	@Test
+	public void testSameModelsForSameConfiguration() {
+		for (long seed: new long[] {0, 7, 42}) {
+			SyntheticModelConfiguration configuration = createConfiguration(seed);
+			SyntheticModelConfiguration parsedConfiguration = SyntheticModelConfiguration.parse(configuration.toString());
+			String message = "seed " + seed;
+			assertEquals(message, configuration.toString(), parsedConfiguration.toString());
+
+			SyntheticVersionPair versionPair = new SyntheticModelGenerator(configuration).generateVersionPair("base", "target");
+			SyntheticVersionPair otherVersionPair = new SyntheticModelGenerator(parsedConfiguration).
+					generateVersionPair("base", "target");
+			assertEquals(message, describe(versionPair.getBaseVersion()), describe(otherVersionPair.getBaseVersion()));
+			assertEquals(message, describe(versionPair.getTargetVersion()), describe(otherVersionPair.getTargetVersion()));
+
+			// each part does not depend on whether the other parts are generated
+			SyntheticModelGenerator generator = new SyntheticModelGenerator(configuration);
+			EObject architecture = generator.generateArchitecture();
+			assertTrue(message, EcoreUtil.equals(architecture, versionPair.getBaseVersion().getArchitecture()));
+			assertTrue(message, EcoreUtil.equals(generator.generateChangedArchitecture(architecture),
+					versionPair.getTargetVersion().getArchitecture()));
+			SyntheticArchitectureVersion version = generator.generateVersion("target");
+			assertTrue(message, EcoreUtil.equals(architecture, version.getArchitecture()));
+			assertEquals(message, describeModifications(versionPair.getTargetVersion().getModificationMarkRepository()),
+					describeModifications(generator.generateModificationRepository(
+							versionPair.getTargetVersion().getArchitecture())));
+		}
+	}
+
+	@Test
+	public void testConfiguredSizes() {
+		SyntheticModelConfiguration configuration = createConfiguration(3);
+		SyntheticVersionPair versionPair = new SyntheticModelGenerator(configuration).generateVersionPair("base", "target");
+
+		List<EObject> components = ComponentModel.getChildren(versionPair.getBaseVersion().getArchitecture());
+		assertEquals(configuration.getComponentCount(), components.size());
+		int requiredComponents = 0;
+		for (EObject component: components) {
+			requiredComponents += ComponentModel.getRequires(component).size();
+		}
+		int componentsWithReferences = components.size() - 1;
+		assertTrue(requiredComponents >= componentsWithReferences * (int) configuration.getReferenceDensity());
+		assertTrue(requiredComponents <= componentsWithReferences * ((int) configuration.getReferenceDensity() + 1));
+		assertTrue(ComponentModel.getRequires(components.get(0)).isEmpty());
+
+		int changeCount = (int) (components.size() * configuration.getChangeRatio());
+		assertEquals(components.size() - (changeCount + 1) / 3 + changeCount / 3,
+				ComponentModel.getChildren(versionPair.getTargetVersion().getArchitecture()).size());
+
+		ModificationRepository repository = versionPair.getTargetVersion().getModificationMarkRepository();
+		List<Modification> seedModifications = ComponentModel.getModifications(repository.getSeedModifications());
+		assertEquals(configuration.getModificationsPerStep(), seedModifications.size());
+		assertEquals(configuration.getStepCount(), repository.getChangePropagationSteps().size());
+		Set<EObject> previouslyAffected = getAffectedElements(seedModifications);
+		for (AbstractChangePropagationStep step: repository.getChangePropagationSteps()) {
+			List<Modification> modifications = ComponentModel.getModifications(step);
+			assertEquals(configuration.getModificationsPerStep(), modifications.size());
+			for (Modification modification: modifications) {
+				assertTrue(modification.isToolderived());
+				// a component drawn twice is a causing element only once
+				assertFalse(modification.getCausingElements().isEmpty());
+				assertTrue(modification.getCausingElements().size() <= configuration.getCauseFanOut());
+				assertTrue(previouslyAffected.containsAll(modification.getCausingElements()));
+			}
+			previouslyAffected = getAffectedElements(modifications);
+		}
+	}
+
+	@Test
+	public void testExcludedRatio() {
+		SyntheticModelConfiguration configuration = createConfiguration(0);
+		for (double excludedRatio: new double[] {0.0, 1.0}) {
+			configuration.setExcludedRatio(excludedRatio);
+			ModificationRepository repository = new SyntheticModelGenerator(configuration).generateVersion("version").
+					getModificationMarkRepository();
+			for (Modification modification: ComponentModel.getModifications(repository.getSeedModifications())) {
+				assertFalse(modification.isToolderived());
+				assertEquals(excludedRatio > 0, modification.getUserDecision() == AcceptanceAndConfirmationState.EXCLUDED);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownParameter() {
+		SyntheticModelConfiguration.parse("seed=1 components=10");
+	}
+
+	@Test
+	public void testSavedVersionPairIsLoadedByPersistency() {
+		SyntheticVersionPair versionPair = new SyntheticModelGenerator(createConfiguration(0)).
+				generateVersionPair("base", "target");
+		SyntheticModelGenerator.save(versionPair, new File(this.workspaceDirectory, "project/base"), "target", "model");
+
+		SyntheticArchitectureVersionPersistency persistency = new SyntheticArchitectureVersionPersistency();
+		for (String folderPath: new String[] {"/project/base", "/project/base/target"}) {
+			SyntheticArchitectureVersion expected = folderPath.endsWith("target") ?
+					versionPair.getTargetVersion() : versionPair.getBaseVersion();
+			SyntheticArchitectureVersion version = persistency.load(folderPath, "model", expected.getName());
+			assertEquals(folderPath, describe(expected), describe(version));
+			assertSame(folderPath, ComponentModel.SEED_MODIFICATIONS,
+					version.getModificationMarkRepository().getSeedModifications().eClass());
+		}
+	}
+
+	private static SyntheticModelConfiguration createConfiguration(long seed) {
+		SyntheticModelConfiguration configuration = new SyntheticModelConfiguration();
+		configuration.setSeed(seed);
+		configuration.setComponentCount(60);
+		configuration.setReferenceDensity(1.5);
+		configuration.setChangeRatio(0.2);
+		configuration.setStepCount(3);
+		configuration.setModificationsPerStep(20);
+		configuration.setCauseFanOut(3);
+		configuration.setExcludedRatio(0.25);
+		return configuration;
+	}
+
+	/**
+	 * Describes the components of the architecture by their names and the names of the
+	 * required components, followed by the modifications of the version.
+	 */
+	private static List<String> describe(SyntheticArchitectureVersion version) {
+		List<String> descriptions = new ArrayList<String>();
+		for (EObject component: ComponentModel.getChildren(version.getArchitecture())) {
+			List<String> requiredComponents = new ArrayList<String>();
+			for (EObject requiredComponent: ComponentModel.getRequires(component)) {
+				requiredComponents.add(ComponentModel.getName(requiredComponent));
+			}
+			descriptions.add(ComponentModel.getName(component) + " > " + requiredComponents);
+		}
+		descriptions.addAll(describeModifications(version.getModificationMarkRepository()));
+		return descriptions;
+	}
+
+	/**
+	 * Describes the modifications by their IDs, user decisions and the names of the affected
+	 * and causing components.
+	 */
+	private static List<String> describeModifications(ModificationRepository repository) {
+		List<EObject> seedModificationsAndSteps = new ArrayList<EObject>();
+		seedModificationsAndSteps.add(repository.getSeedModifications());
+		seedModificationsAndSteps.addAll(repository.getChangePropagationSteps());
+		List<String> descriptions = new ArrayList<String>();
+		for (EObject seedModificationsOrStep: seedModificationsAndSteps) {
+			for (Modification modification: ComponentModel.getModifications(seedModificationsOrStep)) {
+				List<String> causes = new ArrayList<String>();
+				for (EObject cause: modification.getCausingElements()) {
+					causes.add(ComponentModel.getName(cause));
+				}
+				descriptions.add(modification.getId() + " " + ComponentModel.getName(modification.getAffectedElement())
+						+ " < " + causes + " " + modification.getUserDecision());
+			}
+		}
+		return descriptions;
+	}
+
+	private static Set<EObject> getAffectedElements(List<Modification> modifications) {
+		Set<EObject> affectedElements = new HashSet<EObject>();
+		for (Modification modification: modifications) {
+			affectedElements.add(modification.getAffectedElement());
+		}
+		return affectedElements;
+	}
+
+}
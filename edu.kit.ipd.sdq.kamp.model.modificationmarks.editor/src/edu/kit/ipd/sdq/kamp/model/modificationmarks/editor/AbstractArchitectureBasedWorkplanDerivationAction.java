@@ -1,11 +1,15 @@
 package edu.kit.ipd.sdq.kamp.model.modificationmarks.editor;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.viewers.IStructuredSelection;
@@ -13,7 +17,10 @@ import org.eclipse.ui.PlatformUI;
 
 import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+import edu.kit.ipd.sdq.kamp.ui.AbstractAnalysisStage;
 import edu.kit.ipd.sdq.kamp.ui.AbstractDeriveWorkplanAction;
+import edu.kit.ipd.sdq.kamp.ui.AnalysisPipelineJob;
+import edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation;
 import edu.kit.ipd.sdq.kamp.workplan.Activity;
 import edu.kit.ipd.sdq.kamp.workplan.WorkplanDuplicateRemoval;
 import edu.kit.ipd.sdq.kamp.workplan.WorkplanSorter;
@@ -27,7 +34,8 @@ import edu.kit.ipd.sdq.kamp.workplan.WorkplanSorter;
  * further changes necessary.<br>
  * The action should be started from an AbstractModificationRepository element in a
  * *.modificationmarks file (how it is started depends on your code, change a 
- * plugin.xml file to integrate the action into Eclipse.
+ * plugin.xml file to integrate the action into Eclipse. The derivation runs as
+ * cancelable background job (see {@link AnalysisPipelineJob}).
  * 
  * @generated NOT
  */
@@ -51,37 +59,87 @@ public abstract class AbstractArchitectureBasedWorkplanDerivationAction<T extend
 				IFile currentFile = ResourcesPlugin.getWorkspace().getRoot().getFile(
 						new Path(resourceURI.toPlatformString(false)));
 				IContainer targetFolder = currentFile.getParent();
-				IContainer baseFolder = targetFolder.getParent();
 				
-				T targetversion = loadVersion(targetFolder, "target");	
-				T baseversion = loadVersion(baseFolder, "base");
-				
-				if ((baseversion != null) && (targetversion != null)) {
-					String username = System.getProperty("user.name");
-					String usernameSuffix = (username != null) ? username : "";
-					
-					List<Activity> baseActivityList = this.getWorkplanDerivation().
-							deriveWorkplan(baseversion, targetversion);
-					baseActivityList = WorkplanDuplicateRemoval.removeModificationDuplicates(baseActivityList);
-					List<Activity> enrichedActivityList = this.getEnrichedWorkplanDerivation().
-							deriveEnrichedWorkplan(baseversion, targetversion, baseActivityList);
-					WorkplanSorter.sortWorkplanActivities(enrichedActivityList);			
-					this.getArchitectureVersionPersistency().saveActivityListToExcelFile(
-							targetFolderPathString, "activitylist-" + usernameSuffix + "-"
-							+ nameOfTargetVersionFolder, enrichedActivityList);
-					
-					showMessage("Activity list has been calculated.");
-					PlatformUI.getWorkbench().saveAllEditors(false);				
-					refreshAllProjectsInWorkspace();
-				} 
-				if (baseversion == null) {
-					showMessage("Activity list could not be calculated, as the base version was not found.");
-				}
-				if (targetversion == null) {
-					showMessage("Activity list could not be calculated, as the target version was not found.");
-				}
+				// editors are saved before the job reads the model files
+				PlatformUI.getWorkbench().saveAllEditors(false);
+				this.createActivityListDerivationJob(targetFolder, targetFolderPathString, 
+						nameOfTargetVersionFolder).schedule();
 			}
 		}
 	}
+	
+	/**
+	 * Creates the job which loads the base and the target version, derives the enriched
+	 * work plan and saves it as activity list into the <code>targetFolder</code>.
+	 */
+	protected AnalysisPipelineJob createActivityListDerivationJob(final IContainer targetFolder,
+			final String targetFolderPathString, final String nameOfTargetVersionFolder) {
+		final AnalysisPipelineJob job = new AnalysisPipelineJob("Deriving activity list");
+		final ISchedulingRule saveRule = AnalysisPipelineJob.createSchedulingRule(targetFolder);
+		final ActivityListDerivationState<T> state = new ActivityListDerivationState<T>();
+		String username = System.getProperty("user.name");
+		final String usernameSuffix = (username != null) ? username : "";
+		job.setInstrumentationFile(targetFolder.getFile(new Path("activitylist-" + usernameSuffix + "-" 
+				+ nameOfTargetVersionFolder + "-metrics." + AnalysisInstrumentation.FILEEXTENSION_JSON)));
+		
+		job.addStage(new AbstractAnalysisStage("Loading base and target version", 30) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				Map<String, IContainer> versionFolders = new LinkedHashMap<String, IContainer>();
+				versionFolders.put("target", targetFolder);
+				versionFolders.put("base", targetFolder.getParent());
+				Map<String, T> versions = loadVersions(versionFolders);
+				state.targetversion = versions.get("target");
+				state.baseversion = versions.get("base");
+				if (state.baseversion == null) {
+					job.skipRemainingStages("Activity list could not be calculated, as the base version was not found.");
+				} else if (state.targetversion == null) {
+					job.skipRemainingStages("Activity list could not be calculated, as the target version was not found.");
+				}
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Deriving base work plan", 30) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				state.baseActivityList = WorkplanDuplicateRemoval.removeModificationDuplicates(
+						getWorkplanDerivation().deriveWorkplan(state.baseversion, state.targetversion));
+				job.getInstrumentation().addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, state.baseActivityList.size());
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Deriving enriched work plan", 20) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				state.enrichedActivityList = getEnrichedWorkplanDerivation().
+						deriveEnrichedWorkplan(state.baseversion, state.targetversion, state.baseActivityList);
+				WorkplanSorter.sortWorkplanActivities(state.enrichedActivityList);
+				job.getInstrumentation().addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, state.enrichedActivityList.size());
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Saving activity list", 20, saveRule) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				getArchitectureVersionPersistency().saveActivityListToExcelFile(
+						targetFolderPathString, "activitylist-" + usernameSuffix + "-"
+						+ nameOfTargetVersionFolder, state.enrichedActivityList);
+				refreshFolder(targetFolder, monitor);
+				job.setResultMessage("Activity list has been calculated.");
+			}
+		});
+		return job;
+	}
+
+	/**
+	 * Intermediate results of an activity list derivation, passed between the stages of the job.
+	 */
+	private static class ActivityListDerivationState<V> {
+		private V baseversion;
+		private V targetversion;
+		private List<Activity> baseActivityList;
+		private List<Activity> enrichedActivityList;
+	}
 
 }
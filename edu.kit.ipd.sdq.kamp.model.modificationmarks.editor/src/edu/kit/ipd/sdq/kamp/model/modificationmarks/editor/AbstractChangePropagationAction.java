@@ -1,10 +1,16 @@
 package edu.kit.ipd.sdq.kamp.model.modificationmarks.editor;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.viewers.ISelection;
@@ -16,7 +22,10 @@ import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
 import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
 import edu.kit.ipd.sdq.kamp.propagation.AbstractChangePropagationAnalysis;
-import edu.kit.ipd.sdq.kamp.ui.AbstractDeriveWorkplanAction;
+import edu.kit.ipd.sdq.kamp.propagation.IncrementalChangePropagation;
+import edu.kit.ipd.sdq.kamp.ui.AbstractAnalysisStage;
+import edu.kit.ipd.sdq.kamp.ui.AnalysisPipelineJob;
+import edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation;
 
 /**
  * Runs the change propagation algorithm of 
@@ -28,7 +37,14 @@ import edu.kit.ipd.sdq.kamp.ui.AbstractDeriveWorkplanAction;
  * the whole action should run without further changes required.<br>
  * The action should be started from an AbstractModificationRepository element in a
  * *.modificationmarks file (how it is started depends on your code, change a 
- * plugin.xml file to integrate the action into Eclipse.
+ * plugin.xml file to integrate the action into Eclipse.<br>
+ * If incremental propagation is enabled (see {@link #isIncrementalPropagation()}), only the
+ * consequences of seed modifications added or removed since the last run on the same file
+ * in this session are recalculated (see {@link IncrementalChangePropagation#getSessionPropagation(URI)}).
+ * The propagation runs as cancelable background
+ * job (see {@link AnalysisPipelineJob}); editors are saved before it is started. The
+ * cost of the stages and the number of modification marks per propagation step are
+ * saved into <code>propagation-metrics.json</code> (see {@link AnalysisInstrumentation}).
  * 
  * @generated NOT
  */
@@ -58,33 +74,91 @@ public abstract class AbstractChangePropagationAction <T extends AbstractArchite
 				URI resourceURI = ((AbstractModificationRepository<?,?>)selectedElement).eResource().getURI();
 				String fileName = resourceURI.trimFileExtension().lastSegment();
 				String folderPathString = resourceURI.trimSegments(1).toPlatformString(false);
-				IFolder folder = ResourcesPlugin.getWorkspace().getRoot().getFolder(new Path(folderPathString));
 
-				T targetversion = null;
 				if (folderPathString != null) {
-					targetversion = architectureVersionPersistency.load(folder, "target");
+					IFolder folder = ResourcesPlugin.getWorkspace().getRoot().getFolder(new Path(folderPathString));
+					this.createChangePropagationJob(folder, fileName, architectureVersionPersistency).schedule();
 				}
-				
+			}
+		}	
+	}
+	
+	/**
+	 * Creates the job which loads the target version from the <code>folder</code>, runs the
+	 * change propagation and saves the modification marks into the file <code>fileName</code>.
+	 */
+	protected AnalysisPipelineJob createChangePropagationJob(final IFolder folder, final String fileName,
+			final AbstractArchitectureVersionPersistency<T> architectureVersionPersistency) {
+		final AnalysisPipelineJob job = new AnalysisPipelineJob("Running change propagation");
+		final ISchedulingRule saveRule = AnalysisPipelineJob.createSchedulingRule(folder);
+		final String folderPathString = folder.getFullPath().toString();
+		final URI modificationMarkFileURI = URI.createPlatformResourceURI(folderPathString + "/" + fileName + "."
+				+ architectureVersionPersistency.getModificationMarkFileExtension(), true);
+		final List<T> targetversions = new ArrayList<T>(1);
+		job.setInstrumentationFile(folder.getFile(new Path("propagation-metrics." 
+				+ AnalysisInstrumentation.FILEEXTENSION_JSON)));
+		
+		job.addStage(new AbstractAnalysisStage("Loading target version", 30) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				T targetversion = architectureVersionPersistency.load(folder, "target");
 				if (targetversion != null) {
+					targetversions.add(targetversion);
+				} else {
+					job.skipRemainingStages("Change propagation could not be run, as the target version was not found.");
+				}
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Propagating changes", 50) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				T targetversion = targetversions.get(0);
+				if (isIncrementalPropagation()) {
+					IncrementalChangePropagation.<T>getSessionPropagation(modificationMarkFileURI).
+							runChangePropagation(targetversion, createChangePropagationAnalysis());
+				} else {
+					// the recorded seed elements do not match the results of the complete run
+					IncrementalChangePropagation.removeSessionPropagation(modificationMarkFileURI);
 					//Clear results of previous run and start new run
 					targetversion.getModificationMarkRepository().getChangePropagationSteps().clear();
-					this.createChangePropagationAnalysis().runChangePropagationAnalysis(targetversion);
-					try {
-						architectureVersionPersistency.saveModificationMarkFile(folderPathString, fileName, targetversion);
-					} catch (IOException e) {
-						throw new RuntimeException(e);
-					}
+					createChangePropagationAnalysis().runChangePropagationAnalysis(targetversion);
+				}
+				job.getInstrumentation().recordChangePropagationSteps(targetversion.getModificationMarkRepository());
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Saving modification marks", 20, saveRule) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				T targetversion = targetversions.get(0);
+				try {
+					architectureVersionPersistency.saveModificationMarkFile(folderPathString, fileName, targetversion);
+					folder.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				} catch (CoreException e) {
+					throw new RuntimeException(e);
 				}
-				
 				if (!targetversion.getModificationMarkRepository().getChangePropagationSteps().isEmpty()) {
-					AbstractDeriveWorkplanAction.showMessage("Propagation steps have been added to the tree.");
+					job.setResultMessage("Propagation steps have been added to the tree.");
 				} else {
-					AbstractDeriveWorkplanAction.showMessage("No propagation steps could be found.");
+					job.setResultMessage("No propagation steps could be found.");
 				}
-				
-				PlatformUI.getWorkbench().saveAllEditors(false);
 			}
-		}	
+		});
+		return job;
+	}
+
+	/**
+	 * Returns whether the propagation is run incrementally. Sub-classes return 
+	 * <code>true</code> if their analysis supports it, ideally an
+	 * {@link edu.kit.ipd.sdq.kamp.propagation.AbstractIncrementalChangePropagationAnalysis};
+	 * otherwise only runs with removed seed modifications are incremental.
+	 */
+	protected boolean isIncrementalPropagation() {
+		return false;
 	}
 
 	@Override
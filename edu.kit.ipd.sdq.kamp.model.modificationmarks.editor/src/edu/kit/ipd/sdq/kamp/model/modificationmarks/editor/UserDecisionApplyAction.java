@@ -1,5 +1,17 @@
 package edu.kit.ipd.sdq.kamp.model.modificationmarks.editor;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.viewers.ISelection;
@@ -10,12 +22,16 @@ import org.eclipse.ui.PlatformUI;
 import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
 import edu.kit.ipd.sdq.kamp.propagation.UserDecisionAnalysis;
-import edu.kit.ipd.sdq.kamp.ui.AbstractDeriveWorkplanAction;
+import edu.kit.ipd.sdq.kamp.ui.AbstractAnalysisStage;
+import edu.kit.ipd.sdq.kamp.ui.AnalysisPipelineJob;
+import edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation;
 
 /**
  * Considers user decisions (accept, exclude, no decision) in the *.modificationmarks
- * file, running the {@link UserDecisionAnalysis#considerUserDecisions(AbstractModificationRepository)} 
- * algorithm and saving the result.<br>
+ * file, running the {@link UserDecisionAnalysis#considerUserDecisionsWithoutResolving(AbstractModificationRepository)} 
+ * algorithm and saving the result. The references to the architecture models are not
+ * resolved, so the architecture models are not loaded. The action runs as background
+ * job (see {@link AnalysisPipelineJob}) after the editors have been saved.<br>
  * As the action is independent of the concrete models of your architecture and your
  * personal modificationmarks model (as long as you extends AMP's modificationmarks
  * model), this action is ready to use in Eclipse without further changes (in the 
@@ -38,20 +54,70 @@ public class UserDecisionApplyAction implements IActionDelegate {
 		}
 		
 		if (selectedElement != null && selectedElement instanceof AbstractModificationRepository) {
-			AbstractModificationRepository<?,?> modificationRepository =
-					(AbstractModificationRepository<?,?>) selectedElement;
-			UserDecisionAnalysis.considerUserDecisions(modificationRepository);		
-			
-			String fileName = modificationRepository.eResource().getURI().lastSegment();
-			String folderPathString = modificationRepository.eResource().getURI().
-					trimSegments(1).toPlatformString(false);
-			AbstractArchitectureVersionPersistency.saveEmfModelToResource(modificationRepository, 
-					folderPathString, fileName, new ResourceSetImpl());
-			AbstractDeriveWorkplanAction.showMessage("User actions are considered.");		
-			PlatformUI.getWorkbench().saveAllEditors(false);
+			URI resourceURI = ((AbstractModificationRepository<?,?>) selectedElement).eResource().getURI();
+			IFile modificationMarkFile = ResourcesPlugin.getWorkspace().getRoot().getFile(
+					new Path(resourceURI.toPlatformString(true)));
+			this.createUserDecisionJob(modificationMarkFile).schedule();
 		}
 	}
 	
+	/**
+	 * Creates the job which considers the user decisions. The job works on a copy of the
+	 * modification marks loaded from the (saved) <code>modificationMarkFile</code>, so the
+	 * model of the editor is not changed outside the UI thread; the editor reloads the
+	 * file when it has been changed.
+	 */
+	protected AnalysisPipelineJob createUserDecisionJob(final IFile modificationMarkFile) {
+		final AnalysisPipelineJob job = new AnalysisPipelineJob("Considering user decisions");
+		final ISchedulingRule saveRule = AnalysisPipelineJob.createSchedulingRule(modificationMarkFile.getParent());
+		final List<AbstractModificationRepository<?,?>> repositories = 
+				new ArrayList<AbstractModificationRepository<?,?>>(1);
+		job.setInstrumentationFile(modificationMarkFile.getParent().getFile(new Path("userdecision-metrics." 
+				+ AnalysisInstrumentation.FILEEXTENSION_JSON)));
+		
+		job.addStage(new AbstractAnalysisStage("Loading modification marks", 30) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				Resource resource = new ResourceSetImpl().getResource(URI.createPlatformResourceURI(
+						modificationMarkFile.getFullPath().toString(), true), true);
+				if (!resource.getContents().isEmpty() 
+						&& resource.getContents().get(0) instanceof AbstractModificationRepository) {
+					repositories.add((AbstractModificationRepository<?,?>) resource.getContents().get(0));
+					job.getInstrumentation().addCount(AnalysisInstrumentation.COUNT_MODIFICATION_MARKS, 
+							AnalysisInstrumentation.countModificationMarks(repositories.get(0)));
+				} else {
+					job.skipRemainingStages("User decisions could not be considered, as the modification marks were not found.");
+				}
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Considering user decisions", 40) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				UserDecisionAnalysis.considerUserDecisionsWithoutResolving(repositories.get(0));
+				job.getInstrumentation().addCount(AnalysisInstrumentation.COUNT_MODIFICATION_MARKS, 
+						AnalysisInstrumentation.countModificationMarks(repositories.get(0)));
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Saving modification marks", 30, saveRule) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				AbstractArchitectureVersionPersistency.saveEmfModelToResource(repositories.get(0), 
+						modificationMarkFile.getParent().getFullPath().toString(), 
+						modificationMarkFile.getName(), new ResourceSetImpl());
+				try {
+					modificationMarkFile.refreshLocal(IResource.DEPTH_ZERO, monitor);
+				} catch (CoreException e) {
+					throw new RuntimeException(e);
+				}
+				job.setResultMessage("User actions are considered.");
+			}
+		});
+		return job;
+	}
+	
 	@Override
 	public void selectionChanged(IAction action, ISelection selection) {
 		this.selection = selection;
@@ -3,6 +3,7 @@
 package edu.kit.ipd.sdq.kamp.model.modificationmarks.presentation;
 
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -154,6 +155,9 @@ import org.eclipse.emf.edit.ui.util.EditUIUtil;
 
 import org.eclipse.emf.edit.ui.view.ExtendedPropertySheetPage;
 
+import edu.kit.ipd.sdq.kamp.architecture.ModificationMarkIndexFile;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.provider.ModificationmarksItemProviderAdapterFactory;
 
 import org.eclipse.ui.actions.WorkspaceModifyOperation;
@@ -380,6 +384,16 @@ public class ModificationmarksEditor
 	 */
 	protected Collection<Resource> savedResources = new ArrayList<Resource>();
 
+	/**
+	 * Summary (counts of modifications and steps) read from the index file of the
+	 * modification marks, shown in the status line if nothing is selected. It is read
+	 * when the file is opened and saved, so the counts do not need a traversal of the model.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated NOT
+	 */
+	protected String modificationMarkIndexSummary = null;
+
 	/**
 	 * Map to store the diagnostic associated with a resource.
 	 * <!-- begin-user-doc -->
@@ -945,11 +959,15 @@ public class ModificationmarksEditor
 	/**
 	 * This is the method called to load a resource into the editing domain's resource set based on the editor's input.
 	 * <!-- begin-user-doc -->
+	 * If the modification marks file has an up-to-date index file, the counts of the
+	 * modifications are read from it (see {@link #readModificationMarkIndexSummary(URI)}).
+	 * The resource itself is still loaded completely here.
 	 * <!-- end-user-doc -->
-	 * @generated
+	 * @generated NOT
 	 */
 	public void createModel() {
 		URI resourceURI = EditUIUtil.getURI(getEditorInput(), editingDomain.getResourceSet().getURIConverter());
+		readModificationMarkIndexSummary(resourceURI);
 		Exception exception = null;
 		Resource resource = null;
 		try {
@@ -969,6 +987,56 @@ public class ModificationmarksEditor
 		editingDomain.getResourceSet().eAdapters().add(problemIndicationAdapter);
 	}
 
+	/**
+	 * Reads the counts of the modifications from the index file of the modification marks
+	 * (if there is an up-to-date one) into the {@link #modificationMarkIndexSummary}.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated NOT
+	 */
+	protected void readModificationMarkIndexSummary(URI resourceURI) {
+		File modificationMarkFile = ModificationMarkIndexFile.toLocalFile(resourceURI);
+		ModificationMarkIndexFile index = modificationMarkFile != null ? 
+				ModificationMarkIndexFile.open(modificationMarkFile) : null;
+		if (index != null) {
+			modificationMarkIndexSummary = ModificationmarksEditorPlugin.INSTANCE.getString(
+					"_UI_ModificationMarkIndex_message", new Object [] { 
+						Integer.toString(index.getModificationCount()), 
+						Integer.toString(index.getStepCount()),
+						Integer.toString(index.getModificationCount(AcceptanceAndConfirmationState.EXCLUDED)),
+						Integer.toString(index.getModificationCount(AcceptanceAndConfirmationState.CONFIRMED)) });
+		}
+		else {
+			modificationMarkIndexSummary = null;
+		}
+	}
+
+	/**
+	 * Writes the index file of the modification marks contained in the saved resource and
+	 * updates the summary of the edited file.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated NOT
+	 */
+	protected void writeModificationMarkIndex(Resource resource) {
+		if (!resource.getContents().isEmpty() && resource.getContents().get(0) instanceof AbstractModificationRepository) {
+			File modificationMarkFile = ModificationMarkIndexFile.toLocalFile(resource.getURI());
+			if (modificationMarkFile != null) {
+				try {
+					ModificationMarkIndexFile.write((AbstractModificationRepository<?,?>) resource.getContents().get(0), 
+							modificationMarkFile);
+					if (resource == editingDomain.getResourceSet().getResources().get(0)) {
+						readModificationMarkIndexSummary(resource.getURI());
+					}
+				}
+				catch (RuntimeException exception) {
+					// the index is optional, so the save still succeeds
+					ModificationmarksEditorPlugin.INSTANCE.log(exception);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Returns a diagnostic describing the errors and warnings listed in the resource
 	 * and the specified exception (if any).
@@ -1469,8 +1537,9 @@ public class ModificationmarksEditor
 	/**
 	 * This is for implementing {@link IEditorPart} and simply saves the model file.
 	 * <!-- begin-user-doc -->
+	 * Writes the index file of the saved modification marks.
 	 * <!-- end-user-doc -->
-	 * @generated
+	 * @generated NOT
 	 */
 	@Override
 	public void doSave(IProgressMonitor progressMonitor) {
@@ -1498,6 +1567,7 @@ public class ModificationmarksEditor
 								resource.save(saveOptions);
 								if (resource.getTimeStamp() != timeStamp) {
 									savedResources.add(resource);
+									writeModificationMarkIndex(resource);
 								}
 							}
 							catch (Exception exception) {
@@ -1688,8 +1758,9 @@ public class ModificationmarksEditor
 
 	/**
 	 * <!-- begin-user-doc -->
+	 * Shows the summary of the index file (if any) if nothing is selected.
 	 * <!-- end-user-doc -->
-	 * @generated
+	 * @generated NOT
 	 */
 	public void setStatusLineManager(ISelection selection) {
 		IStatusLineManager statusLineManager = currentViewer != null && currentViewer == contentOutlineViewer ?
@@ -1700,7 +1771,8 @@ public class ModificationmarksEditor
 				Collection<?> collection = ((IStructuredSelection)selection).toList();
 				switch (collection.size()) {
 					case 0: {
-						statusLineManager.setMessage(getString("_UI_NoObjectSelected"));
+						statusLineManager.setMessage(modificationMarkIndexSummary != null ? 
+							modificationMarkIndexSummary : getString("_UI_NoObjectSelected"));
 						break;
 					}
 					case 1: {
@@ -0,0 +1,53 @@
+/**
+ */
+package edu.kit.ipd.sdq.kamp.model.modificationmarks.util;
+
+import org.eclipse.emf.common.util.URI;
+
+import org.eclipse.emf.ecore.resource.Resource;
+
+import org.eclipse.emf.ecore.resource.impl.ResourceFactoryImpl;
+
+/**
+ * <!-- begin-user-doc -->
+ * The <b>Resource Factory</b> for models in the binary format of EMF, registered for
+ * modification marks with the file extension <code>modificationmarksbin</code>. Binary 
+ * resources are much smaller than XMI files and are loaded and saved without parsing XML.
+ * The resources are not specific to modification marks, so the factory can also be used
+ * for architecture models.
+ * <!-- end-user-doc -->
+ * @see edu.kit.ipd.sdq.kamp.model.modificationmarks.util.ModificationmarksBinaryResourceImpl
+ * @generated NOT
+ */
+public class ModificationmarksBinaryResourceFactoryImpl extends ResourceFactoryImpl {
+	/**
+	 * <!-- begin-user-doc -->
+	 * The file extension of modification marks in the binary format.
+	 * <!-- end-user-doc -->
+	 * @generated NOT
+	 */
+	public static final String FILE_EXTENSION = "modificationmarksbin";
+
+	/**
+	 * Creates an instance of the resource factory.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated NOT
+	 */
+	public ModificationmarksBinaryResourceFactoryImpl() {
+		super();
+	}
+
+	/**
+	 * Creates an instance of the resource.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated NOT
+	 */
+	@Override
+	public Resource createResource(URI uri) {
+		Resource result = new ModificationmarksBinaryResourceImpl(uri);
+		return result;
+	}
+
+} //ModificationmarksBinaryResourceFactoryImpl
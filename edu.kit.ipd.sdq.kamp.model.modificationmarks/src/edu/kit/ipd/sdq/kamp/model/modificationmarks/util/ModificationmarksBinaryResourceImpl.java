@@ -0,0 +1,58 @@
+/**
+ */
+package edu.kit.ipd.sdq.kamp.model.modificationmarks.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.URI;
+
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+
+/**
+ * <!-- begin-user-doc -->
+ * The <b>Resource</b> for models in the binary format of EMF. The default load and save
+ * options select the compact binary encoding of enumerators, dates and floating point
+ * numbers and a large buffer; they are merged into the options passed to each load and save.
+ * <!-- end-user-doc -->
+ * @see edu.kit.ipd.sdq.kamp.model.modificationmarks.util.ModificationmarksBinaryResourceFactoryImpl
+ * @generated NOT
+ */
+public class ModificationmarksBinaryResourceImpl extends BinaryResourceImpl {
+	/**
+	 * <!-- begin-user-doc -->
+	 * Size of the buffer used for reading and writing.
+	 * <!-- end-user-doc -->
+	 * @generated NOT
+	 */
+	public static final int BUFFER_CAPACITY = 64 * 1024;
+
+	/**
+	 * Creates an instance of the resource.
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @param uri the URI of the new resource.
+	 * @generated NOT
+	 */
+	public ModificationmarksBinaryResourceImpl(URI uri) {
+		super(uri);
+		this.defaultLoadOptions = createDefaultOptions();
+		this.defaultSaveOptions = createDefaultOptions();
+	}
+
+	/**
+	 * <!-- begin-user-doc -->
+	 * <!-- end-user-doc -->
+	 * @generated NOT
+	 */
+	protected static Map<Object, Object> createDefaultOptions() {
+		Map<Object, Object> options = new HashMap<Object, Object>();
+		options.put(OPTION_VERSION, BinaryIO.Version.VERSION_1_1);
+		options.put(OPTION_STYLE_BINARY_ENUMERATOR, Boolean.TRUE);
+		options.put(OPTION_STYLE_BINARY_DATE, Boolean.TRUE);
+		options.put(OPTION_STYLE_BINARY_FLOATING_POINT, Boolean.TRUE);
+		options.put(OPTION_BUFFER_CAPACITY, BUFFER_CAPACITY);
+		return options;
+	}
+
+} //ModificationmarksBinaryResourceImpl
@@ -0,0 +1,166 @@
+package edu.kit.ipd.sdq.kamp.testmodel;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.impl.BasicEObjectImpl;
+import org.eclipse.emf.ecore.impl.EFactoryImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksFactory;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksPackage;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.SeedModifications;
+
+/**
+ * Small architecture model for the tests and benchmarks: a dynamic package with components
+ * (<code>Component</code> with a <code>name</code>, <code>requires</code> references and
+ * contained <code>children</code>), and sub-classes of the seed modifications and change
+ * propagation steps of the modificationmarks package which contain their modifications in
+ * a <code>modifications</code> reference (as the modificationmarks models of the KAMP4x
+ * approaches do). The steps and seed modifications are instances of the generated classes,
+ * also when they are loaded from files, so they can be used with all algorithms of KAMP.
+ * The model does not depend on the KAMP core, so the tests of the core and the benchmarks
+ * can both use it.
+ */
+public class ComponentModel {
+
+	public static final String FILE_EXTENSION = "testmodel";
+
+	public static final EPackage PACKAGE;
+	public static final EClass COMPONENT;
+	public static final EAttribute COMPONENT_NAME;
+	public static final EReference COMPONENT_REQUIRES;
+	public static final EReference COMPONENT_CHILDREN;
+	public static final EClass SEED_MODIFICATIONS;
+	public static final EClass CHANGE_PROPAGATION_STEP;
+
+	static {
+		EcoreFactory factory = EcoreFactory.eINSTANCE;
+		PACKAGE = factory.createEPackage();
+		PACKAGE.setName("testmodel");
+		PACKAGE.setNsPrefix("testmodel");
+		PACKAGE.setNsURI("http://edu.kit.ipd.sdq.kamp/tests/testmodel");
+
+		COMPONENT = factory.createEClass();
+		COMPONENT.setName("Component");
+		COMPONENT_NAME = factory.createEAttribute();
+		COMPONENT_NAME.setName("name");
+		COMPONENT_NAME.setEType(EcorePackage.Literals.ESTRING);
+		COMPONENT_NAME.setID(true);
+		COMPONENT.getEStructuralFeatures().add(COMPONENT_NAME);
+		COMPONENT_REQUIRES = factory.createEReference();
+		COMPONENT_REQUIRES.setName("requires");
+		COMPONENT_REQUIRES.setUpperBound(-1);
+		COMPONENT_REQUIRES.setEType(COMPONENT);
+		COMPONENT.getEStructuralFeatures().add(COMPONENT_REQUIRES);
+		COMPONENT_CHILDREN = factory.createEReference();
+		COMPONENT_CHILDREN.setName("children");
+		COMPONENT_CHILDREN.setUpperBound(-1);
+		COMPONENT_CHILDREN.setContainment(true);
+		COMPONENT_CHILDREN.setEType(COMPONENT);
+		COMPONENT.getEStructuralFeatures().add(COMPONENT_CHILDREN);
+
+		SEED_MODIFICATIONS = createModificationContainer("TestSeedModifications",
+				ModificationmarksPackage.Literals.SEED_MODIFICATIONS);
+		CHANGE_PROPAGATION_STEP = createModificationContainer("TestChangePropagationStep",
+				ModificationmarksPackage.Literals.CHANGE_PROPAGATION_STEP);
+
+		PACKAGE.getEClassifiers().add(COMPONENT);
+		PACKAGE.getEClassifiers().add(SEED_MODIFICATIONS);
+		PACKAGE.getEClassifiers().add(CHANGE_PROPAGATION_STEP);
+		PACKAGE.setEFactoryInstance(new ComponentModelFactory());
+		EPackage.Registry.INSTANCE.put(PACKAGE.getNsURI(), PACKAGE);
+	}
+
+	protected ComponentModel() {
+	}
+
+	private static EClass createModificationContainer(String name, EClass superType) {
+		EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+		eClass.setName(name);
+		eClass.getESuperTypes().add(superType);
+		EReference modifications = EcoreFactory.eINSTANCE.createEReference();
+		modifications.setName("modifications");
+		modifications.setContainment(true);
+		modifications.setUpperBound(-1);
+		modifications.setEType(ModificationmarksPackage.Literals.MODIFICATION);
+		eClass.getEStructuralFeatures().add(modifications);
+		return eClass;
+	}
+
+	public static EObject createComponent(String name) {
+		EObject component = EcoreUtil.create(COMPONENT);
+		component.eSet(COMPONENT_NAME, name);
+		return component;
+	}
+
+	public static String getName(Object component) {
+		return (String) ((EObject) component).eGet(COMPONENT_NAME);
+	}
+
+	@SuppressWarnings("unchecked")
+	public static EList<EObject> getRequires(EObject component) {
+		return (EList<EObject>) component.eGet(COMPONENT_REQUIRES);
+	}
+
+	@SuppressWarnings("unchecked")
+	public static EList<EObject> getChildren(EObject component) {
+		return (EList<EObject>) component.eGet(COMPONENT_CHILDREN);
+	}
+
+	public static SeedModifications createSeedModifications() {
+		return (SeedModifications) EcoreUtil.create(SEED_MODIFICATIONS);
+	}
+
+	public static ChangePropagationStep createChangePropagationStep() {
+		return (ChangePropagationStep) EcoreUtil.create(CHANGE_PROPAGATION_STEP);
+	}
+
+	/**
+	 * Returns the modifications of seed modifications or a change propagation step of this
+	 * model.
+	 */
+	@SuppressWarnings("unchecked")
+	public static EList<Modification> getModifications(EObject seedModificationsOrStep) {
+		return (EList<Modification>) seedModificationsOrStep.eGet(
+				seedModificationsOrStep.eClass().getEStructuralFeature("modifications"));
+	}
+
+	public static Modification createModification(EObject affectedElement, EObject... causingElements) {
+		Modification modification = ModificationmarksFactory.eINSTANCE.createModification();
+		modification.setAffectedElement(affectedElement);
+		for (EObject causingElement: causingElements) {
+			modification.getCausingElements().add(causingElement);
+		}
+		return modification;
+	}
+
+	/**
+	 * Creates the steps and seed modifications as instances of the generated classes (with
+	 * the classes of this model as their EClass).
+	 */
+	private static class ComponentModelFactory extends EFactoryImpl {
+
+		@Override
+		public EObject create(EClass eClass) {
+			BasicEObjectImpl result;
+			if (eClass == SEED_MODIFICATIONS) {
+				result = (BasicEObjectImpl) ModificationmarksFactory.eINSTANCE.createSeedModifications();
+			} else if (eClass == CHANGE_PROPAGATION_STEP) {
+				result = (BasicEObjectImpl) ModificationmarksFactory.eINSTANCE.createChangePropagationStep();
+			} else {
+				return super.create(eClass);
+			}
+			result.eSetClass(eClass);
+			return result;
+		}
+	}
+
+}
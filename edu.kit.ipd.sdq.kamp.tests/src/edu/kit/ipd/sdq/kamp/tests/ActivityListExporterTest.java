@@ -0,0 +1,210 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.tests.TestWorkspace.TestPersistency;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.ActivityListExporter;
+import edu.kit.ipd.sdq.kamp.workplan.ActivityListExporter.Format;
+import edu.kit.ipd.sdq.kamp.workplan.BasicActivity;
+
+/**
+ * Exports a small activity tree (an activity for <code>c0</code> with a sub-activity for
+ * <code>c1</code>, which has a follow-up activity for <code>c2</code>, and a follow-up
+ * activity whose texts have to be quoted, followed by an activity for <code>c4</code>) in
+ * all formats of the {@link ActivityListExporter} and checks the exact output. Also checks
+ * which writer the persistency uses for the plain format.
+ */
+public class ActivityListExporterTest {
+
+	/**
+	 * The element type as written in the plain format (which uses its string representation).
+	 */
+	private static final String ELEMENT_TYPE = String.valueOf(TestWorkplan.COMPONENT);
+
+	private List<Activity> activities;
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		List<EObject> components = TestWorkplan.createComponents(5);
+		Activity activity = TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY,
+				components.get(0), "c1");
+		Activity subActivity = TestWorkplan.createActivity(TestWorkplan.DOCUMENTATION, BasicActivity.ADD,
+				components.get(1));
+		subActivity.addFollowupActivity(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.REMOVE,
+				components.get(2), "c0", "c1"));
+		activity.addSubActivity(subActivity);
+		activity.addFollowupActivity(new Activity(TestWorkplan.DOCUMENTATION, TestWorkplan.COMPONENT,
+				components.get(3), "c3, \"c1\"", null, BasicActivity.CHECKANDUPDATE, "Check \"c3\",\nthen c1"));
+		this.activities = new ArrayList<Activity>();
+		this.activities.add(activity);
+		this.activities.add(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY,
+				components.get(4)));
+		this.directory = Files.createTempDirectory("activitylist").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file: this.directory.listFiles()) {
+			file.delete();
+		}
+		this.directory.delete();
+	}
+
+	@Test
+	public void testPlainFormat() throws IOException {
+		assertEquals(getPlainText("#"), export(this.activities, "#", Format.PLAIN));
+		// no prefix is the same as an empty prefix
+		assertEquals(getPlainText(""), export(this.activities, null, Format.PLAIN));
+	}
+
+	@Test
+	public void testCsvFormat() throws IOException {
+		assertEquals("Prefix,Basic activity,Element type,Affected element,Activity type,Activity description,"
+				+ "Causing elements\n"
+				+ ",Modify,Component,c0,Implementation,Modify Implementation of <c0>,c1\n"
+				+ "=,Add,Component,c1,Documentation,Add Documentation of <c1>,\n"
+				+ "=->,Remove,Component,c2,Implementation,Remove Implementation of <c2>,\"c0, c1\"\n"
+				+ "->,Check and update,Component,\"c3, \"\"c1\"\"\",Documentation,\"Check \"\"c3\"\",\nthen c1\",\n"
+				+ ",Modify,Component,c4,Implementation,Modify Implementation of <c4>,\n",
+				export(this.activities, "", Format.CSV));
+	}
+
+	@Test
+	public void testJsonLinesFormat() throws IOException {
+		assertEquals("{\"prefix\":\"\",\"basicActivity\":\"Modify\",\"elementType\":\"Component\","
+				+ "\"elementName\":\"c0\",\"activityType\":\"Implementation\","
+				+ "\"description\":\"Modify Implementation of <c0>\",\"causingElements\":[\"c1\"]}\n"
+				+ "{\"prefix\":\"=\",\"basicActivity\":\"Add\",\"elementType\":\"Component\","
+				+ "\"elementName\":\"c1\",\"activityType\":\"Documentation\","
+				+ "\"description\":\"Add Documentation of <c1>\",\"causingElements\":[]}\n"
+				+ "{\"prefix\":\"=->\",\"basicActivity\":\"Remove\",\"elementType\":\"Component\","
+				+ "\"elementName\":\"c2\",\"activityType\":\"Implementation\","
+				+ "\"description\":\"Remove Implementation of <c2>\",\"causingElements\":[\"c0\",\"c1\"]}\n"
+				+ "{\"prefix\":\"->\",\"basicActivity\":\"Check and update\",\"elementType\":\"Component\","
+				+ "\"elementName\":\"c3, \\\"c1\\\"\",\"activityType\":\"Documentation\","
+				+ "\"description\":\"Check \\\"c3\\\",\\nthen c1\",\"causingElements\":[]}\n"
+				+ "{\"prefix\":\"\",\"basicActivity\":\"Modify\",\"elementType\":\"Component\","
+				+ "\"elementName\":\"c4\",\"activityType\":\"Implementation\","
+				+ "\"description\":\"Modify Implementation of <c4>\",\"causingElements\":[]}\n",
+				export(this.activities, "", Format.JSONL));
+	}
+
+	@Test
+	public void testActivityWithoutTexts() throws IOException {
+		List<Activity> activities = Arrays.asList(new Activity(null, null, null, null, null, null, null));
+		assertEquals(" null null null\n", export(activities, "", Format.PLAIN));
+		assertEquals("Prefix,Basic activity,Element type,Affected element,Activity type,Activity description,"
+				+ "Causing elements\n,,,,,,\n", export(activities, "", Format.CSV));
+		assertEquals("{\"prefix\":\"\",\"basicActivity\":null,\"elementType\":null,\"elementName\":null,"
+				+ "\"activityType\":null,\"description\":null,\"causingElements\":[]}\n",
+				export(activities, "", Format.JSONL));
+	}
+
+	@Test
+	public void testEmptyActivityList() throws IOException {
+		List<Activity> activities = Collections.emptyList();
+		assertEquals("", export(activities, "", Format.PLAIN));
+		assertEquals("Prefix,Basic activity,Element type,Affected element,Activity type,Activity description,"
+				+ "Causing elements\n", export(activities, "", Format.CSV));
+		assertEquals("", export(activities, "", Format.JSONL));
+	}
+
+	@Test
+	public void testFileIsCreatedOrTruncated() throws IOException {
+		File file = new File(new File(this.directory, "workplan"), "workplan.activitylist");
+		new ActivityListExporter().export(file.toPath(), this.activities, Format.PLAIN);
+		assertEquals(getPlainText(""), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+
+		new ActivityListExporter().export(file.toPath(), this.activities.subList(1, 2), Format.PLAIN);
+		assertEquals(" MODIFY " + ELEMENT_TYPE + " c4\n",
+				new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+		assertTrue(file.delete());
+		assertTrue(file.getParentFile().delete());
+	}
+
+	@Test
+	public void testPersistencyWritesPlainFormatThroughExporter() throws IOException {
+		final List<String> writerPrefixes = new ArrayList<String>();
+		TestPersistency overridingPersistency = new TestPersistency() {
+
+			@Override
+			protected void saveActivityListToTextFile(FileWriter writer, List<Activity> activityList, String prefix) {
+				writerPrefixes.add(prefix);
+				super.saveActivityListToTextFile(writer, activityList, prefix);
+			}
+		};
+		new TestPersistency().saveActivityListToTextFile(this.directory, "exported", this.activities);
+		assertEquals(getPlainText(""), readFile("exported.activitylist"));
+		assertTrue(writerPrefixes.isEmpty());
+
+		// a subclass which overrides the FileWriter method still gets it called
+		overridingPersistency.saveActivityListToTextFile(this.directory, "overridden", this.activities);
+		assertEquals(Arrays.asList(""), writerPrefixes);
+		assertEquals(getPlainText(""), readFile("overridden.activitylist"));
+	}
+
+	@Test
+	public void testPersistencyWritesConfiguredFormat() throws IOException {
+		TestPersistency persistency = new TestPersistency();
+		persistency.setActivityListFormat(Format.CSV);
+		persistency.saveActivityListToTextFile(this.directory, "exported", this.activities);
+		assertEquals(export(this.activities, "", Format.CSV), readFile("exported.csv"));
+	}
+
+	@Test
+	public void testDeepActivityTree() throws IOException {
+		EObject component = TestWorkplan.createComponents(1).get(0);
+		Activity root = TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY, component);
+		Activity activity = root;
+		for (int depth = 0; depth < 20000; depth++) {
+			Activity subActivity = TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY,
+					component);
+			activity.addSubActivity(subActivity);
+			activity = subActivity;
+		}
+		String[] lines = export(Arrays.asList(root), "", Format.PLAIN).split("\n");
+		assertEquals(20001, lines.length);
+		assertTrue(lines[20000].startsWith(new String(new char[20000]).replace('\0', '=') + " "));
+	}
+
+	/**
+	 * Returns the plain activity list of the activity tree of {@link #setUp()}.
+	 */
+	private static String getPlainText(String prefix) {
+		return prefix + " MODIFY " + ELEMENT_TYPE + " c0\n"
+				+ prefix + "= ADD " + ELEMENT_TYPE + " c1\n"
+				+ prefix + "=-> REMOVE " + ELEMENT_TYPE + " c2\n"
+				+ prefix + "-> CHECKANDUPDATE " + ELEMENT_TYPE + " c3, \"c1\"\n"
+				+ prefix + " MODIFY " + ELEMENT_TYPE + " c4\n";
+	}
+
+	private static String export(List<Activity> activities, String prefix, Format format) throws IOException {
+		StringWriter writer = new StringWriter();
+		new ActivityListExporter().export(writer, activities, prefix, format);
+		return writer.toString();
+	}
+
+	private String readFile(String fileName) throws IOException {
+		return new String(Files.readAllBytes(new File(this.directory, fileName).toPath()), Charset.defaultCharset());
+	}
+
+}
@@ -0,0 +1,205 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation;
+import edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation.ChangePropagationStepRecord;
+
+/**
+ * Records the change propagation steps of a small repository (the seed modification of
+ * <code>a</code>, then <code>[b&lt;a, c&lt;a]</code>, <code>[d&lt;b]</code> and an empty
+ * step) with the {@link AnalysisInstrumentation}, and checks the assignment of counts and
+ * allocations to the phases, the recorded failure and the JSON output.
+ */
+public class AnalysisInstrumentationTest {
+
+	@Test
+	public void testChangePropagationSteps() {
+		TestArchitectureVersion version = createVersion();
+		AnalysisInstrumentation instrumentation = new AnalysisInstrumentation("test");
+		AnalysisInstrumentation.Phase phase = instrumentation.startPhase("Propagating changes");
+		instrumentation.recordChangePropagationSteps(version.getModificationMarkRepository());
+		phase.end();
+
+		List<ChangePropagationStepRecord> records = instrumentation.getChangePropagationSteps();
+		assertEquals(3, records.size());
+		int[] modificationMarkCounts = {2, 1, 0};
+		for (int i = 0; i < records.size(); i++) {
+			assertEquals(i + 1, records.get(i).getIndex());
+			assertEquals("TestChangePropagationStep", records.get(i).getType());
+			assertEquals(modificationMarkCounts[i], records.get(i).getModificationMarkCount());
+		}
+		assertEquals(Long.valueOf(3), phase.getCounts().get(AnalysisInstrumentation.COUNT_CHANGE_PROPAGATION_STEPS));
+		assertEquals(Long.valueOf(3), phase.getCounts().get(AnalysisInstrumentation.COUNT_MODIFICATION_MARKS));
+		// including the seed modification
+		assertEquals(4, AnalysisInstrumentation.countModificationMarks(version.getModificationMarkRepository()));
+
+		// a second propagation replaces the recorded steps
+		version.getModificationMarkRepository().getChangePropagationSteps().remove(0);
+		instrumentation.recordChangePropagationSteps(version.getModificationMarkRepository());
+		assertEquals(2, instrumentation.getChangePropagationSteps().size());
+		assertEquals(1, instrumentation.getChangePropagationSteps().get(0).getModificationMarkCount());
+	}
+
+	@Test
+	public void testRepositoryWithoutSteps() {
+		TestArchitectureVersion version = TestModel.createVersion("version", null);
+		AnalysisInstrumentation instrumentation = new AnalysisInstrumentation("test");
+		AnalysisInstrumentation.Phase phase = instrumentation.startPhase("Propagating changes");
+		instrumentation.recordChangePropagationSteps(version.getModificationMarkRepository());
+		phase.end();
+
+		assertTrue(instrumentation.getChangePropagationSteps().isEmpty());
+		assertEquals(Long.valueOf(0), phase.getCounts().get(AnalysisInstrumentation.COUNT_CHANGE_PROPAGATION_STEPS));
+		assertEquals(0, AnalysisInstrumentation.countModificationMarks(version.getModificationMarkRepository()));
+	}
+
+	@Test
+	public void testCountsOfCurrentPhase() {
+		AnalysisInstrumentation instrumentation = new AnalysisInstrumentation("test");
+		instrumentation.addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, 1);
+		AnalysisInstrumentation.Phase derivation = instrumentation.startPhase("Deriving work plan");
+		instrumentation.addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, 10);
+		instrumentation.addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, 5);
+		AnalysisInstrumentation.Phase sorting = instrumentation.startPhase("Sorting work plan");
+		instrumentation.addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, 7);
+		sorting.end();
+		// no phase is running
+		instrumentation.addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, 3);
+		derivation.end();
+
+		assertEquals(2, instrumentation.getPhases().size());
+		assertEquals(Long.valueOf(15), derivation.getCounts().get(AnalysisInstrumentation.COUNT_ACTIVITIES));
+		assertEquals(Long.valueOf(7), sorting.getCounts().get(AnalysisInstrumentation.COUNT_ACTIVITIES));
+		assertEquals(derivation.getWallTimeNanos() + sorting.getWallTimeNanos(), instrumentation.getTotalWallTimeNanos());
+
+		long wallTimeNanos = sorting.getWallTimeNanos();
+		sorting.end();
+		assertEquals(wallTimeNanos, sorting.getWallTimeNanos());
+	}
+
+	@Test
+	public void testRunningPhase() {
+		AnalysisInstrumentation instrumentation = new AnalysisInstrumentation("test");
+		AnalysisInstrumentation.Phase phase = instrumentation.startPhase("Loading");
+		assertTrue(phase.isRunning());
+		assertEquals(-1, phase.getWallTimeNanos());
+		assertEquals(-1, phase.getAllocatedBytes());
+		assertEquals(-1, phase.getThreadAllocatedBytes());
+		assertEquals(0, instrumentation.getTotalWallTimeNanos());
+		assertTrue(instrumentation.toString().contains("Loading: running"));
+	}
+
+	@Test
+	public void testAllocations() throws Exception {
+		AnalysisInstrumentation instrumentation = new AnalysisInstrumentation("test");
+		AnalysisInstrumentation.Phase phase = instrumentation.startPhase("Allocating in phase thread");
+		byte[] allocated = new byte[4 * 1024 * 1024];
+		phase.end();
+		assertEquals(4 * 1024 * 1024, allocated.length);
+		if (!AnalysisInstrumentation.isAllocationMeasurementSupported()) {
+			assertEquals(-1, phase.getAllocatedBytes());
+			assertEquals(-1, phase.getThreadAllocatedBytes());
+			return;
+		}
+		assertTrue(phase.getThreadAllocatedBytes() >= allocated.length);
+		assertTrue(phase.getAllocatedBytes() >= allocated.length);
+
+		// the bytes allocated by a worker (which is still alive at the end of the phase)
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			phase = instrumentation.startPhase("Allocating in worker thread");
+			int length = executor.submit(new Callable<Integer>() {
+
+				@Override
+				public Integer call() {
+					return new byte[16 * 1024 * 1024].length;
+				}
+			}).get();
+			phase.end();
+			assertTrue(phase.getAllocatedBytes() >= length);
+			assertTrue(phase.getThreadAllocatedBytes() >= 0);
+			assertTrue(phase.getThreadAllocatedBytes() < length);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFirstFailureIsKept() {
+		AnalysisInstrumentation instrumentation = new AnalysisInstrumentation("test");
+		assertNull(instrumentation.getFailure());
+		instrumentation.recordFailure("Canceled");
+		instrumentation.recordFailure(new IllegalStateException().toString());
+		assertEquals("Canceled", instrumentation.getFailure());
+		assertTrue(instrumentation.toString().contains("failed: Canceled"));
+	}
+
+	@Test
+	public void testJson() throws IOException {
+		TestArchitectureVersion version = createVersion();
+		AnalysisInstrumentation instrumentation = new AnalysisInstrumentation("variant \"a\"");
+		AnalysisInstrumentation.Phase phase = instrumentation.startPhase("Propagating changes");
+		instrumentation.recordChangePropagationSteps(version.getModificationMarkRepository());
+		phase.end();
+		instrumentation.startPhase("Deriving work plan");
+		instrumentation.recordFailure("line 1\nline 2");
+
+		File file = File.createTempFile("analysis-metrics", "." + AnalysisInstrumentation.FILEEXTENSION_JSON);
+		try {
+			instrumentation.saveToJsonFile(file);
+			String json = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+			assertEquals(instrumentation.toJson(), json);
+			assertTrue(json.contains("\"analysis\": \"variant \\\"a\\\"\""));
+			assertTrue(json.contains("\"failure\": \"line 1\\u000aline 2\""));
+			assertTrue(json.contains("\"totalWallTimeNanos\": " + phase.getWallTimeNanos() + ","));
+			assertTrue(json.contains("{\"name\": \"Propagating changes\", \"wallTimeNanos\": " + phase.getWallTimeNanos()
+					+ ", \"allocatedBytes\": " + phase.getAllocatedBytes()
+					+ ", \"threadAllocatedBytes\": " + phase.getThreadAllocatedBytes()
+					+ ", \"counts\": {\"" + AnalysisInstrumentation.COUNT_CHANGE_PROPAGATION_STEPS + "\": 3, \""
+					+ AnalysisInstrumentation.COUNT_MODIFICATION_MARKS + "\": 3}}"));
+			assertTrue(json.contains("{\"name\": \"Deriving work plan\", \"wallTimeNanos\": -1, \"allocatedBytes\": -1"));
+			assertTrue(json.contains("\"changePropagationSteps\": ["
+					+ "\n    {\"index\": 1, \"type\": \"TestChangePropagationStep\", \"modificationMarks\": 2},"
+					+ "\n    {\"index\": 2, \"type\": \"TestChangePropagationStep\", \"modificationMarks\": 1},"
+					+ "\n    {\"index\": 3, \"type\": \"TestChangePropagationStep\", \"modificationMarks\": 0}"));
+		} finally {
+			assertTrue(file.delete());
+		}
+
+		String emptyJson = new AnalysisInstrumentation("empty").toJson();
+		assertTrue(emptyJson.contains("\"failure\": null,"));
+		assertTrue(emptyJson.contains("\"phases\": [],"));
+		assertTrue(emptyJson.contains("\"changePropagationSteps\": []\n}"));
+	}
+
+	private static TestArchitectureVersion createVersion() {
+		EObject root = TestModel.createComponent("root");
+		for (String name: new String[] {"a", "b", "c", "d"}) {
+			TestModel.getChildren(root).add(TestModel.createComponent(name));
+		}
+		EObject a = TestModel.getChildren(root).get(0);
+		EObject b = TestModel.getChildren(root).get(1);
+		TestArchitectureVersion version = TestModel.createVersion("version", null);
+		version.getModelRoots().add(root);
+		TestModel.addSeedModification(version, a);
+		TestModel.addChangePropagationStep(version, TestModel.createModification(b, a),
+				TestModel.createModification(TestModel.getChildren(root).get(2), a));
+		TestModel.addChangePropagationStep(version, TestModel.createModification(TestModel.getChildren(root).get(3), b));
+		TestModel.addChangePropagationStep(version);
+		return version;
+	}
+
+}
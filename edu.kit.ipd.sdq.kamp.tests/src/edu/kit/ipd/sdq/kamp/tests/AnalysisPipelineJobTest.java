@@ -0,0 +1,240 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.ui.AbstractAnalysisStage;
+import edu.kit.ipd.sdq.kamp.ui.AnalysisPipelineJob;
+import edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation;
+
+/**
+ * Runs an {@link AnalysisPipelineJob} with a few stages which record their names, and
+ * checks the order of the stages, the progress and measurements reported for them, that
+ * cancellation, failures and skipped stages end the job without running the remaining
+ * stages, and that the scheduling rule of a stage is held only while the stage is running.
+ * The job is run in the test thread, without scheduling it.
+ */
+public class AnalysisPipelineJobTest {
+
+	@Test
+	public void testStagesRunInOrder() {
+		List<String> runStages = new ArrayList<String>();
+		TestJob job = new TestJob();
+		for (String name: new String[] {"load", "propagate", "diff", "sort", "save"}) {
+			job.addStage(createStage(runStages, name));
+		}
+		RecordingProgressMonitor monitor = new RecordingProgressMonitor();
+		IStatus status = job.runStages(monitor);
+		assertTrue(status.isOK());
+		assertEquals(Arrays.asList("load", "propagate", "diff", "sort", "save"), runStages);
+		assertEquals("Test analysis", monitor.taskName);
+		assertEquals(runStages, monitor.subTasks);
+		assertTrue(monitor.done);
+
+		List<AnalysisInstrumentation.Phase> phases = job.getInstrumentation().getPhases();
+		assertEquals(5, phases.size());
+		for (int i = 0; i < phases.size(); i++) {
+			assertEquals(runStages.get(i), phases.get(i).getName());
+			assertFalse(phases.get(i).isRunning());
+			assertEquals(Long.valueOf(1), phases.get(i).getCounts().get(phases.get(i).getName()));
+		}
+		assertNull(job.getInstrumentation().getFailure());
+	}
+
+	@Test
+	public void testNoStages() {
+		TestJob job = new TestJob();
+		assertTrue(job.runStages(new NullProgressMonitor()).isOK());
+		assertTrue(job.getInstrumentation().getPhases().isEmpty());
+		assertNull(job.getInstrumentation().getFailure());
+	}
+
+	@Test
+	public void testCanceledBeforeFirstStage() {
+		List<String> runStages = new ArrayList<String>();
+		TestJob job = new TestJob();
+		job.addStage(createStage(runStages, "load"));
+		IProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+
+		assertEquals(IStatus.CANCEL, job.runStages(monitor).getSeverity());
+		assertTrue(runStages.isEmpty());
+		assertTrue(job.getInstrumentation().getPhases().isEmpty());
+		assertEquals("Canceled", job.getInstrumentation().getFailure());
+	}
+
+	@Test
+	public void testCancellationSkipsRemainingStages() {
+		final List<String> runStages = new ArrayList<String>();
+		final IProgressMonitor monitor = new NullProgressMonitor();
+		TestJob job = new TestJob();
+		job.addStage(createStage(runStages, "load"));
+		job.addStage(new AbstractAnalysisStage("cancel", 1) {
+
+			@Override
+			public void run(SubMonitor subMonitor) {
+				runStages.add(this.getName());
+				monitor.setCanceled(true);
+			}
+		});
+		job.addStage(createStage(runStages, "save"));
+
+		assertEquals(IStatus.CANCEL, job.runStages(monitor).getSeverity());
+		assertEquals(Arrays.asList("load", "cancel"), runStages);
+		assertEquals("Canceled", job.getInstrumentation().getFailure());
+		assertEquals(2, job.getInstrumentation().getPhases().size());
+	}
+
+	@Test
+	public void testFailedStageEndsJob() {
+		final List<String> runStages = new ArrayList<String>();
+		TestJob job = new TestJob();
+		job.addStage(createStage(runStages, "load"));
+		job.addStage(new AbstractAnalysisStage("propagate", 1) {
+
+			@Override
+			public void run(SubMonitor monitor) {
+				throw new IllegalStateException("Propagation failed");
+			}
+		});
+		job.addStage(createStage(runStages, "save"));
+
+		IStatus status = job.runStages(new NullProgressMonitor());
+		assertEquals(IStatus.ERROR, status.getSeverity());
+		assertTrue(status.getException() instanceof IllegalStateException);
+		assertEquals(Arrays.asList("load"), runStages);
+		assertEquals(new IllegalStateException("Propagation failed").toString(), job.getInstrumentation().getFailure());
+		// the failed stage has been measured as well
+		assertEquals(2, job.getInstrumentation().getPhases().size());
+		assertFalse(job.getInstrumentation().getPhases().get(1).isRunning());
+	}
+
+	@Test
+	public void testSkipRemainingStages() {
+		final List<String> runStages = new ArrayList<String>();
+		final TestJob job = new TestJob();
+		job.setResultMessage("Work plan derived");
+		job.addStage(new AbstractAnalysisStage("load", 1) {
+
+			@Override
+			public void run(SubMonitor monitor) {
+				runStages.add(this.getName());
+				// without message, as the test runs without workbench
+				job.skipRemainingStages(null);
+			}
+		});
+		job.addStage(createStage(runStages, "save"));
+
+		assertTrue(job.runStages(new NullProgressMonitor()).isOK());
+		assertEquals(Arrays.asList("load"), runStages);
+		assertNull(job.getResultMessage());
+		assertNull(job.getInstrumentation().getFailure());
+	}
+
+	@Test
+	public void testRuleIsHeldOnlyWhileStageIsRunning() {
+		final ISchedulingRule saveRule = new ISchedulingRule() {
+
+			@Override
+			public boolean contains(ISchedulingRule rule) {
+				return rule == this;
+			}
+
+			@Override
+			public boolean isConflicting(ISchedulingRule rule) {
+				return rule == this;
+			}
+		};
+		final List<ISchedulingRule> heldRules = new ArrayList<ISchedulingRule>();
+		TestJob job = new TestJob();
+		for (String name: new String[] {"load", "save", "sort"}) {
+			job.addStage(new AbstractAnalysisStage(name, 1, name.equals("save") ? saveRule : null) {
+
+				@Override
+				public void run(SubMonitor monitor) {
+					heldRules.add(Job.getJobManager().currentRule());
+				}
+			});
+		}
+
+		assertTrue(job.runStages(new NullProgressMonitor()).isOK());
+		assertEquals(Arrays.asList(null, saveRule, null), heldRules);
+		assertNull(Job.getJobManager().currentRule());
+	}
+
+	/**
+	 * Creates a stage which adds its name to the <code>runStages</code> and counts itself
+	 * in the instrumentation of its job (if it is run by a {@link TestJob}).
+	 */
+	private static AbstractAnalysisStage createStage(final List<String> runStages, String name) {
+		return new AbstractAnalysisStage(name, 1 + name.length()) {
+
+			@Override
+			public void run(SubMonitor monitor) {
+				monitor.split(this.getWork());
+				runStages.add(this.getName());
+				if (TestJob.current != null) {
+					TestJob.current.getInstrumentation().addCount(this.getName(), 1);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Records the task and the sub-tasks reported by the job.
+	 */
+	private static class RecordingProgressMonitor extends NullProgressMonitor {
+
+		private String taskName;
+		private final List<String> subTasks = new ArrayList<String>();
+		private boolean done;
+
+		@Override
+		public void beginTask(String name, int totalWork) {
+			this.taskName = name;
+		}
+
+		@Override
+		public void subTask(String name) {
+			this.subTasks.add(name);
+		}
+
+		@Override
+		public void done() {
+			this.done = true;
+		}
+	}
+
+	/**
+	 * Job which can be run directly by the test.
+	 */
+	private static class TestJob extends AnalysisPipelineJob {
+
+		private static TestJob current;
+
+		private TestJob() {
+			super("Test analysis");
+		}
+
+		private IStatus runStages(IProgressMonitor monitor) {
+			current = this;
+			try {
+				return this.run(monitor);
+			} finally {
+				current = null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.architecture.ArchitectureGraph;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.util.ElementIdRegistry;
+import edu.kit.ipd.sdq.kamp.util.MarkedElementSet;
+
+/**
+ * Queries an {@link ArchitectureGraph} of a small component model: <code>a</code> contains
+ * <code>a1</code>, <code>b</code> requires <code>a</code> and the component <code>x</code>
+ * outside of the model, <code>c</code> requires <code>b</code>, <code>a1</code> requires
+ * <code>c</code>, and <code>d</code> is not connected to the other components.
+ */
+public class ArchitectureGraphTest {
+
+	private static final Set<EReference> NO_REFERENCES = Collections.emptySet();
+
+	private TestArchitectureVersion version;
+	private EObject a, a1, b, c, d, x;
+	private ArchitectureGraph graph;
+
+	@Before
+	public void setUp() {
+		this.version = TestModel.createVersion("target", null);
+		this.a = TestModel.createComponent("a");
+		this.a1 = TestModel.createComponent("a1");
+		this.b = TestModel.createComponent("b");
+		this.c = TestModel.createComponent("c");
+		this.d = TestModel.createComponent("d");
+		this.x = TestModel.createComponent("x");
+		TestModel.getChildren(this.a).add(this.a1);
+		TestModel.getRequires(this.b).add(this.a);
+		TestModel.getRequires(this.b).add(this.x);
+		TestModel.getRequires(this.c).add(this.b);
+		TestModel.getRequires(this.a1).add(this.c);
+		this.version.getModelRoots().addAll(Arrays.asList(this.a, this.b, this.c, this.d));
+		this.graph = ArchitectureGraph.build(this.version);
+	}
+
+	@Test
+	public void testElements() {
+		assertEquals("[a, a1, b, c, d]", describe(this.graph.getMembers()));
+		assertEquals(this.graph.getMembers(), this.graph.getIdsOfType(TestModel.COMPONENT));
+		assertTrue(this.graph.getIdsOfType(EcorePackage.Literals.ECLASS).isEmpty());
+		assertSame(this.a1, this.graph.getElement(this.graph.getId(this.a1)));
+		assertEquals(-1, this.graph.getId(this.x));
+		assertEquals(-1, this.graph.getId(null));
+		// elements outside of the graph are ignored
+		assertEquals("[b]", describe(this.graph.getIds(Arrays.asList(this.b, this.x))));
+		assertTrue(this.graph.getIds(Collections.<EObject>emptyList()).isEmpty());
+	}
+
+	@Test
+	public void testTargetsAndSources() {
+		assertEquals("[a]", describe(this.graph.getTargets(ids(this.b), TestModel.COMPONENT_REQUIRES)));
+		assertEquals("[a, b]", describe(this.graph.getTargets(ids(this.b, this.c), TestModel.COMPONENT_REQUIRES)));
+		assertEquals("[b]", describe(this.graph.getSources(ids(this.a), TestModel.COMPONENT_REQUIRES)));
+		assertEquals("[a1]", describe(this.graph.getTargets(ids(this.a), TestModel.COMPONENT_CHILDREN)));
+		assertEquals("[a]", describe(this.graph.getSources(ids(this.a1), TestModel.COMPONENT_CHILDREN)));
+		assertTrue(this.graph.getTargets(ids(this.d), TestModel.COMPONENT_REQUIRES).isEmpty());
+		assertTrue(this.graph.getSources(ids(this.d), TestModel.COMPONENT_REQUIRES).isEmpty());
+		assertTrue(this.graph.getTargets(new BitSet(), TestModel.COMPONENT_REQUIRES).isEmpty());
+	}
+
+	@Test
+	public void testAdjacencies() {
+		assertEquals(new TreeSet<String>(Arrays.asList("children", "requires")), getNames(this.graph.getReferences()));
+		ArchitectureGraph.Adjacency requires = this.graph.getForwardAdjacency(TestModel.COMPONENT_REQUIRES);
+		assertEquals(1, requires.getDegree(this.graph.getId(this.b)));
+		assertEquals(this.graph.getId(this.a), requires.getNeighbour(this.graph.getId(this.b), 0));
+		assertEquals(0, requires.getDegree(this.graph.getId(this.d)));
+		ArchitectureGraph.Adjacency requiredBy = this.graph.getBackwardAdjacency(TestModel.COMPONENT_REQUIRES);
+		assertEquals(this.graph.getId(this.a1), requiredBy.getNeighbour(this.graph.getId(this.c), 0));
+	}
+
+	@Test
+	public void testReachableElements() {
+		Set<EReference> requires = Collections.singleton(TestModel.COMPONENT_REQUIRES);
+		Set<EReference> children = Collections.singleton(TestModel.COMPONENT_CHILDREN);
+		// from c via the required components, and from a1 also to its container
+		assertEquals("[a, b, c]", describe(this.graph.getReachableElements(ids(this.c), requires, children)));
+		assertEquals("[a, a1, b, c]", describe(this.graph.getReachableElements(ids(this.a1), requires, children)));
+		// the cycle a1 -> c -> b -> a -> a1 when following the children forwards
+		assertEquals("[a, a1, b, c]", describe(this.graph.getReachableElements(ids(this.c),
+				Arrays.asList(TestModel.COMPONENT_REQUIRES, TestModel.COMPONENT_CHILDREN), NO_REFERENCES)));
+		assertEquals("[d]", describe(this.graph.getReachableElements(ids(this.d), requires, children)));
+		assertEquals("[b]", describe(this.graph.getReachableElements(ids(this.b), NO_REFERENCES, NO_REFERENCES)));
+		assertTrue(this.graph.getReachableElements(new BitSet(), requires, children).isEmpty());
+	}
+
+	@Test
+	public void testMarkedElements() {
+		BitSet ids = ids(this.a, this.c);
+		MarkedElementSet<EObject> markedElements = this.graph.getMarkedElements(ids, EObject.class);
+		assertEquals(2, markedElements.size());
+		assertTrue(markedElements.contains(this.a));
+		assertTrue(markedElements.contains(this.c));
+		assertFalse(markedElements.contains(this.b));
+		assertEquals(ids, this.graph.getIds(markedElements));
+		assertTrue(this.graph.getMarkedElements(ids, String.class).isEmpty());
+	}
+
+	@Test
+	public void testGraphsSharingRegistry() {
+		ElementIdRegistry<Object> registry = this.version.getElementIdRegistry();
+		ArchitectureGraph otherGraph = ArchitectureGraph.build(Arrays.asList(this.d, this.x), registry);
+		assertEquals(this.graph.getId(this.d), otherGraph.getId(this.d));
+		assertEquals(-1, otherGraph.getId(this.a));
+		assertEquals("[d, x]", describe(otherGraph, otherGraph.getMembers()));
+		// b requires x, but b is not part of the other graph
+		assertTrue(otherGraph.getReferences().isEmpty());
+	}
+
+	@Test
+	public void testEmptyGraph() {
+		ArchitectureGraph emptyGraph = ArchitectureGraph.build(Collections.<EObject>emptyList());
+		assertTrue(emptyGraph.getMembers().isEmpty());
+		assertEquals(0, emptyGraph.size());
+		assertTrue(emptyGraph.getReferences().isEmpty());
+	}
+
+	@Test
+	public void testReferencesWithoutEdgesAreNotStored() {
+		TestArchitectureVersion version = TestModel.createVersion("target", null);
+		version.getModelRoots().add(TestModel.createComponent("a"));
+		ArchitectureGraph graph = ArchitectureGraph.build(version);
+		assertTrue(graph.getReferences().isEmpty());
+		assertNull(graph.getForwardAdjacency(TestModel.COMPONENT_REQUIRES));
+		assertTrue(graph.getTargets(graph.getMembers(), TestModel.COMPONENT_REQUIRES).isEmpty());
+		assertEquals(-1, graph.getId(TestModel.createComponent("b")));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testVersionWithoutModelRoots() {
+		// a version which does not provide its model roots must not yield an empty graph
+		ArchitectureGraph.build(new AbstractArchitectureVersion<ModificationRepository>("target", null) {
+		});
+	}
+
+	private BitSet ids(EObject... elements) {
+		return this.graph.getIds(Arrays.asList(elements));
+	}
+
+	private String describe(BitSet ids) {
+		return describe(this.graph, ids);
+	}
+
+	/**
+	 * Describes the elements with the <code>ids</code> by their sorted names.
+	 */
+	private static String describe(ArchitectureGraph graph, BitSet ids) {
+		Set<String> names = new TreeSet<String>();
+		for (EObject element: graph.getElements(ids, EObject.class)) {
+			names.add(TestModel.getName(element));
+		}
+		return names.toString();
+	}
+
+	private static Set<String> getNames(Collection<EReference> references) {
+		Set<String> names = new TreeSet<String>();
+		for (EReference reference: references) {
+			names.add(reference.getName());
+		}
+		return names;
+	}
+
+}
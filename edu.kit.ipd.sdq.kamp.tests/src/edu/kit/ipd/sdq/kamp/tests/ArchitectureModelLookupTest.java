@@ -0,0 +1,141 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.architecture.ArchitectureModelLookup;
+import edu.kit.ipd.sdq.kamp.architecture.ModificationMarkIndex;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+
+/**
+ * Checks the lookups of {@link ArchitectureModelLookup} on a small repository (seed
+ * modification of <code>a</code>, a step with the modifications of <code>b</code> and
+ * <code>c</code>), and that the {@link ModificationMarkIndex} behind them follows the
+ * changes of the repository after it has been built.
+ */
+public class ArchitectureModelLookupTest {
+
+	private TestArchitectureVersion version;
+	private ModificationRepository repository;
+	private EObject a, b, c, d;
+	private Modification seedModification, modificationOfB, modificationOfC;
+
+	@Before
+	public void setUp() {
+		version = TestModel.createVersion("target", TestModel.createResourceSet());
+		repository = version.getModificationMarkRepository();
+		a = TestModel.createComponent("a");
+		b = TestModel.createComponent("b");
+		c = TestModel.createComponent("c");
+		d = TestModel.createComponent("d");
+		seedModification = TestModel.addSeedModification(version, a);
+		modificationOfB = TestModel.createModification(b, a);
+		modificationOfC = TestModel.createModification(c, a, b);
+		TestModel.addChangePropagationStep(version, modificationOfB, modificationOfC);
+	}
+
+	@Test
+	public void testLookUps() {
+		assertEquals(setOf(a, b, c), ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class));
+		assertEquals(setOf(a), ArchitectureModelLookup.lookUpMarkedObjectsOfATypeInSeedModifications(
+				version, EObject.class));
+		assertEquals(setOf(seedModification, modificationOfB, modificationOfC),
+				ArchitectureModelLookup.lookUpAllModificationMarksOfAType(version, Modification.class));
+		assertEquals(setOf(seedModification),
+				ArchitectureModelLookup.lookUpAllSeedModificationMarksOfAType(version, Modification.class));
+		assertEquals(setOf(modificationOfB, modificationOfC),
+				ArchitectureModelLookup.lookUpAllCalculatedMarksOfAType(version, Modification.class));
+		assertTrue(ArchitectureModelLookup.lookUpExcludedElements(repository).isEmpty());
+	}
+
+	@Test
+	public void testLookUpOfOtherType() {
+		assertTrue(ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, String.class).isEmpty());
+	}
+
+	@Test
+	public void testEmptyRepository() {
+		TestArchitectureVersion emptyVersion = TestModel.createVersion("empty", null);
+		assertTrue(ArchitectureModelLookup.lookUpMarkedObjectsOfAType(emptyVersion, EObject.class).isEmpty());
+		assertTrue(ArchitectureModelLookup.lookUpAllCalculatedMarksOfAType(emptyVersion, Modification.class).isEmpty());
+		assertTrue(ArchitectureModelLookup.lookUpExcludedElements(emptyVersion.getModificationMarkRepository()).isEmpty());
+	}
+
+	@Test
+	public void testAddedAndRemovedSteps() {
+		// builds the index before the changes
+		ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class);
+		ChangePropagationStep step = TestModel.addChangePropagationStep(version, TestModel.createModification(d, c));
+		assertEquals(setOf(a, b, c, d), ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class));
+
+		repository.getChangePropagationSteps().remove(0);
+		assertEquals(setOf(a, d), ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class));
+
+		Modification modificationOfA = TestModel.createModification(a, d);
+		TestModel.getModifications(step).add(modificationOfA);
+		assertEquals(2, ArchitectureModelLookup.lookUpAllCalculatedMarksOfAType(version, Modification.class).size());
+		assertTrue(ArchitectureModelLookup.lookUpAllCalculatedMarksOfAType(version, Modification.class)
+				.contains(modificationOfA));
+
+		repository.getChangePropagationSteps().clear();
+		assertEquals(setOf(a), ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class));
+		assertTrue(ArchitectureModelLookup.lookUpAllCalculatedMarksOfAType(version, Modification.class).isEmpty());
+	}
+
+	@Test
+	public void testChangedUserDecisionAndAffectedElement() {
+		ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class);
+		modificationOfB.setUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
+		assertEquals(setOf(b), ArchitectureModelLookup.lookUpExcludedElements(repository));
+
+		modificationOfB.setAffectedElement(d);
+		assertEquals(setOf(d), ArchitectureModelLookup.lookUpExcludedElements(repository));
+		assertEquals(setOf(a, c, d), ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class));
+
+		modificationOfB.setUserDecision(AcceptanceAndConfirmationState.CONFIRMED);
+		assertTrue(ArchitectureModelLookup.lookUpExcludedElements(repository).isEmpty());
+	}
+
+	@Test
+	public void testModificationWithoutAffectedElement() {
+		ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class);
+		modificationOfB.setAffectedElement(null);
+		modificationOfB.setUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
+		// the modification is still found, but there is no marked object for it
+		assertEquals(setOf(a, c), ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class));
+		assertTrue(ArchitectureModelLookup.lookUpAllCalculatedMarksOfAType(version, Modification.class)
+				.contains(modificationOfB));
+		assertEquals(Collections.singleton(null), ArchitectureModelLookup.lookUpExcludedElements(repository));
+	}
+
+	@Test
+	public void testSeedModificationMovedIntoStep() {
+		ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class);
+		TestModel.getModifications(repository.getChangePropagationSteps().get(0)).add(seedModification);
+		assertTrue(ArchitectureModelLookup.lookUpAllSeedModificationMarksOfAType(version, Modification.class).isEmpty());
+		assertEquals(setOf(seedModification, modificationOfB, modificationOfC),
+				ArchitectureModelLookup.lookUpAllCalculatedMarksOfAType(version, Modification.class));
+
+		repository.setSeedModifications(TestModel.createSeedModifications());
+		assertEquals(setOf(seedModification, modificationOfB, modificationOfC),
+				ArchitectureModelLookup.lookUpAllModificationMarksOfAType(repository, AbstractModification.class));
+	}
+
+	private static Set<Object> setOf(Object... elements) {
+		return new HashSet<Object>(Arrays.asList(elements));
+	}
+
+}
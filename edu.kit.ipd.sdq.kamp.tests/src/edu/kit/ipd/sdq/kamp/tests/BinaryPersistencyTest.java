@@ -0,0 +1,189 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksFactory;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.util.ModificationmarksBinaryResourceImpl;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.tests.TestWorkspace.TestPersistency;
+
+/**
+ * Converts the modification marks of two component trees into the binary format (see
+ * {@link AbstractArchitectureVersionPersistency#setBinaryPersistency(boolean)}) and back,
+ * and checks that the seed modification of <code>a</code> and the step with the
+ * modifications of <code>c</code> and <code>b</code> (one of them excluded by the user)
+ * are loaded as from the XMI file.
+ */
+public class BinaryPersistencyTest {
+
+	private static final String FOLDER = "project/models";
+
+	private static final String MODIFICATIONMARK_FILE = "version.modificationmarks";
+
+	private static final List<String> FILE_PATHS = Arrays.asList("m0.testmodel", "m1.testmodel", MODIFICATIONMARK_FILE);
+
+	private TestWorkspace workspace;
+
+	@Before
+	public void setUp() {
+		this.workspace = new TestWorkspace();
+		EObject a = TestModel.createComponent("a");
+		EObject b = TestModel.createComponent("b");
+		EObject c = TestModel.createComponent("c");
+		TestModel.getRequires(b).add(c);
+		EObject r0 = TestModel.createComponent("r0");
+		TestModel.getChildren(r0).addAll(Arrays.asList(a, b));
+		EObject r1 = TestModel.createComponent("r1");
+		TestModel.getChildren(r1).add(c);
+		TestArchitectureVersion version = TestModel.createVersion("version", null);
+		TestModel.addSeedModification(version, a);
+		Modification modificationOfC = TestModel.createModification(c, a);
+		modificationOfC.setToolderived(true);
+		Modification modificationOfB = TestModel.createModification(b, a, c);
+		modificationOfB.setToolderived(true);
+		modificationOfB.setUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
+		TestModel.addChangePropagationStep(version, modificationOfC, modificationOfB);
+		this.workspace.saveModels(FOLDER, FILE_PATHS, Arrays.asList(r0, r1, version.getModificationMarkRepository()));
+	}
+
+	@After
+	public void tearDown() {
+		this.workspace.dispose();
+	}
+
+	@Test
+	public void testSameModelsAsXMI() {
+		TestPersistency persistency = new TestPersistency();
+		List<String> expected = TestWorkspace.describeResources(load(persistency, FOLDER, FILE_PATHS));
+
+		URI binaryURI = AbstractArchitectureVersionPersistency.convertModelFile(FOLDER, MODIFICATIONMARK_FILE, true);
+		assertEquals(this.workspace.getURI(FOLDER, "version.modificationmarksbin"), binaryURI);
+		ResourceSet binaryResourceSet = load(persistency, FOLDER, Arrays.asList(FILE_PATHS.get(0), FILE_PATHS.get(1),
+				binaryURI.lastSegment()));
+		assertTrue(binaryResourceSet.getResources().get(2) instanceof ModificationmarksBinaryResourceImpl);
+		assertEquals(expected, describeResources(binaryResourceSet, binaryURI, MODIFICATIONMARK_FILE));
+
+		ModificationRepository repository = (ModificationRepository) binaryResourceSet.getResources().get(2)
+				.getContents().get(0);
+		assertEquals("[a<]", TestModel.describeModifications(
+				TestModel.getModifications(repository.getSeedModifications())));
+		assertEquals("[[c<a, b<ac]]", TestModel.describeChangePropagationSteps(repository));
+		List<Modification> modifications = TestModel.getModifications(repository.getChangePropagationSteps().get(0));
+		assertTrue(modifications.get(0).isToolderived());
+		assertEquals(AcceptanceAndConfirmationState.EXCLUDED, modifications.get(1).getUserDecision());
+		assertSame(binaryResourceSet.getResources().get(1), modifications.get(0).getAffectedElement().eResource());
+	}
+
+	@Test
+	public void testEmptyRepository() {
+		ModificationRepository repository = ModificationmarksFactory.eINSTANCE.createModificationRepository();
+		this.workspace.saveModels(FOLDER, Arrays.asList("empty.modificationmarks"), Arrays.asList(repository));
+
+		URI binaryURI = AbstractArchitectureVersionPersistency.convertModelFile(FOLDER, "empty.modificationmarks", true);
+		ModificationRepository loadedRepository = (ModificationRepository) new TestPersistency().loadEmfModelFromResource(
+				FOLDER, binaryURI.lastSegment(), TestModel.createResourceSet());
+		assertNull(loadedRepository.getSeedModifications());
+		assertTrue(loadedRepository.getChangePropagationSteps().isEmpty());
+	}
+
+	@Test
+	public void testModificationWithoutAffectedElement() {
+		TestArchitectureVersion version = TestModel.createVersion("version", null);
+		TestModel.addChangePropagationStep(version, TestModel.createModification(null));
+		this.workspace.saveModels(FOLDER, Arrays.asList("null.modificationmarks"),
+				Arrays.asList(version.getModificationMarkRepository()));
+
+		URI binaryURI = AbstractArchitectureVersionPersistency.convertModelFile(FOLDER, "null.modificationmarks", true);
+		ModificationRepository loadedRepository = (ModificationRepository) new TestPersistency().loadEmfModelFromResource(
+				FOLDER, binaryURI.lastSegment(), TestModel.createResourceSet());
+		List<Modification> modifications = TestModel.getModifications(loadedRepository.getChangePropagationSteps().get(0));
+		assertEquals(1, modifications.size());
+		assertNull(modifications.get(0).getAffectedElement());
+		assertTrue(modifications.get(0).getCausingElements().isEmpty());
+	}
+
+	@Test
+	public void testConversionBackToXMI() {
+		TestPersistency persistency = new TestPersistency();
+		List<String> expected = TestWorkspace.describeResources(load(persistency, FOLDER, FILE_PATHS));
+
+		// models with IDs can be converted as well, the references into them stay valid
+		URI binaryModelURI = AbstractArchitectureVersionPersistency.convertModelFile(FOLDER, FILE_PATHS.get(0), true);
+		assertTrue(AbstractArchitectureVersionPersistency.isBinaryFileExtension(binaryModelURI.fileExtension()));
+		AbstractArchitectureVersionPersistency.convertModelFile(FOLDER, MODIFICATIONMARK_FILE, true);
+		assertTrue(new File(this.workspace.getDirectory(), FOLDER + "/" + FILE_PATHS.get(0)).delete());
+		assertTrue(new File(this.workspace.getDirectory(), FOLDER + "/" + MODIFICATIONMARK_FILE).delete());
+
+		URI modelURI = AbstractArchitectureVersionPersistency.convertModelFile(FOLDER, binaryModelURI.lastSegment(), false);
+		assertEquals(this.workspace.getURI(FOLDER, FILE_PATHS.get(0)), modelURI);
+		URI modificationMarkURI = AbstractArchitectureVersionPersistency.convertModelFile(FOLDER,
+				"version.modificationmarksbin", false);
+		assertEquals(this.workspace.getURI(FOLDER, MODIFICATIONMARK_FILE), modificationMarkURI);
+		assertEquals(expected, TestWorkspace.describeResources(load(persistency, FOLDER, FILE_PATHS)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConversionIntoSameFormatFails() {
+		AbstractArchitectureVersionPersistency.convertModelFile(FOLDER, "version.modificationmarksbin", true);
+	}
+
+	@Test
+	public void testSaveModificationMarkFile() throws IOException {
+		TestPersistency persistency = new TestPersistency();
+		ResourceSet resourceSet = load(persistency, FOLDER, FILE_PATHS);
+		List<String> expected = TestWorkspace.describeResources(resourceSet);
+		ModificationRepository repository = (ModificationRepository) resourceSet.getResources()
+				.get(FILE_PATHS.size() - 1).getContents().get(0);
+
+		persistency.setBinaryPersistency(true);
+		assertEquals("modificationmarksbin", persistency.getModificationMarkFileExtension());
+		persistency.saveModificationMarkFile(FOLDER, "saved", new TestArchitectureVersion("saved", repository));
+		assertTrue(new File(this.workspace.getDirectory(), FOLDER + "/saved.modificationmarksbin").isFile());
+
+		List<String> binaryFilePaths = new ArrayList<String>(FILE_PATHS.subList(0, FILE_PATHS.size() - 1));
+		binaryFilePaths.add("saved.modificationmarksbin");
+		assertEquals(expected, describeResources(load(persistency, FOLDER, binaryFilePaths),
+				this.workspace.getURI(FOLDER, "saved.modificationmarksbin"), MODIFICATIONMARK_FILE));
+	}
+
+	private static ResourceSet load(TestPersistency persistency, String folderPath, List<String> filePaths) {
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		for (String filePath: filePaths) {
+			persistency.loadEmfModelFromResource(folderPath, filePath, resourceSet);
+		}
+		EcoreUtil.resolveAll(resourceSet);
+		return resourceSet;
+	}
+
+	/**
+	 * Describes the resources as {@link TestWorkspace#describeResources(ResourceSet)}, but
+	 * with the URI of the binary file replaced by the one of the XMI file.
+	 */
+	private static List<String> describeResources(ResourceSet resourceSet, URI binaryURI, String fileName) {
+		String xmiURI = binaryURI.trimSegments(1).appendSegment(fileName).toString();
+		List<String> descriptions = new ArrayList<String>();
+		for (String description: TestWorkspace.describeResources(resourceSet)) {
+			descriptions.add(description.replace(binaryURI.toString(), xmiURI));
+		}
+		return descriptions;
+	}
+
+}
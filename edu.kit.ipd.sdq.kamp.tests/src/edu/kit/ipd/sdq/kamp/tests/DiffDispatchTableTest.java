@@ -0,0 +1,299 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.impl.DynamicEObjectImpl;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractActivityElementType;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractDiffHandler;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractWorkplanDerivation;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.BasicActivity;
+import edu.kit.ipd.sdq.kamp.workplan.DiffDispatchTable;
+
+/**
+ * Dispatches hand-made differences (proxies, so EMF Compare is not needed) to handlers for
+ * a few Ecore interfaces and the dynamic components of the {@link TestModel}, and checks
+ * which handlers are called in which order, which differences are left to
+ * {@link AbstractWorkplanDerivation#checkForDifferencesAndAddToWorkplan(Diff, List)}, and
+ * that registering a handler later resets the cached handlers.
+ */
+public class DiffDispatchTableTest {
+
+	private static final AbstractActivityElementType ELEMENT = createElementType("Element", EObject.class);
+	private static final AbstractActivityElementType NAMED_ELEMENT = createElementType("Named element", ENamedElement.class);
+	private static final AbstractActivityElementType FEATURE = createElementType("Feature", EStructuralFeature.class);
+	private static final AbstractActivityElementType REFERENCE = createElementType("Reference", EReference.class);
+	private static final AbstractActivityElementType CLASSIFIER = createElementType("Classifier", EClassifier.class);
+	private static final AbstractActivityElementType COMPONENT = createElementType("Component", DynamicEObjectImpl.class);
+
+	@Test
+	public void testAddedElementInRegistrationOrder() {
+		List<Activity> workplan = new ArrayList<Activity>();
+		assertTrue(createDispatchTable().dispatch(createReferenceChange(DifferenceKind.ADD, createReference("r")), workplan));
+		assertEquals(Arrays.asList("Add Element r", "Add Named element r", "Add Feature r", "Add Reference r"),
+				describe(workplan));
+	}
+
+	@Test
+	public void testDeletedElement() {
+		List<Activity> workplan = new ArrayList<Activity>();
+		EObject eClass = EcoreFactory.eINSTANCE.createEClass();
+		((ENamedElement) eClass).setName("C");
+		assertTrue(createDispatchTable().dispatch(createReferenceChange(DifferenceKind.DELETE, eClass), workplan));
+		assertEquals(Arrays.asList("Remove Element C", "Remove Named element C", "Remove Classifier C"),
+				describe(workplan));
+	}
+
+	@Test
+	public void testDynamicElement() {
+		DiffDispatchTable dispatchTable = createDispatchTable();
+		List<Activity> workplan = new ArrayList<Activity>();
+		assertTrue(dispatchTable.dispatch(createReferenceChange(DifferenceKind.ADD, TestModel.createComponent("a")), workplan));
+		assertTrue(dispatchTable.dispatch(createReferenceChange(DifferenceKind.DELETE, TestModel.createComponent("b")), workplan));
+		assertEquals(Arrays.asList("Add Element a", "Add Component a", "Remove Element b", "Remove Component b"),
+				describe(workplan));
+	}
+
+	@Test
+	public void testUnhandledDifferences() {
+		DiffDispatchTable dispatchTable = new DiffDispatchTable();
+		dispatchTable.registerAddHandler(FEATURE, new ActivityCreatingHandler(BasicActivity.ADD));
+		List<Activity> workplan = new ArrayList<Activity>();
+
+		assertFalse(dispatchTable.dispatch(createReferenceChange(DifferenceKind.CHANGE, createReference("r")), workplan));
+		assertFalse(dispatchTable.dispatch(createReferenceChange(DifferenceKind.MOVE, createReference("r")), workplan));
+		assertFalse(dispatchTable.dispatch(createReferenceChange(DifferenceKind.DELETE, createReference("r")), workplan));
+		assertFalse(dispatchTable.dispatch(createDiff(DifferenceKind.ADD), workplan));
+		// no handler for annotations
+		assertFalse(dispatchTable.dispatch(createReferenceChange(DifferenceKind.ADD,
+				EcoreFactory.eINSTANCE.createEAnnotation()), workplan));
+		assertTrue(workplan.isEmpty());
+	}
+
+	@Test
+	public void testNullValue() {
+		DiffDispatchTable dispatchTable = createDispatchTable();
+		List<Activity> workplan = new ArrayList<Activity>();
+		assertFalse(dispatchTable.dispatch(createReferenceChange(DifferenceKind.ADD, null), workplan));
+		assertFalse(dispatchTable.dispatch(createReferenceChange(DifferenceKind.DELETE, null), workplan));
+		assertTrue(workplan.isEmpty());
+		assertTrue(dispatchTable.getElementTypes(null, true).isEmpty());
+	}
+
+	@Test
+	public void testDerivationChecksUnhandledDifferences() {
+		TestWorkplanDerivation derivation = new TestWorkplanDerivation();
+		List<Diff> differences = Arrays.asList(
+				createReferenceChange(DifferenceKind.ADD, TestModel.createComponent("a")),
+				createReferenceChange(DifferenceKind.CHANGE, TestModel.createComponent("b")),
+				createDiff(DifferenceKind.DELETE),
+				createReferenceChange(DifferenceKind.DELETE, createReference("r")));
+
+		assertEquals(Arrays.asList("Add Element a", "Add Component a", "checked CHANGE", "checked DELETE",
+				"Remove Element r", "Remove Named element r", "Remove Feature r", "Remove Reference r"),
+				describe(derivation.deriveAddAndRemoveActivities(differences, createDispatchTable())));
+		// without a table, every difference is checked by the derivation
+		assertEquals(Arrays.asList("checked ADD", "checked CHANGE", "checked DELETE", "checked DELETE"),
+				describe(derivation.deriveAddAndRemoveActivities(differences, null)));
+		assertTrue(derivation.deriveAddAndRemoveActivities(Collections.<Diff>emptyList(), createDispatchTable()).isEmpty());
+	}
+
+	@Test
+	public void testRegistrationAfterDispatch() {
+		DiffDispatchTable dispatchTable = new DiffDispatchTable();
+		dispatchTable.registerAddHandler(CLASSIFIER, new ActivityCreatingHandler(BasicActivity.ADD));
+		EObject eClass = EcoreFactory.eINSTANCE.createEClass();
+		List<Activity> workplan = new ArrayList<Activity>();
+		assertTrue(dispatchTable.dispatch(createReferenceChange(DifferenceKind.ADD, eClass), workplan));
+		assertFalse(dispatchTable.dispatch(createReferenceChange(DifferenceKind.DELETE, eClass), workplan));
+		assertEquals(Arrays.asList(CLASSIFIER), dispatchTable.getElementTypes(eClass, true));
+
+		dispatchTable.registerAddHandler(NAMED_ELEMENT, new ActivityCreatingHandler(BasicActivity.ADD));
+		assertEquals(Arrays.asList(CLASSIFIER, NAMED_ELEMENT), dispatchTable.getElementTypes(eClass, true));
+		assertTrue(dispatchTable.getElementTypes(eClass, false).isEmpty());
+		assertEquals(1, workplan.size());
+	}
+
+	@Test
+	public void testConcurrentDispatch() throws Exception {
+		final List<Diff> differences = new ArrayList<Diff>();
+		for (int i = 0; i < 500; i++) {
+			differences.add(createReferenceChange(DifferenceKind.ADD, createReference("r" + i)));
+			differences.add(createReferenceChange(DifferenceKind.DELETE, TestModel.createComponent("c" + i)));
+		}
+		final TestWorkplanDerivation derivation = new TestWorkplanDerivation();
+		final DiffDispatchTable dispatchTable = createDispatchTable();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<Activity>>> workplans = new ArrayList<Future<List<Activity>>>();
+			for (int i = 0; i < 8; i++) {
+				workplans.add(executor.submit(new Callable<List<Activity>>() {
+
+					@Override
+					public List<Activity> call() {
+						return derivation.deriveAddAndRemoveActivities(differences, dispatchTable);
+					}
+				}));
+			}
+			for (Future<List<Activity>> workplan: workplans) {
+				List<String> descriptions = describe(workplan.get());
+				assertEquals(6 * 500, descriptions.size());
+				assertEquals(Arrays.asList("Add Element r7", "Add Named element r7", "Add Feature r7", "Add Reference r7",
+						"Remove Element c7", "Remove Component c7"), descriptions.subList(6 * 7, 6 * 8));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Creates a dispatch table with add and delete handlers for all element types.
+	 */
+	private static DiffDispatchTable createDispatchTable() {
+		DiffDispatchTable dispatchTable = new DiffDispatchTable();
+		for (AbstractActivityElementType elementType: Arrays.asList(ELEMENT, NAMED_ELEMENT, FEATURE, REFERENCE,
+				CLASSIFIER, COMPONENT)) {
+			dispatchTable.registerAddHandler(elementType, new ActivityCreatingHandler(BasicActivity.ADD));
+			dispatchTable.registerDeleteHandler(elementType, new ActivityCreatingHandler(BasicActivity.REMOVE));
+		}
+		return dispatchTable;
+	}
+
+	private static EObject createReference(String name) {
+		EReference reference = EcoreFactory.eINSTANCE.createEReference();
+		reference.setName(name);
+		return reference;
+	}
+
+	private static List<String> describe(List<Activity> workplan) {
+		List<String> descriptions = new ArrayList<String>();
+		for (Activity activity: workplan) {
+			descriptions.add(activity.getDescription());
+		}
+		return descriptions;
+	}
+
+	private static ReferenceChange createReferenceChange(DifferenceKind kind, EObject value) {
+		return (ReferenceChange) createDiff(ReferenceChange.class, kind, value);
+	}
+
+	private static Diff createDiff(DifferenceKind kind) {
+		return createDiff(Diff.class, kind, null);
+	}
+
+	/**
+	 * Creates a proxy of the <code>diffInterface</code> which returns the <code>kind</code>,
+	 * the <code>value</code> and the containment reference of the package contents.
+	 */
+	private static Diff createDiff(Class<? extends Diff> diffInterface, final DifferenceKind kind, final EObject value) {
+		return (Diff) Proxy.newProxyInstance(DiffDispatchTableTest.class.getClassLoader(),
+				new Class<?>[] {diffInterface}, new InvocationHandler() {
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] arguments) {
+				if (method.getName().equals("getKind")) {
+					return kind;
+				} else if (method.getName().equals("getValue")) {
+					return value;
+				} else if (method.getName().equals("getReference")) {
+					return EcorePackage.Literals.EPACKAGE__ECLASSIFIERS;
+				} else if (method.getName().equals("hashCode")) {
+					return System.identityHashCode(proxy);
+				} else if (method.getName().equals("equals")) {
+					return proxy == arguments[0];
+				} else if (method.getName().equals("toString")) {
+					return kind + " " + value;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private static AbstractActivityElementType createElementType(final String name, final Class<?> elementClass) {
+		return new AbstractActivityElementType() {
+
+			@Override
+			public String getName() {
+				return name;
+			}
+
+			@Override
+			public Class<?> getElementClass() {
+				return elementClass;
+			}
+		};
+	}
+
+	private static Activity createActivity(BasicActivity basicActivity, AbstractActivityElementType elementType,
+			String elementName, String description) {
+		return new Activity(TestWorkplan.IMPLEMENTATION, elementType, null, elementName, null, basicActivity,
+				description);
+	}
+
+	private static class ActivityCreatingHandler implements AbstractDiffHandler {
+
+		private final BasicActivity basicActivity;
+
+		private ActivityCreatingHandler(BasicActivity basicActivity) {
+			this.basicActivity = basicActivity;
+		}
+
+		@Override
+		public void handleDifference(ReferenceChange diff, AbstractActivityElementType elementType,
+				List<Activity> workplan) {
+			EObject element = diff.getValue();
+			String elementName = element.eClass() == TestModel.COMPONENT
+					? TestModel.getName(element) : ((ENamedElement) element).getName();
+			workplan.add(createActivity(this.basicActivity, elementType, elementName,
+					this.basicActivity.getName() + " " + elementType.getName() + " " + elementName));
+		}
+	}
+
+	/**
+	 * Records every difference which is not handled by the dispatch table as a modification.
+	 */
+	private static class TestWorkplanDerivation extends AbstractWorkplanDerivation<TestArchitectureVersion> {
+
+		@Override
+		public List<Activity> deriveWorkplan(TestArchitectureVersion baseVersion, TestArchitectureVersion targetVersion) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		protected List<Activity> deriveAddAndRemoveActivities(List<Diff> diff, DiffDispatchTable dispatchTable) {
+			return super.deriveAddAndRemoveActivities(diff, dispatchTable);
+		}
+
+		@Override
+		protected void checkForDifferencesAndAddToWorkplan(Diff diffElement, List<Activity> workplan) {
+			workplan.add(createActivity(BasicActivity.MODIFY, ELEMENT, null, "checked " + diffElement.getKind()));
+		}
+	}
+
+}
@@ -0,0 +1,473 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.headless.AbstractHeadlessAnalysisConfiguration;
+import edu.kit.ipd.sdq.kamp.headless.HeadlessAnalysisRunner;
+import edu.kit.ipd.sdq.kamp.headless.HeadlessAnalysisRunner.AnalysisResult;
+import edu.kit.ipd.sdq.kamp.headless.KampHeadlessApplication;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksFactory;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksPackage;
+import edu.kit.ipd.sdq.kamp.propagation.AbstractChangePropagationAnalysis;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.tests.TestWorkspace.TestPersistency;
+import edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractEnrichedWorkplanDerivation;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractWorkplanDerivation;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.BasicActivity;
+
+/**
+ * Runs the {@link HeadlessAnalysisRunner} on target versions which add, remove or keep
+ * the components of a small base version, and checks the saved modification marks and
+ * work plans of each target version. Also checks that a failed target version does not
+ * end the run and that the base version is only loaded if work plans are derived.
+ */
+public class HeadlessAnalysisRunnerTest {
+
+	private static final String FILENAME = "model";
+
+	private static final String BASE_FOLDER = "project/base";
+
+	private static final String VARIANTS_FOLDER = "project/variants";
+
+	private TestWorkspace workspace;
+
+	@Before
+	public void setUp() {
+		this.workspace = new TestWorkspace();
+	}
+
+	@After
+	public void tearDown() {
+		this.workspace.dispose();
+	}
+
+	@Test
+	public void testResultsOfTargetVersions() throws IOException {
+		this.saveVersion(BASE_FOLDER, createArchitecture("b>a", "c"), "a");
+		this.saveVersion(VARIANTS_FOLDER + "/added", createArchitecture("b>a", "c", "d>c"), "c");
+		this.saveVersion(VARIANTS_FOLDER + "/removed", createArchitecture("b>a"), "a");
+		this.saveVersion(VARIANTS_FOLDER + "/unaffected", createArchitecture("b>a", "c"), "b");
+		List<File> targetFolders = HeadlessAnalysisRunner.listVersionFolders(this.getFolder(VARIANTS_FOLDER));
+		assertEquals(Arrays.asList("added", "removed", "unaffected"), getNames(targetFolders));
+
+		TestConfiguration configuration = new TestConfiguration(true);
+		HeadlessAnalysisRunner<TestArchitectureVersion> runner =
+				new HeadlessAnalysisRunner<TestArchitectureVersion>(configuration, this.workspace.getDirectory());
+		List<AnalysisResult> results = runner.run(this.getFolder(BASE_FOLDER), targetFolders, FILENAME);
+
+		// the base version is loaded once for all target versions
+		assertEquals(Arrays.asList("base", "target", "target", "target"), configuration.persistency.loadedVersions);
+		assertEquals(3, results.size());
+		for (int i = 0; i < results.size(); i++) {
+			AnalysisResult result = results.get(i);
+			assertTrue(result.isSuccessful());
+			assertEquals(targetFolders.get(i), result.getTargetFolder());
+			assertTrue(new File(targetFolders.get(i), HeadlessAnalysisRunner.WORKPLAN_ENRICHED_FILENAME + "."
+					+ AbstractArchitectureVersionPersistency.FILEEXTENSION_EXCEL).isFile());
+			assertTrue(new File(targetFolders.get(i), HeadlessAnalysisRunner.ANALYSIS_METRICS_FILENAME + ".json").isFile());
+			assertEquals(Arrays.asList("Loading target version", "Propagating changes",
+					"Saving modification marks", "Deriving base work plan", "Removing duplicate activities",
+					"Sorting base work plan", "Saving base work plan", "Deriving enriched work plan",
+					"Sorting enriched work plan", "Saving enriched work plan"), getPhaseNames(result));
+		}
+		assertEquals(1, runner.getBaseVersionInstrumentation().getPhases().size());
+
+		assertEquals("[[d<c]]", this.describeSavedChangePropagationSteps(VARIANTS_FOLDER + "/added"));
+		assertEquals(1, results.get(0).getPropagationStepCount());
+		assertEquals(4, results.get(0).getActivityCount());
+		assertEquals(Arrays.asList("Add Implementation of <d>", "Modify Documentation of <c>",
+				"Modify Implementation of <c>", "Modify Implementation of <d>"),
+				configuration.persistency.savedWorkplans.get("added/" + HeadlessAnalysisRunner.WORKPLAN_BASE_FILENAME));
+		assertEquals(Arrays.asList("Add Implementation of <d> => [Add Documentation of <d>]",
+				"Modify Documentation of <c>", "Modify Implementation of <c>", "Modify Implementation of <d>"),
+				configuration.persistency.savedWorkplans.get("added/" + HeadlessAnalysisRunner.WORKPLAN_ENRICHED_FILENAME));
+
+		assertEquals("[[b<a]]", this.describeSavedChangePropagationSteps(VARIANTS_FOLDER + "/removed"));
+		assertEquals(1, results.get(1).getPropagationStepCount());
+		assertEquals(4, results.get(1).getActivityCount());
+		assertEquals(Arrays.asList("Modify Documentation of <a>", "Modify Implementation of <a>",
+				"Modify Implementation of <b>", "Remove Implementation of <c>"),
+				configuration.persistency.savedWorkplans.get("removed/" + HeadlessAnalysisRunner.WORKPLAN_ENRICHED_FILENAME));
+
+		// no component requires the seed element
+		assertEquals("[]", this.describeSavedChangePropagationSteps(VARIANTS_FOLDER + "/unaffected"));
+		assertEquals(0, results.get(2).getPropagationStepCount());
+		assertEquals(2, results.get(2).getActivityCount());
+		assertEquals(Arrays.asList("Modify Documentation of <b>", "Modify Implementation of <b>"),
+				configuration.persistency.savedWorkplans.get("unaffected/" + HeadlessAnalysisRunner.WORKPLAN_ENRICHED_FILENAME));
+	}
+
+	@Test
+	public void testFailedTargetVersion() throws IOException {
+		this.saveVersion(BASE_FOLDER, createArchitecture("b>a"), "a");
+		this.saveVersion(VARIANTS_FOLDER + "/a", createArchitecture("b>a", "c"), "a");
+		// a folder without models
+		assertTrue(new File(this.getFolder(VARIANTS_FOLDER), "b").mkdirs());
+		this.saveVersion(VARIANTS_FOLDER + "/c", createArchitecture("b>a"), "b");
+
+		HeadlessAnalysisRunner<TestArchitectureVersion> runner = new HeadlessAnalysisRunner<TestArchitectureVersion>(
+				new TestConfiguration(true), this.workspace.getDirectory());
+		List<AnalysisResult> results = runner.run(this.getFolder(BASE_FOLDER),
+				HeadlessAnalysisRunner.listVersionFolders(this.getFolder(VARIANTS_FOLDER)), FILENAME);
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).isSuccessful());
+		assertTrue(results.get(2).isSuccessful());
+		AnalysisResult failed = results.get(1);
+		assertTrue(failed.getFailure() instanceof IllegalArgumentException);
+		assertEquals(failed.getFailure().toString(), failed.getInstrumentation().getFailure());
+		assertEquals(-1, failed.getPropagationStepCount());
+		assertEquals(-1, failed.getActivityCount());
+		// the measurements are saved also for the failed target version
+		File metricsFile = new File(failed.getTargetFolder(), HeadlessAnalysisRunner.ANALYSIS_METRICS_FILENAME + ".json");
+		assertTrue(this.readFile(metricsFile.getParentFile(), metricsFile.getName()).contains("IllegalArgumentException"));
+		assertFalse(failed.getInstrumentation().getPhases().get(0).isRunning());
+	}
+
+	@Test
+	public void testWithoutWorkplanDerivation() throws IOException {
+		this.saveVersion(VARIANTS_FOLDER + "/a", createArchitecture("b>a", "c>b"), "a");
+
+		TestConfiguration configuration = new TestConfiguration(false);
+		HeadlessAnalysisRunner<TestArchitectureVersion> runner = new HeadlessAnalysisRunner<TestArchitectureVersion>(
+				configuration, this.workspace.getDirectory());
+		// the base version is not needed
+		List<AnalysisResult> results = runner.run(this.getFolder(BASE_FOLDER),
+				HeadlessAnalysisRunner.listVersionFolders(this.getFolder(VARIANTS_FOLDER)), FILENAME);
+		assertTrue(results.get(0).isSuccessful());
+		assertEquals(1, results.get(0).getPropagationStepCount());
+		assertEquals("[[b<a]]", this.describeSavedChangePropagationSteps(VARIANTS_FOLDER + "/a"));
+		assertEquals(-1, results.get(0).getActivityCount());
+		assertEquals(Arrays.asList("target"), configuration.persistency.loadedVersions);
+		assertTrue(configuration.persistency.savedWorkplans.isEmpty());
+		assertTrue(runner.getBaseVersionInstrumentation().getPhases().isEmpty());
+	}
+
+	@Test
+	public void testStandaloneModelRegistration() {
+		Map<String, Object> extensionToFactoryMap = Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap();
+		Object defaultFactory = extensionToFactoryMap.remove(Resource.Factory.Registry.DEFAULT_EXTENSION);
+		try {
+			URI uri = URI.createFileURI(new File(this.workspace.getDirectory(), "model.othermodel").getPath());
+			assertNull(new ResourceSetImpl().createResource(uri));
+			KampHeadlessApplication.registerStandaloneModels();
+			assertTrue(new ResourceSetImpl().createResource(uri) instanceof XMIResource);
+			assertNotNull(EPackage.Registry.INSTANCE.getEPackage(ModificationmarksPackage.eNS_URI));
+
+			// a registered default factory is kept
+			XMIResourceFactoryImpl otherFactory = new XMIResourceFactoryImpl();
+			extensionToFactoryMap.put(Resource.Factory.Registry.DEFAULT_EXTENSION, otherFactory);
+			KampHeadlessApplication.registerStandaloneModels();
+			assertSame(otherFactory, extensionToFactoryMap.get(Resource.Factory.Registry.DEFAULT_EXTENSION));
+		} finally {
+			if (defaultFactory != null) {
+				extensionToFactoryMap.put(Resource.Factory.Registry.DEFAULT_EXTENSION, defaultFactory);
+			} else {
+				extensionToFactoryMap.remove(Resource.Factory.Registry.DEFAULT_EXTENSION);
+			}
+		}
+	}
+
+	@Test
+	public void testToPlatformPath() {
+		HeadlessAnalysisRunner<TestArchitectureVersion> runner = new HeadlessAnalysisRunner<TestArchitectureVersion>(
+				new TestConfiguration(true), this.workspace.getDirectory());
+		assertEquals("/project/variants/a", runner.toPlatformPath(new File(this.getFolder(VARIANTS_FOLDER), "a")));
+		assertEquals("/project", runner.toPlatformPath(new File(this.getFolder(VARIANTS_FOLDER), "..")));
+		try {
+			runner.toPlatformPath(this.workspace.getDirectory().getParentFile());
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected, the folder is not located in the workspace directory
+		}
+	}
+
+	/**
+	 * Saves the component tree as <code>model.testmodel</code> and modification marks with
+	 * seed modifications of the components with the <code>seedNames</code> as
+	 * <code>model.modificationmarks</code> into the folder.
+	 */
+	private void saveVersion(String folderPath, EObject root, String... seedNames) throws IOException {
+		ModificationRepository repository = ModificationmarksFactory.eINSTANCE.createModificationRepository();
+		repository.setSeedModifications(TestModel.createSeedModifications());
+		TestArchitectureVersion version = new TestArchitectureVersion(FILENAME, repository);
+		for (String seedName: seedNames) {
+			for (EObject component: getComponents(root)) {
+				if (seedName.equals(TestModel.getName(component))) {
+					TestModel.addSeedModification(version, component);
+				}
+			}
+		}
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		resourceSet.createResource(this.workspace.getURI(folderPath, FILENAME + ".testmodel")).getContents().add(root);
+		resourceSet.createResource(this.workspace.getURI(folderPath, FILENAME + ".modificationmarks")).getContents()
+			.add(repository);
+		for (int i = 0; i < resourceSet.getResources().size(); i++) {
+			resourceSet.getResources().get(i).save(null);
+		}
+	}
+
+	/**
+	 * Loads the modification marks saved in the folder and describes their change
+	 * propagation steps.
+	 */
+	private String describeSavedChangePropagationSteps(String folderPath) {
+		TestArchitectureVersion version = new TestPersistency().load("/" + folderPath, FILENAME, "saved");
+		return TestModel.describeChangePropagationSteps(version.getModificationMarkRepository());
+	}
+
+	private File getFolder(String folderPath) {
+		return new File(this.workspace.getDirectory(), folderPath);
+	}
+
+	private String readFile(File folder, String fileName) throws IOException {
+		return new String(Files.readAllBytes(new File(folder, fileName).toPath()), "UTF-8");
+	}
+
+	/**
+	 * Creates the components below a component <code>root</code>, e.g. <code>"b&gt;a"</code>
+	 * for a component <code>b</code> which requires the component <code>a</code>.
+	 */
+	private static EObject createArchitecture(String... components) {
+		EObject root = TestModel.createComponent("root");
+		Map<String, EObject> componentsByName = new HashMap<String, EObject>();
+		for (String component: components) {
+			for (String name: component.split(">")) {
+				if (!componentsByName.containsKey(name)) {
+					componentsByName.put(name, TestModel.createComponent(name));
+					TestModel.getChildren(root).add(componentsByName.get(name));
+				}
+			}
+		}
+		for (String component: components) {
+			String[] names = component.split(">");
+			for (int i = 1; i < names.length; i++) {
+				TestModel.getRequires(componentsByName.get(names[0])).add(componentsByName.get(names[i]));
+			}
+		}
+		return root;
+	}
+
+	private static List<String> getNames(List<File> folders) {
+		List<String> names = new ArrayList<String>();
+		for (File folder: folders) {
+			names.add(folder.getName());
+		}
+		return names;
+	}
+
+	private static List<String> getPhaseNames(AnalysisResult result) {
+		List<String> names = new ArrayList<String>();
+		for (AnalysisInstrumentation.Phase phase: result.getInstrumentation().getPhases()) {
+			names.add(phase.getName());
+		}
+		return names;
+	}
+
+	private static List<EObject> getComponents(EObject root) {
+		List<EObject> components = new ArrayList<EObject>();
+		components.add(root);
+		for (TreeIterator<EObject> iterator = root.eAllContents(); iterator.hasNext();) {
+			components.add(iterator.next());
+		}
+		return components;
+	}
+
+	/**
+	 * Persistency which records the names of the loaded versions and the saved work plans
+	 * (by target folder name and file name) as the descriptions of their activities, each
+	 * followed by the descriptions of its follow-up activities (e.g.
+	 * <code>Add Implementation of &lt;d&gt; =&gt; [Add Documentation of &lt;d&gt;]</code>).
+	 */
+	private static class RecordingPersistency extends TestPersistency {
+
+		private final List<String> loadedVersions = new ArrayList<String>();
+		private final Map<String, List<String>> savedWorkplans = new HashMap<String, List<String>>();
+
+		@Override
+		public TestArchitectureVersion load(String folderpath, String filename, String versionname) {
+			loadedVersions.add(versionname);
+			return super.load(folderpath, filename, versionname);
+		}
+
+		@Override
+		public void saveActivityListToExcelFile(File targetDirectory, String filename, List<Activity> activityList) {
+			List<String> activities = new ArrayList<String>();
+			for (Activity activity: activityList) {
+				List<String> followupActivities = new ArrayList<String>();
+				for (Activity followupActivity: activity.getFollowupActivities()) {
+					followupActivities.add(followupActivity.getDescription());
+				}
+				activities.add(activity.getDescription()
+						+ (followupActivities.isEmpty() ? "" : " => " + followupActivities));
+			}
+			savedWorkplans.put(targetDirectory.getName() + "/" + filename, activities);
+			super.saveActivityListToExcelFile(targetDirectory, filename, activityList);
+		}
+	}
+
+	private static class TestConfiguration extends AbstractHeadlessAnalysisConfiguration<TestArchitectureVersion> {
+
+		private final RecordingPersistency persistency = new RecordingPersistency();
+		private final boolean deriveWorkplans;
+
+		private TestConfiguration(boolean deriveWorkplans) {
+			this.deriveWorkplans = deriveWorkplans;
+		}
+
+		@Override
+		public RecordingPersistency createArchitectureVersionPersistency() {
+			return persistency;
+		}
+
+		@Override
+		public AbstractChangePropagationAnalysis<TestArchitectureVersion> createChangePropagationAnalysis() {
+			return new TestChangePropagationAnalysis();
+		}
+
+		@Override
+		public AbstractWorkplanDerivation<? super TestArchitectureVersion> createWorkplanDerivation() {
+			return deriveWorkplans ? new TestWorkplanDerivation() : null;
+		}
+
+		@Override
+		public AbstractEnrichedWorkplanDerivation<? super TestArchitectureVersion> createEnrichedWorkplanDerivation() {
+			return deriveWorkplans ? new TestEnrichedWorkplanDerivation() : null;
+		}
+	}
+
+	/**
+	 * Marks the components which require a component of the seed modifications in one
+	 * change propagation step.
+	 */
+	private static class TestChangePropagationAnalysis implements AbstractChangePropagationAnalysis<TestArchitectureVersion> {
+
+		@Override
+		public void runChangePropagationAnalysis(TestArchitectureVersion version) {
+			Set<EObject> seedComponents = new HashSet<EObject>();
+			for (Modification modification: TestModel.getModifications(
+					version.getModificationMarkRepository().getSeedModifications())) {
+				seedComponents.add(modification.getAffectedElement());
+			}
+			List<Modification> modifications = new ArrayList<Modification>();
+			for (EObject component: getComponents(version.getModelRoots().get(0))) {
+				List<EObject> causingElements = new ArrayList<EObject>(TestModel.getRequires(component));
+				causingElements.retainAll(seedComponents);
+				if (!causingElements.isEmpty() && !seedComponents.contains(component)) {
+					modifications.add(TestModel.createModification(component,
+							causingElements.toArray(new EObject[causingElements.size()])));
+				}
+			}
+			if (!modifications.isEmpty()) {
+				TestModel.addChangePropagationStep(version, modifications.toArray(new Modification[modifications.size()]));
+			}
+		}
+	}
+
+	/**
+	 * Adds and removes the components by name and modifies the components of the
+	 * modification marks (the seed modifications also as documentation activity, so the
+	 * work plan contains duplicates).
+	 */
+	private static class TestWorkplanDerivation extends AbstractWorkplanDerivation<TestArchitectureVersion> {
+
+		@Override
+		public List<Activity> deriveWorkplan(TestArchitectureVersion baseVersion, TestArchitectureVersion targetVersion) {
+			List<Activity> activities = new ArrayList<Activity>();
+			List<EObject> baseComponents = getComponents(baseVersion.getModelRoots().get(0));
+			List<EObject> targetComponents = getComponents(targetVersion.getModelRoots().get(0));
+			Set<String> baseNames = getNames(baseComponents);
+			Set<String> targetNames = getNames(targetComponents);
+			for (EObject component: targetComponents) {
+				if (!baseNames.contains(TestModel.getName(component))) {
+					activities.add(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.ADD, component));
+				}
+			}
+			for (EObject component: baseComponents) {
+				if (!targetNames.contains(TestModel.getName(component))) {
+					activities.add(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.REMOVE, component));
+				}
+			}
+			ModificationRepository repository = targetVersion.getModificationMarkRepository();
+			for (Modification modification: TestModel.getModifications(repository.getSeedModifications())) {
+				activities.add(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY,
+						modification.getAffectedElement()));
+				activities.add(TestWorkplan.createActivity(TestWorkplan.DOCUMENTATION, BasicActivity.MODIFY,
+						modification.getAffectedElement()));
+			}
+			for (AbstractChangePropagationStep step: repository.getChangePropagationSteps()) {
+				for (Modification modification: TestModel.getModifications(step)) {
+					List<String> causes = new ArrayList<String>();
+					for (Object causingElement: modification.getCausingElements()) {
+						causes.add(TestModel.getName(causingElement));
+					}
+					activities.add(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY,
+							modification.getAffectedElement(), causes.toArray(new String[causes.size()])));
+				}
+			}
+			return activities;
+		}
+
+		@Override
+		protected void checkForDifferencesAndAddToWorkplan(Diff diffElement, List<Activity> workplan) {
+			// the components are compared by name
+		}
+
+		private static Set<String> getNames(List<EObject> components) {
+			Set<String> names = new HashSet<String>();
+			for (EObject component: components) {
+				names.add(TestModel.getName(component));
+			}
+			return names;
+		}
+	}
+
+	/**
+	 * Adds a documentation activity as follow-up activity of each added component.
+	 */
+	private static class TestEnrichedWorkplanDerivation implements AbstractEnrichedWorkplanDerivation<TestArchitectureVersion> {
+
+		@Override
+		public List<Activity> deriveEnrichedWorkplan(TestArchitectureVersion baseArchitectureVersion,
+				TestArchitectureVersion subVersion, List<Activity> activityList) {
+			for (Activity activity: activityList) {
+				if (activity.getBasicActivity() == BasicActivity.ADD) {
+					activity.addFollowupActivity(TestWorkplan.createActivity(TestWorkplan.DOCUMENTATION,
+							BasicActivity.ADD, activity.getElement()));
+				}
+			}
+			return activityList;
+		}
+	}
+
+}
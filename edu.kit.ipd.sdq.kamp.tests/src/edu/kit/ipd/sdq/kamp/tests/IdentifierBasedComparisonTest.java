@@ -0,0 +1,112 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.workplan.AbstractWorkplanDerivation;
+
+/**
+ * Compares a small component tree (<code>a</code> containing <code>a1</code>, and
+ * <code>b</code> requiring <code>a</code>) with changed copies using the comparison of
+ * {@link AbstractWorkplanDerivation#createIdentifierBasedComparison()}, and checks the
+ * found reference changes. The added and deleted elements and references have to be the
+ * same as those found by the default EMF Compare configuration, as only these are used by
+ * the work plan derivation (see {@link AbstractWorkplanDerivation#detectionRuleAdded(Diff, Class)}
+ * and {@link AbstractWorkplanDerivation#detectionRuleDeleted(Diff, Class)}).
+ */
+public class IdentifierBasedComparisonTest {
+
+	private EObject base;
+
+	@Before
+	public void setUp() {
+		this.base = TestModel.createComponent("root");
+		EObject a = TestModel.createComponent("a");
+		EObject b = TestModel.createComponent("b");
+		TestModel.getChildren(a).add(TestModel.createComponent("a1"));
+		TestModel.getRequires(b).add(a);
+		TestModel.getChildren(this.base).add(a);
+		TestModel.getChildren(this.base).add(b);
+	}
+
+	@Test
+	public void testAddedAndDeletedElementsAndReferences() {
+		// a1 is deleted, c is added, and b requires c instead of a
+		EObject target = EcoreUtil.copy(this.base);
+		EObject a = TestModel.getChildren(target).get(0);
+		EObject b = TestModel.getChildren(target).get(1);
+		EObject c = TestModel.createComponent("c");
+		TestModel.getChildren(a).clear();
+		TestModel.getChildren(target).add(c);
+		TestModel.getRequires(b).set(0, c);
+
+		List<String> expected = Arrays.asList("ADD children c", "ADD requires c", "DELETE children a1",
+				"DELETE requires a");
+		List<Diff> differences = AbstractWorkplanDerivation.calculateDiffModelByIdentifiers(this.base, target);
+		assertEquals(expected, describeAddedAndDeleted(differences));
+		assertEquals(4, differences.size());
+		assertEquals(expected, describeAddedAndDeleted(AbstractWorkplanDerivation.calculateDiffModel(this.base, target)));
+	}
+
+	@Test
+	public void testMovedElementIsNeitherAddedNorDeleted() {
+		EObject target = EcoreUtil.copy(this.base);
+		EObject a = TestModel.getChildren(target).get(0);
+		EObject b = TestModel.getChildren(target).get(1);
+		TestModel.getChildren(b).add(TestModel.getChildren(a).get(0));
+
+		List<Diff> differences = AbstractWorkplanDerivation.calculateDiffModelByIdentifiers(this.base, target);
+		assertTrue(describeAddedAndDeleted(differences).isEmpty());
+		assertEquals(1, differences.size());
+		assertEquals(DifferenceKind.MOVE, differences.get(0).getKind());
+		assertTrue(describeAddedAndDeleted(AbstractWorkplanDerivation.calculateDiffModel(this.base, target)).isEmpty());
+	}
+
+	@Test
+	public void testOnlyReferenceChanges() {
+		EObject target = EcoreUtil.copy(this.base);
+		TestModel.getRequires(TestModel.getChildren(target).get(0)).add(TestModel.getChildren(target).get(1));
+		List<Diff> differences = AbstractWorkplanDerivation.calculateDiffModelByIdentifiers(this.base, target);
+		assertEquals(Arrays.asList("ADD requires b"), describeAddedAndDeleted(differences));
+		for (Diff difference: differences) {
+			assertTrue(difference instanceof ReferenceChange);
+		}
+	}
+
+	@Test
+	public void testUnchangedCopy() {
+		assertTrue(AbstractWorkplanDerivation.calculateDiffModelByIdentifiers(this.base, EcoreUtil.copy(this.base))
+				.isEmpty());
+	}
+
+	/**
+	 * Describes the added and deleted values of references in sorted order, e.g.
+	 * <code>ADD children c</code>.
+	 */
+	private static List<String> describeAddedAndDeleted(List<Diff> differences) {
+		List<String> descriptions = new ArrayList<String>();
+		for (Diff difference: differences) {
+			if (difference instanceof ReferenceChange && (difference.getKind() == DifferenceKind.ADD
+					|| difference.getKind() == DifferenceKind.DELETE)) {
+				ReferenceChange referenceChange = (ReferenceChange) difference;
+				descriptions.add(difference.getKind() + " " + referenceChange.getReference().getName() + " "
+						+ TestModel.getName(referenceChange.getValue()));
+			}
+		}
+		Collections.sort(descriptions);
+		return descriptions;
+	}
+
+}
@@ -0,0 +1,162 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.derivation.IdentifierBasedDifferenceCalculation;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.BasicActivity;
+
+/**
+ * Derives the activities for added, removed and moved components from the differences
+ * the {@link IdentifierBasedDifferenceCalculation} finds between small component trees,
+ * and checks them and their order. For models with duplicate identifiers, the activities
+ * have to be the same as those derived (by the same
+ * {@link IdentifierBasedDifferenceCalculation#checkForDifferencesAndAddToWorkplan(Diff, List)})
+ * from the differences calculated by EMF Compare.
+ */
+public class IdentifierBasedDifferenceCalculationTest {
+
+	@Test
+	public void testAdditionsAndMovesBeforeDeletions() {
+		EObject base = TestModel.createComponent("root");
+		EObject a = TestModel.createComponent("a");
+		EObject b = TestModel.createComponent("b");
+		TestModel.getChildren(base).addAll(Arrays.asList(a, b, TestModel.createComponent("d")));
+		EObject target = EcoreUtil.copy(base);
+		EObject targetA = TestModel.getChildren(target).get(0);
+		EObject targetB = TestModel.getChildren(target).get(1);
+		TestModel.getChildren(targetB).add(targetA);
+		TestModel.getChildren(target).add(TestModel.createComponent("c"));
+		TestModel.getChildren(target).remove(1);
+
+		List<Activity> workplan = new TestDifferenceCalculation().deriveAddAndRemoveActivities(base, target);
+		assertEquals(Arrays.asList("MODIFY a", "ADD c", "REMOVE d"), describeActivitiesInOrder(workplan));
+		assertSame(targetA, workplan.get(0).getElement());
+		assertSame(TestModel.getChildren(base).get(2), workplan.get(2).getElement());
+	}
+
+	@Test
+	public void testAddedAndRemovedSubtrees() {
+		EObject base = TestModel.createComponent("root");
+		EObject a = TestModel.createComponent("a");
+		TestModel.getChildren(a).add(TestModel.createComponent("a1"));
+		TestModel.getChildren(base).add(a);
+		EObject target = TestModel.createComponent("root");
+		EObject b = TestModel.createComponent("b");
+		TestModel.getChildren(b).add(TestModel.createComponent("b1"));
+		TestModel.getChildren(target).add(b);
+
+		// each element of a subtree is reported, in the order of its model
+		assertEquals(Arrays.asList("ADD b", "ADD b1", "REMOVE a", "REMOVE a1"), describeActivitiesInOrder(
+				new TestDifferenceCalculation().deriveAddAndRemoveActivities(base, target)));
+	}
+
+	@Test
+	public void testReorderedChildrenAreNotMoved() {
+		EObject base = TestModel.createComponent("root");
+		TestModel.getChildren(base).addAll(Arrays.asList(TestModel.createComponent("a"), TestModel.createComponent("b")));
+		EObject target = EcoreUtil.copy(base);
+		TestModel.getChildren(target).move(0, 1);
+
+		assertTrue(new TestDifferenceCalculation().deriveAddAndRemoveActivities(base, target).isEmpty());
+		assertTrue(new TestDifferenceCalculation().deriveAddAndRemoveActivities(base, EcoreUtil.copy(base)).isEmpty());
+	}
+
+	@Test
+	public void testElementsWithoutIdentifiersAreIdentifiedByTheirPosition() {
+		EObject base = TestModel.createComponent("root");
+		EObject unnamed = TestModel.createComponent(null);
+		TestModel.getChildren(unnamed).add(TestModel.createComponent(null));
+		TestModel.getChildren(base).add(unnamed);
+		EObject target = EcoreUtil.copy(base);
+		EObject movedChild = TestModel.getChildren(TestModel.getChildren(target).get(0)).get(0);
+		TestModel.getChildren(target).add(movedChild);
+
+		// the moved element has another URI fragment in the target model
+		List<Activity> workplan = new TestDifferenceCalculation().deriveAddAndRemoveActivities(base, target);
+		assertEquals(Arrays.asList("ADD null", "REMOVE null"), describeActivitiesInOrder(workplan));
+		assertSame(movedChild, workplan.get(0).getElement());
+		assertSame(TestModel.getChildren(unnamed).get(0), workplan.get(1).getElement());
+	}
+
+	@Test
+	public void testDuplicateIdentifiersAreComparedByEMFCompare() {
+		EObject base = TestModel.createComponent("root");
+		TestModel.getChildren(base).add(TestModel.createComponent("a"));
+		TestModel.getChildren(base).add(TestModel.createComponent("a"));
+		EObject target = EcoreUtil.copy(base);
+		TestModel.getChildren(target).add(TestModel.createComponent("b"));
+
+		TestDifferenceCalculation differenceCalculation = new TestDifferenceCalculation();
+		assertEquals(describeActivities(differenceCalculation.deriveAddAndRemoveActivities(
+				TestDifferenceCalculation.calculateDiffModel(base, target))),
+				describeActivities(differenceCalculation.deriveAddAndRemoveActivities(base, target)));
+	}
+
+	private static List<String> describeActivities(List<Activity> activities) {
+		List<String> descriptions = describeActivitiesInOrder(activities);
+		Collections.sort(descriptions);
+		return descriptions;
+	}
+
+	private static List<String> describeActivitiesInOrder(List<Activity> activities) {
+		List<String> descriptions = new ArrayList<String>();
+		for (Activity activity: activities) {
+			descriptions.add(activity.getBasicActivity() + " " + activity.getElementName());
+		}
+		return descriptions;
+	}
+
+	/**
+	 * Creates an activity for each added (ADD), deleted (REMOVE) and moved (MODIFY)
+	 * component. Changes of non-containment references are ignored, as they are not
+	 * reported by the {@link IdentifierBasedDifferenceCalculation}.
+	 */
+	private static class TestDifferenceCalculation extends IdentifierBasedDifferenceCalculation<TestArchitectureVersion> {
+
+		@Override
+		public List<Activity> deriveWorkplan(TestArchitectureVersion baseVersion, TestArchitectureVersion targetVersion) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		protected List<Activity> deriveAddAndRemoveActivities(List<Diff> diff) {
+			return super.deriveAddAndRemoveActivities(diff);
+		}
+
+		@Override
+		protected List<Activity> deriveAddAndRemoveActivities(EObject source, EObject target) {
+			return super.deriveAddAndRemoveActivities(source, target);
+		}
+
+		@Override
+		protected void checkForDifferencesAndAddToWorkplan(Diff diffElement, List<Activity> workplan) {
+			if (!(diffElement instanceof ReferenceChange)
+					|| !((ReferenceChange) diffElement).getReference().isContainment()) {
+				return;
+			}
+			EObject element = ((ReferenceChange) diffElement).getValue();
+			if (diffElement.getKind() == DifferenceKind.ADD) {
+				workplan.add(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.ADD, element));
+			} else if (diffElement.getKind() == DifferenceKind.DELETE) {
+				workplan.add(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.REMOVE, element));
+			} else if (diffElement.getKind() == DifferenceKind.MOVE) {
+				workplan.add(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY, element));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,337 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.architecture.ArchitectureModelLookup;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.propagation.AbstractChangePropagationAnalysis;
+import edu.kit.ipd.sdq.kamp.propagation.AbstractIncrementalChangePropagationAnalysis;
+import edu.kit.ipd.sdq.kamp.propagation.IncrementalChangePropagation;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+
+/**
+ * Runs an {@link IncrementalChangePropagation} several times on a small architecture
+ * (<code>c</code> requires <code>b</code> which requires <code>a</code>, <code>d</code>
+ * requires <code>a</code>, <code>f</code> requires <code>e</code>, and <code>x</code> and
+ * <code>y</code> require each other, with <code>x</code> also requiring <code>e</code>)
+ * and checks the modifications after each run and which runs were complete ones.
+ */
+public class IncrementalChangePropagationTest {
+
+	private TestArchitectureVersion version;
+	private ReachabilityAnalysis analysis;
+	private IncrementalChangePropagation<TestArchitectureVersion> incrementalChangePropagation;
+
+	@Before
+	public void setUp() {
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		this.version = TestModel.createVersion("target", resourceSet);
+		Resource resource = resourceSet.createResource(URI.createURI("mem:/target.testmodel"));
+		for (String name: new String[] {"a", "b", "c", "d", "e", "f", "x", "y"}) {
+			EObject component = TestModel.createComponent(name);
+			resource.getContents().add(component);
+			this.version.getModelRoots().add(component);
+		}
+		addRequires("b", "a");
+		addRequires("c", "b");
+		addRequires("d", "a");
+		addRequires("f", "e");
+		addRequires("x", "e");
+		addRequires("x", "y");
+		addRequires("y", "x");
+		this.analysis = new ReachabilityAnalysis();
+		this.incrementalChangePropagation = new IncrementalChangePropagation<TestArchitectureVersion>();
+	}
+
+	@Test
+	public void testFirstRunIsCompleteRun() {
+		addSeedModification("a");
+		run();
+		assertEquals("[b<[a], c<[b], d<[a]]", describe());
+		assertEquals(1, this.analysis.completeRuns);
+	}
+
+	@Test
+	public void testAddedSeedElementIsPropagatedIncrementally() {
+		addSeedModification("a");
+		run();
+		addSeedModification("e");
+		run();
+		assertEquals("[b<[a], c<[b], d<[a], f<[e], x<[e, y], y<[x]]", describe());
+		assertEquals(1, this.analysis.completeRuns);
+		assertEquals(Collections.singletonList("e"), this.analysis.addedSeedElements);
+	}
+
+	@Test
+	public void testAddedSeedElementWhichIsAlreadyAffected() {
+		addSeedModification("a");
+		run();
+		addSeedModification("b");
+		run();
+		// the consequences of b are already in the repository
+		assertEquals("[b<[a], c<[b], d<[a]]", describe());
+		assertEquals(1, this.analysis.completeRuns);
+	}
+
+	@Test
+	public void testRemovedSeedElementIsRetracted() {
+		Modification modificationOfA = addSeedModification("a");
+		addSeedModification("e");
+		run();
+		getSeedModifications().remove(modificationOfA);
+		run();
+		assertEquals("[f<[e], x<[e, y], y<[x]]", describe());
+		assertEquals(1, this.analysis.completeRuns);
+	}
+
+	@Test
+	public void testRemovedSeedElementWhichIsStillAffected() {
+		addSeedModification("a");
+		Modification modificationOfB = addSeedModification("b");
+		run();
+		getSeedModifications().remove(modificationOfB);
+		run();
+		assertEquals("[b<[a], c<[b], d<[a]]", describe());
+		assertEquals(1, this.analysis.completeRuns);
+	}
+
+	@Test
+	public void testRemovedSeedElementOfCycleRunsCompleteAnalysis() {
+		addSeedModification("a");
+		Modification modificationOfE = addSeedModification("e");
+		run();
+		assertEquals("[b<[a], c<[b], d<[a], f<[e], x<[e, y], y<[x]]", describe());
+		// x and y still cause each other after e has been removed
+		getSeedModifications().remove(modificationOfE);
+		run();
+		assertEquals("[b<[a], c<[b], d<[a]]", describe());
+		assertEquals(2, this.analysis.completeRuns);
+	}
+
+	@Test
+	public void testAllSeedElementsRemoved() {
+		addSeedModification("a");
+		run();
+		getSeedModifications().clear();
+		run();
+		assertEquals("[]", describe());
+		assertTrue(this.version.getModificationMarkRepository().getChangePropagationSteps().isEmpty());
+	}
+
+	@Test
+	public void testWithoutSeedElements() {
+		run();
+		run();
+		assertEquals("[]", describe());
+		// without calculated modifications there is nothing to update incrementally
+		assertEquals(2, this.analysis.completeRuns);
+	}
+
+	@Test
+	public void testUnchangedSeedElements() {
+		addSeedModification("a");
+		run();
+		run();
+		assertEquals("[b<[a], c<[b], d<[a]]", describe());
+		assertEquals(1, this.analysis.completeRuns);
+		assertTrue(this.analysis.addedSeedElements.isEmpty());
+	}
+
+	@Test
+	public void testResetRunsCompleteAnalysis() {
+		addSeedModification("a");
+		run();
+		this.incrementalChangePropagation.reset();
+		addSeedModification("e");
+		run();
+		assertEquals("[b<[a], c<[b], d<[a], f<[e], x<[e, y], y<[x]]", describe());
+		assertEquals(2, this.analysis.completeRuns);
+	}
+
+	@Test
+	public void testAnalysisWhichIsNotIncremental() {
+		final int[] completeRuns = new int[1];
+		AbstractChangePropagationAnalysis<TestArchitectureVersion> completeAnalysis =
+				new AbstractChangePropagationAnalysis<TestArchitectureVersion>() {
+
+			@Override
+			public void runChangePropagationAnalysis(TestArchitectureVersion version) {
+				completeRuns[0]++;
+				IncrementalChangePropagationTest.this.analysis.runChangePropagationAnalysis(version);
+			}
+		};
+		addSeedModification("a");
+		this.incrementalChangePropagation.runChangePropagation(this.version, completeAnalysis);
+		addSeedModification("e");
+		this.incrementalChangePropagation.runChangePropagation(this.version, completeAnalysis);
+		assertEquals("[b<[a], c<[b], d<[a], f<[e], x<[e, y], y<[x]]", describe());
+		assertEquals(2, completeRuns[0]);
+	}
+
+	@Test
+	public void testSessionPropagationKeepsRecordedSeedElements() {
+		URI modificationMarkFileURI = URI.createURI("mem:/session/target.modificationmarks");
+		URI otherModificationMarkFileURI = URI.createURI("mem:/session/other.modificationmarks");
+		try {
+			IncrementalChangePropagation<TestArchitectureVersion> propagation =
+					IncrementalChangePropagation.getSessionPropagation(modificationMarkFileURI);
+			assertSame(propagation, IncrementalChangePropagation.getSessionPropagation(modificationMarkFileURI));
+			assertNotSame(propagation, IncrementalChangePropagation.getSessionPropagation(otherModificationMarkFileURI));
+			addSeedModification("a");
+			propagation.runChangePropagation(this.version, this.analysis);
+			assertEquals(1, this.analysis.completeRuns);
+
+			// e.g. run by a new action delegate
+			addSeedModification("e");
+			IncrementalChangePropagation.<TestArchitectureVersion>getSessionPropagation(modificationMarkFileURI).
+					runChangePropagation(this.version, this.analysis);
+			assertEquals(1, this.analysis.completeRuns);
+			assertEquals("[b<[a], c<[b], d<[a], f<[e], x<[e, y], y<[x]]", describe());
+
+			IncrementalChangePropagation.removeSessionPropagation(modificationMarkFileURI);
+			IncrementalChangePropagation.<TestArchitectureVersion>getSessionPropagation(modificationMarkFileURI).
+					runChangePropagation(this.version, this.analysis);
+			assertEquals(2, this.analysis.completeRuns);
+		} finally {
+			IncrementalChangePropagation.removeSessionPropagation(modificationMarkFileURI);
+			IncrementalChangePropagation.removeSessionPropagation(otherModificationMarkFileURI);
+		}
+	}
+
+	private void run() {
+		this.incrementalChangePropagation.runChangePropagation(this.version, this.analysis);
+	}
+
+	private void addRequires(String name, String requiredName) {
+		TestModel.getRequires(findComponent(name)).add(findComponent(requiredName));
+	}
+
+	private Modification addSeedModification(String name) {
+		return TestModel.addSeedModification(this.version, findComponent(name));
+	}
+
+	private List<Modification> getSeedModifications() {
+		return TestModel.getModifications(this.version.getModificationMarkRepository().getSeedModifications());
+	}
+
+	private EObject findComponent(String name) {
+		for (EObject component: this.version.getModelRoots()) {
+			if (name.equals(TestModel.getName(component))) {
+				return component;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	/**
+	 * Describes the calculated modifications independent of their order (which differs
+	 * between complete and incremental runs).
+	 */
+	private String describe() {
+		ModificationRepository repository = this.version.getModificationMarkRepository();
+		Set<String> modifications = new TreeSet<String>();
+		for (AbstractChangePropagationStep step: repository.getChangePropagationSteps()) {
+			for (Modification modification: TestModel.getModifications(step)) {
+				Set<String> causes = new TreeSet<String>();
+				for (Object cause: modification.getCausingElements()) {
+					causes.add(TestModel.getName(cause));
+				}
+				assertTrue("duplicate modification", modifications.add(
+						TestModel.getName(modification.getAffectedElement()) + "<" + causes));
+			}
+		}
+		return modifications.toString();
+	}
+
+	/**
+	 * Marks all components which (transitively) require a seed element, with the marked
+	 * components they require as causes. Counts the complete runs and records the names of
+	 * the seed elements propagated incrementally.
+	 */
+	private static class ReachabilityAnalysis
+			implements AbstractIncrementalChangePropagationAnalysis<TestArchitectureVersion> {
+
+		private int completeRuns;
+		private final List<String> addedSeedElements = new ArrayList<String>();
+
+		@Override
+		public void runChangePropagationAnalysis(TestArchitectureVersion version) {
+			this.completeRuns++;
+			propagate(version, ArchitectureModelLookup.lookUpMarkedObjectsOfATypeInSeedModifications(version,
+					EObject.class), Collections.<EObject>emptySet());
+		}
+
+		@Override
+		public void runChangePropagationAnalysis(TestArchitectureVersion version, Collection<Object> addedSeedElements) {
+			Set<EObject> markedElements = new HashSet<EObject>(
+					ArchitectureModelLookup.lookUpMarkedObjectsOfAType(version, EObject.class));
+			markedElements.removeAll(addedSeedElements);
+			List<EObject> startElements = new ArrayList<EObject>();
+			for (Object addedSeedElement: addedSeedElements) {
+				this.addedSeedElements.add(TestModel.getName(addedSeedElement));
+				startElements.add((EObject) addedSeedElement);
+			}
+			propagate(version, startElements, markedElements);
+		}
+
+		/**
+		 * Propagates from the <code>startElements</code>, but not beyond elements which are
+		 * already marked (as their consequences are already in the repository).
+		 */
+		private void propagate(TestArchitectureVersion version, Collection<EObject> startElements,
+				Set<EObject> markedElements) {
+			Set<EObject> reachedElements = new HashSet<EObject>(startElements);
+			Deque<EObject> elementsToPropagate = new ArrayDeque<EObject>(startElements);
+			Map<EObject, List<EObject>> causes = new LinkedHashMap<EObject, List<EObject>>();
+			while (!elementsToPropagate.isEmpty()) {
+				EObject cause = elementsToPropagate.poll();
+				if (markedElements.contains(cause)) {
+					continue;
+				}
+				for (EObject component: version.getModelRoots()) {
+					if (TestModel.getRequires(component).contains(cause)) {
+						if (!causes.containsKey(component)) {
+							causes.put(component, new ArrayList<EObject>());
+						}
+						causes.get(component).add(cause);
+						if (reachedElements.add(component)) {
+							elementsToPropagate.add(component);
+						}
+					}
+				}
+			}
+
+			ChangePropagationStep step = TestModel.createChangePropagationStep();
+			for (Map.Entry<EObject, List<EObject>> affectedElement: causes.entrySet()) {
+				TestModel.getModifications(step).add(TestModel.createModification(affectedElement.getKey(),
+						affectedElement.getValue().toArray(new EObject[affectedElement.getValue().size()])));
+			}
+			if (!TestModel.getModifications(step).isEmpty()) {
+				version.getModificationMarkRepository().getChangePropagationSteps().add(step);
+			}
+		}
+	}
+
+}
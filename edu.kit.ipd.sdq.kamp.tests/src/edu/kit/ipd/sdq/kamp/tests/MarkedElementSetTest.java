@@ -0,0 +1,138 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.util.ElementIdRegistry;
+import edu.kit.ipd.sdq.kamp.util.MarkedElementSet;
+
+/**
+ * Checks that a {@link MarkedElementSet} behaves like a {@link HashSet}: random sequences
+ * of operations must leave both with the same contents. The operands share the registry of
+ * the set or use another one, which exercises both the bitwise and the element-wise
+ * implementations of the bulk operations.
+ */
+public class MarkedElementSetTest {
+
+	private static final int ELEMENTS = 500;
+
+	@Test
+	public void testSameContentsAsHashSet() {
+		List<EObject> elements = new ArrayList<EObject>();
+		for (int i = 0; i < ELEMENTS; i++) {
+			elements.add(TestModel.createComponent("c" + i));
+		}
+		ElementIdRegistry<Object> registry = new ElementIdRegistry<Object>();
+		ElementIdRegistry<Object> otherRegistry = new ElementIdRegistry<Object>();
+		Random random = new Random(0);
+
+		for (int round = 0; round < 400; round++) {
+			Set<EObject> expected = new HashSet<EObject>();
+			Set<EObject> expectedOperand = new HashSet<EObject>();
+			MarkedElementSet<EObject> markedElements = new MarkedElementSet<EObject>(registry);
+			Collection<EObject> operand;
+			if (round % 3 == 0) {
+				operand = new MarkedElementSet<EObject>(registry);
+			} else if (round % 3 == 1) {
+				operand = new MarkedElementSet<EObject>(otherRegistry);
+			} else {
+				operand = new ArrayList<EObject>();
+			}
+			for (int i = 0; i < 150; i++) {
+				EObject element = elements.get(random.nextInt(ELEMENTS));
+				assertEquals(expected.add(element), markedElements.add(element));
+				EObject operandElement = elements.get(random.nextInt(ELEMENTS));
+				expectedOperand.add(operandElement);
+				operand.add(operandElement);
+			}
+
+			int operation = random.nextInt(6);
+			String message = "round " + round + ", operation " + operation;
+			if (operation == 0) {
+				assertEquals(message, expected.addAll(expectedOperand), markedElements.addAll(operand));
+			} else if (operation == 1) {
+				assertEquals(message, expected.removeAll(expectedOperand), markedElements.removeAll(operand));
+			} else if (operation == 2) {
+				assertEquals(message, expected.retainAll(expectedOperand), markedElements.retainAll(operand));
+			} else if (operation == 3) {
+				Iterator<EObject> iterator = markedElements.iterator();
+				while (iterator.hasNext()) {
+					if (expectedOperand.contains(iterator.next())) {
+						iterator.remove();
+					}
+				}
+				expected.removeAll(expectedOperand);
+			} else if (operation == 4) {
+				for (EObject element: expectedOperand) {
+					assertEquals(message, expected.remove(element), markedElements.remove(element));
+				}
+			} else {
+				markedElements = markedElements.copy();
+			}
+
+			assertEquals(message, expected, markedElements);
+			assertEquals(message, markedElements, expected);
+			assertEquals(message, expected.size(), markedElements.size());
+			assertEquals(message, expected.hashCode(), markedElements.hashCode());
+			assertEquals(message, expected.containsAll(expectedOperand), markedElements.containsAll(operand));
+			for (EObject element: elements) {
+				assertEquals(message, expected.contains(element), markedElements.contains(element));
+			}
+			assertEquals(message, markedElements, MarkedElementSet.fromBitSet(registry, markedElements.toBitSet(),
+					EObject.class));
+		}
+	}
+
+	@Test
+	public void testElementsAreComparedByIdentity() {
+		MarkedElementSet<Object> markedElements = new MarkedElementSet<Object>(new ElementIdRegistry<Object>());
+		String element = "element";
+		markedElements.add(element);
+		assertTrue(markedElements.contains(element));
+		assertFalse(markedElements.contains(new String(element)));
+		assertFalse(markedElements.contains(null));
+	}
+
+	@Test
+	public void testNullElement() {
+		MarkedElementSet<EObject> markedElements = new MarkedElementSet<EObject>(new ElementIdRegistry<Object>());
+		assertTrue(markedElements.add(null));
+		assertFalse(markedElements.add(null));
+		assertTrue(markedElements.contains(null));
+		assertEquals(1, markedElements.size());
+		assertNull(markedElements.iterator().next());
+		assertTrue(markedElements.remove(null));
+		assertTrue(markedElements.isEmpty());
+	}
+
+	@Test
+	public void testEmptyOperands() {
+		ElementIdRegistry<Object> registry = new ElementIdRegistry<Object>();
+		EObject element = TestModel.createComponent("a");
+		MarkedElementSet<EObject> markedElements = new MarkedElementSet<EObject>(registry);
+		markedElements.add(element);
+		MarkedElementSet<EObject> emptySet = new MarkedElementSet<EObject>(registry);
+		assertFalse(markedElements.addAll(emptySet));
+		assertFalse(markedElements.removeAll(emptySet));
+		assertTrue(markedElements.containsAll(emptySet));
+		assertFalse(emptySet.removeAll(markedElements));
+		assertFalse(emptySet.containsAll(markedElements));
+		assertEquals(1, markedElements.size());
+		assertTrue(markedElements.retainAll(new ArrayList<EObject>()));
+		assertTrue(markedElements.isEmpty());
+		assertEquals(emptySet, markedElements);
+		assertTrue(markedElements.toBitSet().isEmpty());
+		assertFalse(markedElements.iterator().hasNext());
+	}
+
+}
@@ -0,0 +1,245 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.architecture.ModificationMarkIndexFile;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.tests.TestWorkspace.TestPersistency;
+
+/**
+ * Saves modification marks with the persistency, which writes the
+ * {@link ModificationMarkIndexFile}, and reads the index: the seed modification of
+ * <code>a</code>, a step with the modifications of <code>b</code> (excluded by the user)
+ * and <code>c</code> (confirmed), and a step with another modification of <code>b</code>.
+ * The first two modifications have IDs, the others are identified by their paths.
+ */
+public class ModificationMarkIndexFileTest {
+
+	private static final String FOLDER = "project/models";
+
+	private static final String MODIFICATIONMARK_FILE = "version.modificationmarks";
+
+	private TestWorkspace workspace;
+
+	@Before
+	public void setUp() {
+		this.workspace = new TestWorkspace();
+	}
+
+	@After
+	public void tearDown() {
+		this.workspace.dispose();
+	}
+
+	@Test
+	public void testStepsAndModifications() throws IOException {
+		File modificationMarkFile = this.saveWithIndex(FOLDER, true);
+		Resource resource = TestModel.createResourceSet().getResource(this.workspace.getURI(FOLDER,
+				modificationMarkFile.getName()), true);
+		ModificationRepository repository = (ModificationRepository) resource.getContents().get(0);
+		ModificationMarkIndexFile index = ModificationMarkIndexFile.open(modificationMarkFile);
+		assertNotNull(index);
+
+		assertEquals(3, index.getStepCount());
+		assertEquals(Arrays.asList(true, false, false), Arrays.asList(index.isSeedModifications(0),
+				index.isSeedModifications(1), index.isSeedModifications(2)));
+		assertSame(repository.getSeedModifications(), resource.getEObject(index.getStepURIFragment(0)));
+		assertSame(repository.getChangePropagationSteps().get(1), resource.getEObject(index.getStepURIFragment(2)));
+		assertEquals("TestSeedModifications", index.getStepClassName(0));
+		assertEquals("TestChangePropagationStep", index.getStepClassName(1));
+		assertEquals(Arrays.asList(0, 1, 3), Arrays.asList(index.getFirstModificationOfStep(0),
+				index.getFirstModificationOfStep(1), index.getFirstModificationOfStep(2)));
+		assertEquals(Arrays.asList(1, 2, 1), Arrays.asList(index.getModificationCountOfStep(0),
+				index.getModificationCountOfStep(1), index.getModificationCountOfStep(2)));
+
+		assertEquals(4, index.getModificationCount());
+		List<String> fragments = Arrays.asList("seedOfA", "excludedB", "//@changePropagationSteps.0/@modifications.1",
+				"//@changePropagationSteps.1/@modifications.0");
+		List<Integer> steps = Arrays.asList(0, 1, 1, 2);
+		List<String> ids = Arrays.asList("seedOfA", "excludedB", null, null);
+		List<String> affectedElements = Arrays.asList("a", "b", "c", "b");
+		List<Integer> causingElementCounts = Arrays.asList(0, 1, 1, 1);
+		for (int i = 0; i < 4; i++) {
+			assertEquals(fragments.get(i), index.getModificationURIFragment(i));
+			assertTrue(resource.getEObject(fragments.get(i)) instanceof Modification);
+			assertEquals(steps.get(i).intValue(), index.getStepOfModification(i));
+			assertEquals(ids.get(i), index.getModificationId(i));
+			assertEquals("Modification", index.getModificationClassName(i));
+			assertEquals(this.getComponentURI(affectedElements.get(i)), index.getAffectedElementURI(i));
+			assertEquals(causingElementCounts.get(i).intValue(), index.getCausingElementCount(i));
+		}
+		assertEquals(Arrays.asList(1, 3), toList(index.getModificationsOfAffectedElement(this.getComponentURI("b"))));
+		assertTrue(toList(index.getModificationsOfAffectedElement(this.getComponentURI("d"))).isEmpty());
+
+		assertEquals(AcceptanceAndConfirmationState.EXCLUDED, index.getUserDecision(1));
+		assertEquals(AcceptanceAndConfirmationState.CONFIRMED, index.getUserDecision(2));
+		assertEquals(2, index.getModificationCount(AcceptanceAndConfirmationState.NODECISION));
+		assertEquals(Arrays.asList(0, 3), toList(index.getModificationsWithUserDecision(
+				AcceptanceAndConfirmationState.NODECISION)));
+		assertEquals(Arrays.asList(1), toList(index.getModificationsWithUserDecision(
+				AcceptanceAndConfirmationState.EXCLUDED)));
+		assertEquals(Arrays.asList(2), toList(index.getModificationsWithUserDecision(
+				AcceptanceAndConfirmationState.CONFIRMED)));
+		// the resource has not been resolved by the checks
+		assertEquals(1, resource.getResourceSet().getResources().size());
+	}
+
+	@Test
+	public void testModificationWithoutAffectedElement() throws IOException {
+		TestArchitectureVersion version = TestModel.createVersion("version", null);
+		TestModel.addChangePropagationStep(version, TestModel.createModification(null));
+		File modificationMarkFile = this.saveWithIndex(FOLDER, version);
+
+		ModificationMarkIndexFile index = ModificationMarkIndexFile.open(modificationMarkFile);
+		assertEquals(2, index.getStepCount());
+		assertEquals(1, index.getModificationCount());
+		assertNull(index.getAffectedElementURI(0));
+		assertEquals(0, index.getCausingElementCount(0));
+		assertEquals(0, index.getModificationsOfAffectedElement(this.getComponentURI("a")).length);
+	}
+
+	@Test
+	public void testEmptyRepository() throws IOException {
+		File modificationMarkFile = this.saveWithIndex(FOLDER, TestModel.createVersion("version", null));
+		ModificationMarkIndexFile index = ModificationMarkIndexFile.open(modificationMarkFile);
+		assertEquals(1, index.getStepCount());
+		assertTrue(index.isSeedModifications(0));
+		assertEquals(0, index.getModificationCountOfStep(0));
+		assertEquals(0, index.getModificationCount());
+		for (AcceptanceAndConfirmationState userDecision: AcceptanceAndConfirmationState.VALUES) {
+			assertEquals(0, index.getModificationCount(userDecision));
+			assertEquals(0, index.getModificationsWithUserDecision(userDecision).length);
+		}
+	}
+
+	@Test
+	public void testOutdatedIndexIsIgnored() throws IOException {
+		File modificationMarkFile = this.saveWithIndex(FOLDER, true);
+		assertNotNull(ModificationMarkIndexFile.open(modificationMarkFile));
+		assertTrue(modificationMarkFile.setLastModified(modificationMarkFile.lastModified() - 10000));
+		assertNull(ModificationMarkIndexFile.open(modificationMarkFile));
+		assertTrue(ModificationMarkIndexFile.getIndexFile(modificationMarkFile).delete());
+		assertNull(ModificationMarkIndexFile.open(modificationMarkFile));
+	}
+
+	@Test
+	public void testIndexIsReplacedWhileOpen() throws IOException {
+		File modificationMarkFile = this.saveWithIndex(FOLDER, true);
+		ModificationMarkIndexFile index = ModificationMarkIndexFile.open(modificationMarkFile);
+
+		// without IDs
+		assertEquals(modificationMarkFile, this.saveWithIndex(FOLDER, false));
+		assertEquals("//@seedModifications/@modifications.0",
+				ModificationMarkIndexFile.open(modificationMarkFile).getModificationURIFragment(0));
+		// the opened index is still readable and unchanged
+		assertEquals(4, index.getModificationCount());
+		assertEquals("seedOfA", index.getModificationURIFragment(0));
+		for (String fileName: modificationMarkFile.getParentFile().list()) {
+			assertFalse(fileName, fileName.endsWith(".tmp"));
+		}
+	}
+
+	@Test
+	public void testFailedIndexWritingDoesNotFailSave() throws IOException {
+		File folder = new File(this.workspace.getDirectory(), FOLDER);
+		// a non-empty directory cannot be replaced by the index file
+		File indexFile = ModificationMarkIndexFile.getIndexFile(new File(folder, "saved.modificationmarks"));
+		assertTrue(new File(indexFile, "blocking").mkdirs());
+
+		File modificationMarkFile = this.saveWithIndex(FOLDER, true);
+		assertTrue(modificationMarkFile.isFile());
+		assertNull(ModificationMarkIndexFile.open(modificationMarkFile));
+		for (String fileName: folder.list()) {
+			assertFalse(fileName, fileName.endsWith(".tmp"));
+		}
+	}
+
+	@Test
+	public void testIndexWritingDisabled() throws IOException {
+		TestPersistency persistency = new TestPersistency();
+		persistency.setModificationMarkIndexWriting(false);
+		this.workspace.saveModels(FOLDER, Arrays.asList(MODIFICATIONMARK_FILE),
+				Arrays.asList(TestModel.createVersion("version", null).getModificationMarkRepository()));
+		ModificationRepository repository = (ModificationRepository) persistency.loadEmfModelFromResource(FOLDER,
+				MODIFICATIONMARK_FILE, TestModel.createResourceSet());
+		persistency.saveModificationMarkFile(FOLDER, "saved", new TestArchitectureVersion("saved", repository));
+		File modificationMarkFile = new File(this.workspace.getDirectory(), FOLDER + "/saved.modificationmarks");
+		assertTrue(modificationMarkFile.isFile());
+		assertFalse(ModificationMarkIndexFile.getIndexFile(modificationMarkFile).exists());
+	}
+
+	/**
+	 * Saves the modification marks described by the class comment, with or without the
+	 * IDs of the first two modifications.
+	 *
+	 * @return the saved modification marks file
+	 */
+	private File saveWithIndex(String folderPath, boolean withIds) throws IOException {
+		EObject root = TestModel.createComponent("root");
+		for (String name: new String[] {"a", "b", "c"}) {
+			TestModel.getChildren(root).add(TestModel.createComponent(name));
+		}
+		EObject a = TestModel.getChildren(root).get(0);
+		EObject b = TestModel.getChildren(root).get(1);
+		EObject c = TestModel.getChildren(root).get(2);
+		TestArchitectureVersion version = TestModel.createVersion("version", null);
+		Modification seedModification = TestModel.addSeedModification(version, a);
+		Modification excludedModification = TestModel.createModification(b, a);
+		excludedModification.setUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
+		Modification confirmedModification = TestModel.createModification(c, a);
+		confirmedModification.setUserDecision(AcceptanceAndConfirmationState.CONFIRMED);
+		TestModel.addChangePropagationStep(version, excludedModification, confirmedModification);
+		TestModel.addChangePropagationStep(version, TestModel.createModification(b, c));
+		if (withIds) {
+			seedModification.setId("seedOfA");
+			excludedModification.setId("excludedB");
+		}
+		this.workspace.saveModels(folderPath, Arrays.asList("m0.testmodel"), Arrays.asList(root));
+		return this.saveWithIndex(folderPath, version);
+	}
+
+	/**
+	 * Saves the modification marks of the <code>version</code> into a file of its own, loads
+	 * it (with the components of <code>m0.testmodel</code>) and saves it with the persistency,
+	 * which writes the index.
+	 *
+	 * @return the modification marks file saved by the persistency
+	 */
+	private File saveWithIndex(String folderPath, TestArchitectureVersion version) throws IOException {
+		this.workspace.saveModels(folderPath, Arrays.asList(MODIFICATIONMARK_FILE),
+				Arrays.asList(version.getModificationMarkRepository()));
+		TestPersistency persistency = new TestPersistency();
+		ModificationRepository repository = (ModificationRepository) persistency.loadEmfModelFromResource(folderPath,
+				MODIFICATIONMARK_FILE, TestModel.createResourceSet());
+		persistency.saveModificationMarkFile(folderPath, "saved", new TestArchitectureVersion("saved", repository));
+		return new File(new File(this.workspace.getDirectory(), folderPath), "saved.modificationmarks");
+	}
+
+	private String getComponentURI(String name) {
+		return this.workspace.getURI(FOLDER, "m0.testmodel").appendFragment(name).toString();
+	}
+
+	private static List<Integer> toList(int[] indices) {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int index: indices) {
+			result.add(index);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,239 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.architecture.ArchitectureModelLookup;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.propagation.AbstractChangePropagationStepDefinition;
+import edu.kit.ipd.sdq.kamp.propagation.ParallelChangePropagationExecutor;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+
+/**
+ * Runs small change propagations with the {@link ParallelChangePropagationExecutor}: the
+ * model consists of the components <code>a</code> (with the child <code>a1</code>),
+ * <code>b</code> requiring <code>a</code>, <code>c</code> requiring <code>b</code> and
+ * <code>d</code> requiring <code>a1</code>, and <code>a</code> is marked by the seed
+ * modifications. The steps are delayed to finish in another order than they are declared.
+ */
+public class ParallelChangePropagationExecutorTest {
+
+	private ForkJoinPool pool;
+	private TestArchitectureVersion version;
+
+	@Before
+	public void setUp() {
+		pool = new ForkJoinPool(4);
+		version = TestModel.createVersion("target", TestModel.createResourceSet());
+		EObject a = TestModel.createComponent("a");
+		EObject a1 = TestModel.createComponent("a1");
+		EObject b = TestModel.createComponent("b");
+		EObject c = TestModel.createComponent("c");
+		EObject d = TestModel.createComponent("d");
+		TestModel.getChildren(a).add(a1);
+		TestModel.getRequires(b).add(a);
+		TestModel.getRequires(c).add(b);
+		TestModel.getRequires(d).add(a1);
+		version.getModelRoots().addAll(Arrays.asList(a, b, c, d));
+		TestModel.addSeedModification(version, a);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void testStepsAreAddedInDeclarationOrder() {
+		List<PropagationStepDefinition> stepDefinitions = new ArrayList<PropagationStepDefinition>();
+		stepDefinitions.add(new PropagationStepDefinition("Requiring", true, false));
+		stepDefinitions.add(new PropagationStepDefinition("Children", true, true));
+		stepDefinitions.add(new PropagationStepDefinition("RequiringChanged", false, false, "Requiring", "Children"));
+		stepDefinitions.get(0).delay = 50;
+
+		new ParallelChangePropagationExecutor<TestArchitectureVersion>(pool).execute(version, stepDefinitions);
+
+		assertEquals("[[b<a], [a1<a], [c<b, d<a1]]",
+				TestModel.describeChangePropagationSteps(version.getModificationMarkRepository()));
+	}
+
+	@Test
+	public void testDependentStepSeesOnlyItsDependencies() {
+		List<PropagationStepDefinition> stepDefinitions = new ArrayList<PropagationStepDefinition>();
+		stepDefinitions.add(new PropagationStepDefinition("Requiring", true, false));
+		stepDefinitions.add(new PropagationStepDefinition("Children", true, true));
+		stepDefinitions.add(new PropagationStepDefinition("RequiringChanged", false, false, "Children"));
+
+		new ParallelChangePropagationExecutor<TestArchitectureVersion>(pool).execute(version, stepDefinitions);
+
+		assertEquals("[[b<a], [a1<a], [d<a1]]",
+				TestModel.describeChangePropagationSteps(version.getModificationMarkRepository()));
+	}
+
+	@Test
+	public void testEmptyStepsAreNotAdded() {
+		List<PropagationStepDefinition> stepDefinitions = new ArrayList<PropagationStepDefinition>();
+		// no modification causes the step
+		stepDefinitions.add(new PropagationStepDefinition("Unused", false, false));
+		stepDefinitions.add(new PropagationStepDefinition("Requiring", true, false));
+
+		new ParallelChangePropagationExecutor<TestArchitectureVersion>(pool).execute(version, stepDefinitions);
+
+		assertEquals("[[b<a]]", TestModel.describeChangePropagationSteps(version.getModificationMarkRepository()));
+	}
+
+	@Test
+	public void testNoSteps() {
+		new ParallelChangePropagationExecutor<TestArchitectureVersion>(pool).execute(version,
+				new ArrayList<PropagationStepDefinition>());
+		assertTrue(version.getModificationMarkRepository().getChangePropagationSteps().isEmpty());
+	}
+
+	@Test
+	public void testFailingStepAddsNoResults() {
+		List<PropagationStepDefinition> stepDefinitions = new ArrayList<PropagationStepDefinition>();
+		stepDefinitions.add(new PropagationStepDefinition("Requiring", true, false));
+		stepDefinitions.add(new PropagationStepDefinition("Failing", false, false, "Requiring") {
+
+			@Override
+			public void runChangePropagationStep(TestArchitectureVersion version,
+					AbstractChangePropagationStep changePropagationStep,
+					Map<String, AbstractChangePropagationStep> dependencyResults) {
+				throw new IllegalStateException("step failed");
+			}
+		});
+		try {
+			new ParallelChangePropagationExecutor<TestArchitectureVersion>(pool).execute(version, stepDefinitions);
+			fail("The failure of the step is not rethrown");
+		} catch (IllegalStateException e) {
+			assertEquals("step failed", e.getMessage());
+		}
+		assertTrue(version.getModificationMarkRepository().getChangePropagationSteps().isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCyclicDependenciesAreRejected() {
+		new ParallelChangePropagationExecutor<TestArchitectureVersion>(pool).execute(version, Arrays.asList(
+				new PropagationStepDefinition("A", true, false, "B"),
+				new PropagationStepDefinition("B", true, false, "A")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateNamesAreRejected() {
+		new ParallelChangePropagationExecutor<TestArchitectureVersion>(pool).execute(version, Arrays.asList(
+				new PropagationStepDefinition("A", true, false),
+				new PropagationStepDefinition("A", true, true)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownDependencyIsRejected() {
+		new ParallelChangePropagationExecutor<TestArchitectureVersion>(pool).execute(version, Arrays.asList(
+				new PropagationStepDefinition("A", true, false, "Unknown")));
+	}
+
+	/**
+	 * Marks the components which require an element marked by the seed modifications or
+	 * by the dependencies, or (if <code>children</code> is set) the children of those
+	 * elements.
+	 */
+	private static class PropagationStepDefinition
+			implements AbstractChangePropagationStepDefinition<TestArchitectureVersion> {
+
+		private final String name;
+		private final boolean seedModificationsAreCauses;
+		private final boolean children;
+		private final List<String> dependencies;
+		private int delay;
+
+		public PropagationStepDefinition(String name, boolean seedModificationsAreCauses, boolean children,
+				String... dependencies) {
+			this.name = name;
+			this.seedModificationsAreCauses = seedModificationsAreCauses;
+			this.children = children;
+			this.dependencies = Arrays.asList(dependencies);
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public Collection<String> getDependencies() {
+			return dependencies;
+		}
+
+		@Override
+		public AbstractChangePropagationStep createChangePropagationStep() {
+			return TestModel.createChangePropagationStep();
+		}
+
+		@Override
+		public void runChangePropagationStep(TestArchitectureVersion version,
+				AbstractChangePropagationStep changePropagationStep,
+				Map<String, AbstractChangePropagationStep> dependencyResults) {
+			Set<EObject> causes = new LinkedHashSet<EObject>();
+			if (seedModificationsAreCauses) {
+				causes.addAll(ArchitectureModelLookup.lookUpMarkedObjectsOfATypeInSeedModifications(version,
+						EObject.class));
+			}
+			for (String dependency: dependencies) {
+				for (Modification modification: TestModel.getModifications(dependencyResults.get(dependency))) {
+					causes.add(modification.getAffectedElement());
+				}
+			}
+
+			for (EObject root: version.getModelRoots()) {
+				TreeIterator<EObject> components = root.eAllContents();
+				propagate(root, causes, changePropagationStep);
+				while (components.hasNext()) {
+					propagate(components.next(), causes, changePropagationStep);
+				}
+			}
+
+			if (delay > 0) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
+
+		private void propagate(EObject component, Set<EObject> causes,
+				AbstractChangePropagationStep changePropagationStep) {
+			List<EObject> causingElements = new ArrayList<EObject>();
+			if (children) {
+				if (causes.contains(component.eContainer())) {
+					causingElements.add(component.eContainer());
+				}
+			} else {
+				for (EObject requiredComponent: TestModel.getRequires(component)) {
+					if (causes.contains(requiredComponent)) {
+						causingElements.add(requiredComponent);
+					}
+				}
+			}
+			if (!causingElements.isEmpty()) {
+				TestModel.getModifications(changePropagationStep).add(TestModel.createModification(component,
+						causingElements.toArray(new EObject[causingElements.size()])));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,208 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractWorkplanDerivation;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.BasicActivity;
+import edu.kit.ipd.sdq.kamp.workplan.DiffDispatchTable;
+import edu.kit.ipd.sdq.kamp.workplan.DiffModelPair;
+
+/**
+ * Derives the activities of a few small model pairs with
+ * {@link AbstractWorkplanDerivation#deriveAddAndRemoveActivities(List, DiffDispatchTable, boolean)}.
+ * The comparison of a pair is replaced by a join of the component names, which waits for a
+ * given time first, so the first pair finishes last when the pairs are compared
+ * concurrently. The activities must still be returned in the order of the pairs.
+ */
+public class ParallelDiffTest {
+
+	@Test
+	public void testActivitiesInOrderOfPairs() {
+		List<DiffModelPair> modelPairs = new ArrayList<DiffModelPair>();
+		modelPairs.add(new DiffModelPair(createTree("a", "a1"), createTree("a", "a2", "a3")));
+		modelPairs.add(new DiffModelPair(createTree("b"), createTree("b", "b1")));
+		modelPairs.add(new DiffModelPair(createTree("c", "c1"), createTree("c")));
+		modelPairs.add(new DiffModelPair(createTree("d", "d1"), createTree("d", "d1")));
+		TestWorkplanDerivation derivation = new TestWorkplanDerivation().delay("a", 100).delay("c", 30);
+		List<String> expected = Arrays.asList("Add Implementation of <a2>", "Add Implementation of <a3>",
+				"Remove Implementation of <a1>", "Add Implementation of <b1>", "Remove Implementation of <c1>");
+
+		assertEquals(expected, describe(derivation.deriveAddAndRemoveActivities(modelPairs, null, false)));
+		assertEquals(expected, describe(derivation.deriveAddAndRemoveActivities(modelPairs, null, true)));
+		assertEquals(2 * modelPairs.size(), derivation.comparedPairs.size());
+		assertEquals(new HashSet<DiffModelPair>(modelPairs), new HashSet<DiffModelPair>(derivation.comparedPairs));
+	}
+
+	@Test
+	public void testSingleAndNoPairs() {
+		TestWorkplanDerivation derivation = new TestWorkplanDerivation();
+		assertTrue(derivation.deriveAddAndRemoveActivities(Collections.<DiffModelPair>emptyList(), null, true).isEmpty());
+		List<DiffModelPair> modelPairs = Collections.singletonList(new DiffModelPair(createTree("a"), createTree("a", "a1")));
+		assertEquals(Arrays.asList("Add Implementation of <a1>"),
+				describe(derivation.deriveAddAndRemoveActivities(modelPairs, null, true)));
+	}
+
+	@Test
+	public void testProxiesAreResolvedBeforeComparing() throws IOException {
+		File directory = Files.createTempDirectory("models").toFile();
+		try {
+			URI requiredModelURI = URI.createFileURI(new File(directory, "required.testmodel").getPath());
+			URI modelURI = URI.createFileURI(new File(directory, "model.testmodel").getPath());
+			ResourceSet resourceSet = TestModel.createResourceSet();
+			EObject requiredComponent = TestModel.createComponent("required");
+			resourceSet.createResource(requiredModelURI).getContents().add(requiredComponent);
+			EObject component = TestModel.createComponent("root");
+			TestModel.getRequires(component).add(requiredComponent);
+			resourceSet.createResource(modelURI).getContents().add(component);
+			for (Resource resource: resourceSet.getResources()) {
+				resource.save(null);
+			}
+
+			ResourceSet loadedResourceSet = TestModel.createResourceSet();
+			EObject loadedComponent = loadedResourceSet.getResource(modelURI, true).getContents().get(0);
+			EObject proxy = ((InternalEList<EObject>) TestModel.getRequires(loadedComponent)).basicGet(0);
+			assertTrue(proxy.eIsProxy());
+
+			List<DiffModelPair> modelPairs = new ArrayList<DiffModelPair>();
+			modelPairs.add(new DiffModelPair(loadedComponent, EcoreUtil.copy(loadedComponent)));
+			modelPairs.add(new DiffModelPair(TestModel.createComponent("a"), TestModel.createComponent("a")));
+			new TestWorkplanDerivation().deriveAddAndRemoveActivities(modelPairs, null, true);
+			assertEquals(2, loadedResourceSet.getResources().size());
+			assertFalse(((InternalEList<EObject>) TestModel.getRequires(loadedComponent)).basicGet(0).eIsProxy());
+		} finally {
+			for (File file: directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFailedComparisonIsRethrown() {
+		List<DiffModelPair> modelPairs = new ArrayList<DiffModelPair>();
+		modelPairs.add(new DiffModelPair(TestModel.createComponent("a"), TestModel.createComponent("a")));
+		modelPairs.add(new DiffModelPair(TestModel.createComponent("fail"), TestModel.createComponent("fail")));
+		new TestWorkplanDerivation().deriveAddAndRemoveActivities(modelPairs, null, true);
+	}
+
+	private static EObject createTree(String rootName, String... childNames) {
+		EObject root = TestModel.createComponent(rootName);
+		for (String childName: childNames) {
+			TestModel.getChildren(root).add(TestModel.createComponent(childName));
+		}
+		return root;
+	}
+
+	private static List<String> describe(List<Activity> workplan) {
+		List<String> descriptions = new ArrayList<String>();
+		for (Activity activity: workplan) {
+			descriptions.add(activity.getDescription());
+		}
+		return descriptions;
+	}
+
+	/**
+	 * Adds an activity for each component of the target model which is not in the base model
+	 * (in the order of the target model) and for each component of the base model which is
+	 * not in the target model, after waiting for the delay given for the name of the base
+	 * root (if any).
+	 */
+	private static class TestWorkplanDerivation extends AbstractWorkplanDerivation<TestArchitectureVersion> {
+
+		private final Map<String, Integer> delays = new HashMap<String, Integer>();
+		private final List<DiffModelPair> comparedPairs = Collections.synchronizedList(new ArrayList<DiffModelPair>());
+
+		private TestWorkplanDerivation delay(String rootName, int milliseconds) {
+			this.delays.put(rootName, milliseconds);
+			return this;
+		}
+
+		@Override
+		public List<Activity> deriveWorkplan(TestArchitectureVersion baseVersion, TestArchitectureVersion targetVersion) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		protected List<Activity> deriveAddAndRemoveActivities(List<DiffModelPair> modelPairs,
+				DiffDispatchTable dispatchTable, boolean parallel) {
+			return super.deriveAddAndRemoveActivities(modelPairs, dispatchTable, parallel);
+		}
+
+		@Override
+		protected void deriveAddAndRemoveActivities(DiffModelPair modelPair, DiffDispatchTable dispatchTable,
+				List<Activity> workplan) {
+			if ("fail".equals(TestModel.getName(modelPair.getBaseRoot()))) {
+				throw new IllegalStateException("Comparison failed");
+			}
+			Integer delay = this.delays.get(TestModel.getName(modelPair.getBaseRoot()));
+			if (delay != null) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			this.comparedPairs.add(modelPair);
+			List<EObject> baseComponents = getComponents(modelPair.getBaseRoot());
+			List<EObject> targetComponents = getComponents(modelPair.getTargetRoot());
+			Set<String> baseNames = getNames(baseComponents);
+			Set<String> targetNames = getNames(targetComponents);
+			for (EObject component: targetComponents) {
+				if (!baseNames.contains(TestModel.getName(component))) {
+					workplan.add(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.ADD, component));
+				}
+			}
+			for (EObject component: baseComponents) {
+				if (!targetNames.contains(TestModel.getName(component))) {
+					workplan.add(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.REMOVE, component));
+				}
+			}
+		}
+
+		@Override
+		protected void checkForDifferencesAndAddToWorkplan(Diff diffElement, List<Activity> workplan) {
+			throw new UnsupportedOperationException();
+		}
+
+		private static List<EObject> getComponents(EObject root) {
+			List<EObject> components = new ArrayList<EObject>();
+			for (TreeIterator<EObject> iterator = root.eAllContents(); iterator.hasNext();) {
+				components.add(iterator.next());
+			}
+			return components;
+		}
+
+		private static Set<String> getNames(List<EObject> components) {
+			Set<String> names = new HashSet<String>();
+			for (EObject component: components) {
+				names.add(TestModel.getName(component));
+			}
+			return names;
+		}
+	}
+
+}
@@ -0,0 +1,230 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.tests.TestWorkspace.TestPersistency;
+import edu.kit.ipd.sdq.kamp.util.ModelLoadingExecutor;
+
+/**
+ * Loads three model files in parallel with
+ * {@link AbstractArchitectureVersionPersistency#loadEmfModelsFromResources(String, List, ResourceSet)}:
+ * <code>m0</code> with the components <code>a</code> and <code>b</code>, <code>m1</code>
+ * with <code>c</code> (requiring <code>a</code>) and <code>d</code>, and <code>m2</code>
+ * with <code>e</code> (requiring <code>c</code> and <code>b</code>), where <code>a</code>
+ * requires <code>e</code> again. Also checks the {@link ModelLoadingExecutor} which runs
+ * the loads.
+ */
+public class ParallelModelLoadingTest {
+
+	private static final String FOLDER = "project/models";
+
+	private static final List<String> FILE_PATHS = Arrays.asList("m0.testmodel", "m1.testmodel", "m2.testmodel");
+
+	private TestWorkspace workspace;
+
+	@Before
+	public void setUp() {
+		this.workspace = new TestWorkspace();
+		EObject a = TestModel.createComponent("a");
+		EObject b = TestModel.createComponent("b");
+		EObject c = TestModel.createComponent("c");
+		EObject e = TestModel.createComponent("e");
+		TestModel.getRequires(a).add(e);
+		TestModel.getRequires(c).add(a);
+		TestModel.getRequires(e).add(c);
+		TestModel.getRequires(e).add(b);
+		this.workspace.saveModels(FOLDER, FILE_PATHS, Arrays.asList(createRoot("r0", a, b),
+				createRoot("r1", c, TestModel.createComponent("d")), createRoot("r2", e)));
+	}
+
+	@After
+	public void tearDown() {
+		this.workspace.dispose();
+	}
+
+	@Test
+	public void testCrossReferencesAreResolved() {
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		Map<String, EObject> roots = new TestPersistency().loadEmfModelsFromResources(FOLDER, FILE_PATHS, resourceSet);
+
+		assertEquals(FILE_PATHS, new ArrayList<String>(roots.keySet()));
+		assertEquals(3, resourceSet.getResources().size());
+		for (int i = 0; i < FILE_PATHS.size(); i++) {
+			assertEquals("r" + i, TestModel.getName(roots.get(FILE_PATHS.get(i))));
+			assertSame(resourceSet.getResources().get(i).getContents().get(0), roots.get(FILE_PATHS.get(i)));
+		}
+		assertTrue(EcoreUtil.ProxyCrossReferencer.find(resourceSet).isEmpty());
+		EObject a = getChild(roots.get("m0.testmodel"), 0);
+		EObject b = getChild(roots.get("m0.testmodel"), 1);
+		EObject c = getChild(roots.get("m1.testmodel"), 0);
+		EObject e = getChild(roots.get("m2.testmodel"), 0);
+		assertEquals(Arrays.asList(e), TestModel.getRequires(a));
+		assertEquals(Arrays.asList(a), TestModel.getRequires(c));
+		assertEquals(Arrays.asList(c, b), TestModel.getRequires(e));
+	}
+
+	@Test
+	public void testSameModelsAsLoadingOneAfterAnother() {
+		TestPersistency persistency = new TestPersistency();
+		ResourceSet expectedResourceSet = TestModel.createResourceSet();
+		for (String filePath: FILE_PATHS) {
+			persistency.loadEmfModelFromResource(FOLDER, filePath, expectedResourceSet);
+		}
+		EcoreUtil.resolveAll(expectedResourceSet);
+
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		persistency.loadEmfModelsFromResources(FOLDER, FILE_PATHS, resourceSet);
+		assertEquals(TestWorkspace.describeResources(expectedResourceSet), TestWorkspace.describeResources(resourceSet));
+	}
+
+	@Test
+	public void testResourcesInOrderOfFilePaths() {
+		List<String> filePaths = Arrays.asList("m2.testmodel", "m0.testmodel");
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		Map<String, EObject> roots = new TestPersistency().loadEmfModelsFromResources(FOLDER, filePaths, resourceSet);
+		assertEquals(filePaths, new ArrayList<String>(roots.keySet()));
+		assertEquals("r2", TestModel.getName(resourceSet.getResources().get(0).getContents().get(0)));
+		assertEquals("r0", TestModel.getName(resourceSet.getResources().get(1).getContents().get(0)));
+		// c of m1 is loaded when the references are resolved
+		assertEquals(3, resourceSet.getResources().size());
+	}
+
+	@Test
+	public void testLazyLoading() {
+		TestPersistency persistency = new TestPersistency();
+		persistency.setLazyLoading(true);
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		Map<String, EObject> roots = persistency.loadEmfModelsFromResources(FOLDER, FILE_PATHS, resourceSet);
+
+		EObject a = getChild(roots.get("m0.testmodel"), 0);
+		EObject proxy = ((InternalEList<EObject>) TestModel.getRequires(a)).basicGet(0);
+		assertTrue(proxy.eIsProxy());
+		// the proxy is resolved to the element loaded before
+		assertSame(getChild(roots.get("m2.testmodel"), 0), TestModel.getRequires(a).get(0));
+		EcoreUtil.resolveAll(resourceSet);
+		assertEquals(3, resourceSet.getResources().size());
+	}
+
+	@Test
+	public void testNoFiles() {
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		assertTrue(new TestPersistency().loadEmfModelsFromResources(FOLDER, Collections.<String>emptyList(),
+				resourceSet).isEmpty());
+		assertTrue(resourceSet.getResources().isEmpty());
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testMissingFileFails() {
+		new TestPersistency().loadEmfModelsFromResources(FOLDER, Arrays.asList("m0.testmodel", "missing.testmodel"),
+				TestModel.createResourceSet());
+	}
+
+	@Test
+	public void testResultsInOrderOfTasks() {
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 50; i++) {
+			// the first tasks take the longest
+			tasks.add(createSleepingTask(i, 10 - i / 5));
+			expected.add(i);
+		}
+		assertEquals(expected, ModelLoadingExecutor.invokeAll(tasks));
+		assertTrue(ModelLoadingExecutor.invokeAll(Collections.<Callable<Integer>>emptyList()).isEmpty());
+	}
+
+	@Test
+	public void testFailureRethrownAfterAllTasks() {
+		final AtomicInteger finishedTasks = new AtomicInteger();
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < 20; i++) {
+			final int index = i;
+			tasks.add(new Callable<Integer>() {
+
+				@Override
+				public Integer call() throws Exception {
+					Thread.sleep(index % 3);
+					finishedTasks.incrementAndGet();
+					if (index == 2) {
+						throw new IllegalStateException("Task failed");
+					} else if (index == 5) {
+						throw new IOException("Task failed");
+					}
+					return index;
+				}
+			});
+		}
+		try {
+			ModelLoadingExecutor.invokeAll(tasks);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals(20, finishedTasks.get());
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testNestedTasksDoNotDeadlock() {
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 4 * threads; i++) {
+			final int index = i;
+			tasks.add(new Callable<Integer>() {
+
+				@Override
+				public Integer call() {
+					List<Callable<Integer>> nestedTasks = new ArrayList<Callable<Integer>>();
+					for (int j = 0; j < 4; j++) {
+						nestedTasks.add(createSleepingTask(j, 5));
+					}
+					int sum = 0;
+					for (Integer result: ModelLoadingExecutor.invokeAll(nestedTasks)) {
+						sum += result;
+					}
+					return index + sum;
+				}
+			});
+			expected.add(i + 6);
+		}
+		assertEquals(expected, ModelLoadingExecutor.invokeAll(tasks));
+	}
+
+	private static EObject createRoot(String name, EObject... children) {
+		EObject root = TestModel.createComponent(name);
+		TestModel.getChildren(root).addAll(Arrays.asList(children));
+		return root;
+	}
+
+	private static EObject getChild(EObject root, int index) {
+		return TestModel.getChildren(root).get(index);
+	}
+
+	private static Callable<Integer> createSleepingTask(final int result, final int sleepMillis) {
+		return new Callable<Integer>() {
+
+			@Override
+			public Integer call() throws InterruptedException {
+				Thread.sleep(sleepMillis);
+				return result;
+			}
+		};
+	}
+
+}
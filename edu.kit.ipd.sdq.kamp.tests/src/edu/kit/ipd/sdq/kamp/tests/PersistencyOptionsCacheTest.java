@@ -0,0 +1,262 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMLResourceImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.architecture.PersistencyOptionsCache;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.tests.TestWorkspace.TestPersistency;
+
+/**
+ * Loads and saves two component trees (<code>r0</code> with <code>a</code> and
+ * <code>b</code>, which requires <code>c</code> of <code>r1</code>, which requires
+ * <code>a</code> again) and their modification marks with the parser pool, name-to-feature
+ * maps and save configuration shared by the {@link PersistencyOptionsCache}, and checks
+ * when the cache keeps or drops a name-to-feature map.
+ */
+public class PersistencyOptionsCacheTest {
+
+	private static final String FOLDER = "project/models";
+
+	private static final List<String> FILE_PATHS = Arrays.asList("m0.testmodel", "m1.testmodel",
+			"version.modificationmarks");
+
+	private static final List<String> EXPECTED_COMPONENTS = Arrays.asList("r0 > []", "a > []", "b > [c]",
+			"r1 > []", "c > [a]");
+
+	private TestWorkspace workspace;
+
+	@Before
+	public void setUp() {
+		this.workspace = new TestWorkspace();
+		EObject a = TestModel.createComponent("a");
+		EObject b = TestModel.createComponent("b");
+		EObject c = TestModel.createComponent("c");
+		TestModel.getRequires(b).add(c);
+		TestModel.getRequires(c).add(a);
+		EObject r0 = TestModel.createComponent("r0");
+		TestModel.getChildren(r0).addAll(Arrays.asList(a, b));
+		EObject r1 = TestModel.createComponent("r1");
+		TestModel.getChildren(r1).add(c);
+		TestArchitectureVersion version = TestModel.createVersion("version", null);
+		TestModel.addSeedModification(version, a);
+		TestModel.addChangePropagationStep(version, TestModel.createModification(c, a),
+				TestModel.createModification(b, c));
+		this.workspace.saveModels(FOLDER, FILE_PATHS, Arrays.asList(r0, r1, version.getModificationMarkRepository()));
+	}
+
+	@After
+	public void tearDown() {
+		this.workspace.dispose();
+	}
+
+	@Test
+	public void testLoadWithSharedNameToFeatureMap() {
+		TestPersistency persistency = new TestPersistency();
+		PersistencyOptionsCache.clear();
+		ResourceSet resourceSet = load(persistency, FOLDER);
+		assertEquals(EXPECTED_COMPONENTS, describeComponents(resourceSet));
+		ModificationRepository repository = (ModificationRepository) resourceSet.getResources().get(2).getContents().get(0);
+		assertEquals("[a<]", TestModel.describeModifications(
+				TestModel.getModifications(repository.getSeedModifications())));
+		assertEquals("[[c<a, b<c]]", TestModel.describeChangePropagationSteps(repository));
+
+		// the second load uses the filled map
+		Map<Object, Object> nameToFeatureMap = PersistencyOptionsCache.getNameToFeatureMap("testmodel");
+		assertFalse(nameToFeatureMap.isEmpty());
+		ResourceSet otherResourceSet = load(persistency, FOLDER);
+		assertSame(nameToFeatureMap, PersistencyOptionsCache.getNameToFeatureMap("testmodel"));
+		assertEquals(TestWorkspace.describeResources(resourceSet), TestWorkspace.describeResources(otherResourceSet));
+	}
+
+	@Test
+	public void testConcurrentLoads() throws Exception {
+		final TestPersistency persistency = new TestPersistency();
+		PersistencyOptionsCache.clear();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<ResourceSet>> results = new ArrayList<Future<ResourceSet>>();
+			for (int i = 0; i < 16; i++) {
+				results.add(executor.submit(new Callable<ResourceSet>() {
+
+					@Override
+					public ResourceSet call() {
+						return load(persistency, FOLDER);
+					}
+				}));
+			}
+			List<String> expected = TestWorkspace.describeResources(results.get(0).get());
+			for (Future<ResourceSet> result: results) {
+				assertEquals(EXPECTED_COMPONENTS, describeComponents(result.get()));
+				assertEquals(expected, TestWorkspace.describeResources(result.get()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSavedFilesAreIndependentOfCachedConfiguration() throws IOException {
+		ResourceSet resourceSet = load(new TestPersistency(), FOLDER);
+		// save with the default options first, then twice with the cached configuration
+		for (String folderPath: new String[] {"saved/default", "saved/a", "saved/b"}) {
+			for (int i = 0; i < FILE_PATHS.size(); i++) {
+				Resource resource = resourceSet.getResources().get(i);
+				EObject root = resource.getContents().get(0);
+				if (folderPath.endsWith("default")) {
+					Resource defaultResource = TestModel.createResourceSet().createResource(
+							this.workspace.getURI(folderPath, FILE_PATHS.get(i)));
+					defaultResource.getContents().add(root);
+					defaultResource.save(null);
+				} else {
+					AbstractArchitectureVersionPersistency.saveEmfModelToResource(root, folderPath, FILE_PATHS.get(i),
+							TestModel.createResourceSet());
+				}
+				// the references of the other models still point into the loaded files
+				resource.getContents().add(root);
+			}
+		}
+		for (String filePath: FILE_PATHS) {
+			assertEquals(filePath, readFile("saved/default", filePath), readFile("saved/a", filePath));
+			assertEquals(filePath, readFile("saved/default", filePath), readFile("saved/b", filePath));
+		}
+	}
+
+	@Test
+	public void testNameToFeatureMapOfRootPackage() {
+		PersistencyOptionsCache.clear();
+		Map<Object, Object> nameToFeatureMap = PersistencyOptionsCache.getNameToFeatureMap("testmodel");
+		assertNotSame(nameToFeatureMap, PersistencyOptionsCache.getNameToFeatureMap("testmodel"));
+
+		load(new TestPersistency(), FOLDER);
+		nameToFeatureMap = PersistencyOptionsCache.getNameToFeatureMap("testmodel");
+		assertFalse(nameToFeatureMap.isEmpty());
+		assertSame(nameToFeatureMap, PersistencyOptionsCache.getNameToFeatureMap("testmodel"));
+		assertEquals(1, TestModel.PACKAGE.eAdapters().size());
+		assertNotSame(nameToFeatureMap, PersistencyOptionsCache.getNameToFeatureMap(
+				AbstractArchitectureVersionPersistency.FILEEXTENSION_MODIFICATIONMARK));
+
+		PersistencyOptionsCache.clear();
+		assertTrue(TestModel.PACKAGE.eAdapters().isEmpty());
+		assertNotSame(nameToFeatureMap, PersistencyOptionsCache.getNameToFeatureMap("testmodel"));
+	}
+
+	@Test
+	public void testNothingRememberedWithoutContentsOrMap() {
+		Map<Object, Object> loadOptions = new HashMap<Object, Object>();
+		loadOptions.put(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP, new HashMap<Object, Object>());
+		PersistencyOptionsCache.rememberNameToFeatureMap(new XMLResourceImpl(URI.createURI("mem:/model.empty")),
+				loadOptions);
+		assertNotSame(PersistencyOptionsCache.getNameToFeatureMap("empty"),
+				PersistencyOptionsCache.getNameToFeatureMap("empty"));
+
+		Resource resource = new XMLResourceImpl(URI.createURI("mem:/model.nomap"));
+		resource.getContents().add(TestModel.createComponent("a"));
+		PersistencyOptionsCache.rememberNameToFeatureMap(resource, new HashMap<Object, Object>());
+		assertNotSame(PersistencyOptionsCache.getNameToFeatureMap("nomap"),
+				PersistencyOptionsCache.getNameToFeatureMap("nomap"));
+		assertNotSame(PersistencyOptionsCache.getNameToFeatureMap(null),
+				PersistencyOptionsCache.getNameToFeatureMap(null));
+	}
+
+	@Test
+	public void testDynamicPackageIsNotKeptByCache() throws InterruptedException {
+		EPackage dynamicPackage = EcoreFactory.eINSTANCE.createEPackage();
+		dynamicPackage.setNsURI("http://edu.kit.ipd.sdq.kamp/tests/dynamic");
+		EClass dynamicClass = EcoreFactory.eINSTANCE.createEClass();
+		dynamicClass.setName("Element");
+		dynamicPackage.getEClassifiers().add(dynamicClass);
+		Resource resource = new XMLResourceImpl(URI.createURI("mem:/model.dynamic"));
+		resource.getContents().add(EcoreUtil.create(dynamicClass));
+		Map<Object, Object> loadOptions = new HashMap<Object, Object>();
+		Map<Object, Object> nameToFeatureMap = new HashMap<Object, Object>();
+		nameToFeatureMap.put(dynamicClass, dynamicClass);
+		loadOptions.put(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP, nameToFeatureMap);
+		PersistencyOptionsCache.rememberNameToFeatureMap(resource, loadOptions);
+		assertSame(nameToFeatureMap, PersistencyOptionsCache.getNameToFeatureMap("dynamic"));
+
+		WeakReference<EPackage> reference = new WeakReference<EPackage>(dynamicPackage);
+		dynamicPackage = null;
+		dynamicClass = null;
+		resource = null;
+		loadOptions = null;
+		nameToFeatureMap = null;
+		for (int i = 0; i < 50 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(reference.get());
+		assertTrue(PersistencyOptionsCache.getNameToFeatureMap("dynamic").isEmpty());
+	}
+
+	private static ResourceSet load(TestPersistency persistency, String folderPath) {
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		for (String filePath: FILE_PATHS) {
+			persistency.loadEmfModelFromResource(folderPath, filePath, resourceSet);
+		}
+		EcoreUtil.resolveAll(resourceSet);
+		return resourceSet;
+	}
+
+	/**
+	 * Describes the components of the component trees by their names and the names of the
+	 * required components.
+	 */
+	private static List<String> describeComponents(ResourceSet resourceSet) {
+		List<String> descriptions = new ArrayList<String>();
+		for (Resource resource: resourceSet.getResources()) {
+			for (EObject root: resource.getContents()) {
+				if (root.eClass() != TestModel.COMPONENT) {
+					continue;
+				}
+				List<EObject> components = new ArrayList<EObject>();
+				components.add(root);
+				components.addAll(TestModel.getChildren(root));
+				for (EObject component: components) {
+					List<String> requiredComponents = new ArrayList<String>();
+					for (EObject requiredComponent: TestModel.getRequires(component)) {
+						requiredComponents.add(TestModel.getName(requiredComponent));
+					}
+					descriptions.add(TestModel.getName(component) + " > " + requiredComponents);
+				}
+			}
+		}
+		return descriptions;
+	}
+
+	private String readFile(String folderPath, String fileName) throws IOException {
+		File file = new File(new File(this.workspace.getDirectory(), folderPath), fileName);
+		return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+	}
+
+}
@@ -0,0 +1,255 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksFactory;
+import edu.kit.ipd.sdq.kamp.propagation.AbstractPropagationRule;
+import edu.kit.ipd.sdq.kamp.propagation.AbstractRuleBasedChangePropagationAnalysis;
+import edu.kit.ipd.sdq.kamp.propagation.PropagationKernel;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+
+/**
+ * Compares the semi-naive evaluation of the {@link PropagationKernel} with a naive
+ * evaluation of the same rules (all marked elements are processed again in every round,
+ * as the loops of the KAMP4x propagation algorithms do) on random cyclic component models.
+ */
+public class PropagationKernelTest {
+
+	private static final int COMPONENTS = 30;
+
+	@Test
+	public void testSameResultAsNaiveEvaluation() {
+		Random random = new Random(11);
+		for (int model = 0; model < 100; model++) {
+			ResourceSet resourceSet = TestModel.createResourceSet();
+			List<EObject> components = createComponents(random, resourceSet);
+			List<EObject> seedElements = new ArrayList<EObject>();
+			for (int i = 0; i < 3; i++) {
+				seedElements.add(components.get(random.nextInt(components.size())));
+			}
+
+			TestArchitectureVersion version = TestModel.createVersion("target", resourceSet);
+			for (EObject seedElement: seedElements) {
+				TestModel.addSeedModification(version, seedElement);
+			}
+			new RuleBasedAnalysis().runChangePropagationAnalysis(version);
+
+			Map<String, Set<String>> expectedModifications = propagateNaively(seedElements, seedElements);
+			assertEquals("model " + model, expectedModifications, getModifications(version));
+		}
+	}
+
+	@Test
+	public void testSameResultAsNaiveEvaluationOfAddedSeedElements() {
+		Random random = new Random(23);
+		for (int model = 0; model < 100; model++) {
+			// from no already marked elements up to a third of the components
+			int alreadyMarkedCount = model % (COMPONENTS / 3);
+			List<EObject> components = createComponents(random, TestModel.createResourceSet());
+			Set<EObject> initialElements = new LinkedHashSet<EObject>();
+			for (int i = 0; i < 3; i++) {
+				initialElements.add(components.get(random.nextInt(components.size())));
+			}
+			Set<EObject> alreadyMarkedElements = new HashSet<EObject>();
+			while (alreadyMarkedElements.size() < alreadyMarkedCount) {
+				alreadyMarkedElements.add(components.get(random.nextInt(components.size())));
+			}
+
+			ChangePropagationStep step = TestModel.createChangePropagationStep();
+			Set<Object> newlyMarkedElements = new PropagationKernel(createRules()).propagate(step,
+					initialElements, alreadyMarkedElements);
+
+			Set<EObject> markedElements = new HashSet<EObject>(alreadyMarkedElements);
+			markedElements.addAll(initialElements);
+			Map<String, Set<String>> expectedModifications = propagateNaively(initialElements, markedElements);
+			String message = "model " + model;
+			assertEquals(message, expectedModifications, getModifications(step));
+			Set<String> expectedNewlyMarkedElements = new TreeSet<String>(expectedModifications.keySet());
+			for (EObject markedElement: markedElements) {
+				expectedNewlyMarkedElements.remove(TestModel.getName(markedElement));
+			}
+			assertEquals(message, expectedNewlyMarkedElements, getNames(newlyMarkedElements));
+		}
+	}
+
+	/**
+	 * Creates components (some of them with children) which require random other components.
+	 */
+	private static List<EObject> createComponents(Random random, ResourceSet resourceSet) {
+		Resource resource = resourceSet.createResource(URI.createURI("mem:/target.testmodel"));
+		List<EObject> components = new ArrayList<EObject>();
+		for (int i = 0; i < COMPONENTS; i++) {
+			EObject component = TestModel.createComponent("c" + i);
+			components.add(component);
+			resource.getContents().add(component);
+			if (random.nextInt(4) == 0) {
+				EObject child = TestModel.createComponent("c" + i + "_child");
+				TestModel.getChildren(component).add(child);
+				components.add(child);
+			}
+		}
+		for (EObject component: components) {
+			int requiredComponents = random.nextInt(3);
+			for (int i = 0; i < requiredComponents; i++) {
+				EObject requiredComponent = components.get(random.nextInt(components.size()));
+				if (!TestModel.getRequires(component).contains(requiredComponent)) {
+					TestModel.getRequires(component).add(requiredComponent);
+				}
+			}
+		}
+		return components;
+	}
+
+	/**
+	 * A changed component affects the components it requires and its children. The third
+	 * rule must not be applied, as its cause type does not match any element.
+	 */
+	private static List<AbstractPropagationRule<?, ?>> createRules() {
+		List<AbstractPropagationRule<?, ?>> rules = new ArrayList<AbstractPropagationRule<?, ?>>();
+		rules.add(new AbstractPropagationRule<EObject, EObject>() {
+
+			@Override
+			public Class<EObject> getCauseElementType() {
+				return EObject.class;
+			}
+
+			@Override
+			public Collection<? extends EObject> lookUpAffectedElements(EObject causeElement) {
+				return TestModel.getRequires(causeElement);
+			}
+
+			@Override
+			public AbstractModification<?, ?> createModification() {
+				return ModificationmarksFactory.eINSTANCE.createModification();
+			}
+		});
+		rules.add(new AbstractPropagationRule<EObject, EObject>() {
+
+			@Override
+			public Class<EObject> getCauseElementType() {
+				return EObject.class;
+			}
+
+			@Override
+			public Collection<? extends EObject> lookUpAffectedElements(EObject causeElement) {
+				return TestModel.getChildren(causeElement);
+			}
+
+			@Override
+			public AbstractModification<?, ?> createModification() {
+				return ModificationmarksFactory.eINSTANCE.createModification();
+			}
+		});
+		rules.add(new AbstractPropagationRule<String, EObject>() {
+
+			@Override
+			public Class<String> getCauseElementType() {
+				return String.class;
+			}
+
+			@Override
+			public Collection<? extends EObject> lookUpAffectedElements(String causeElement) {
+				throw new IllegalStateException("Rule applied to an element of the wrong type");
+			}
+
+			@Override
+			public AbstractModification<?, ?> createModification() {
+				return ModificationmarksFactory.eINSTANCE.createModification();
+			}
+		});
+		return rules;
+	}
+
+	/**
+	 * Naive fixpoint evaluation of the rules: the names of the affected elements, with the
+	 * names of their causes.
+	 */
+	private static Map<String, Set<String>> propagateNaively(Collection<EObject> initialElements,
+			Collection<EObject> alreadyMarkedElements) {
+		Set<EObject> markedElements = new LinkedHashSet<EObject>(alreadyMarkedElements);
+		markedElements.addAll(initialElements);
+		Set<EObject> elementsToPropagate = new LinkedHashSet<EObject>(initialElements);
+		Map<String, Set<String>> modifications = new TreeMap<String, Set<String>>();
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (EObject causeElement: new ArrayList<EObject>(elementsToPropagate)) {
+				List<EObject> affectedElements = new ArrayList<EObject>(TestModel.getRequires(causeElement));
+				affectedElements.addAll(TestModel.getChildren(causeElement));
+				for (EObject affectedElement: affectedElements) {
+					String name = TestModel.getName(affectedElement);
+					if (!modifications.containsKey(name)) {
+						modifications.put(name, new TreeSet<String>());
+					}
+					modifications.get(name).add(TestModel.getName(causeElement));
+					if (markedElements.add(affectedElement)) {
+						elementsToPropagate.add(affectedElement);
+						changed = true;
+					}
+				}
+			}
+		}
+		return modifications;
+	}
+
+	private static Map<String, Set<String>> getModifications(TestArchitectureVersion version) {
+		Map<String, Set<String>> modifications = new TreeMap<String, Set<String>>();
+		for (AbstractChangePropagationStep step: version.getModificationMarkRepository().getChangePropagationSteps()) {
+			modifications.putAll(getModifications(step));
+		}
+		return modifications;
+	}
+
+	private static Map<String, Set<String>> getModifications(AbstractChangePropagationStep step) {
+		Map<String, Set<String>> modifications = new TreeMap<String, Set<String>>();
+		for (Modification modification: TestModel.getModifications(step)) {
+			assertTrue(modification.isToolderived());
+			assertNull("duplicate modification", modifications.put(TestModel.getName(modification.getAffectedElement()),
+					getNames(modification.getCausingElements())));
+		}
+		return modifications;
+	}
+
+	private static Set<String> getNames(Collection<?> elements) {
+		Set<String> names = new TreeSet<String>();
+		for (Object element: elements) {
+			assertTrue("element contained twice", names.add(TestModel.getName(element)));
+		}
+		return names;
+	}
+
+	private static class RuleBasedAnalysis extends AbstractRuleBasedChangePropagationAnalysis<TestArchitectureVersion> {
+
+		@Override
+		protected List<AbstractPropagationRule<?, ?>> createPropagationRules(TestArchitectureVersion version) {
+			return createRules();
+		}
+
+		@Override
+		protected AbstractChangePropagationStep createChangePropagationStep() {
+			return TestModel.createChangePropagationStep();
+		}
+	}
+
+}
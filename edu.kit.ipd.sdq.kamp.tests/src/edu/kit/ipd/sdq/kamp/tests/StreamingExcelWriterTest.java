@@ -0,0 +1,230 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import edu.kit.ipd.sdq.kamp.tests.TestWorkspace.TestPersistency;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractActivityType;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.BasicActivity;
+import edu.kit.ipd.sdq.kamp.workplan.StreamingExcelWriter;
+
+/**
+ * Writes small workplans with the {@link StreamingExcelWriter} and reads the cells of the
+ * written sheets back (empty cells are omitted by the writer and read as empty strings).
+ * Checks the rows of nested activities, the escaping of the cell texts, the splitting into
+ * several sheets and files, and that the persistency only streams if streaming has been
+ * enabled.
+ */
+public class StreamingExcelWriterTest {
+
+	private static final int COLUMNS = 5;
+
+	private static final List<String> HEADER =
+			Arrays.asList("", "Activity type", "Activity description", "Affected element", "Causing elements");
+
+	private File directory;
+	private String basePath;
+	private List<EObject> components;
+
+	@Before
+	public void setUp() throws IOException {
+		this.directory = Files.createTempDirectory("workplan").toFile();
+		this.basePath = new File(this.directory, "workplan").getPath();
+		this.components = TestWorkplan.createComponents(5);
+	}
+
+	@After
+	public void tearDown() {
+		for (File file: this.directory.listFiles()) {
+			file.delete();
+		}
+		this.directory.delete();
+	}
+
+	@Test
+	public void testRowsOfNestedActivities() throws Exception {
+		Activity activity = createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY, 0, "c2", "c1");
+		Activity subActivity = createActivity(TestWorkplan.DOCUMENTATION, BasicActivity.ADD, 1, "c0");
+		subActivity.addSubActivity(createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.REMOVE, 3));
+		activity.addSubActivity(subActivity);
+		activity.addFollowupActivity(createActivity(TestWorkplan.DOCUMENTATION, BasicActivity.MODIFY, 2));
+		List<Activity> activities = new ArrayList<Activity>();
+		activities.add(activity);
+		activities.add(createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.ADD, 4));
+
+		List<String> files = new StreamingExcelWriter().saveActivitiesToExcelFile(this.basePath, activities, "");
+		assertEquals(Arrays.asList(this.basePath + ".xlsx"), files);
+		assertEquals(Arrays.asList(Arrays.asList(HEADER,
+				Arrays.asList("", "Implementation", "Modify Implementation of <c0>", "c0", "c1, c2"),
+				Arrays.asList("=", "Documentation", "Add Documentation of <c1>", "c1", "c0"),
+				Arrays.asList("==", "Implementation", "Remove Implementation of <c3>", "c3", ""),
+				Arrays.asList("=>", "Documentation", "Modify Documentation of <c2>", "c2", ""),
+				Arrays.asList("", "Implementation", "Add Implementation of <c4>", "c4", ""))),
+				readSheets(files.get(0)));
+	}
+
+	@Test
+	public void testEscapedAndMissingTexts() throws Exception {
+		List<Activity> activities = new ArrayList<Activity>();
+		activities.add(new Activity(TestWorkplan.DOCUMENTATION, TestWorkplan.COMPONENT, this.components.get(0),
+				"c0 & \"c1\"", null, BasicActivity.MODIFY,
+				"\u00c4nderung an <c0> & \"c1\" f\u00fcr 10 \u20ac\u0001 pr\u00fcfen"));
+		activities.add(new Activity(TestWorkplan.DOCUMENTATION, TestWorkplan.COMPONENT, null, null, null,
+				BasicActivity.ADD, ""));
+
+		List<String> files = new StreamingExcelWriter().saveActivitiesToExcelFile(this.basePath, activities, "#");
+		// the control character is not allowed in XML
+		assertEquals(Arrays.asList(Arrays.asList(HEADER,
+				Arrays.asList("#", "Documentation", "\u00c4nderung an <c0> & \"c1\" f\u00fcr 10 \u20ac pr\u00fcfen",
+						"c0 & \"c1\"", ""),
+				Arrays.asList("#", "Documentation", "", "", ""))),
+				readSheets(files.get(0)));
+	}
+
+	@Test
+	public void testEmptyActivityList() throws Exception {
+		List<String> files = new StreamingExcelWriter().saveActivitiesToExcelFile(this.basePath,
+				Collections.<Activity>emptyList(), "");
+		assertEquals(Arrays.asList(this.basePath + ".xlsx"), files);
+		assertEquals(Arrays.asList(Arrays.asList(HEADER)), readSheets(files.get(0)));
+	}
+
+	@Test
+	public void testSplitIntoSheetsAndFiles() throws Exception {
+		StreamingExcelWriter writer = new StreamingExcelWriter();
+		writer.setMaxRowsPerSheet(3);
+		writer.setMaxSheetsPerFile(2);
+		List<String> files = writer.saveActivitiesToExcelFile(this.basePath, createActivities(5), "");
+
+		assertEquals(Arrays.asList(this.basePath + ".xlsx", this.basePath + "_2.xlsx"), files);
+		List<List<List<String>>> sheets = readSheets(files.get(0));
+		assertEquals(2, sheets.size());
+		assertEquals(Arrays.asList(HEADER, getRow(0), getRow(1)), sheets.get(0));
+		assertEquals(Arrays.asList(HEADER, getRow(2), getRow(3)), sheets.get(1));
+		assertEquals(Arrays.asList(Arrays.asList(HEADER, getRow(4))), readSheets(files.get(1)));
+	}
+
+	@Test
+	public void testFullSheetDoesNotStartAnotherFile() throws Exception {
+		StreamingExcelWriter writer = new StreamingExcelWriter();
+		writer.setMaxRowsPerSheet(3);
+		writer.setMaxSheetsPerFile(1);
+		List<String> files = writer.saveActivitiesToExcelFile(this.basePath, createActivities(4), "");
+
+		assertEquals(Arrays.asList(this.basePath + ".xlsx", this.basePath + "_2.xlsx"), files);
+		assertEquals(Arrays.asList(Arrays.asList(HEADER, getRow(0), getRow(1))), readSheets(files.get(0)));
+		assertEquals(Arrays.asList(Arrays.asList(HEADER, getRow(2), getRow(3))), readSheets(files.get(1)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSheetWithoutRowsForActivities() {
+		new StreamingExcelWriter().setMaxRowsPerSheet(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFileWithoutSheets() {
+		new StreamingExcelWriter().setMaxSheetsPerFile(0);
+	}
+
+	@Test
+	public void testPersistencyStreamsOnlyIfEnabled() {
+		List<Activity> activities = createActivities(2);
+		TestPersistency persistency = new TestPersistency();
+		assertFalse(persistency.isStreamingExcelExport());
+		persistency.saveActivityListToExcelFile(this.directory, "workplan", activities);
+		assertEquals(Arrays.asList("workplan.xls"), Arrays.asList(this.directory.list()));
+
+		persistency.setStreamingExcelExport(true);
+		persistency.saveActivityListToExcelFile(this.directory, "streamed", activities);
+		assertTrue(new File(this.directory, "streamed." + StreamingExcelWriter.FILEEXTENSION).isFile());
+	}
+
+	private Activity createActivity(AbstractActivityType type,
+			BasicActivity basicActivity, int component, String... causingElementsNames) {
+		return TestWorkplan.createActivity(type, basicActivity, this.components.get(component), causingElementsNames);
+	}
+
+	/**
+	 * Creates one modification activity for each of the first <code>count</code> components.
+	 */
+	private List<Activity> createActivities(int count) {
+		List<Activity> activities = new ArrayList<Activity>();
+		for (int i = 0; i < count; i++) {
+			activities.add(createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY, i));
+		}
+		return activities;
+	}
+
+	/**
+	 * Returns the row of the activity created by {@link #createActivities(int)} for the
+	 * component with the <code>index</code>.
+	 */
+	private static List<String> getRow(int index) {
+		return Arrays.asList("", "Implementation", "Modify Implementation of <c" + index + ">", "c" + index, "");
+	}
+
+	/**
+	 * Reads the cells of all sheets (<code>xl/worksheets/sheet1.xml</code>, ...) of an Office
+	 * Open XML file.
+	 */
+	private static List<List<List<String>>> readSheets(String path) throws Exception {
+		List<List<List<String>>> sheets = new ArrayList<List<List<String>>>();
+		ZipFile zipFile = new ZipFile(path);
+		try {
+			ZipEntry entry;
+			while ((entry = zipFile.getEntry("xl/worksheets/sheet" + (sheets.size() + 1) + ".xml")) != null) {
+				InputStream inputStream = zipFile.getInputStream(entry);
+				try {
+					sheets.add(readRows(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(inputStream)));
+				} finally {
+					inputStream.close();
+				}
+			}
+			assertNotNull(zipFile.getEntry("xl/workbook.xml"));
+		} finally {
+			zipFile.close();
+		}
+		return sheets;
+	}
+
+	private static List<List<String>> readRows(Document sheet) {
+		List<List<String>> rows = new ArrayList<List<String>>();
+		NodeList rowElements = sheet.getElementsByTagName("row");
+		for (int row = 0; row < rowElements.getLength(); row++) {
+			Element rowElement = (Element) rowElements.item(row);
+			assertEquals(Integer.toString(row + 1), rowElement.getAttribute("r"));
+			List<String> cells = new ArrayList<String>(Collections.nCopies(COLUMNS, ""));
+			NodeList cellElements = rowElement.getElementsByTagName("c");
+			for (int cell = 0; cell < cellElements.getLength(); cell++) {
+				Element cellElement = (Element) cellElements.item(cell);
+				String reference = cellElement.getAttribute("r");
+				assertEquals(Integer.toString(row + 1), reference.substring(1));
+				cells.set(reference.charAt(0) - 'A', cellElement.getTextContent());
+			}
+			rows.add(cells);
+		}
+		return rows;
+	}
+
+}
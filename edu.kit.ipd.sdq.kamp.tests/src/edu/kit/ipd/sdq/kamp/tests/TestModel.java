@@ -0,0 +1,111 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksFactory;
+import edu.kit.ipd.sdq.kamp.testmodel.ComponentModel;
+
+/**
+ * Helpers for the tests on the {@link ComponentModel}: versions of the component trees with
+ * modification repositories, and descriptions of the change propagation steps.
+ */
+public class TestModel extends ComponentModel {
+
+	/**
+	 * Architecture version of the tests, which references its components as model roots.
+	 */
+	public static class TestArchitectureVersion extends AbstractArchitectureVersion<ModificationRepository> {
+
+		private final List<EObject> modelRoots = new ArrayList<EObject>();
+
+		public TestArchitectureVersion(String name, ModificationRepository modificationMarkRepository) {
+			super(name, modificationMarkRepository);
+		}
+
+		@Override
+		public List<EObject> getModelRoots() {
+			return modelRoots;
+		}
+	}
+
+	public static ResourceSet createResourceSet() {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put(
+				Resource.Factory.Registry.DEFAULT_EXTENSION, new XMIResourceFactoryImpl());
+		resourceSet.getPackageRegistry().put(PACKAGE.getNsURI(), PACKAGE);
+		return resourceSet;
+	}
+
+	/**
+	 * Creates a version with a modification repository (with empty seed modifications)
+	 * and no components. If <code>resourceSet</code> is not null, the repository is put
+	 * into the resource <code>mem:/&lt;name&gt;.modificationmarks</code>.
+	 */
+	public static TestArchitectureVersion createVersion(String name, ResourceSet resourceSet) {
+		ModificationRepository repository = ModificationmarksFactory.eINSTANCE.createModificationRepository();
+		repository.setSeedModifications(createSeedModifications());
+		if (resourceSet != null) {
+			resourceSet.createResource(URI.createURI("mem:/" + name + ".modificationmarks"))
+				.getContents().add(repository);
+		}
+		return new TestArchitectureVersion(name, repository);
+	}
+
+	public static Modification addSeedModification(AbstractArchitectureVersion<ModificationRepository> version,
+			EObject affectedElement) {
+		Modification modification = createModification(affectedElement);
+		getModifications(version.getModificationMarkRepository().getSeedModifications()).add(modification);
+		return modification;
+	}
+
+	public static ChangePropagationStep addChangePropagationStep(
+			AbstractArchitectureVersion<ModificationRepository> version, Modification... modifications) {
+		ChangePropagationStep step = createChangePropagationStep();
+		for (Modification modification: modifications) {
+			getModifications(step).add(modification);
+		}
+		version.getModificationMarkRepository().getChangePropagationSteps().add(step);
+		return step;
+	}
+
+	/**
+	 * Describes the change propagation steps of the <code>repository</code> as text, e.g.
+	 * <code>[[b&lt;a, c&lt;ab]]</code> for a step with the modifications of <code>b</code>
+	 * (caused by <code>a</code>) and <code>c</code> (caused by <code>a</code> and <code>b</code>),
+	 * to compare the results of propagation algorithms.
+	 */
+	public static String describeChangePropagationSteps(ModificationRepository repository) {
+		List<String> steps = new ArrayList<String>();
+		for (AbstractChangePropagationStep step: repository.getChangePropagationSteps()) {
+			steps.add(describeModifications(getModifications(step)));
+		}
+		return steps.toString();
+	}
+
+	public static String describeModifications(List<? extends Modification> modifications) {
+		List<String> result = new ArrayList<String>();
+		for (Modification modification: modifications) {
+			StringBuilder description = new StringBuilder(getName(modification.getAffectedElement()));
+			description.append('<');
+			for (Object causingElement: modification.getCausingElements()) {
+				description.append(getName(causingElement));
+			}
+			result.add(description.toString());
+		}
+		return result.toString();
+	}
+
+}
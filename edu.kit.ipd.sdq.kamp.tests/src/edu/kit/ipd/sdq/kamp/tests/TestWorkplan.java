@@ -0,0 +1,122 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.emf.ecore.EObject;
+
+import edu.kit.ipd.sdq.kamp.workplan.AbstractActivityElementType;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractActivityType;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.BasicActivity;
+
+/**
+ * Activities for the tests of the workplan derivation and export: random activity trees
+ * for the components of the {@link TestModel}, and a textual description of activity
+ * trees to compare them.
+ */
+public class TestWorkplan {
+
+	public static final AbstractActivityType IMPLEMENTATION = createActivityType("Implementation");
+	public static final AbstractActivityType DOCUMENTATION = createActivityType("Documentation");
+
+	public static final AbstractActivityElementType COMPONENT = new AbstractActivityElementType() {
+
+		@Override
+		public String getName() {
+			return "Component";
+		}
+
+		@Override
+		public Class<?> getElementClass() {
+			return EObject.class;
+		}
+	};
+
+	private static AbstractActivityType createActivityType(final String name) {
+		return new AbstractActivityType() {
+
+			@Override
+			public String getName() {
+				return name;
+			}
+		};
+	}
+
+	public static Activity createActivity(AbstractActivityType type, BasicActivity basicActivity,
+			EObject element, String... causingElementsNames) {
+		String elementName = TestModel.getName(element);
+		return new Activity(type, COMPONENT, element, elementName, Arrays.asList(causingElementsNames),
+				basicActivity, basicActivity.getName() + " " + type.getName() + " of <" + elementName + ">");
+	}
+
+	/**
+	 * Creates a random activity tree for the <code>components</code> with up to
+	 * <code>depth</code> levels of sub- and follow-up activities. Activities for the same
+	 * component and type occur several times, as they do before duplicates are removed.
+	 */
+	public static List<Activity> createActivities(Random random, List<EObject> components, int count, int depth) {
+		List<Activity> activities = new ArrayList<Activity>();
+		for (int i = 0; i < count; i++) {
+			EObject component = components.get(random.nextInt(components.size()));
+			AbstractActivityType type = random.nextBoolean() ? IMPLEMENTATION : DOCUMENTATION;
+			BasicActivity basicActivity = BasicActivity.values()[random.nextInt(3)];
+			List<String> causes = new ArrayList<String>();
+			int causeCount = random.nextInt(3);
+			for (int j = 0; j < causeCount; j++) {
+				causes.add(TestModel.getName(components.get(random.nextInt(components.size()))));
+			}
+			Activity activity = createActivity(type, basicActivity, component, causes.toArray(new String[causes.size()]));
+			if (depth > 0) {
+				activity.addSubActivities(createActivities(random, components, random.nextInt(3), depth - 1));
+				activity.addFollowUpActivities(createActivities(random, components, random.nextInt(2), depth - 1));
+			}
+			activities.add(activity);
+		}
+		return activities;
+	}
+
+	public static List<EObject> createComponents(int count) {
+		List<EObject> components = new ArrayList<EObject>();
+		for (int i = 0; i < count; i++) {
+			components.add(TestModel.createComponent("c" + i));
+		}
+		return components;
+	}
+
+	/**
+	 * Describes the activities with all their attributes and their sub- and follow-up
+	 * activities, e.g. <code>[Modify Implementation of &lt;c1&gt; (Implementation, MODIFY, Component, c1, [c0])
+	 * {sub: [...], followup: [...]}]</code>.
+	 */
+	public static String describeActivities(List<Activity> activities) {
+		StringBuilder description = new StringBuilder();
+		describeActivities(activities, description);
+		return description.toString();
+	}
+
+	private static void describeActivities(List<Activity> activities, StringBuilder description) {
+		description.append('[');
+		for (int i = 0; i < activities.size(); i++) {
+			Activity activity = activities.get(i);
+			if (i > 0) {
+				description.append(", ");
+			}
+			description.append(activity.getDescription()).append(" (").append(activity.getType().getName())
+				.append(", ").append(activity.getBasicActivity()).append(", ").append(activity.getElementType().getName())
+				.append(", ").append(activity.getElementName())
+				.append(", ").append(activity.getCausingElementsNames()).append(')');
+			if (!activity.getSubActivities().isEmpty() || !activity.getFollowupActivities().isEmpty()) {
+				description.append(" {sub: ");
+				describeActivities(activity.getSubActivities(), description);
+				description.append(", followup: ");
+				describeActivities(activity.getFollowupActivities(), description);
+				description.append('}');
+			}
+		}
+		description.append(']');
+	}
+
+}
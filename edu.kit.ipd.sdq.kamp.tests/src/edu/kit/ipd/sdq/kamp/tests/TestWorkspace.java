@@ -0,0 +1,194 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.headless.HeadlessAnalysisRunner;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+
+/**
+ * Temporary directory which the <code>platform:/resource</code> URIs are mapped to (see
+ * {@link HeadlessAnalysisRunner#mapWorkspaceDirectory(File)}), so the tests can load and
+ * save models with the {@link AbstractArchitectureVersionPersistency} without Eclipse
+ * workspace. Call {@link #dispose()} to delete the directory and remove the mapping.
+ * The XMI resource factory is registered for the test models and modification marks (as
+ * the plugin.xml files of the models do), as the persistency loads and saves some files in
+ * resource sets of its own.
+ */
+public class TestWorkspace {
+
+	static {
+		Map<String, Object> extensionToFactoryMap = Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap();
+		extensionToFactoryMap.put("testmodel", new XMIResourceFactoryImpl());
+		extensionToFactoryMap.put(AbstractArchitectureVersionPersistency.FILEEXTENSION_MODIFICATIONMARK,
+				new XMIResourceFactoryImpl());
+	}
+
+	private final File directory;
+
+	public TestWorkspace() {
+		try {
+			this.directory = Files.createTempDirectory("workspace").toFile();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		HeadlessAnalysisRunner.mapWorkspaceDirectory(this.directory);
+	}
+
+	public File getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * Returns the <code>platform:/resource</code> URI of a file of the workspace.
+	 */
+	public URI getURI(String folderPath, String fileName) {
+		return URI.createPlatformResourceURI(folderPath, true).appendSegment(fileName);
+	}
+
+	/**
+	 * Saves each of the <code>roots</code> into the file with the same index in
+	 * <code>fileNames</code>. The roots are saved from one resource set, so they may refer
+	 * to elements of each other.
+	 */
+	public void saveModels(String folderPath, List<String> fileNames, List<? extends EObject> roots) {
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		for (int i = 0; i < fileNames.size(); i++) {
+			resourceSet.createResource(this.getURI(folderPath, fileNames.get(i))).getContents().add(roots.get(i));
+		}
+		for (Resource resource: resourceSet.getResources()) {
+			try {
+				resource.save(null);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Describes the elements of the resources in the order of the resources by their URIs,
+	 * classes, attribute values and the URIs of the referenced elements, to compare the
+	 * models loaded by different implementations. The references are resolved.
+	 */
+	public static List<String> describeResources(ResourceSet resourceSet) {
+		List<String> descriptions = new ArrayList<String>();
+		for (Resource resource: new ArrayList<Resource>(resourceSet.getResources())) {
+			for (TreeIterator<EObject> iterator = resource.getAllContents(); iterator.hasNext();) {
+				descriptions.add(describeElement(iterator.next()));
+			}
+		}
+		return descriptions;
+	}
+
+	private static String describeElement(EObject element) {
+		StringBuilder description = new StringBuilder(describeURI(element));
+		description.append(' ').append(element.eClass().getName());
+		for (EAttribute attribute: element.eClass().getEAllAttributes()) {
+			if (!attribute.isDerived() && !attribute.isTransient()) {
+				description.append(' ').append(attribute.getName()).append('=').append(element.eGet(attribute));
+			}
+		}
+		for (EReference reference: element.eClass().getEAllReferences()) {
+			if (reference.isDerived() || reference.isTransient() || reference.isContainment()
+					|| reference.isContainer()) {
+				continue;
+			}
+			List<String> values = new ArrayList<String>();
+			Object value = element.eGet(reference);
+			if (value instanceof List<?>) {
+				for (Object referencedElement: (List<?>) value) {
+					values.add(describeURI((EObject) referencedElement));
+				}
+			} else if (value != null) {
+				values.add(describeURI((EObject) value));
+			}
+			description.append(' ').append(reference.getName()).append('=').append(values);
+		}
+		return description.toString();
+	}
+
+	private static String describeURI(EObject element) {
+		return element.eIsProxy() ? "proxy " + EcoreUtil.getURI(element) : String.valueOf(EcoreUtil.getURI(element));
+	}
+
+	public void dispose() {
+		URIConverter.URI_MAP.remove(URI.createPlatformResourceURI("/", true));
+		delete(this.directory);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child: children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Persistency of the test models. A version consists of the component tree
+	 * <code>filename.testmodel</code> (its model root) and the modification marks
+	 * <code>filename.modificationmarks</code> (if the file exists).
+	 */
+	public static class TestPersistency extends AbstractArchitectureVersionPersistency<TestArchitectureVersion> {
+
+		/**
+		 * @return the version, or <code>null</code> if there is no component tree in the folder
+		 */
+		@Override
+		public TestArchitectureVersion load(String folderpath, String filename, String versionname) {
+			File folder = new File(getWorkspaceDirectory(), folderpath);
+			if (!new File(folder, filename + ".testmodel").isFile()) {
+				return null;
+			}
+			ResourceSet resourceSet = TestModel.createResourceSet();
+			EObject root = this.loadEmfModelFromResource(folderpath, filename + ".testmodel", resourceSet);
+			ModificationRepository repository = null;
+			String modificationMarkFileName = filename + "." + FILEEXTENSION_MODIFICATIONMARK;
+			if (new File(folder, modificationMarkFileName).isFile()) {
+				repository = (ModificationRepository) this.loadEmfModelFromResource(folderpath, 
+						modificationMarkFileName, resourceSet);
+			}
+			EcoreUtil.resolveAll(resourceSet);
+			TestArchitectureVersion version = new TestArchitectureVersion(versionname, repository);
+			version.getModelRoots().add(root);
+			return version;
+		}
+
+		@Override
+		public TestArchitectureVersion load(IContainer folder, String versionname) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void save(String targetDirectoryPath, String filename, TestArchitectureVersion version) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		protected void registerEPackages(ResourceSet resourceSet) {
+			super.registerEPackages(resourceSet);
+			resourceSet.getPackageRegistry().put(TestModel.PACKAGE.getNsURI(), TestModel.PACKAGE);
+		}
+	}
+
+}
@@ -0,0 +1,208 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.propagation.UserDecisionAnalysis;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+
+/**
+ * Tests {@link UserDecisionAnalysis#considerUserDecisions(AbstractModificationRepository)}.
+ * As the cause index replaced repeated scans of all modifications, the result on generated
+ * repositories must not differ from that of the scanning algorithm, which is kept below as
+ * reference.
+ */
+public class UserDecisionAnalysisTest {
+
+	private static final int COMPONENTS = 20;
+
+	@Test
+	public void testExclusionOfSeedModificationPropagates() {
+		TestArchitectureVersion version = TestModel.createVersion("target", TestModel.createResourceSet());
+		EObject a = TestModel.createComponent("a");
+		EObject b = TestModel.createComponent("b");
+		EObject c = TestModel.createComponent("c");
+		EObject d = TestModel.createComponent("d");
+		TestModel.addSeedModification(version, a).setUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
+		TestModel.addSeedModification(version, d);
+		TestModel.addChangePropagationStep(version, TestModel.createModification(b, a));
+		TestModel.addChangePropagationStep(version, TestModel.createModification(c, b, d));
+
+		UserDecisionAnalysis.considerUserDecisions(version.getModificationMarkRepository());
+
+		assertEquals("[[c<d]]", TestModel.describeChangePropagationSteps(version.getModificationMarkRepository()));
+		assertEquals("[d<]", TestModel.describeModifications(TestModel.getModifications(
+				version.getModificationMarkRepository().getSeedModifications())));
+	}
+
+	@Test
+	public void testCyclicCausesAreRemoved() {
+		TestArchitectureVersion version = TestModel.createVersion("target", TestModel.createResourceSet());
+		EObject a = TestModel.createComponent("a");
+		EObject b = TestModel.createComponent("b");
+		EObject c = TestModel.createComponent("c");
+		TestModel.addSeedModification(version, a).setUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
+		TestModel.addChangePropagationStep(version, TestModel.createModification(b, a, c));
+		TestModel.addChangePropagationStep(version, TestModel.createModification(c, b));
+
+		UserDecisionAnalysis.considerUserDecisions(version.getModificationMarkRepository());
+
+		// b is still caused by c, which is caused by b
+		assertEquals("[[b<c], [c<b]]", TestModel.describeChangePropagationSteps(version.getModificationMarkRepository()));
+	}
+
+	@Test
+	public void testExcludedModificationWithoutAffectedElement() {
+		TestArchitectureVersion version = TestModel.createVersion("target", TestModel.createResourceSet());
+		EObject a = TestModel.createComponent("a");
+		EObject b = TestModel.createComponent("b");
+		TestModel.addSeedModification(version, a);
+		Modification modification = TestModel.createModification(null, a);
+		modification.setUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
+		TestModel.addChangePropagationStep(version, modification);
+		TestModel.addChangePropagationStep(version, TestModel.createModification(b, a));
+
+		UserDecisionAnalysis.considerUserDecisions(version.getModificationMarkRepository());
+
+		// the step of the removed modification is removed, the other modifications are kept
+		assertEquals("[[b<a]]", TestModel.describeChangePropagationSteps(version.getModificationMarkRepository()));
+	}
+
+	@Test
+	public void testSameResultAsScanningAlgorithm() {
+		Random seeds = new Random(2);
+		for (int repositoryCount = 0; repositoryCount < 200; repositoryCount++) {
+			long seed = seeds.nextLong();
+			ModificationRepository repository = createRepository(seed);
+			ModificationRepository expectedRepository = createRepository(seed);
+
+			UserDecisionAnalysis.considerUserDecisions(repository);
+			considerUserDecisionsAsBefore(expectedRepository);
+
+			assertEquals("repository " + seed, TestModel.describeChangePropagationSteps(expectedRepository),
+					TestModel.describeChangePropagationSteps(repository));
+			assertEquals("repository " + seed, TestModel.describeModifications(
+					TestModel.getModifications(expectedRepository.getSeedModifications())),
+					TestModel.describeModifications(TestModel.getModifications(repository.getSeedModifications())));
+		}
+	}
+
+	/**
+	 * Creates a repository with seed modifications and steps whose modifications are caused
+	 * by the elements marked before, and excludes some of the modifications. The same
+	 * <code>randomSeed</code> results in the same repository.
+	 */
+	private static ModificationRepository createRepository(long randomSeed) {
+		Random random = new Random(randomSeed);
+		TestArchitectureVersion version = TestModel.createVersion("target", TestModel.createResourceSet());
+		List<EObject> components = new ArrayList<EObject>();
+		for (int i = 0; i < COMPONENTS; i++) {
+			components.add(TestModel.createComponent("c" + i));
+		}
+		List<EObject> markedComponents = new ArrayList<EObject>();
+		List<Modification> modifications = new ArrayList<Modification>();
+		for (int i = 0; i < 3; i++) {
+			EObject component = components.get(random.nextInt(COMPONENTS));
+			modifications.add(TestModel.addSeedModification(version, component));
+			markedComponents.add(component);
+		}
+		int steps = 1 + random.nextInt(4);
+		for (int i = 0; i < steps; i++) {
+			ChangePropagationStep step = TestModel.addChangePropagationStep(version);
+			List<EObject> newlyMarkedComponents = new ArrayList<EObject>();
+			int stepModifications = 1 + random.nextInt(6);
+			for (int j = 0; j < stepModifications; j++) {
+				EObject component = components.get(random.nextInt(COMPONENTS));
+				Modification modification = TestModel.createModification(component);
+				int causes = 1 + random.nextInt(3);
+				for (int k = 0; k < causes; k++) {
+					EObject cause = markedComponents.get(random.nextInt(markedComponents.size()));
+					if (!modification.getCausingElements().contains(cause)) {
+						modification.getCausingElements().add(cause);
+					}
+				}
+				TestModel.getModifications(step).add(modification);
+				modifications.add(modification);
+				newlyMarkedComponents.add(component);
+			}
+			markedComponents.addAll(newlyMarkedComponents);
+		}
+		int exclusions = random.nextInt(3);
+		for (int i = 0; i < exclusions; i++) {
+			modifications.get(random.nextInt(modifications.size())).setUserDecision(
+					AcceptanceAndConfirmationState.EXCLUDED);
+		}
+		return version.getModificationMarkRepository();
+	}
+
+	/**
+	 * The scanning algorithm which {@link UserDecisionAnalysis#considerUserDecisions(AbstractModificationRepository)}
+	 * replaced.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void considerUserDecisionsAsBefore(AbstractModificationRepository<?,?> modificationRepository) {
+		List<AbstractModification> modifications = new ArrayList<AbstractModification>();
+		List<Object> elementsToAnalyze = new ArrayList<Object>();
+		TreeIterator<EObject> contents = modificationRepository.eAllContents();
+		while (contents.hasNext()) {
+			EObject object = contents.next();
+			if (object instanceof AbstractModification) {
+				AbstractModification modification = (AbstractModification) object;
+				modifications.add(modification);
+				if (modification.getUserDecision() == AcceptanceAndConfirmationState.EXCLUDED
+						&& !elementsToAnalyze.contains(modification.getAffectedElement())) {
+					elementsToAnalyze.add(modification.getAffectedElement());
+				}
+			}
+		}
+		List<Object> elementsToRemove = new ArrayList<Object>(elementsToAnalyze);
+
+		while (!elementsToAnalyze.isEmpty()) {
+			Object objectToAnalyze = elementsToAnalyze.remove(0);
+			for (AbstractModification modification: modifications) {
+				boolean objectIsCause = modification.getCausingElements().remove(objectToAnalyze);
+				if (objectIsCause && modification.getCausingElements().isEmpty() &&
+						!elementsToRemove.contains(modification.getAffectedElement())) {
+					elementsToRemove.add(modification.getAffectedElement());
+					elementsToAnalyze.add(modification.getAffectedElement());
+				}
+			}
+		}
+
+		if (!elementsToRemove.isEmpty()) {
+			Collection<EObject> modificationsToRemove = new LinkedList<EObject>();
+			for (AbstractModification modification: modifications) {
+				if (elementsToRemove.contains(modification.getAffectedElement())) {
+					modificationsToRemove.add(modification);
+				}
+			}
+			for (EObject modification: modificationsToRemove) {
+				EcoreUtil.remove(modification);
+			}
+			for (AbstractChangePropagationStep step: new ArrayList<AbstractChangePropagationStep>(
+					modificationRepository.getChangePropagationSteps())) {
+				if (step.eContents().isEmpty()) {
+					modificationRepository.getChangePropagationSteps().remove(step);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,229 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.Modification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksPackage;
+import edu.kit.ipd.sdq.kamp.propagation.UserDecisionAnalysis;
+import edu.kit.ipd.sdq.kamp.tests.TestModel.TestArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.tests.TestWorkspace.TestPersistency;
+
+/**
+ * Runs {@link UserDecisionAnalysis#considerUserDecisionsWithoutResolving(AbstractModificationRepository)}
+ * on a modification mark file loaded on its own. The seed modifications of <code>a</code>
+ * and <code>x</code> cause the steps <code>[b&lt;a, c&lt;ab, e&lt;x]</code>,
+ * <code>[d&lt;b, f&lt;c]</code> and <code>[g&lt;d]</code>, and the user has excluded
+ * <code>b</code>, so <code>d</code> and <code>g</code> have to be removed as well. Some
+ * references of the file use absolute <code>platform:/resource</code> URIs instead of
+ * relative ones, and the file is loaded both by <code>platform:/resource</code> and by
+ * file URI.
+ */
+public class UserDecisionsWithoutResolvingTest {
+
+	private static final String FOLDER = "project/models";
+
+	private static final String MODIFICATIONMARK_FILE = "version.modificationmarks";
+
+	private static final List<String> FILE_PATHS = Arrays.asList("m0.testmodel", "m1.testmodel", MODIFICATIONMARK_FILE);
+
+	private TestWorkspace workspace;
+
+	private TestArchitectureVersion version;
+
+	private Modification modificationOfB;
+
+	@Before
+	public void setUp() {
+		this.workspace = new TestWorkspace();
+		EObject r0 = TestModel.createComponent("r0");
+		for (String name: new String[] {"a", "b", "c", "d", "e", "f", "g"}) {
+			TestModel.getChildren(r0).add(TestModel.createComponent(name));
+		}
+		EObject r1 = TestModel.createComponent("r1");
+		TestModel.getChildren(r1).add(TestModel.createComponent("x"));
+		this.version = TestModel.createVersion("version", null);
+		TestModel.addSeedModification(this.version, getChild(r0, 0));
+		TestModel.addSeedModification(this.version, getChild(r1, 0));
+		this.modificationOfB = TestModel.createModification(getChild(r0, 1), getChild(r0, 0));
+		this.modificationOfB.setUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
+		TestModel.addChangePropagationStep(this.version, this.modificationOfB,
+				TestModel.createModification(getChild(r0, 2), getChild(r0, 0), getChild(r0, 1)),
+				TestModel.createModification(getChild(r0, 4), getChild(r1, 0)));
+		TestModel.addChangePropagationStep(this.version,
+				TestModel.createModification(getChild(r0, 3), getChild(r0, 1)),
+				TestModel.createModification(getChild(r0, 5), getChild(r0, 2)));
+		TestModel.addChangePropagationStep(this.version, TestModel.createModification(getChild(r0, 6), getChild(r0, 3)));
+		this.workspace.saveModels(FOLDER, FILE_PATHS, Arrays.asList(r0, r1, this.version.getModificationMarkRepository()));
+	}
+
+	@After
+	public void tearDown() {
+		this.workspace.dispose();
+	}
+
+	@Test
+	public void testExcludedElementsAreRemovedTransitively() throws IOException {
+		this.referenceByPlatformURIs();
+		List<String> expected = Arrays.asList("[a<, x<]", "[c<a, e<x]", "[f<c]");
+		for (URI uri: new URI[] {getFileURI(), this.workspace.getURI(FOLDER, MODIFICATIONMARK_FILE)}) {
+			ResourceSet resourceSet = TestModel.createResourceSet();
+			AbstractModificationRepository<?,?> repository = (AbstractModificationRepository<?,?>)
+					resourceSet.getResource(uri, true).getContents().get(0);
+			UserDecisionAnalysis.considerUserDecisionsWithoutResolving(repository);
+			assertEquals(uri.toString(), expected, describeRepository(repository));
+			// the architecture models have not been loaded
+			assertEquals(uri.toString(), 1, resourceSet.getResources().size());
+		}
+
+		// the same result as with resolving the references
+		TestPersistency persistency = new TestPersistency();
+		ResourceSet resourceSet = TestModel.createResourceSet();
+		for (String filePath: FILE_PATHS) {
+			persistency.loadEmfModelFromResource(FOLDER, filePath, resourceSet);
+		}
+		AbstractModificationRepository<?,?> repository = (AbstractModificationRepository<?,?>)
+				resourceSet.getResources().get(2).getContents().get(0);
+		UserDecisionAnalysis.considerUserDecisions(repository);
+		assertEquals(expected, describeRepository(repository));
+	}
+
+	@Test
+	public void testNoExcludedModification() {
+		this.modificationOfB.setUserDecision(AcceptanceAndConfirmationState.CONFIRMED);
+		this.workspace.saveModels(FOLDER, Arrays.asList("confirmed.modificationmarks"),
+				Arrays.asList(EcoreUtil.copy(this.version.getModificationMarkRepository())));
+		AbstractModificationRepository<?,?> repository = load(this.workspace.getURI(FOLDER, "confirmed.modificationmarks"));
+		List<String> expected = describeRepository(repository);
+		assertEquals(Arrays.asList("[a<, x<]", "[b<a, c<ab, e<x]", "[d<b, f<c]", "[g<d]"), expected);
+
+		UserDecisionAnalysis.considerUserDecisionsWithoutResolving(repository);
+		assertEquals(expected, describeRepository(repository));
+	}
+
+	@Test
+	public void testExcludedModificationWithoutAffectedElement() {
+		TestArchitectureVersion otherVersion = TestModel.createVersion("other", null);
+		Modification modification = TestModel.createModification(null);
+		modification.setUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
+		TestModel.addChangePropagationStep(otherVersion, modification);
+		EObject component = TestModel.createComponent("a");
+		TestModel.addChangePropagationStep(otherVersion, TestModel.createModification(component),
+				TestModel.createModification(null, component));
+		this.workspace.saveModels(FOLDER, Arrays.asList("other.testmodel", "other.modificationmarks"),
+				Arrays.asList(component, otherVersion.getModificationMarkRepository()));
+
+		AbstractModificationRepository<?,?> repository = load(this.workspace.getURI(FOLDER, "other.modificationmarks"));
+		UserDecisionAnalysis.considerUserDecisionsWithoutResolving(repository);
+		assertEquals(Arrays.asList("[]", "[a<]"), describeRepository(repository));
+	}
+
+	@Test
+	public void testEmptyRepository() {
+		this.workspace.saveModels(FOLDER, Arrays.asList("empty.modificationmarks"),
+				Arrays.asList(TestModel.createVersion("empty", null).getModificationMarkRepository()));
+		AbstractModificationRepository<?,?> repository = load(this.workspace.getURI(FOLDER, "empty.modificationmarks"));
+		UserDecisionAnalysis.considerUserDecisionsWithoutResolving(repository);
+		assertEquals(Arrays.asList("[]"), describeRepository(repository));
+	}
+
+	private URI getFileURI() {
+		return URI.createFileURI(new File(new File(this.workspace.getDirectory(), FOLDER),
+				MODIFICATIONMARK_FILE).getAbsolutePath());
+	}
+
+	private static AbstractModificationRepository<?,?> load(URI uri) {
+		return (AbstractModificationRepository<?,?>) TestModel.createResourceSet().getResource(uri, true)
+				.getContents().get(0);
+	}
+
+	/**
+	 * Replaces the references of the modification of <code>c</code> (its cause
+	 * <code>a</code>), of <code>d</code> (its cause <code>b</code>) and of <code>g</code>
+	 * (its affected element) in the file by proxies with absolute
+	 * <code>platform:/resource</code> URIs (the file references the components relative to
+	 * its own location otherwise).
+	 */
+	private void referenceByPlatformURIs() throws IOException {
+		Resource resource = TestModel.createResourceSet().getResource(getFileURI(), true);
+		ModificationRepository repository = (ModificationRepository) resource.getContents().get(0);
+		List<Modification> firstStep = TestModel.getModifications(repository.getChangePropagationSteps().get(0));
+		List<Modification> secondStep = TestModel.getModifications(repository.getChangePropagationSteps().get(1));
+		List<Modification> thirdStep = TestModel.getModifications(repository.getChangePropagationSteps().get(2));
+		replaceCauseByPlatformProxy(firstStep.get(1), 0);
+		replaceCauseByPlatformProxy(secondStep.get(0), 0);
+		Modification modificationOfG = thirdStep.get(0);
+		modificationOfG.eSet(ModificationmarksPackage.Literals.ABSTRACT_MODIFICATION__AFFECTED_ELEMENT,
+				this.createPlatformProxy(modificationOfG.eGet(
+						ModificationmarksPackage.Literals.ABSTRACT_MODIFICATION__AFFECTED_ELEMENT, false)));
+		resource.save(null);
+	}
+
+	private void replaceCauseByPlatformProxy(Modification modification, int index) {
+		InternalEList<EObject> causes = (InternalEList<EObject>) modification.getCausingElements();
+		causes.setUnique(index, this.createPlatformProxy(causes.basicGet(index)));
+	}
+
+	private EObject createPlatformProxy(Object proxy) {
+		URI uri = ((InternalEObject) proxy).eProxyURI();
+		InternalEObject platformProxy = (InternalEObject) EcoreUtil.create(TestModel.COMPONENT);
+		platformProxy.eSetProxyURI(this.workspace.getURI(FOLDER, uri.lastSegment()).appendFragment(uri.fragment()));
+		return platformProxy;
+	}
+
+	/**
+	 * Describes the modifications of the seed modifications and each step as
+	 * {@link TestModel#describeModifications(List)}, but with the IDs of the affected and
+	 * causing elements taken from their URIs (without resolving them).
+	 */
+	private static List<String> describeRepository(AbstractModificationRepository<?,?> repository) {
+		List<EObject> steps = new ArrayList<EObject>();
+		steps.add(repository.getSeedModifications());
+		steps.addAll(repository.getChangePropagationSteps());
+		List<String> descriptions = new ArrayList<String>();
+		for (EObject step: steps) {
+			List<String> modifications = new ArrayList<String>();
+			for (EObject element: step.eContents()) {
+				AbstractModification<?,?> modification = (AbstractModification<?,?>) element;
+				StringBuilder description = new StringBuilder(getID(modification.eGet(
+						ModificationmarksPackage.Literals.ABSTRACT_MODIFICATION__AFFECTED_ELEMENT, false)));
+				description.append('<');
+				for (Object cause: ((InternalEList<?>) modification.getCausingElements()).basicList()) {
+					description.append(getID(cause));
+				}
+				modifications.add(description.toString());
+			}
+			descriptions.add(modifications.toString());
+		}
+		return descriptions;
+	}
+
+	private static String getID(Object element) {
+		return element != null ? EcoreUtil.getURI((EObject) element).fragment() : "null";
+	}
+
+	private static EObject getChild(EObject root, int index) {
+		return TestModel.getChildren(root).get(index);
+	}
+
+}
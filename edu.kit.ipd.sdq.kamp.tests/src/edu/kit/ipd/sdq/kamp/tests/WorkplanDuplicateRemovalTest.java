@@ -0,0 +1,212 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.impl.DynamicEObjectImpl;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.util.MapUtil;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractActivityElementType;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.BasicActivity;
+import edu.kit.ipd.sdq.kamp.workplan.WorkplanDuplicateRemoval;
+
+/**
+ * Tests the merging of duplicate modification activities by the
+ * {@link WorkplanDuplicateRemoval}. The index-based merge has to yield the same activity
+ * trees as the pairwise comparison it replaced (kept below), which is checked on workplans
+ * drawn for few up to several components, so there are many duplicates.
+ */
+public class WorkplanDuplicateRemovalTest {
+
+	private static final AbstractActivityElementType DYNAMIC_COMPONENT = new AbstractActivityElementType() {
+
+		@Override
+		public String getName() {
+			return "Dynamic component";
+		}
+
+		@Override
+		public Class<?> getElementClass() {
+			return DynamicEObjectImpl.class;
+		}
+	};
+
+	@Test
+	public void testSameResultAsPairwiseComparison() {
+		int mergedActivities = 0;
+		Random random = new Random(17);
+		for (int workplan = 0; workplan < 300; workplan++) {
+			// the fewer components, the more duplicates
+			List<EObject> components = TestWorkplan.createComponents(1 + workplan % 6);
+			List<Activity> activities = TestWorkplan.createActivities(random, components, 10, 3);
+			useMoreSpecificElementTypes(random, activities);
+			String input = TestWorkplan.describeActivities(activities);
+
+			List<Activity> expected = removeModificationDuplicatesPairwise(activities);
+			assertEquals(input, TestWorkplan.describeActivities(activities));
+			List<Activity> actual = WorkplanDuplicateRemoval.removeModificationDuplicates(activities);
+
+			String message = "workplan " + workplan + " of " + components.size() + " components";
+			assertEquals(message, input, TestWorkplan.describeActivities(activities));
+			assertEquals(message, TestWorkplan.describeActivities(expected), TestWorkplan.describeActivities(actual));
+			assertCopiedTree(message, actual, null, collectActivities(activities, null));
+			mergedActivities += collectActivities(activities, null).size() - collectActivities(actual, null).size();
+		}
+		assertTrue(mergedActivities > 0);
+	}
+
+	@Test
+	public void testModificationsOfTheSameElementAndTypeAreMerged() {
+		List<EObject> components = TestWorkplan.createComponents(2);
+		Activity first = TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY,
+				components.get(0), "c1");
+		first.addSubActivity(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY,
+				components.get(1)));
+		Activity second = TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY,
+				components.get(0), "c0");
+		second.addSubActivity(TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.MODIFY,
+				components.get(1), "c0"));
+		Activity documentation = TestWorkplan.createActivity(TestWorkplan.DOCUMENTATION, BasicActivity.MODIFY,
+				components.get(0));
+		Activity addition = TestWorkplan.createActivity(TestWorkplan.IMPLEMENTATION, BasicActivity.ADD,
+				components.get(0));
+		List<Activity> activities = new ArrayList<Activity>();
+		Collections.addAll(activities, first, documentation, addition, second, addition);
+
+		List<Activity> result = WorkplanDuplicateRemoval.removeModificationDuplicates(activities);
+		assertEquals(4, result.size());
+		assertEquals("[c0, c1]", result.get(0).getCausingElementsNames().toString());
+		assertEquals(1, result.get(0).getSubActivities().size());
+		assertEquals("[c0]", result.get(0).getSubActivities().get(0).getCausingElementsNames().toString());
+		assertEquals(TestWorkplan.describeActivities(removeModificationDuplicatesPairwise(activities)),
+				TestWorkplan.describeActivities(result));
+	}
+
+	@Test
+	public void testEmptyWorkplan() {
+		assertTrue(WorkplanDuplicateRemoval.removeModificationDuplicates(new ArrayList<Activity>()).isEmpty());
+	}
+
+	private static void useMoreSpecificElementTypes(Random random, List<Activity> activities) {
+		for (Activity activity: activities) {
+			if (random.nextInt(4) == 0) {
+				activity.setElementType(DYNAMIC_COMPONENT);
+			}
+			useMoreSpecificElementTypes(random, activity.getSubActivities());
+			useMoreSpecificElementTypes(random, activity.getFollowupActivities());
+		}
+	}
+
+	private static Map<Activity, Activity> collectActivities(List<Activity> activities, Map<Activity, Activity> result) {
+		if (result == null) {
+			result = new IdentityHashMap<Activity, Activity>();
+		}
+		for (Activity activity: activities) {
+			result.put(activity, activity);
+			collectActivities(activity.getSubActivities(), result);
+			collectActivities(activity.getFollowupActivities(), result);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks that the result only consists of new activities and that the parent activities
+	 * are set.
+	 */
+	private static void assertCopiedTree(String message, List<Activity> activities, Activity parentActivity,
+			Map<Activity, Activity> inputActivities) {
+		for (Activity activity: activities) {
+			assertFalse(message, inputActivities.containsKey(activity));
+			if (parentActivity != null) {
+				assertSame(message, parentActivity, activity.getParentActivity());
+			}
+			assertCopiedTree(message, activity.getSubActivities(), activity, inputActivities);
+			assertCopiedTree(message, activity.getFollowupActivities(), activity, inputActivities);
+		}
+	}
+
+	/**
+	 * The pairwise comparison of all activities of a level, which
+	 * {@link WorkplanDuplicateRemoval#removeModificationDuplicates(List)} replaced.
+	 */
+	private static List<Activity> removeModificationDuplicatesPairwise(List<Activity> actvityList) {
+		List<Activity> result = new LinkedList<Activity>();
+		Map<EObject, Set<Activity>> objectsWithActivity = new HashMap<EObject, Set<Activity>>();
+
+		for (Activity activityToAnalyze: actvityList) {
+			if (activityToAnalyze.getBasicActivity().equals(BasicActivity.MODIFY)) {
+				boolean merged = false;
+				if (objectsWithActivity.containsKey(activityToAnalyze.getElement())) {
+					for (Activity existingActivity: objectsWithActivity.get(activityToAnalyze.getElement())) {
+						if (existingActivity.getElement().equals(activityToAnalyze.getElement())
+								&& existingActivity.getType().equals(activityToAnalyze.getType())) {
+							mergeActivitiesPairwise(existingActivity, activityToAnalyze);
+							merged = true;
+							break;
+						}
+					}
+				}
+				if (!merged) {
+					Activity modificationActivity = copyActivity(activityToAnalyze);
+					result.add(modificationActivity);
+					MapUtil.putOrAddToMap(objectsWithActivity, modificationActivity.getElement(),
+							Collections.singleton(modificationActivity));
+				}
+			} else {
+				result.add(copyActivity(activityToAnalyze));
+			}
+		}
+
+		return result;
+	}
+
+	private static Activity copyActivity(Activity activityToCopy) {
+		Activity result = new Activity(activityToCopy.getType(), activityToCopy.getElementType(),
+				activityToCopy.getElement(), activityToCopy.getElementName(),
+				activityToCopy.getCausingElementsNames(), activityToCopy.getBasicActivity(),
+				activityToCopy.getDescription());
+		for (Activity subActivity: activityToCopy.getSubActivities()) {
+			result.addSubActivity(copyActivity(subActivity));
+		}
+		for (Activity followUpActivity: activityToCopy.getFollowupActivities()) {
+			result.addFollowupActivity(copyActivity(followUpActivity));
+		}
+		return result;
+	}
+
+	private static void mergeActivitiesPairwise(Activity existingActivity, Activity activityToAnalyze) {
+		List<Activity> followUpActivities = new LinkedList<Activity>();
+		followUpActivities.addAll(existingActivity.getFollowupActivities());
+		followUpActivities.addAll(activityToAnalyze.getFollowupActivities());
+		followUpActivities = removeModificationDuplicatesPairwise(followUpActivities);
+		existingActivity.getFollowupActivities().clear();
+		existingActivity.addFollowUpActivities(followUpActivities);
+
+		List<Activity> subActivities = new LinkedList<Activity>();
+		subActivities.addAll(existingActivity.getSubActivities());
+		subActivities.addAll(activityToAnalyze.getSubActivities());
+		subActivities = removeModificationDuplicatesPairwise(subActivities);
+		existingActivity.getSubActivities().clear();
+		existingActivity.addSubActivities(subActivities);
+
+		if (existingActivity.getElementType().getElementClass().isAssignableFrom(
+				activityToAnalyze.getElementType().getElementClass())) {
+			existingActivity.setElementType(activityToAnalyze.getElementType());
+		}
+
+		existingActivity.getCausingElementsNames().addAll(activityToAnalyze.getCausingElementsNames());
+	}
+
+}
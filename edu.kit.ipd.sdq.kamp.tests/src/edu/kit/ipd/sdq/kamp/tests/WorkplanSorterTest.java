@@ -0,0 +1,112 @@
+package edu.kit.ipd.sdq.kamp.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.Test;
+
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.BasicActivity;
+import edu.kit.ipd.sdq.kamp.workplan.WorkplanSorter;
+
+/**
+ * Tests the iterative (and for long lists parallel) sort of the {@link WorkplanSorter}:
+ * it must order every level of an activity tree like the recursive sort it replaced, which
+ * is kept below. As the generated activities share descriptions, comparing the complete
+ * trees (including the causes) also checks that the sort is stable.
+ */
+public class WorkplanSorterTest {
+
+	@Test
+	public void testSameOrderAsRecursiveSort() {
+		Random random = new Random(31);
+		for (int depth = 0; depth <= 4; depth++) {
+			for (int workplan = 0; workplan < 40; workplan++) {
+				List<EObject> components = TestWorkplan.createComponents(1 + random.nextInt(10));
+				assertSameOrderAsRecursiveSort("depth " + depth + ", workplan " + workplan,
+						TestWorkplan.createActivities(random, components, 1 + random.nextInt(20), depth));
+			}
+		}
+	}
+
+	@Test
+	public void testSameOrderAsRecursiveSortForLargeWorkplans() {
+		Random random = new Random(0);
+		List<EObject> components = TestWorkplan.createComponents(3000);
+		// a long top-level list (sorted in parallel) and many lists of sub- and follow-up activities
+		assertSameOrderAsRecursiveSort("long list", new ArrayList<Activity>(
+				TestWorkplan.createActivities(random, components, 20000, 0)));
+		assertSameOrderAsRecursiveSort("deep tree", new LinkedList<Activity>(
+				TestWorkplan.createActivities(random, components, 300, 5)));
+	}
+
+	@Test
+	public void testActivitiesWithoutDescriptionFirst() {
+		EObject component = TestWorkplan.createComponents(1).get(0);
+		List<Activity> activities = new ArrayList<Activity>();
+		for (String description: Arrays.asList("b", null, "a", null)) {
+			activities.add(new Activity(TestWorkplan.IMPLEMENTATION, TestWorkplan.COMPONENT, component, "c0",
+					null, BasicActivity.MODIFY, description));
+		}
+		Activity firstWithoutDescription = activities.get(1);
+		WorkplanSorter.sortWorkplanActivities(activities);
+		assertSame(firstWithoutDescription, activities.get(0));
+		assertNull(activities.get(1).getDescription());
+		assertEquals("a", activities.get(2).getDescription());
+		assertEquals("b", activities.get(3).getDescription());
+	}
+
+	@Test
+	public void testEmptyWorkplan() {
+		List<Activity> activities = new ArrayList<Activity>();
+		WorkplanSorter.sortWorkplanActivities(activities);
+		assertTrue(activities.isEmpty());
+	}
+
+	private static void assertSameOrderAsRecursiveSort(String message, List<Activity> activities) {
+		List<Activity> expected = copyActivities(activities);
+		sortWorkplanActivitiesRecursively(expected);
+		WorkplanSorter.sortWorkplanActivities(activities);
+		assertEquals(message, TestWorkplan.describeActivities(expected), TestWorkplan.describeActivities(activities));
+	}
+
+	private static List<Activity> copyActivities(List<Activity> activities) {
+		List<Activity> result = new ArrayList<Activity>();
+		for (Activity activity: activities) {
+			Activity copy = new Activity(activity.getType(), activity.getElementType(), activity.getElement(),
+					activity.getElementName(), activity.getCausingElementsNames(), activity.getBasicActivity(),
+					activity.getDescription());
+			copy.addSubActivities(copyActivities(activity.getSubActivities()));
+			copy.addFollowUpActivities(copyActivities(activity.getFollowupActivities()));
+			result.add(copy);
+		}
+		return result;
+	}
+
+	/**
+	 * Sorts each level by a recursive call, like
+	 * {@link WorkplanSorter#sortWorkplanActivities(List)} did before the explicit stack.
+	 */
+	private static void sortWorkplanActivitiesRecursively(List<Activity> activities) {
+		Collections.sort(activities, new Comparator<Activity>() {
+
+			@Override
+			public int compare(Activity activity1, Activity activity2) {
+				return activity1.getDescription().compareTo(activity2.getDescription());
+			}
+		});
+		for (Activity activity: activities) {
+			sortWorkplanActivitiesRecursively(activity.getSubActivities());
+			sortWorkplanActivitiesRecursively(activity.getFollowupActivities());
+		}
+	}
+
+}
@@ -1,6 +1,11 @@
 package edu.kit.ipd.sdq.kamp.architecture;
 
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+import edu.kit.ipd.sdq.kamp.util.ElementIdRegistry;
 
 /**
  * References the in-memory representations of all relevant model files. Should be 
@@ -10,6 +15,7 @@ public abstract class AbstractArchitectureVersion<T extends AbstractModification
 	
 	private String name;
 	private T modificationMarkRepository;
+	private ElementIdRegistry<Object> elementIdRegistry;
 
 	protected AbstractArchitectureVersion(String name, T modificationMarkRepository) {
 		this.setName(name);
@@ -32,4 +38,30 @@ public abstract class AbstractArchitectureVersion<T extends AbstractModification
 		this.modificationMarkRepository = modificationMarkRepository;
 	}
 	
+	/**
+	 * Returns the root elements of all architecture models of this version (without the
+	 * modificationmarks repository), e.g. to build an {@link ArchitectureGraph} or to detect
+	 * changes of the architecture between incremental propagations. Must be overridden by
+	 * subclasses which are used for these; an empty list would silently yield an empty
+	 * graph and a constant fingerprint.
+	 * 
+	 * @throws IllegalStateException if the subclass does not provide its model roots
+	 */
+	public List<EObject> getModelRoots() {
+		throw new IllegalStateException("The model roots of the architecture version " + this.getName() 
+				+ " are unknown, override getModelRoots() in " + this.getClass().getName());
+	}
+	
+	/**
+	 * Returns the registry which assigns int IDs to the elements of this version (created
+	 * on first access). It is shared by the {@link ArchitectureGraph} of this version and 
+	 * the {@link edu.kit.ipd.sdq.kamp.util.MarkedElementSet}s of propagation algorithms.
+	 */
+	public synchronized ElementIdRegistry<Object> getElementIdRegistry() {
+		if (this.elementIdRegistry == null) {
+			this.elementIdRegistry = new ElementIdRegistry<Object>();
+		}
+		return this.elementIdRegistry;
+	}
+	
 }
@@ -3,27 +3,45 @@ package edu.kit.ipd.sdq.kamp.architecture;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.impl.EPackageRegistryImpl;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
 import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.resource.impl.URIMappingRegistryImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.ecore.xmi.XMLResource;
-import org.eclipse.emf.ecore.xmi.impl.XMLParserPoolImpl;
 import org.eclipse.emf.ecore.xmi.impl.XMLResourceImpl;
 
+import edu.kit.ipd.sdq.kamp.Activator;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksPackage;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.util.ModificationmarksBinaryResourceFactoryImpl;
 import edu.kit.ipd.sdq.kamp.util.FileAndFolderManagement;
+import edu.kit.ipd.sdq.kamp.util.ModelLoadingExecutor;
 import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.ActivityListExporter;
 import edu.kit.ipd.sdq.kamp.workplan.ExcelWriter;
+import edu.kit.ipd.sdq.kamp.workplan.StreamingExcelWriter;
 
 /**
  * Supports loading and saving of model files as well as saving activities as text
@@ -34,10 +52,34 @@ import edu.kit.ipd.sdq.kamp.workplan.ExcelWriter;
 public abstract class AbstractArchitectureVersionPersistency<T extends AbstractArchitectureVersion<?>> {
 	
 	private ExcelWriter excelWriter = new ExcelWriter();
+	private StreamingExcelWriter streamingExcelWriter = new StreamingExcelWriter();
+	private boolean streamingExcelExport = false;
+	private ActivityListExporter activityListExporter = new ActivityListExporter();
+	private ActivityListExporter.Format activityListFormat = ActivityListExporter.Format.PLAIN;
+	private boolean binaryPersistency = false;
+	private boolean lazyLoading = false;
+	private boolean modificationMarkIndexWriting = true;
 	
 	public static final String FILEEXTENSION_ACTIVITYLIST = "activitylist";
 	public static final String FILEEXTENSION_EXCEL = "xls";
+	public static final String FILEEXTENSION_EXCEL_STREAMING = StreamingExcelWriter.FILEEXTENSION;
 	public static final String FILEEXTENSION_MODIFICATIONMARK = "modificationmarks";
+	public static final String FILEEXTENSION_MODIFICATIONMARK_BINARY = ModificationmarksBinaryResourceFactoryImpl.FILE_EXTENSION;
+	
+	/**
+	 * Suffix appended to the file extension of a model to get the extension of the model
+	 * in the binary format (e.g. <code>modificationmarks</code> and <code>modificationmarksbin</code>).
+	 */
+	public static final String FILEEXTENSION_SUFFIX_BINARY = "bin";
+	
+	/**
+	 * File extensions of models in the binary format, see {@link #declareBinaryFileExtension(String)}.
+	 */
+	private static final Set<String> BINARY_FILEEXTENSIONS = new CopyOnWriteArraySet<String>();
+	
+	static {
+		declareBinaryFileExtension(FILEEXTENSION_MODIFICATIONMARK_BINARY);
+	}
 	
 	/**
 	 * Loads model files from a folder into an {@link AbstractArchitectureVersion}. All
@@ -67,58 +109,250 @@ public abstract class AbstractArchitectureVersionPersistency<T extends AbstractA
 	 */
 	public abstract void save(String targetDirectoryPath, String filename, T version);
 	
+	/**
+	 * Saves the modification marks of the version, in the binary format if binary 
+	 * persistency is enabled (see {@link #setBinaryPersistency(boolean)}), together with
+	 * their index file (see {@link ModificationMarkIndexFile}). The index is optional, so if
+	 * it cannot be written, the failure is only logged.
+	 */
 	public void saveModificationMarkFile(String targetDirectoryPath, String filename, T version) throws IOException {
 		ResourceSet resourceSet = new ResourceSetImpl();
-		String internalModFilePath = filename + "." + FILEEXTENSION_MODIFICATIONMARK;	
-		if (version.getModificationMarkRepository()!=null)
+		String internalModFilePath = filename + "." + this.getModificationMarkFileExtension();	
+		if (version.getModificationMarkRepository()!=null) {
 			saveEmfModelToResource(version.getModificationMarkRepository(), targetDirectoryPath, internalModFilePath, resourceSet);		
+			if (this.isModificationMarkIndexWriting()) {
+				File modificationMarkFile = ModificationMarkIndexFile.toLocalFile(
+						version.getModificationMarkRepository().eResource().getURI());
+				if (modificationMarkFile != null) {
+					try {
+						ModificationMarkIndexFile.write(version.getModificationMarkRepository(), modificationMarkFile);
+					} catch (RuntimeException e) {
+						if (Activator.getDefault() != null) {
+							Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, 
+									"The index of " + modificationMarkFile + " could not be written.", e));
+						}
+					}
+				}
+			}
+		}
 	}
 	
 	/**
-	 * Saves a list of activities to a plain text file.
+	 * Opens the index of the modification mark file, which gives access to the counts, 
+	 * steps and modifications without loading the file.
+	 * 
+	 * @return the index or <code>null</code> if there is no up-to-date index
 	 */
-	public void saveActivityListToTextFile(String targetDirectoryPath, String filename, List<Activity> activityList) {
-		String activityListFilePath = filename + "." + FILEEXTENSION_ACTIVITYLIST;
-		String workspaceURI = ResourcesPlugin.getWorkspace().getRoot().getLocationURI().getPath().toString();
+	public ModificationMarkIndexFile openModificationMarkIndex(IFile modificationMarkFile) {
+		return modificationMarkFile.getLocation() != null 
+				? ModificationMarkIndexFile.open(modificationMarkFile.getLocation().toFile()) : null;
+	}
+	
+	/**
+	 * Loads only the modification mark file into a new resource set. The architecture models
+	 * referenced by the modification marks are not loaded until a reference into them is
+	 * resolved (e.g. by {@link AbstractModification#getAffectedElement()}); then only the 
+	 * referenced model file is loaded. Quick tasks on the modification marks, like 
+	 * {@link edu.kit.ipd.sdq.kamp.propagation.UserDecisionAnalysis#considerUserDecisionsWithoutResolving(AbstractModificationRepository)},
+	 * therefore do not load the architecture at all.
+	 */
+	public AbstractModificationRepository<?,?> loadModificationMarkRepository(IFile modificationMarkFile) {
+		EObject root = this.loadEmfModelFromResource(modificationMarkFile.getParent().getFullPath().toString(), 
+				modificationMarkFile.getName(), new ResourceSetImpl());
+		return root instanceof AbstractModificationRepository<?,?> ? (AbstractModificationRepository<?,?>) root : null;
+	}
+	
+	/**
+	 * Returns the modification mark file of the folder. If there are files in both formats,
+	 * the one in the format set by {@link #setBinaryPersistency(boolean)} is preferred.
+	 */
+	public IFile retrieveModificationMarkFile(IContainer folder) {
+		IFile xmlFile = FileAndFolderManagement.retrieveFileWithExtension(folder, FILEEXTENSION_MODIFICATIONMARK);
+		IFile binaryFile = FileAndFolderManagement.retrieveFileWithExtension(folder, FILEEXTENSION_MODIFICATIONMARK_BINARY);
+		if (this.isBinaryPersistency()) {
+			return binaryFile != null ? binaryFile : xmlFile;
+		}
+		return xmlFile != null ? xmlFile : binaryFile;
+	}
+	
+	/**
+	 * Returns the file extension of modification mark files in the current persistency mode.
+	 */
+	public String getModificationMarkFileExtension() {
+		return this.isBinaryPersistency() ? FILEEXTENSION_MODIFICATIONMARK_BINARY : FILEEXTENSION_MODIFICATIONMARK;
+	}
+	
+	/**
+	 * Converts a model file from XMI into the binary format (<code>toBinary</code>) or back. 
+	 * The converted file is saved next to the original file with the file extension of the 
+	 * other format (see {@link #FILEEXTENSION_SUFFIX_BINARY}); the original file is kept.
+	 * Converting into the binary format declares the binary file extension (see 
+	 * {@link #declareBinaryFileExtension(String)}); files are only converted back if their
+	 * file extension has been declared.
+	 * The elements are referenced by their IDs (if their class has an ID attribute) or by 
+	 * their position otherwise, so references into the model stay valid if they use IDs; 
+	 * XMI IDs without ID attribute are not kept by the binary format.
+	 * 
+	 * @return the URI of the converted file
+	 */
+	public static URI convertModelFile(String folderPath, String fileName, boolean toBinary) {
+		URI sourceURI = URI.createPlatformResourceURI(folderPath, true).appendSegment(fileName);
+		String fileExtension = sourceURI.fileExtension();
+		if (toBinary == isBinaryFileExtension(fileExtension)) {
+			throw new IllegalArgumentException("The file " + fileName + " is already in the " 
+					+ (toBinary ? "binary" : "XMI") + " format");
+		}
+		String targetFileExtension = toBinary ? getBinaryFileExtension(fileExtension) 
+				: fileExtension.substring(0, fileExtension.length() - FILEEXTENSION_SUFFIX_BINARY.length());
+		if (toBinary) {
+			declareBinaryFileExtension(targetFileExtension);
+		}
+		URI targetURI = sourceURI.trimFileExtension().appendFileExtension(targetFileExtension);
 		
-		File file = new File(workspaceURI + "/" + targetDirectoryPath + "/" + activityListFilePath);	
-		if (file.getParentFile() != null && !file.getParentFile().mkdirs()) {
-		    /* handle permission problems here */
-		}		
+		ResourceSet resourceSet = new ResourceSetImpl();
+		registerBinaryResourceFactory(resourceSet, sourceURI);
+		registerBinaryResourceFactory(resourceSet, targetURI);
 		try {
-			file.createNewFile();
-		} catch (IOException e1) {
-			throw new RuntimeException(e1);
+			Resource source = resourceSet.createResource(sourceURI);
+			Map<Object, Object> loadOptions = setupLoadOptions(source);
+			source.load(loadOptions);
+			PersistencyOptionsCache.rememberNameToFeatureMap(source, loadOptions);
+			EcoreUtil.resolveAll(source);
+			Resource target = resourceSet.createResource(targetURI);
+			target.getContents().addAll(source.getContents());
+			target.save(setupSaveOptions(target));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
 		}
-		
-	  	FileWriter  writer = null;
-    	try {
-			writer = new FileWriter(file);
-			if (writer != null) {
-				saveActivityListToTextFile(writer, activityList, "");
+		return targetURI;
+	}
+	
+	/**
+	 * Converts the modification mark file <code>filename.modificationmarks</code> (or 
+	 * <code>filename.modificationmarksbin</code>) into the format set by 
+	 * {@link #setBinaryPersistency(boolean)}, see {@link #convertModelFile(String, String, boolean)}.
+	 */
+	public URI convertModificationMarkFile(String folderPath, String filename) {
+		String sourceFileExtension = this.isBinaryPersistency() ? FILEEXTENSION_MODIFICATIONMARK 
+				: FILEEXTENSION_MODIFICATIONMARK_BINARY;
+		return convertModelFile(folderPath, filename + "." + sourceFileExtension, this.isBinaryPersistency());
+	}
+	
+	public static String getBinaryFileExtension(String fileExtension) {
+		return fileExtension + FILEEXTENSION_SUFFIX_BINARY;
+	}
+	
+	/**
+	 * Declares that models with the file extension <code>binaryFileExtension</code> are 
+	 * saved in the binary format (see {@link ModificationmarksBinaryResourceFactoryImpl}), 
+	 * e.g. the binary extensions of the models of your architecture version. The binary 
+	 * extension of the modification marks ({@value #FILEEXTENSION_MODIFICATIONMARK_BINARY})
+	 * is declared by default.
+	 */
+	public static void declareBinaryFileExtension(String binaryFileExtension) {
+		if (binaryFileExtension == null || !binaryFileExtension.endsWith(FILEEXTENSION_SUFFIX_BINARY) 
+				|| binaryFileExtension.length() <= FILEEXTENSION_SUFFIX_BINARY.length()) {
+			throw new IllegalArgumentException("The binary file extension " + binaryFileExtension 
+					+ " does not end with " + FILEEXTENSION_SUFFIX_BINARY);
+		}
+		BINARY_FILEEXTENSIONS.add(binaryFileExtension);
+	}
+	
+	/**
+	 * Returns whether the <code>fileExtension</code> has been declared as extension of
+	 * models in the binary format (see {@link #declareBinaryFileExtension(String)}).
+	 */
+	public static boolean isBinaryFileExtension(String fileExtension) {
+		return fileExtension != null && BINARY_FILEEXTENSIONS.contains(fileExtension);
+	}
+	
+	/**
+	 * Registers the resource factory of the binary format in the resource set, if the
+	 * <code>uri</code> has a declared binary file extension (see {@link #declareBinaryFileExtension(String)}).
+	 * Thus, binary files can be loaded and saved without registering their extensions 
+	 * in the plugin.xml (and without Eclipse platform). The extension-to-factory map is 
+	 * locked while it is checked and changed, as resource sets loaded in parallel may share
+	 * their resource factory registry (see {@link #loadEmfModelsFromResources(String, List, ResourceSet)}).
+	 */
+	protected static void registerBinaryResourceFactory(ResourceSet resourceSet, URI uri) {
+		String fileExtension = uri.fileExtension();
+		if (isBinaryFileExtension(fileExtension)) {
+			Map<String, Object> extensionToFactoryMap = resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap();
+			synchronized (extensionToFactoryMap) {
+				if (!extensionToFactoryMap.containsKey(fileExtension)) {
+					extensionToFactoryMap.put(fileExtension, new ModificationmarksBinaryResourceFactoryImpl());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Saves a list of activities to a text file in the format set by 
+	 * {@link #setActivityListFormat(ActivityListExporter.Format)} (by default the plain 
+	 * activity list format). All formats are written through a buffered file channel (see 
+	 * {@link ActivityListExporter#export(java.nio.file.Path, List, ActivityListExporter.Format, Charset)}),
+	 * the plain format in the platform default encoding and the other formats in UTF-8.
+	 * If a subclass overrides {@link #saveActivityListToTextFile(FileWriter, List, String)},
+	 * the plain format is written by that method instead.
+	 */
+	public void saveActivityListToTextFile(String targetDirectoryPath, String filename, List<Activity> activityList) {
+		this.saveActivityListToTextFile(new File(getWorkspaceDirectory(), targetDirectoryPath), filename, activityList);
+	}
+	
+	/**
+	 * Saves a list of activities to a text file in the <code>targetDirectory</code> of the
+	 * file system, see {@link #saveActivityListToTextFile(String, String, List)}.
+	 */
+	public void saveActivityListToTextFile(File targetDirectory, String filename, List<Activity> activityList) {
+		String activityListFilePath = filename + "." + this.getActivityListFormat().getFileExtension();
+		File file = new File(targetDirectory, activityListFilePath);	
+		if (this.getActivityListFormat() != ActivityListExporter.Format.PLAIN) {
+			this.getActivityListExporter().export(file.toPath(), activityList, this.getActivityListFormat());
+			return;
+		}
+		if (!this.isPlainActivityListWriterOverridden()) {
+			// the encoding of the FileWriter used before
+			this.getActivityListExporter().export(file.toPath(), activityList, 
+					ActivityListExporter.Format.PLAIN, Charset.defaultCharset());
+			return;
+		}
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		try {
+			FileWriter writer = new FileWriter(file);
+			try {
+				this.saveActivityListToTextFile(writer, activityList, "");
+			} finally {
+				writer.close();
 			}
-			writer.flush();
-			writer.close();
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 	
+	private boolean isPlainActivityListWriterOverridden() {
+		for (Class<?> type = this.getClass(); type != AbstractArchitectureVersionPersistency.class; 
+				type = type.getSuperclass()) {
+			try {
+				type.getDeclaredMethod("saveActivityListToTextFile", FileWriter.class, List.class, String.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// not overridden by this class
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Writes the activities in the plain activity list format into the <code>writer</code>
+	 * (see {@link ActivityListExporter.Format#PLAIN}); the prefix is prepended to each line.
+	 * Override it to change the plain format.
+	 */
     protected void saveActivityListToTextFile(FileWriter writer, List<Activity> activityList, String prefix) {
     	try {
 	    	if (writer != null) {
-	    		if (prefix == null)
-	    			prefix = "";   		
-	    		for (Activity activity : activityList) {
-	    			writer.write(prefix + " " + activity.getBasicActivity() + " " + activity.getElementType() + " " + activity.getElementName());
-	    			writer.write("\n");
-	    			if (!activity.getSubActivities().isEmpty()) {
-	    				saveActivityListToTextFile(writer, activity.getSubActivities(), prefix + "=");
-	    			}
-	    			if (!activity.getFollowupActivities().isEmpty()) {
-	    				saveActivityListToTextFile(writer, activity.getFollowupActivities(), prefix + "->");
-	    			}
-	    		}		
+	    		this.getActivityListExporter().export(writer, activityList, prefix, ActivityListExporter.Format.PLAIN);
 	    		writer.flush();
 	    	}
     	} catch (IOException e) {
@@ -127,13 +361,46 @@ public abstract class AbstractArchitectureVersionPersistency<T extends AbstractA
 	}
 	
     /**
-     * Saves a list of activities to an Excel sheet.
+     * Saves a list of activities to an Excel sheet. By default, a single *.xls file is 
+     * written by the {@link ExcelWriter} (see {@link #setExcelWriter(ExcelWriter)}). If 
+     * streaming is enabled (see {@link #setStreamingExcelExport(boolean)}), the activities 
+     * are streamed into *.xlsx files by the {@link StreamingExcelWriter} instead (split into
+     * several sheets/files if the workplan exceeds the row limits), which needs less memory
+     * for large workplans.
      */
 	public void saveActivityListToExcelFile(String targetDirectoryPath, String filename, List<Activity> activityList) {
-		String activityListFilePath = filename + "." + FILEEXTENSION_EXCEL;
-		String workspaceURI = ResourcesPlugin.getWorkspace().getRoot().getLocationURI().getPath().toString();	
-		ExcelWriter excelWriter = this.getExcelWriter();		
-		excelWriter.saveActivitiesToExcelFile(workspaceURI+"/"+targetDirectoryPath+"/"+activityListFilePath, activityList, "");
+		this.saveActivityListToExcelFile(new File(getWorkspaceDirectory(), targetDirectoryPath), filename, activityList);
+	}
+	
+	/**
+	 * Saves a list of activities to an Excel sheet in the <code>targetDirectory</code> of 
+	 * the file system, see {@link #saveActivityListToExcelFile(String, String, List)}.
+	 */
+	public void saveActivityListToExcelFile(File targetDirectory, String filename, List<Activity> activityList) {
+		String targetDirectoryPath = targetDirectory.getPath();
+		if (this.isStreamingExcelExport()) {
+			this.getStreamingExcelWriter().saveActivitiesToExcelFile(
+					targetDirectoryPath+"/"+filename, activityList, "");
+		} else {
+			String activityListFilePath = filename + "." + FILEEXTENSION_EXCEL;
+			ExcelWriter excelWriter = this.getExcelWriter();		
+			excelWriter.saveActivitiesToExcelFile(targetDirectoryPath+"/"+activityListFilePath, activityList, "");
+		}
+	}
+	
+	/**
+	 * Returns the directory of the file system which contains the files with 
+	 * <code>platform:/resource</code> URIs: the directory <code>platform:/resource/</code> is
+	 * mapped to in {@link URIConverter#URI_MAP} (e.g. by a headless run, see 
+	 * {@link edu.kit.ipd.sdq.kamp.headless.HeadlessAnalysisRunner#mapWorkspaceDirectory(File)}) 
+	 * or the location of the Eclipse workspace otherwise.
+	 */
+	public static File getWorkspaceDirectory() {
+		URI workspaceURI = URIMappingRegistryImpl.INSTANCE.getURI(URI.createPlatformResourceURI("/", true));
+		if (workspaceURI.isFile()) {
+			return new File(workspaceURI.toFileString());
+		}
+		return ResourcesPlugin.getWorkspace().getRoot().getLocation().toFile();
 	}
 	
 	/**
@@ -146,11 +413,13 @@ public abstract class AbstractArchitectureVersionPersistency<T extends AbstractA
     	URI loadURI = URI.createPlatformResourceURI(folderPath, true);
     	if (filePath != null)
     		loadURI = loadURI.appendSegment(filePath);       
+    	registerBinaryResourceFactory(resourceSet, loadURI);
         try {	
         	Resource resource = resourceSet.createResource(loadURI);  	
         	((ResourceImpl) resource).setIntrinsicIDToEObjectMap(new HashMap<String, EObject>());      	
         	Map<Object, Object> loadOptions = setupLoadOptions(resource);
         	resource.load(loadOptions);      	
+        	PersistencyOptionsCache.rememberNameToFeatureMap(resource, loadOptions);
         	if (!resource.getContents().isEmpty())
         		return resource.getContents().get(0);
 		} catch (IOException e) {
@@ -160,6 +429,69 @@ public abstract class AbstractArchitectureVersionPersistency<T extends AbstractA
         return null;
     }
 	
+	/**
+	 * Loads several model files of a folder in parallel, like calling 
+	 * {@link #loadEmfModelFromResource(String, String, ResourceSet)} for each of them. Each 
+	 * file is parsed by the {@link ModelLoadingExecutor} in its own temporary resource set 
+	 * (delegating to the package registry and sharing the resource factory registry and the
+	 * URI converter of the <code>resourceSet</code>; all packages and resource factories are 
+	 * registered before, so the parallel loads only read these registries). Afterwards, 
+	 * the resources are moved into the <code>resourceSet</code> (in the order of the 
+	 * <code>filePaths</code>) and the cross-references between them are resolved once
+	 * (unless lazy loading is enabled, see {@link #setLazyLoading(boolean)}).
+	 * 
+	 * @return the first (top-level) element of each file, with the file paths as keys
+	 */
+	public Map<String, EObject> loadEmfModelsFromResources(String folderPath, List<String> filePaths, 
+			ResourceSet resourceSet) {
+		this.registerEPackages(resourceSet);
+		// resolve package descriptors now, so the registry is only read by the parallel loads
+		for (String nsURI: new ArrayList<String>(resourceSet.getPackageRegistry().keySet())) {
+			resourceSet.getPackageRegistry().getEPackage(nsURI);
+		}
+		
+		List<Callable<Resource>> tasks = new ArrayList<Callable<Resource>>();
+		for (final String filePath: filePaths) {
+			// register the resource factories now, as the registry is shared by the parallel loads
+			registerBinaryResourceFactory(resourceSet, URI.createPlatformResourceURI(folderPath, true).appendSegment(filePath));
+			final ResourceSet temporaryResourceSet = createTemporaryResourceSet(resourceSet);
+			final String loadFolderPath = folderPath;
+			tasks.add(new Callable<Resource>() {
+
+				@Override
+				public Resource call() {
+					EObject root = loadEmfModelFromResource(loadFolderPath, filePath, temporaryResourceSet);
+					return root != null ? root.eResource() : null;
+				}
+			});
+		}
+		List<Resource> resources = ModelLoadingExecutor.invokeAll(tasks);
+		
+		Map<String, EObject> result = new LinkedHashMap<String, EObject>();
+		for (int i = 0; i < filePaths.size(); i++) {
+			Resource resource = resources.get(i);
+			EObject root = null;
+			if (resource != null) {
+				resourceSet.getResources().add(resource);
+				root = resource.getContents().get(0);
+			}
+			result.put(filePaths.get(i), root);
+		}
+		if (!this.isLazyLoading()) {
+			EcoreUtil.resolveAll(resourceSet);
+		}
+		return result;
+	}
+	
+	private static ResourceSet createTemporaryResourceSet(ResourceSet resourceSet) {
+		ResourceSet temporaryResourceSet = new ResourceSetImpl();
+		// delegating registry, so the packages registered by the parallel loads do not modify the shared one
+		temporaryResourceSet.setPackageRegistry(new EPackageRegistryImpl(resourceSet.getPackageRegistry()));
+		temporaryResourceSet.setResourceFactoryRegistry(resourceSet.getResourceFactoryRegistry());
+		temporaryResourceSet.setURIConverter(resourceSet.getURIConverter());
+		return temporaryResourceSet;
+	}
+	
 	/**
 	 * Registers all relevant EPackages for loading resources.
 	 */
@@ -167,16 +499,43 @@ public abstract class AbstractArchitectureVersionPersistency<T extends AbstractA
 		resourceSet.getPackageRegistry().put(ModificationmarksPackage.eNS_URI, ModificationmarksPackage.eINSTANCE);
 	}
 	
+	/**
+	 * Sets up the load options of the resource. The parser pool and the name-to-feature map
+	 * are shared between all loads (see {@link PersistencyOptionsCache}; pass the options to
+	 * {@link PersistencyOptionsCache#rememberNameToFeatureMap(Resource, Map)} after loading). Resources which are
+	 * not XML-based (e.g. in the binary format, see {@link ModificationmarksBinaryResourceFactoryImpl}) 
+	 * are loaded with their default options.
+	 */
 	protected static Map<Object, Object> setupLoadOptions(Resource resource) {
+		if (!(resource instanceof XMLResourceImpl)) {
+			// the default load options of the resource are merged in by the resource itself
+			return new HashMap<Object, Object>();
+		}
 		Map<Object, Object> loadOptions = ((XMLResourceImpl)resource).getDefaultLoadOptions();
         loadOptions.put(XMLResource.OPTION_DEFER_ATTACHMENT, Boolean.TRUE);
         loadOptions.put(XMLResource.OPTION_DEFER_IDREF_RESOLUTION, Boolean.TRUE);
         loadOptions.put(XMLResource.OPTION_USE_DEPRECATED_METHODS, Boolean.TRUE);
-        loadOptions.put(XMLResource.OPTION_USE_PARSER_POOL, new XMLParserPoolImpl());
-        loadOptions.put(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP, new HashMap<Object, Object>());
+        loadOptions.put(XMLResource.OPTION_USE_PARSER_POOL, PersistencyOptionsCache.getParserPool());
+        loadOptions.put(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP, 
+        		PersistencyOptionsCache.getNameToFeatureMap(resource.getURI().fileExtension()));
         return loadOptions;
 	}
 	
+	/**
+	 * Sets up the save options of the resource: the save configuration is cached between 
+	 * saves and the output is flushed in large blocks.
+	 */
+	protected static Map<Object, Object> setupSaveOptions(Resource resource) {
+		if (!(resource instanceof XMLResourceImpl)) {
+			return new HashMap<Object, Object>();
+		}
+		Map<Object, Object> saveOptions = new HashMap<Object, Object>(((XMLResourceImpl)resource).getDefaultSaveOptions());
+		saveOptions.put(XMLResource.OPTION_CONFIGURATION_CACHE, Boolean.TRUE);
+		saveOptions.put(XMLResource.OPTION_USE_CACHED_LOOKUP_TABLE, new ArrayList<Object>());
+		saveOptions.put(XMLResource.OPTION_FLUSH_THRESHOLD, PersistencyOptionsCache.SAVE_FLUSH_THRESHOLD);
+		return saveOptions;
+	}
+	
 	public static void saveEmfModelToResource(EObject model, String directoryPath, String fileName, ResourceSet resourceSet) {
         if (directoryPath != null) {
         	URI saveURI = URI.createPlatformResourceURI(directoryPath, true);
@@ -186,8 +545,9 @@ public abstract class AbstractArchitectureVersionPersistency<T extends AbstractA
         		String segment = model.eResource().getURI().lastSegment();
         		saveURI = saveURI.appendSegment(segment);
         	}  	
+            registerBinaryResourceFactory(resourceSet, saveURI);
             Resource resource = resourceSet.createResource(saveURI);
-            Map<Object, Object> saveOptions = setupLoadOptions(resource);     
+            Map<Object, Object> saveOptions = setupSaveOptions(resource);     
             resource.getContents().add(model);         
             try {
                 resource.save(saveOptions);
@@ -205,4 +565,74 @@ public abstract class AbstractArchitectureVersionPersistency<T extends AbstractA
 		this.excelWriter = excelWriter;
 	}
 
+	protected StreamingExcelWriter getStreamingExcelWriter() {
+		return streamingExcelWriter;
+	}
+
+	protected void setStreamingExcelWriter(StreamingExcelWriter streamingExcelWriter) {
+		this.streamingExcelWriter = streamingExcelWriter;
+	}
+
+	protected ActivityListExporter getActivityListExporter() {
+		return activityListExporter;
+	}
+
+	protected void setActivityListExporter(ActivityListExporter activityListExporter) {
+		this.activityListExporter = activityListExporter;
+	}
+
+	public ActivityListExporter.Format getActivityListFormat() {
+		return activityListFormat;
+	}
+
+	public void setActivityListFormat(ActivityListExporter.Format activityListFormat) {
+		this.activityListFormat = activityListFormat;
+	}
+
+	public boolean isStreamingExcelExport() {
+		return streamingExcelExport;
+	}
+
+	/**
+	 * Enables streaming the Excel export into *.xlsx files, see 
+	 * {@link #saveActivityListToExcelFile(String, String, List)}. A custom {@link ExcelWriter}
+	 * is not used then.
+	 */
+	public void setStreamingExcelExport(boolean streamingExcelExport) {
+		this.streamingExcelExport = streamingExcelExport;
+	}
+
+	public boolean isModificationMarkIndexWriting() {
+		return modificationMarkIndexWriting;
+	}
+
+	public void setModificationMarkIndexWriting(boolean modificationMarkIndexWriting) {
+		this.modificationMarkIndexWriting = modificationMarkIndexWriting;
+	}
+
+	public boolean isLazyLoading() {
+		return lazyLoading;
+	}
+
+	/**
+	 * Sets whether the references between the loaded models are resolved on demand instead
+	 * of directly after loading (see {@link #loadEmfModelsFromResources(String, List, ResourceSet)}).
+	 */
+	public void setLazyLoading(boolean lazyLoading) {
+		this.lazyLoading = lazyLoading;
+	}
+
+	public boolean isBinaryPersistency() {
+		return binaryPersistency;
+	}
+
+	/**
+	 * Sets whether modification marks are saved in the binary format (file extension 
+	 * {@value #FILEEXTENSION_MODIFICATIONMARK_BINARY}) instead of XMI. Loading works for 
+	 * both formats, independent of this setting.
+	 */
+	public void setBinaryPersistency(boolean binaryPersistency) {
+		this.binaryPersistency = binaryPersistency;
+	}
+
 }
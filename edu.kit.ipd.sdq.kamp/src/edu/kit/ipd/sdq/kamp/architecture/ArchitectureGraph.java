@@ -0,0 +1,383 @@
+package edu.kit.ipd.sdq.kamp.architecture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import edu.kit.ipd.sdq.kamp.util.ElementIdRegistry;
+import edu.kit.ipd.sdq.kamp.util.MarkedElementSet;
+
+/**
+ * Compact, immutable snapshot of the reference graph of the architecture models of an
+ * {@link AbstractArchitectureVersion}. Each element gets a dense int ID from an
+ * {@link ElementIdRegistry} (the one of the version, so the IDs can be exchanged with
+ * {@link MarkedElementSet}s, see {@link #getMarkedElements(BitSet, Class)}), and the references
+ * of each {@link EReference} are stored as adjacency arrays in compressed sparse row format
+ * (forward and backward). Propagation algorithms can therefore work on int IDs and
+ * {@link BitSet} frontiers instead of sets of EObjects and map the result back to the
+ * elements (see {@link #getElements(BitSet, Class)}) when creating modification marks.<br>
+ * Only references between elements contained in the models are stored. Derived references
+ * and container references are ignored (the latter are available as backward adjacency of
+ * the containment references). The snapshot does not reflect later changes of the models.
+ */
+public class ArchitectureGraph {
+
+	private final ElementIdRegistry<Object> registry;
+	private final BitSet members;
+	private final int size;
+	private final Map<EReference, Adjacency> forwardAdjacencies;
+	private final Map<EReference, Adjacency> backwardAdjacencies;
+
+	private ArchitectureGraph(ElementIdRegistry<Object> registry, BitSet members, int size,
+			Map<EReference, Adjacency> forwardAdjacencies, Map<EReference, Adjacency> backwardAdjacencies) {
+		this.registry = registry;
+		this.members = members;
+		this.size = size;
+		this.forwardAdjacencies = forwardAdjacencies;
+		this.backwardAdjacencies = backwardAdjacencies;
+	}
+
+	/**
+	 * Builds the graph of all models returned by {@link AbstractArchitectureVersion#getModelRoots()}.
+	 */
+	public static ArchitectureGraph build(AbstractArchitectureVersion<?> version) {
+		return build(version.getModelRoots(), version.getElementIdRegistry());
+	}
+
+	/**
+	 * Builds the graph of all elements contained in the <code>roots</code> (including the roots)
+	 * with a new {@link ElementIdRegistry}.
+	 */
+	public static ArchitectureGraph build(Collection<? extends EObject> roots) {
+		return build(roots, new ElementIdRegistry<Object>());
+	}
+
+	/**
+	 * Builds the graph of all elements contained in the <code>roots</code> (including the roots),
+	 * registering them in the <code>registry</code>.
+	 */
+	public static ArchitectureGraph build(Collection<? extends EObject> roots, ElementIdRegistry<Object> registry) {
+		List<EObject> elements = new ArrayList<EObject>();
+		BitSet members = new BitSet();
+		TreeIterator<EObject> iterator = EcoreUtil.getAllContents(roots, true);
+		while (iterator.hasNext()) {
+			EObject element = iterator.next();
+			int id = registry.register(element);
+			if (!members.get(id)) {
+				members.set(id);
+				elements.add(element);
+			}
+		}
+		int size = registry.size();
+
+		Map<EReference, EdgeList> edges = new LinkedHashMap<EReference, EdgeList>();
+		for (EObject element: elements) {
+			int source = registry.getId(element);
+			for (EReference reference: element.eClass().getEAllReferences()) {
+				if (reference.isDerived() || reference.isContainer() || !element.eIsSet(reference)) {
+					continue;
+				}
+				if (reference.isMany()) {
+					for (Object target: (EList<?>) element.eGet(reference, true)) {
+						addEdge(edges, registry, members, reference, source, target);
+					}
+				} else {
+					addEdge(edges, registry, members, reference, source, element.eGet(reference, true));
+				}
+			}
+		}
+
+		Map<EReference, Adjacency> forwardAdjacencies = new LinkedHashMap<EReference, Adjacency>();
+		Map<EReference, Adjacency> backwardAdjacencies = new LinkedHashMap<EReference, Adjacency>();
+		for (Map.Entry<EReference, EdgeList> entry: edges.entrySet()) {
+			EdgeList edgeList = entry.getValue();
+			forwardAdjacencies.put(entry.getKey(), Adjacency.create(
+					size, edgeList.sources, edgeList.targets, edgeList.size));
+			backwardAdjacencies.put(entry.getKey(), Adjacency.create(
+					size, edgeList.targets, edgeList.sources, edgeList.size));
+		}
+		return new ArchitectureGraph(registry, members, size, forwardAdjacencies, backwardAdjacencies);
+	}
+
+	private static void addEdge(Map<EReference, EdgeList> edges, ElementIdRegistry<Object> registry,
+			BitSet members, EReference reference, int source, Object target) {
+		int targetId = registry.getId(target);
+		if (targetId >= 0 && members.get(targetId)) {
+			EdgeList edgeList = edges.get(reference);
+			if (edgeList == null) {
+				edgeList = new EdgeList();
+				edges.put(reference, edgeList);
+			}
+			edgeList.add(source, targetId);
+		}
+	}
+
+	public ElementIdRegistry<Object> getElementIdRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Upper bound (exclusive) of the IDs of the elements in the graph. If the registry is
+	 * shared, not every ID below belongs to an element of the graph (see {@link #getMembers()}).
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns a copy of the IDs of all elements in the graph.
+	 */
+	public BitSet getMembers() {
+		return (BitSet) this.members.clone();
+	}
+
+	/**
+	 * Returns the ID of the element or <code>-1</code> if it is not part of the graph.
+	 */
+	public int getId(Object element) {
+		int id = this.registry.getId(element);
+		return id >= 0 && this.members.get(id) ? id : -1;
+	}
+
+	public EObject getElement(int id) {
+		return (EObject) this.registry.getElement(id);
+	}
+
+	/**
+	 * Returns all references with at least one edge in the graph.
+	 */
+	public Set<EReference> getReferences() {
+		return Collections.unmodifiableSet(this.forwardAdjacencies.keySet());
+	}
+
+	/**
+	 * Returns the adjacency of the elements referencing other elements via <code>reference</code>
+	 * or <code>null</code> if the graph contains no such reference.
+	 */
+	public Adjacency getForwardAdjacency(EReference reference) {
+		return this.forwardAdjacencies.get(reference);
+	}
+
+	/**
+	 * Returns the adjacency of the elements referenced by other elements via <code>reference</code>
+	 * or <code>null</code> if the graph contains no such reference.
+	 */
+	public Adjacency getBackwardAdjacency(EReference reference) {
+		return this.backwardAdjacencies.get(reference);
+	}
+
+	/**
+	 * Returns the IDs of all elements referenced by the <code>sources</code> via <code>reference</code>.
+	 */
+	public BitSet getTargets(BitSet sources, EReference reference) {
+		return getNeighbours(sources, this.forwardAdjacencies.get(reference));
+	}
+
+	/**
+	 * Returns the IDs of all elements referencing the <code>targets</code> via <code>reference</code>.
+	 */
+	public BitSet getSources(BitSet targets, EReference reference) {
+		return getNeighbours(targets, this.backwardAdjacencies.get(reference));
+	}
+
+	private static BitSet getNeighbours(BitSet ids, Adjacency adjacency) {
+		BitSet neighbours = new BitSet();
+		if (adjacency != null) {
+			for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+				adjacency.addNeighbours(id, neighbours);
+			}
+		}
+		return neighbours;
+	}
+
+	/**
+	 * Calculates all elements reachable from the <code>start</code> elements (including them) by
+	 * following the <code>forwardReferences</code> and the <code>backwardReferences</code> in
+	 * reverse direction. Each element is visited once, as only the frontier of newly reached
+	 * elements is expanded in each round.
+	 */
+	public BitSet getReachableElements(BitSet start, Collection<EReference> forwardReferences,
+			Collection<EReference> backwardReferences) {
+		List<Adjacency> adjacencies = new ArrayList<Adjacency>();
+		for (EReference reference: forwardReferences) {
+			if (this.forwardAdjacencies.containsKey(reference)) {
+				adjacencies.add(this.forwardAdjacencies.get(reference));
+			}
+		}
+		for (EReference reference: backwardReferences) {
+			if (this.backwardAdjacencies.containsKey(reference)) {
+				adjacencies.add(this.backwardAdjacencies.get(reference));
+			}
+		}
+
+		BitSet reached = (BitSet) start.clone();
+		BitSet frontier = (BitSet) start.clone();
+		while (!frontier.isEmpty()) {
+			BitSet nextFrontier = new BitSet();
+			for (Adjacency adjacency: adjacencies) {
+				for (int id = frontier.nextSetBit(0); id >= 0; id = frontier.nextSetBit(id + 1)) {
+					adjacency.addNeighbours(id, nextFrontier);
+				}
+			}
+			nextFrontier.andNot(reached);
+			reached.or(nextFrontier);
+			frontier = nextFrontier;
+		}
+		return reached;
+	}
+
+	/**
+	 * Returns the IDs of all elements which are instances of the <code>eClass</code>.
+	 */
+	public BitSet getIdsOfType(EClass eClass) {
+		BitSet ids = new BitSet(this.size());
+		for (int id = this.members.nextSetBit(0); id >= 0; id = this.members.nextSetBit(id + 1)) {
+			if (eClass.isInstance(this.registry.getElement(id))) {
+				ids.set(id);
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the IDs of the <code>elements</code>. Elements which are not part of the graph
+	 * are ignored.
+	 */
+	public BitSet getIds(Collection<?> elements) {
+		BitSet ids = new BitSet(this.size());
+		for (Object element: elements) {
+			int id = this.getId(element);
+			if (id >= 0) {
+				ids.set(id);
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Maps the IDs back to the elements, filtering those which are no instances of
+	 * the <code>elementClass</code>.
+	 */
+	public <T> List<T> getElements(BitSet ids, Class<T> elementClass) {
+		List<T> result = new ArrayList<T>(ids.cardinality());
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+			Object element = this.registry.getElement(id);
+			if (elementClass.isInstance(element)) {
+				result.add(elementClass.cast(element));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Like {@link #getElements(BitSet, Class)}, but returns the elements as a
+	 * {@link MarkedElementSet} sharing the registry of the graph.
+	 */
+	public <T> MarkedElementSet<T> getMarkedElements(BitSet ids, Class<T> elementClass) {
+		return MarkedElementSet.fromBitSet(this.registry, ids, elementClass);
+	}
+
+	/**
+	 * Returns the IDs of the elements of a {@link MarkedElementSet} sharing the registry of
+	 * the graph.
+	 */
+	public BitSet getIds(MarkedElementSet<?> elements) {
+		if (elements.getRegistry() != this.registry) {
+			return this.getIds((Collection<?>) elements);
+		}
+		BitSet ids = elements.toBitSet();
+		ids.and(this.members);
+		return ids;
+	}
+
+	/**
+	 * Adjacency arrays in compressed sparse row format: the neighbours of the element with
+	 * ID <code>i</code> are stored in <code>getNeighbours()</code> from index
+	 * <code>getOffsets()[i]</code> (inclusive) to <code>getOffsets()[i + 1]</code> (exclusive).
+	 * The arrays must not be modified.
+	 */
+	public static class Adjacency {
+
+		private final int[] offsets;
+		private final int[] neighbours;
+
+		private Adjacency(int[] offsets, int[] neighbours) {
+			this.offsets = offsets;
+			this.neighbours = neighbours;
+		}
+
+		private static Adjacency create(int size, int[] from, int[] to, int edgeCount) {
+			int[] offsets = new int[size + 1];
+			for (int i = 0; i < edgeCount; i++) {
+				offsets[from[i] + 1]++;
+			}
+			for (int i = 0; i < size; i++) {
+				offsets[i + 1] += offsets[i];
+			}
+			int[] positions = Arrays.copyOf(offsets, size);
+			int[] neighbours = new int[edgeCount];
+			for (int i = 0; i < edgeCount; i++) {
+				neighbours[positions[from[i]]++] = to[i];
+			}
+			return new Adjacency(offsets, neighbours);
+		}
+
+		public int[] getOffsets() {
+			return offsets;
+		}
+
+		public int[] getNeighbours() {
+			return neighbours;
+		}
+
+		public int getDegree(int id) {
+			return this.offsets[id + 1] - this.offsets[id];
+		}
+
+		public int getNeighbour(int id, int index) {
+			return this.neighbours[this.offsets[id] + index];
+		}
+
+		private void addNeighbours(int id, BitSet result) {
+			if (id >= this.offsets.length - 1) {
+				return;
+			}
+			for (int i = this.offsets[id]; i < this.offsets[id + 1]; i++) {
+				result.set(this.neighbours[i]);
+			}
+		}
+
+	}
+
+	private static class EdgeList {
+
+		private int[] sources = new int[16];
+		private int[] targets = new int[16];
+		private int size = 0;
+
+		private void add(int source, int target) {
+			if (this.size == this.sources.length) {
+				this.sources = Arrays.copyOf(this.sources, this.size * 2);
+				this.targets = Arrays.copyOf(this.targets, this.size * 2);
+			}
+			this.sources[this.size] = source;
+			this.targets[this.size] = target;
+			this.size++;
+		}
+
+	}
+
+}
@@ -4,14 +4,14 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
-import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
 
 /**
  * Utility for finding certain architecture elements and modifications in an
- * {@link AbstractArchitectureVersion}.
+ * {@link AbstractArchitectureVersion}. Lookups in a modificationmarks repository
+ * are answered by its {@link ModificationMarkIndex}.
  */
 public class ArchitectureModelLookup {
 
@@ -22,14 +22,14 @@ public class ArchitectureModelLookup {
 	 */
 	public static <T> Set<T> lookUpMarkedObjectsOfAType(AbstractArchitectureVersion<?> version, 
 			Class<T> objectClass) {
-		return lookUpMarkedObjectsOfATypeInAnIterator(version.getModificationMarkRepository().
-				eAllContents(), objectClass);
+		return ModificationMarkIndex.getIndex(version.getModificationMarkRepository()).
+				getAffectedElements(objectClass);
 	}
 	
 	public static <T> Set<T> lookUpMarkedObjectsOfATypeInSeedModifications(
 			AbstractArchitectureVersion<?> version, Class<T> objectClass) {
-		return lookUpMarkedObjectsOfATypeInAnIterator(version.getModificationMarkRepository().
-				getSeedModifications().eAllContents(), objectClass);
+		return ModificationMarkIndex.getIndex(version.getModificationMarkRepository()).
+				getAffectedElementsOfSeedModifications(objectClass);
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -53,31 +53,25 @@ public class ArchitectureModelLookup {
 
 	public static <T extends AbstractModification<?,?>> Set<T> lookUpAllModificationMarksOfAType(
 			AbstractArchitectureVersion<?> version, Class<T> modificationClass) {	
-		return lookUpAllModificationMarksOfATypeInAnIterator(modificationClass, 
-				version.getModificationMarkRepository().eAllContents());
+		return lookUpAllModificationMarksOfAType(version.getModificationMarkRepository(), 
+				modificationClass);
 	}
 	
 	public static <T extends AbstractModification<?,?>> Set<T> lookUpAllModificationMarksOfAType(
 			AbstractModificationRepository<?,?> modificationRepository, Class<T> modificationClass) {	
-		return lookUpAllModificationMarksOfATypeInAnIterator(modificationClass, 
-				modificationRepository.eAllContents());
+		return ModificationMarkIndex.getIndex(modificationRepository).getModifications(modificationClass);
 	}
 	
 	public static <T extends AbstractModification<?,?>> Set<T> lookUpAllSeedModificationMarksOfAType(
 			AbstractArchitectureVersion<?> version, Class<T> modificationClass) {	
-		return lookUpAllModificationMarksOfATypeInAnIterator(modificationClass, 
-				version.getModificationMarkRepository().getSeedModifications().eAllContents());
+		return ModificationMarkIndex.getIndex(version.getModificationMarkRepository()).
+				getSeedModifications(modificationClass);
 	}
 	
 	public static <T extends AbstractModification<?,?>> Set<T> lookUpAllCalculatedMarksOfAType(
 			AbstractArchitectureVersion<?> version, Class<T> modificationClass) {
-		Set<T> results = new HashSet<T>();
-		for (AbstractChangePropagationStep cpStep: version.getModificationMarkRepository().
-				getChangePropagationSteps()) {
-			results.addAll(lookUpAllModificationMarksOfATypeInAnIterator(
-					modificationClass, cpStep.eAllContents()));
-		}
-		return results;
+		return ModificationMarkIndex.getIndex(version.getModificationMarkRepository()).
+				getCalculatedModifications(modificationClass);
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -94,16 +88,13 @@ public class ArchitectureModelLookup {
 		return results;
 	}
 	
-	@SuppressWarnings("rawtypes")
 	public static Set<Object> lookUpExcludedElements(AbstractModificationRepository<?,?> 
 			modificationRepository) {
 		Set<Object> result = new HashSet<Object>();
-		Set<AbstractModification> modificationMarks = lookUpAllModificationMarksOfAType(
-				modificationRepository, AbstractModification.class);
+		Set<AbstractModification<?,?>> modificationMarks = ModificationMarkIndex.getIndex(
+				modificationRepository).getModificationsWithUserDecision(AcceptanceAndConfirmationState.EXCLUDED);
 		for(AbstractModification<?,?> modificationMark: modificationMarks) {
-			if(modificationMark.getUserDecision() == AcceptanceAndConfirmationState.EXCLUDED) {
-				result.add(modificationMark.getAffectedElement());
-			}
+			result.add(modificationMark.getAffectedElement());
 		}
 		return result;
 	}
@@ -0,0 +1,426 @@
+package edu.kit.ipd.sdq.kamp.architecture;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksPackage;
+
+/**
+ * Index of all modification marks contained in an {@link AbstractModificationRepository}.
+ * The index maps the EClass of the modifications, their affected elements and their user
+ * decisions to the corresponding modification marks. It is built once per repository (use
+ * {@link #getIndex(AbstractModificationRepository)}) and is afterwards kept up to date as an
+ * adapter of the repository content, so lookups no longer have to traverse the whole
+ * repository tree.<br>
+ * The index distinguishes between seed modifications, calculated modifications (contained
+ * in a change propagation step) and all other modifications in the repository.<br>
+ * The affected elements are only indexed when they are queried for the first time, as 
+ * reading them resolves the references into the architecture models (and thus loads them). 
+ * Queries by EClass or user decision do not load any architecture model.<br>
+ * The index is thread-safe: queries and updates (notifications of the repository content)
+ * are synchronized on the index, as queries fill caches and may index the affected
+ * elements lazily. The queries return copies, which can be used without synchronization.
+ * Resolving the affected elements of the modifications changes the model, so before
+ * querying from several threads, call {@link #prepareConcurrentReads()} and make sure that
+ * all proxies of the architecture models are resolved (see
+ * {@link edu.kit.ipd.sdq.kamp.propagation.ParallelChangePropagationExecutor}).
+ */
+public class ModificationMarkIndex extends EContentAdapter {
+
+	private enum Scope { SEED, CALCULATED, OTHER }
+
+	private final AbstractModificationRepository<?,?> repository;
+	private final Map<Scope, MarkTable> markTables = new EnumMap<Scope, MarkTable>(Scope.class);
+	private final Map<AbstractModification<?,?>, Scope> indexedModifications =
+			new HashMap<AbstractModification<?,?>, Scope>();
+	private final Map<AcceptanceAndConfirmationState, Set<AbstractModification<?,?>>> modificationsByUserDecision =
+			new EnumMap<AcceptanceAndConfirmationState, Set<AbstractModification<?,?>>>(AcceptanceAndConfirmationState.class);
+
+	private ModificationMarkIndex(AbstractModificationRepository<?,?> repository) {
+		this.repository = repository;
+		for (Scope scope: Scope.values()) {
+			this.markTables.put(scope, new MarkTable());
+		}
+		for (AcceptanceAndConfirmationState state: AcceptanceAndConfirmationState.VALUES) {
+			this.modificationsByUserDecision.put(state, new HashSet<AbstractModification<?,?>>());
+		}
+	}
+
+	/**
+	 * Returns the index of the <code>repository</code>. If the repository is not indexed
+	 * yet, the index is built (which requires a single traversal of the repository) and
+	 * attached to the repository.
+	 */
+	public static ModificationMarkIndex getIndex(AbstractModificationRepository<?,?> repository) {
+		synchronized (repository) {
+			for (Adapter adapter: repository.eAdapters()) {
+				if (adapter instanceof ModificationMarkIndex) {
+					return (ModificationMarkIndex) adapter;
+				}
+			}
+			ModificationMarkIndex index = new ModificationMarkIndex(repository);
+			repository.eAdapters().add(index);
+			return index;
+		}
+	}
+
+	/**
+	 * Detaches the index from its repository. Subsequent calls of
+	 * {@link #getIndex(AbstractModificationRepository)} will build a new index.
+	 */
+	public void dispose() {
+		synchronized (this.repository) {
+			this.repository.eAdapters().remove(this);
+		}
+	}
+
+	/**
+	 * Returns all modifications of the repository.
+	 */
+	public synchronized Set<AbstractModification<?,?>> getAllModifications() {
+		return new HashSet<AbstractModification<?,?>>(this.indexedModifications.keySet());
+	}
+
+	/**
+	 * Returns all modifications of the <code>modificationClass</code> or a sub-class.
+	 */
+	public synchronized <T extends AbstractModification<?,?>> Set<T> getModifications(Class<T> modificationClass) {
+		Set<T> results = new HashSet<T>();
+		for (MarkTable markTable: this.markTables.values()) {
+			markTable.collectModifications(modificationClass, results);
+		}
+		return results;
+	}
+
+	/**
+	 * Returns all seed modifications of the <code>modificationClass</code> or a sub-class.
+	 */
+	public synchronized <T extends AbstractModification<?,?>> Set<T> getSeedModifications(Class<T> modificationClass) {
+		Set<T> results = new HashSet<T>();
+		this.markTables.get(Scope.SEED).collectModifications(modificationClass, results);
+		return results;
+	}
+
+	/**
+	 * Returns all modifications of the <code>modificationClass</code> or a sub-class which
+	 * are contained in a change propagation step.
+	 */
+	public synchronized <T extends AbstractModification<?,?>> Set<T> getCalculatedModifications(Class<T> modificationClass) {
+		Set<T> results = new HashSet<T>();
+		this.markTables.get(Scope.CALCULATED).collectModifications(modificationClass, results);
+		return results;
+	}
+
+	/**
+	 * Returns all affected elements of the <code>objectClass</code> or a sub-class.
+	 */
+	public synchronized <T> Set<T> getAffectedElements(Class<T> objectClass) {
+		Set<T> results = new HashSet<T>();
+		for (MarkTable markTable: this.markTables.values()) {
+			markTable.indexAffectedElements();
+			markTable.collectAffectedElements(objectClass, results);
+		}
+		return results;
+	}
+
+	/**
+	 * Returns all elements of the <code>objectClass</code> or a sub-class which are
+	 * affected by a seed modification.
+	 */
+	public synchronized <T> Set<T> getAffectedElementsOfSeedModifications(Class<T> objectClass) {
+		Set<T> results = new HashSet<T>();
+		this.markTables.get(Scope.SEED).indexAffectedElements();
+		this.markTables.get(Scope.SEED).collectAffectedElements(objectClass, results);
+		return results;
+	}
+
+	/**
+	 * Returns all modifications whose affected element is <code>affectedElement</code>.
+	 */
+	public synchronized Set<AbstractModification<?,?>> getModificationsOfAffectedElement(Object affectedElement) {
+		Set<AbstractModification<?,?>> results = new HashSet<AbstractModification<?,?>>();
+		for (MarkTable markTable: this.markTables.values()) {
+			markTable.indexAffectedElements();
+			Set<AbstractModification<?,?>> modifications = markTable.modificationsByAffectedElement.get(affectedElement);
+			if (modifications != null) {
+				results.addAll(modifications);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Returns all modifications with the given user decision.
+	 */
+	public synchronized Set<AbstractModification<?,?>> getModificationsWithUserDecision(AcceptanceAndConfirmationState userDecision) {
+		return new HashSet<AbstractModification<?,?>>(this.modificationsByUserDecision.get(userDecision));
+	}
+
+	/**
+	 * Indexes the affected elements of all modifications (which resolves the references of
+	 * the modifications into the architecture models), so subsequent queries do not change
+	 * the model.
+	 */
+	public synchronized void prepareConcurrentReads() {
+		for (MarkTable markTable: this.markTables.values()) {
+			markTable.indexAffectedElements();
+		}
+	}
+
+	@Override
+	public synchronized void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+
+		Object feature = notification.getFeature();
+		Object notifier = notification.getNotifier();
+		if (notifier instanceof AbstractModification<?,?> &&
+				this.indexedModifications.containsKey(notifier)) {
+			AbstractModification<?,?> modification = (AbstractModification<?,?>) notifier;
+			if (feature == ModificationmarksPackage.Literals.ABSTRACT_MODIFICATION__AFFECTED_ELEMENT) {
+				if (notification.getEventType() == Notification.SET ||
+						notification.getEventType() == Notification.UNSET ||
+						notification.getEventType() == Notification.RESOLVE) {
+					MarkTable markTable = this.markTables.get(this.indexedModifications.get(modification));
+					markTable.removeAffectedElement(modification, notification.getOldValue());
+					markTable.addAffectedElement(modification, notification.getNewValue());
+				}
+			} else if (feature == ModificationmarksPackage.Literals.ABSTRACT_MODIFICATION__USER_DECISION) {
+				this.modificationsByUserDecision.get(notification.getOldValue()).remove(modification);
+				this.modificationsByUserDecision.get(modification.getUserDecision()).add(modification);
+			}
+		}
+
+		// Modifications moved within the repository might change their scope
+		if (feature instanceof EReference && ((EReference) feature).isContainment()) {
+			switch (notification.getEventType()) {
+			case Notification.ADD:
+			case Notification.SET:
+				reindexSubtree(notification.getNewValue());
+				break;
+			case Notification.ADD_MANY:
+				for (Object newValue: (Collection<?>) notification.getNewValue()) {
+					reindexSubtree(newValue);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	@Override
+	protected synchronized void setTarget(EObject target) {
+		super.setTarget(target);
+		if (target instanceof AbstractModification<?,?>) {
+			index((AbstractModification<?,?>) target);
+		}
+	}
+
+	@Override
+	protected synchronized void unsetTarget(EObject target) {
+		super.unsetTarget(target);
+		if (target instanceof AbstractModification<?,?>) {
+			unindex((AbstractModification<?,?>) target);
+		}
+	}
+
+	private void reindexSubtree(Object object) {
+		if (object instanceof EObject && ((EObject) object).eAdapters().contains(this)) {
+			if (object instanceof AbstractModification<?,?>) {
+				index((AbstractModification<?,?>) object);
+			}
+			TreeIterator<EObject> iterator = ((EObject) object).eAllContents();
+			while (iterator.hasNext()) {
+				EObject child = iterator.next();
+				if (child instanceof AbstractModification<?,?>) {
+					index((AbstractModification<?,?>) child);
+				}
+			}
+		}
+	}
+
+	private void index(AbstractModification<?,?> modification) {
+		Scope scope = determineScope(modification);
+		Scope oldScope = this.indexedModifications.put(modification, scope);
+		if (oldScope != scope) {
+			if (oldScope != null) {
+				this.markTables.get(oldScope).remove(modification);
+			} else {
+				this.modificationsByUserDecision.get(modification.getUserDecision()).add(modification);
+			}
+			this.markTables.get(scope).add(modification);
+		}
+	}
+
+	private void unindex(AbstractModification<?,?> modification) {
+		Scope scope = this.indexedModifications.remove(modification);
+		if (scope != null) {
+			this.markTables.get(scope).remove(modification);
+			this.modificationsByUserDecision.get(modification.getUserDecision()).remove(modification);
+		}
+	}
+
+	/**
+	 * Finds the top-level element of the repository which contains the modification.
+	 */
+	private Scope determineScope(AbstractModification<?,?> modification) {
+		EObject child = modification;
+		EObject container = modification.eContainer();
+		while (container != null && container != this.repository) {
+			child = container;
+			container = container.eContainer();
+		}
+		if (container == this.repository) {
+			if (child == this.repository.getSeedModifications()) {
+				return Scope.SEED;
+			} else if (child.eContainmentFeature() == ModificationmarksPackage.Literals.
+					ABSTRACT_MODIFICATION_REPOSITORY__CHANGE_PROPAGATION_STEPS) {
+				return Scope.CALCULATED;
+			}
+		}
+		return Scope.OTHER;
+	}
+
+	/**
+	 * Modifications of one scope, indexed by EClass and (after {@link #indexAffectedElements()}) 
+	 * by affected element.
+	 */
+	private static class MarkTable {
+
+		private final Map<EClass, Set<AbstractModification<?,?>>> modificationsByEClass =
+				new HashMap<EClass, Set<AbstractModification<?,?>>>();
+		// Instances of the same EClass share their implementation class
+		private final Map<EClass, Class<?>> implementationClasses = new HashMap<EClass, Class<?>>();
+		private final Map<Object, Set<AbstractModification<?,?>>> modificationsByAffectedElement =
+				new HashMap<Object, Set<AbstractModification<?,?>>>();
+		private final Map<Class<?>, Set<Object>> affectedElementsByClass = new HashMap<Class<?>, Set<Object>>();
+
+		private final Map<Class<?>, List<EClass>> modificationClassCache = new HashMap<Class<?>, List<EClass>>();
+		private final Map<Class<?>, List<Class<?>>> affectedElementClassCache = new HashMap<Class<?>, List<Class<?>>>();
+		private boolean affectedElementsIndexed = false;
+
+		/**
+		 * Indexes the affected elements of all modifications, if not done yet. Afterwards,
+		 * the affected elements are indexed as soon as modifications are added.
+		 */
+		private void indexAffectedElements() {
+			if (!this.affectedElementsIndexed) {
+				this.affectedElementsIndexed = true;
+				for (Set<AbstractModification<?,?>> modifications: this.modificationsByEClass.values()) {
+					for (AbstractModification<?,?> modification: modifications) {
+						addAffectedElement(modification, modification.getAffectedElement());
+					}
+				}
+			}
+		}
+
+		private void add(AbstractModification<?,?> modification) {
+			Set<AbstractModification<?,?>> modifications = this.modificationsByEClass.get(modification.eClass());
+			if (modifications == null) {
+				modifications = new HashSet<AbstractModification<?,?>>();
+				this.modificationsByEClass.put(modification.eClass(), modifications);
+				this.implementationClasses.put(modification.eClass(), modification.getClass());
+				this.modificationClassCache.clear();
+			}
+			modifications.add(modification);
+			if (this.affectedElementsIndexed) {
+				addAffectedElement(modification, modification.getAffectedElement());
+			}
+		}
+
+		private void remove(AbstractModification<?,?> modification) {
+			Set<AbstractModification<?,?>> modifications = this.modificationsByEClass.get(modification.eClass());
+			if (modifications != null) {
+				modifications.remove(modification);
+			}
+			if (this.affectedElementsIndexed) {
+				removeAffectedElement(modification, modification.getAffectedElement());
+			}
+		}
+
+		private void addAffectedElement(AbstractModification<?,?> modification, Object affectedElement) {
+			if (affectedElement != null && this.affectedElementsIndexed) {
+				Set<AbstractModification<?,?>> modifications = this.modificationsByAffectedElement.get(affectedElement);
+				if (modifications == null) {
+					modifications = new HashSet<AbstractModification<?,?>>();
+					this.modificationsByAffectedElement.put(affectedElement, modifications);
+					Set<Object> affectedElements = this.affectedElementsByClass.get(affectedElement.getClass());
+					if (affectedElements == null) {
+						affectedElements = new HashSet<Object>();
+						this.affectedElementsByClass.put(affectedElement.getClass(), affectedElements);
+						this.affectedElementClassCache.clear();
+					}
+					affectedElements.add(affectedElement);
+				}
+				modifications.add(modification);
+			}
+		}
+
+		private void removeAffectedElement(AbstractModification<?,?> modification, Object affectedElement) {
+			if (affectedElement != null && this.affectedElementsIndexed) {
+				Set<AbstractModification<?,?>> modifications = this.modificationsByAffectedElement.get(affectedElement);
+				if (modifications != null) {
+					modifications.remove(modification);
+					if (modifications.isEmpty()) {
+						this.modificationsByAffectedElement.remove(affectedElement);
+						this.affectedElementsByClass.get(affectedElement.getClass()).remove(affectedElement);
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private <T extends AbstractModification<?,?>> void collectModifications(Class<T> modificationClass,
+				Set<T> results) {
+			List<EClass> matchingEClasses = this.modificationClassCache.get(modificationClass);
+			if (matchingEClasses == null) {
+				matchingEClasses = new ArrayList<EClass>();
+				for (Map.Entry<EClass, Class<?>> entry: this.implementationClasses.entrySet()) {
+					if (modificationClass.isAssignableFrom(entry.getValue())) {
+						matchingEClasses.add(entry.getKey());
+					}
+				}
+				this.modificationClassCache.put(modificationClass, matchingEClasses);
+			}
+			for (EClass eClass: matchingEClasses) {
+				results.addAll((Set<T>) this.modificationsByEClass.get(eClass));
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private <T> void collectAffectedElements(Class<T> objectClass, Set<T> results) {
+			List<Class<?>> matchingClasses = this.affectedElementClassCache.get(objectClass);
+			if (matchingClasses == null) {
+				matchingClasses = new ArrayList<Class<?>>();
+				for (Class<?> elementClass: this.affectedElementsByClass.keySet()) {
+					if (objectClass.isAssignableFrom(elementClass)) {
+						matchingClasses.add(elementClass);
+					}
+				}
+				this.affectedElementClassCache.put(objectClass, matchingClasses);
+			}
+			for (Class<?> elementClass: matchingClasses) {
+				results.addAll((Set<T>) this.affectedElementsByClass.get(elementClass));
+			}
+		}
+
+	}
+
+}
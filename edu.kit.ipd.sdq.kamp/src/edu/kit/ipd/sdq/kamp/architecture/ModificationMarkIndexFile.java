@@ -0,0 +1,416 @@
+package edu.kit.ipd.sdq.kamp.architecture;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.impl.URIMappingRegistryImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksPackage;
+
+/**
+ * Sidecar index of a modification marks file (<code>name.modificationmarks.idx</code>),
+ * which is written when the modification marks are saved (see {@link #write(AbstractModificationRepository, File)}).
+ * It lists the seed modifications and each change propagation step (with their URI fragment
+ * and their range of modifications) and for each modification its ID, URI fragment, EClass, 
+ * affected element URI, user decision and number of causes. The index consists of 
+ * fixed-size records and is read into memory at once (see {@link #open(File)}), so counts,
+ * step outlines and filtered lists of modifications are available without parsing the 
+ * modification marks file; the modifications themselves can be looked up by their URI 
+ * fragment (<code>resource.getEObject(fragment)</code>) once the file is loaded. The index
+ * file is not kept open, so it can be replaced (also on Windows) while an index is in use.<br>
+ * The index stores the length and modification time of the modification marks file and
+ * is only opened if they still match, so an index outdated by other tools is ignored.
+ */
+public class ModificationMarkIndexFile {
+
+	public static final String FILEEXTENSION_INDEX = "idx";
+
+	private static final int MAGIC = 0x4b4d4958; // "KMIX"
+	private static final int VERSION = 1;
+	private static final int NO_STRING = -1;
+
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 4 * AcceptanceAndConfirmationState.VALUES.size();
+	private static final int STEP_RECORD_SIZE = 5 * 4;
+	private static final int MODIFICATION_RECORD_SIZE = 7 * 4;
+
+	private final ByteBuffer buffer;
+	private final int stepCount;
+	private final int modificationCount;
+	private final int stepTableOffset;
+	private final int modificationTableOffset;
+	private final int stringHeapOffset;
+
+	private ModificationMarkIndexFile(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.stepCount = buffer.getInt(24);
+		this.modificationCount = buffer.getInt(28);
+		this.stepTableOffset = HEADER_SIZE;
+		this.modificationTableOffset = this.stepTableOffset + this.stepCount * STEP_RECORD_SIZE;
+		this.stringHeapOffset = this.modificationTableOffset + this.modificationCount * MODIFICATION_RECORD_SIZE;
+	}
+
+	/**
+	 * Returns the index file of the modification marks file.
+	 */
+	public static File getIndexFile(File modificationMarkFile) {
+		return new File(modificationMarkFile.getPath() + "." + FILEEXTENSION_INDEX);
+	}
+
+	/**
+	 * Returns the file in the local file system for a platform resource or file URI, or
+	 * <code>null</code> for other URIs. Mappings of {@link org.eclipse.emf.ecore.resource.URIConverter#URI_MAP}
+	 * (e.g. of headless runs without workspace) are applied first.
+	 */
+	public static File toLocalFile(URI uri) {
+		uri = URIMappingRegistryImpl.INSTANCE.getURI(uri);
+		if (uri.isPlatformResource()) {
+			IPath location = ResourcesPlugin.getWorkspace().getRoot().getFile(
+					new Path(uri.toPlatformString(true))).getLocation();
+			return location != null ? location.toFile() : null;
+		} else if (uri.isFile()) {
+			return new File(uri.toFileString());
+		}
+		return null;
+	}
+
+	/**
+	 * Opens the index of the modification marks file.
+	 *
+	 * @return the index or <code>null</code> if there is no index or it is outdated
+	 */
+	public static ModificationMarkIndexFile open(File modificationMarkFile) {
+		File indexFile = getIndexFile(modificationMarkFile);
+		if (!indexFile.isFile() || !modificationMarkFile.isFile()) {
+			return null;
+		}
+		try {
+			// the index is small compared to the modification marks, so it is not mapped 
+			// (a mapping would lock the file until it is garbage collected)
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+			if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+					|| buffer.getLong(8) != modificationMarkFile.length()
+					|| buffer.getLong(16) != modificationMarkFile.lastModified()) {
+				return null;
+			}
+			return new ModificationMarkIndexFile(buffer);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Writes the index of the <code>repository</code>, which has just been saved to the
+	 * <code>modificationMarkFile</code>. The references to the affected and causing elements
+	 * are not resolved. The index is written into a temporary file first, which then replaces
+	 * the index file, so a failed write does not leave a truncated index.
+	 */
+	public static void write(AbstractModificationRepository<?,?> repository, File modificationMarkFile) {
+		List<EObject> steps = new ArrayList<EObject>();
+		if (repository.getSeedModifications() != null) {
+			steps.add(repository.getSeedModifications());
+		}
+		steps.addAll(repository.getChangePropagationSteps());
+
+		StringHeap strings = new StringHeap();
+		ByteArrayOutputStream stepTable = new ByteArrayOutputStream(steps.size() * STEP_RECORD_SIZE);
+		ByteArrayOutputStream modificationTable = new ByteArrayOutputStream();
+		int[] userDecisionCounts = new int[AcceptanceAndConfirmationState.VALUES.size()];
+		int modificationCount = 0;
+		try {
+			DataOutputStream stepOutput = new DataOutputStream(stepTable);
+			DataOutputStream modificationOutput = new DataOutputStream(modificationTable);
+			for (int step = 0; step < steps.size(); step++) {
+				EObject stepElement = steps.get(step);
+				int firstModification = modificationCount;
+				String stepFragment = stepElement.eResource() != null 
+						? stepElement.eResource().getURIFragment(stepElement) : null;
+				List<AbstractModification<?,?>> modifications = new ArrayList<AbstractModification<?,?>>();
+				List<String> fragments = new ArrayList<String>();
+				collectModifications(stepElement, stepFragment, modifications, fragments);
+				for (int i = 0; i < modifications.size(); i++) {
+					AbstractModification<?,?> modification = modifications.get(i);
+					Object affectedElement = modification.eGet(
+							ModificationmarksPackage.Literals.ABSTRACT_MODIFICATION__AFFECTED_ELEMENT, false);
+					modificationOutput.writeInt(step);
+					modificationOutput.writeInt(strings.add(modification.getId()));
+					modificationOutput.writeInt(strings.add(fragments.get(i)));
+					modificationOutput.writeInt(strings.add(modification.eClass().getName()));
+					modificationOutput.writeInt(strings.add(affectedElement instanceof EObject
+							? EcoreUtil.getURI((EObject) affectedElement).toString() : null));
+					modificationOutput.writeInt(modification.getUserDecision().getValue());
+					modificationOutput.writeInt(modification.getCausingElements().size());
+					userDecisionCounts[AcceptanceAndConfirmationState.VALUES.indexOf(modification.getUserDecision())]++;
+					modificationCount++;
+				}
+				stepOutput.writeInt(stepElement instanceof AbstractChangePropagationStep ? 1 : 0);
+				stepOutput.writeInt(strings.add(stepFragment));
+				stepOutput.writeInt(strings.add(stepElement.eClass().getName()));
+				stepOutput.writeInt(firstModification);
+				stepOutput.writeInt(modificationCount - firstModification);
+			}
+
+			File indexFile = getIndexFile(modificationMarkFile);
+			File temporaryFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+			boolean written = false;
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(temporaryFile)));
+			try {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(modificationMarkFile.length());
+				output.writeLong(modificationMarkFile.lastModified());
+				output.writeInt(steps.size());
+				output.writeInt(modificationCount);
+				for (int userDecisionCount: userDecisionCounts) {
+					output.writeInt(userDecisionCount);
+				}
+				stepTable.writeTo(output);
+				modificationTable.writeTo(output);
+				strings.heap.writeTo(output);
+				output.close();
+				replace(temporaryFile, indexFile);
+				written = true;
+			} finally {
+				output.close();
+				if (!written) {
+					temporaryFile.delete();
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void replace(File temporaryFile, File file) throws IOException {
+		try {
+			Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, 
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Collects the modifications contained (directly or indirectly) in the <code>container</code>
+	 * together with their URI fragments (their ID, or their path if they have no ID). The 
+	 * paths are built while descending, as computing them for each modification separately 
+	 * would take quadratic time for large steps.
+	 */
+	private static void collectModifications(EObject container, String fragment, 
+			List<AbstractModification<?,?>> modifications, List<String> fragments) {
+		for (EReference containment: container.eClass().getEAllContainments()) {
+			if (!container.eIsSet(containment)) {
+				continue;
+			}
+			String segment = (fragment != null ? (fragment.endsWith("/") ? fragment : fragment + "/") : null);
+			if (containment.isMany()) {
+				List<?> children = (List<?>) container.eGet(containment);
+				for (int i = 0; i < children.size(); i++) {
+					collectModification((EObject) children.get(i), 
+							segment != null ? segment + "@" + containment.getName() + "." + i : null, 
+							modifications, fragments);
+				}
+			} else {
+				collectModification((EObject) container.eGet(containment), 
+						segment != null ? segment + "@" + containment.getName() : null, modifications, fragments);
+			}
+		}
+	}
+	
+	private static void collectModification(EObject element, String path, 
+			List<AbstractModification<?,?>> modifications, List<String> fragments) {
+		if (element instanceof AbstractModification<?,?>) {
+			AbstractModification<?,?> modification = (AbstractModification<?,?>) element;
+			modifications.add(modification);
+			fragments.add(modification.getId() != null ? modification.getId() : path);
+		}
+		collectModifications(element, path, modifications, fragments);
+	}
+
+	/**
+	 * Returns the number of steps, i.e. the seed modifications (if any, always the first
+	 * step) and the change propagation steps.
+	 */
+	public int getStepCount() {
+		return this.stepCount;
+	}
+
+	public boolean isSeedModifications(int step) {
+		return this.buffer.getInt(stepOffset(step)) == 0;
+	}
+
+	/**
+	 * Returns the URI fragment of the step in the modification marks file.
+	 */
+	public String getStepURIFragment(int step) {
+		return this.readString(this.buffer.getInt(stepOffset(step) + 4));
+	}
+
+	public String getStepClassName(int step) {
+		return this.readString(this.buffer.getInt(stepOffset(step) + 8));
+	}
+
+	/**
+	 * Returns the index of the first modification of the step; the modifications of a
+	 * step are consecutive.
+	 */
+	public int getFirstModificationOfStep(int step) {
+		return this.buffer.getInt(stepOffset(step) + 12);
+	}
+
+	public int getModificationCountOfStep(int step) {
+		return this.buffer.getInt(stepOffset(step) + 16);
+	}
+
+	public int getModificationCount() {
+		return this.modificationCount;
+	}
+
+	public int getModificationCount(AcceptanceAndConfirmationState userDecision) {
+		return this.buffer.getInt(32 + 4 * AcceptanceAndConfirmationState.VALUES.indexOf(userDecision));
+	}
+
+	public int getStepOfModification(int modification) {
+		return this.buffer.getInt(modificationOffset(modification));
+	}
+
+	public String getModificationId(int modification) {
+		return this.readString(this.buffer.getInt(modificationOffset(modification) + 4));
+	}
+
+	/**
+	 * Returns the URI fragment of the modification in the modification marks file (its ID
+	 * or its path), e.g. for <code>resource.getEObject(fragment)</code>.
+	 */
+	public String getModificationURIFragment(int modification) {
+		return this.readString(this.buffer.getInt(modificationOffset(modification) + 8));
+	}
+
+	public String getModificationClassName(int modification) {
+		return this.readString(this.buffer.getInt(modificationOffset(modification) + 12));
+	}
+
+	public String getAffectedElementURI(int modification) {
+		return this.readString(this.buffer.getInt(modificationOffset(modification) + 16));
+	}
+
+	public AcceptanceAndConfirmationState getUserDecision(int modification) {
+		return AcceptanceAndConfirmationState.get(this.buffer.getInt(modificationOffset(modification) + 20));
+	}
+
+	public int getCausingElementCount(int modification) {
+		return this.buffer.getInt(modificationOffset(modification) + 24);
+	}
+
+	/**
+	 * Returns the indices of all modifications with the user decision.
+	 */
+	public int[] getModificationsWithUserDecision(AcceptanceAndConfirmationState userDecision) {
+		int[] result = new int[this.getModificationCount(userDecision)];
+		int count = 0;
+		for (int modification = 0; modification < this.modificationCount && count < result.length; modification++) {
+			if (this.buffer.getInt(modificationOffset(modification) + 20) == userDecision.getValue()) {
+				result[count++] = modification;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the indices of all modifications whose affected element has the URI.
+	 */
+	public int[] getModificationsOfAffectedElement(String affectedElementURI) {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int modification = 0; modification < this.modificationCount; modification++) {
+			if (affectedElementURI.equals(this.getAffectedElementURI(modification))) {
+				result.add(modification);
+			}
+		}
+		int[] indices = new int[result.size()];
+		Iterator<Integer> iterator = result.iterator();
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = iterator.next();
+		}
+		return indices;
+	}
+
+	private int stepOffset(int step) {
+		if (step < 0 || step >= this.stepCount) {
+			throw new IndexOutOfBoundsException("Step " + step + ", steps: " + this.stepCount);
+		}
+		return this.stepTableOffset + step * STEP_RECORD_SIZE;
+	}
+
+	private int modificationOffset(int modification) {
+		if (modification < 0 || modification >= this.modificationCount) {
+			throw new IndexOutOfBoundsException("Modification " + modification + ", modifications: "
+					+ this.modificationCount);
+		}
+		return this.modificationTableOffset + modification * MODIFICATION_RECORD_SIZE;
+	}
+
+	private String readString(int reference) {
+		if (reference == NO_STRING) {
+			return null;
+		}
+		int offset = this.stringHeapOffset + reference;
+		byte[] bytes = new byte[this.buffer.getInt(offset)];
+		// a view with its own position, so concurrent reads do not interfere
+		ByteBuffer view = this.buffer.duplicate();
+		view.position(offset + 4);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Strings of the index (each stored once, as length and UTF-8 bytes).
+	 */
+	private static class StringHeap {
+
+		private final ByteArrayOutputStream heap = new ByteArrayOutputStream();
+		private final DataOutputStream output = new DataOutputStream(this.heap);
+		private final Map<String, Integer> references = new HashMap<String, Integer>();
+
+		private int add(String string) throws IOException {
+			if (string == null) {
+				return NO_STRING;
+			}
+			Integer reference = this.references.get(string);
+			if (reference == null) {
+				reference = this.heap.size();
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				this.output.writeInt(bytes.length);
+				this.output.write(bytes);
+				this.references.put(string, reference);
+			}
+			return reference;
+		}
+
+	}
+
+}
@@ -0,0 +1,137 @@
+package edu.kit.ipd.sdq.kamp.architecture;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLParserPool;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMLParserPoolImpl;
+
+/**
+ * Holds the caches which are shared by all loads and saves of model files (within one
+ * Eclipse session): a pool of XML parsers, which keeps the parsers and their configuration
+ * for reuse instead of creating a new parser for each file, and the maps from XML names
+ * to features (see {@link org.eclipse.emf.ecore.xmi.XMLResource#OPTION_USE_XML_NAME_TO_FEATURE_MAP}),
+ * one per model type. All of them can be used by several threads at the same time.
+ * <p>
+ * A name-to-feature map refers to the classes of the loaded model, so it is attached (as
+ * an adapter) to the root package of the model and only weakly referenced by this cache:
+ * the map is dropped together with the package, e.g. a dynamic package which is no longer
+ * used. As the package of a file is only known after loading it, the cache remembers the
+ * root package of the files with each file extension (see
+ * {@link #rememberNameToFeatureMap(Resource, Map)}).
+ */
+public final class PersistencyOptionsCache {
+
+	/**
+	 * Number of characters written by a save before the output is flushed
+	 * (see {@link org.eclipse.emf.ecore.xmi.XMLResource#OPTION_FLUSH_THRESHOLD}).
+	 */
+	public static final int SAVE_FLUSH_THRESHOLD = 1 << 20;
+
+	private static final XMLParserPool PARSER_POOL = new XMLParserPoolImpl(true);
+
+	private static final Map<String, WeakReference<EPackage>> ROOT_PACKAGES =
+			new HashMap<String, WeakReference<EPackage>>();
+
+	private PersistencyOptionsCache() {
+	}
+
+	public static XMLParserPool getParserPool() {
+		return PARSER_POOL;
+	}
+
+	/**
+	 * Returns the (synchronized) map from XML names to features for the model files with the
+	 * <code>fileExtension</code>: the map of the root package of the file last loaded with
+	 * this extension, or a new map if there is none (yet).
+	 */
+	public static synchronized Map<Object, Object> getNameToFeatureMap(String fileExtension) {
+		EPackage rootPackage = getRootPackage(fileExtension);
+		if (rootPackage != null) {
+			NameToFeatureMapAdapter adapter = getAdapter(rootPackage);
+			if (adapter != null) {
+				return adapter.nameToFeatureMap;
+			}
+		}
+		return Collections.synchronizedMap(new HashMap<Object, Object>());
+	}
+
+	/**
+	 * Attaches the name-to-feature map of the <code>loadOptions</code> to the root package
+	 * of the loaded <code>resource</code>, so it is returned by
+	 * {@link #getNameToFeatureMap(String)} for the next files with the same extension. If
+	 * the package already has a map, the map is kept.
+	 */
+	public static synchronized void rememberNameToFeatureMap(Resource resource, Map<?, ?> loadOptions) {
+		Object nameToFeatureMap = loadOptions.get(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP);
+		if (!(nameToFeatureMap instanceof Map<?, ?>) || resource.getContents().isEmpty()) {
+			return;
+		}
+		EPackage rootPackage = resource.getContents().get(0).eClass().getEPackage();
+		while (rootPackage.getESuperPackage() != null) {
+			rootPackage = rootPackage.getESuperPackage();
+		}
+		if (getAdapter(rootPackage) == null) {
+			@SuppressWarnings("unchecked")
+			Map<Object, Object> map = (Map<Object, Object>) nameToFeatureMap;
+			rootPackage.eAdapters().add(new NameToFeatureMapAdapter(map));
+		}
+		String key = resource.getURI().fileExtension() != null ? resource.getURI().fileExtension() : "";
+		ROOT_PACKAGES.put(key, new WeakReference<EPackage>(rootPackage));
+	}
+
+	/**
+	 * Drops the cached name-to-feature maps, e.g. after a metamodel has been changed.
+	 */
+	public static synchronized void clear() {
+		for (WeakReference<EPackage> reference: ROOT_PACKAGES.values()) {
+			EPackage rootPackage = reference.get();
+			if (rootPackage != null && getAdapter(rootPackage) != null) {
+				rootPackage.eAdapters().remove(getAdapter(rootPackage));
+			}
+		}
+		ROOT_PACKAGES.clear();
+	}
+
+	private static EPackage getRootPackage(String fileExtension) {
+		String key = fileExtension != null ? fileExtension : "";
+		WeakReference<EPackage> reference = ROOT_PACKAGES.get(key);
+		if (reference == null) {
+			return null;
+		}
+		EPackage rootPackage = reference.get();
+		if (rootPackage == null) {
+			ROOT_PACKAGES.remove(key);
+		}
+		return rootPackage;
+	}
+
+	private static NameToFeatureMapAdapter getAdapter(EPackage rootPackage) {
+		return (NameToFeatureMapAdapter) EcoreUtil.getExistingAdapter(rootPackage, NameToFeatureMapAdapter.class);
+	}
+
+	/**
+	 * Holds the name-to-feature map of a root package.
+	 */
+	private static class NameToFeatureMapAdapter extends AdapterImpl {
+
+		private final Map<Object, Object> nameToFeatureMap;
+
+		private NameToFeatureMapAdapter(Map<Object, Object> nameToFeatureMap) {
+			this.nameToFeatureMap = nameToFeatureMap;
+		}
+
+		@Override
+		public boolean isAdapterForType(Object type) {
+			return type == NameToFeatureMapAdapter.class;
+		}
+	}
+
+}
@@ -0,0 +1,221 @@
+package edu.kit.ipd.sdq.kamp.derivation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.compare.CompareFactory;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.DiffDispatchTable;
+import edu.kit.ipd.sdq.kamp.workplan.DiffModelPair;
+
+/**
+ * Detects added, removed and moved elements without EMF Compare: the containment trees
+ * of the base and target model are joined by the IDs of their elements. Each difference is
+ * created as a single {@link ReferenceChange} (kind {@link DifferenceKind#ADD},
+ * {@link DifferenceKind#DELETE} or {@link DifferenceKind#MOVE}, with the containment
+ * reference and the changed element as value) and passed to
+ * {@link #checkForDifferencesAndAddToWorkplan(Diff, List)} (or a {@link DiffDispatchTable}),
+ * so no Comparison model is built. Only the base model is indexed (one entry per element)
+ * and only the differences are kept until they are handled. As there is no Comparison, 
+ * the differences have no Match and no requirements between each other.<br>
+ * Elements are identified by their intrinsic ID ({@link EcoreUtil#getID(EObject)}), by the
+ * XMI ID of their resource, or otherwise by their URI fragment relative to the root (so
+ * elements without IDs are detected as removed and added when they are moved). If an 
+ * identifier is used by several elements of the base model, or by several elements of the
+ * target model which are also in the base model, the elements cannot be joined by their 
+ * identifiers and the models are compared by EMF Compare instead (see 
+ * {@link #calculateDiffModel(EObject, EObject)}).
+ */
+public abstract class IdentifierBasedDifferenceCalculation<T extends AbstractArchitectureVersion<?>>
+		extends AbstractDifferenceCalculation<T> {
+
+	/**
+	 * Determines the add/remove/move activities between the model with the root <code>source</code>
+	 * (base version) and the model with the root <code>target</code> (target version), like
+	 * {@link #deriveAddAndRemoveActivities(List)} does for a list of differences calculated
+	 * by {@link #calculateDiffModel(EObject, EObject)}.
+	 */
+	protected List<Activity> deriveAddAndRemoveActivities(EObject source, EObject target) {
+		return this.deriveAddAndRemoveActivities(source, target, null);
+	}
+
+	/**
+	 * Like {@link #deriveAddAndRemoveActivities(EObject, EObject)}, but added and deleted
+	 * elements are dispatched via the <code>dispatchTable</code> (see 
+	 * {@link #deriveAddAndRemoveActivities(List, DiffDispatchTable)}).
+	 */
+	protected List<Activity> deriveAddAndRemoveActivities(EObject source, EObject target, 
+			DiffDispatchTable dispatchTable) {
+		List<Activity> workplan = new ArrayList<Activity>();
+		this.calculateDifferences(source, target, dispatchTable, workplan);
+		return workplan;
+	}
+
+	/**
+	 * Compares the models of the pair with {@link #calculateDifferences(EObject, EObject, DiffDispatchTable, List)}
+	 * (also when several pairs are compared with 
+	 * {@link #deriveAddAndRemoveActivities(List, DiffDispatchTable, boolean)}).
+	 */
+	@Override
+	protected void deriveAddAndRemoveActivities(DiffModelPair modelPair, DiffDispatchTable dispatchTable,
+			List<Activity> workplan) {
+		this.calculateDifferences(modelPair.getBaseRoot(), modelPair.getTargetRoot(), dispatchTable, workplan);
+	}
+
+	/**
+	 * Calculates the differences between the two models and adds the activities for them
+	 * to the <code>workplan</code> (using {@link #handleDifference(Diff, DiffDispatchTable, List)}). 
+	 * Additions and moves are reported in the order of the target model, followed by the 
+	 * deletions in the order of the base model. If the identifiers are not unique, the 
+	 * differences calculated by {@link #calculateDiffModel(EObject, EObject)} are used.
+	 */
+	protected void calculateDifferences(EObject source, EObject target, DiffDispatchTable dispatchTable, 
+			List<Activity> workplan) {
+		Map<String, ContainmentPosition> sourceElements = new LinkedHashMap<String, ContainmentPosition>();
+		IdentifiedContents sourceContents = new IdentifiedContents(source);
+		while (sourceContents.next()) {
+			if (sourceElements.put(sourceContents.identifier, 
+					new ContainmentPosition(sourceContents.element, sourceContents.containerIdentifier)) != null) {
+				this.handleDifferencesOfMatchEngine(source, target, dispatchTable, workplan);
+				return;
+			}
+		}
+
+		List<Diff> additionsAndMoves = new ArrayList<Diff>();
+		IdentifiedContents targetContents = new IdentifiedContents(target);
+		while (targetContents.next()) {
+			EObject element = targetContents.element;
+			ContainmentPosition sourcePosition = sourceElements.get(targetContents.identifier);
+			if (sourcePosition == null) {
+				additionsAndMoves.add(createReferenceChange(DifferenceKind.ADD, element));
+			} else if (sourcePosition.matched) {
+				this.handleDifferencesOfMatchEngine(source, target, dispatchTable, workplan);
+				return;
+			} else {
+				sourcePosition.matched = true;
+				if (sourcePosition.element.eContainmentFeature() != element.eContainmentFeature()
+						|| !sourcePosition.containerIdentifier.equals(targetContents.containerIdentifier)) {
+					additionsAndMoves.add(createReferenceChange(DifferenceKind.MOVE, element));
+				}
+			}
+		}
+
+		for (Diff difference: additionsAndMoves) {
+			this.handleDifference(difference, dispatchTable, workplan);
+		}
+		for (ContainmentPosition sourcePosition: sourceElements.values()) {
+			if (!sourcePosition.matched) {
+				this.handleDifference(createReferenceChange(DifferenceKind.DELETE, sourcePosition.element), 
+						dispatchTable, workplan);
+			}
+		}
+	}
+	
+	private void handleDifferencesOfMatchEngine(EObject source, EObject target, DiffDispatchTable dispatchTable, 
+			List<Activity> workplan) {
+		for (Diff difference: calculateDiffModel(source, target)) {
+			this.handleDifference(difference, dispatchTable, workplan);
+		}
+	}
+
+	/**
+	 * Creates a difference for the <code>element</code>, referencing the containment
+	 * reference of its container.
+	 */
+	protected static ReferenceChange createReferenceChange(DifferenceKind kind, EObject element) {
+		ReferenceChange referenceChange = CompareFactory.eINSTANCE.createReferenceChange();
+		referenceChange.setKind(kind);
+		referenceChange.setReference(element.eContainmentFeature());
+		referenceChange.setValue(element);
+		return referenceChange;
+	}
+
+	/**
+	 * Returns the identifier of the <code>element</code> used to find it in the other version.
+	 */
+	protected String getIdentifier(EObject root, EObject element) {
+		if (element == root) {
+			return "/";
+		}
+		String identifier = EcoreUtil.getID(element);
+		if (identifier == null) {
+			Resource resource = element.eResource();
+			if (resource instanceof XMLResource) {
+				identifier = ((XMLResource) resource).getID(element);
+			}
+		}
+		if (identifier == null) {
+			identifier = "/" + EcoreUtil.getRelativeURIFragmentPath(root, element);
+		}
+		return identifier;
+	}
+
+	/**
+	 * Iterates over the contents of the <code>root</code> (like {@link EObject#eAllContents()}),
+	 * calculating the identifier of each element once. The identifiers of the containers 
+	 * of the current element are kept on a stack.
+	 */
+	private class IdentifiedContents {
+
+		private final EObject root;
+		private final TreeIterator<EObject> iterator;
+		private final Deque<EObject> containers = new ArrayDeque<EObject>();
+		private final Deque<String> containerIdentifiers = new ArrayDeque<String>();
+
+		private EObject element;
+		private String identifier;
+		private String containerIdentifier;
+
+		private IdentifiedContents(EObject root) {
+			this.root = root;
+			this.iterator = root.eAllContents();
+			this.containers.push(root);
+			this.containerIdentifiers.push(getIdentifier(root, root));
+		}
+
+		private boolean next() {
+			if (!this.iterator.hasNext()) {
+				return false;
+			}
+			this.element = this.iterator.next();
+			while (this.containers.peek() != this.element.eContainer()) {
+				this.containers.pop();
+				this.containerIdentifiers.pop();
+			}
+			this.containerIdentifier = this.containerIdentifiers.peek();
+			this.identifier = getIdentifier(this.root, this.element);
+			this.containers.push(this.element);
+			this.containerIdentifiers.push(this.identifier);
+			return true;
+		}
+
+	}
+
+	private static class ContainmentPosition {
+
+		private final EObject element;
+		private final String containerIdentifier;
+		private boolean matched = false;
+
+		private ContainmentPosition(EObject element, String containerIdentifier) {
+			this.element = element;
+			this.containerIdentifier = containerIdentifier;
+		}
+
+	}
+
+}
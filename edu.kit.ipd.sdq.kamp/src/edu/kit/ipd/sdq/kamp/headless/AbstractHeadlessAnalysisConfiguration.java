@@ -0,0 +1,37 @@
+package edu.kit.ipd.sdq.kamp.headless;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.propagation.AbstractChangePropagationAnalysis;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractEnrichedWorkplanDerivation;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractWorkplanDerivation;
+
+/**
+ * Plugs the model-specific components (the same as for the actions, e.g.
+ * {@link edu.kit.ipd.sdq.kamp.ui.AbstractDeriveWorkplanAction}) into a headless run of
+ * the {@link HeadlessAnalysisRunner}. Sub-classes should fix the type parameter "T". To
+ * be used with the {@link KampHeadlessApplication}, sub-classes need a public constructor
+ * without parameters.
+ */
+public abstract class AbstractHeadlessAnalysisConfiguration<T extends AbstractArchitectureVersion<?>> {
+
+	public abstract AbstractArchitectureVersionPersistency<T> createArchitectureVersionPersistency();
+
+	/**
+	 * @return the change propagation, or <code>null</code> if the target versions should not
+	 * be propagated
+	 */
+	public abstract AbstractChangePropagationAnalysis<T> createChangePropagationAnalysis();
+
+	/**
+	 * @return the work plan derivation, or <code>null</code> if no work plans should be derived
+	 */
+	public abstract AbstractWorkplanDerivation<? super T> createWorkplanDerivation();
+
+	/**
+	 * @return the enriched work plan derivation, or <code>null</code> if only the base work
+	 * plan should be derived
+	 */
+	public abstract AbstractEnrichedWorkplanDerivation<? super T> createEnrichedWorkplanDerivation();
+
+}
@@ -0,0 +1,305 @@
+package edu.kit.ipd.sdq.kamp.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.URIConverter;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.propagation.AbstractChangePropagationAnalysis;
+import edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractEnrichedWorkplanDerivation;
+import edu.kit.ipd.sdq.kamp.workplan.AbstractWorkplanDerivation;
+import edu.kit.ipd.sdq.kamp.workplan.Activity;
+import edu.kit.ipd.sdq.kamp.workplan.WorkplanDuplicateRemoval;
+import edu.kit.ipd.sdq.kamp.workplan.WorkplanSorter;
+
+/**
+ * Runs the change propagation and the work plan derivation without workbench and
+ * workspace, on folders of the file system. The persistency loads and saves models with
+ * <code>platform:/resource</code> URIs, so the workspace directory (which contains all
+ * version folders) is mapped to <code>platform:/resource/</code> in
+ * {@link URIConverter#URI_MAP}.<br>
+ * Several target versions (e.g. the variants of a model) can be analyzed against the same
+ * base version in one run (see {@link #run(File, List, String)}): the base version is loaded
+ * only once, and the initialization of the EMF packages and the caches of the persistency
+ * (see {@link edu.kit.ipd.sdq.kamp.architecture.PersistencyOptionsCache}) are shared by all
+ * target versions.<br>
+ * The phases of each analysis are measured by an {@link AnalysisInstrumentation}, which is
+ * returned in the {@link AnalysisResult} and saved as <code>analysis-metrics.json</code>
+ * into the target folder (next to the work plans), also if the analysis failed (with the
+ * failure recorded in the instrumentation). Loading the base version is measured
+ * separately (see {@link #getBaseVersionInstrumentation()}).
+ */
+public class HeadlessAnalysisRunner<T extends AbstractArchitectureVersion<?>> {
+
+	public static final String WORKPLAN_BASE_FILENAME = "workplan-base";
+	public static final String WORKPLAN_ENRICHED_FILENAME = "workplan-enriched";
+	public static final String ANALYSIS_METRICS_FILENAME = "analysis-metrics";
+
+	private final File workspaceDirectory;
+	private final AbstractArchitectureVersionPersistency<T> architectureVersionPersistency;
+	private final AbstractChangePropagationAnalysis<T> changePropagationAnalysis;
+	private final AbstractWorkplanDerivation<? super T> workplanDerivation;
+	private final AbstractEnrichedWorkplanDerivation<? super T> enrichedWorkplanDerivation;
+	private final AnalysisInstrumentation baseVersionInstrumentation = new AnalysisInstrumentation("base version");
+
+	public HeadlessAnalysisRunner(AbstractHeadlessAnalysisConfiguration<T> configuration, File workspaceDirectory) {
+		this.workspaceDirectory = workspaceDirectory.getAbsoluteFile();
+		this.architectureVersionPersistency = configuration.createArchitectureVersionPersistency();
+		this.changePropagationAnalysis = configuration.createChangePropagationAnalysis();
+		this.workplanDerivation = configuration.createWorkplanDerivation();
+		this.enrichedWorkplanDerivation = configuration.createEnrichedWorkplanDerivation();
+		mapWorkspaceDirectory(this.workspaceDirectory);
+	}
+
+	/**
+	 * Maps <code>platform:/resource/</code> to the <code>directory</code>, so
+	 * <code>platform:/resource/project/folder/file</code> is read from and written to
+	 * <code>directory/project/folder/file</code>.
+	 */
+	public static void mapWorkspaceDirectory(File directory) {
+		URIConverter.URI_MAP.put(URI.createPlatformResourceURI("/", true),
+				URI.createFileURI(directory.getAbsolutePath() + File.separator));
+	}
+
+	/**
+	 * Returns the sub-folders of the <code>directory</code> (sorted by name), e.g. the
+	 * variants of a model which are analyzed as target versions.
+	 */
+	public static List<File> listVersionFolders(File directory) {
+		List<File> folders = new ArrayList<File>();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			Arrays.sort(files);
+			for (File file: files) {
+				if (file.isDirectory() && !file.getName().startsWith(".")) {
+					folders.add(file);
+				}
+			}
+		}
+		return folders;
+	}
+
+	/**
+	 * Analyzes each target version against the base version. The model files of all
+	 * versions have the name <code>filename</code> (with different file extensions). A
+	 * failure of one target version is recorded in its result; the other target versions
+	 * are analyzed anyway.
+	 */
+	public List<AnalysisResult> run(File baseFolder, List<File> targetFolders, String filename) {
+		T baseVersion = null;
+		if (this.workplanDerivation != null) {
+			AnalysisInstrumentation.Phase phase = this.baseVersionInstrumentation.startPhase("Loading base version");
+			baseVersion = this.architectureVersionPersistency.load(this.toPlatformPath(baseFolder), filename, "base");
+			phase.end();
+			if (baseVersion == null) {
+				throw new IllegalArgumentException("The base version was not found in " + baseFolder);
+			}
+		}
+
+		List<AnalysisResult> results = new ArrayList<AnalysisResult>();
+		for (File targetFolder: targetFolders) {
+			AnalysisResult result = new AnalysisResult(targetFolder);
+			try {
+				this.analyze(baseVersion, targetFolder, filename, result);
+			} catch (RuntimeException e) {
+				result.failure = e;
+				result.instrumentation.recordFailure(e.toString());
+			} finally {
+				this.saveInstrumentation(result);
+			}
+			results.add(result);
+		}
+		return results;
+	}
+
+	/**
+	 * Ends the phase which was running when the analysis failed and saves the measurements
+	 * into the target folder. If they cannot be saved, the analysis is recorded as failed
+	 * (unless it has already failed).
+	 */
+	private void saveInstrumentation(AnalysisResult result) {
+		for (AnalysisInstrumentation.Phase phase: result.instrumentation.getPhases()) {
+			phase.end();
+		}
+		try {
+			result.instrumentation.saveToJsonFile(new File(result.targetFolder, 
+					ANALYSIS_METRICS_FILENAME + "." + AnalysisInstrumentation.FILEEXTENSION_JSON));
+		} catch (RuntimeException e) {
+			if (result.failure == null) {
+				result.failure = e;
+			} else {
+				result.failure.addSuppressed(e);
+			}
+		}
+	}
+
+	protected void analyze(T baseVersion, File targetFolder, String filename, AnalysisResult result) {
+		AnalysisInstrumentation instrumentation = result.getInstrumentation();
+		String targetFolderPath = this.toPlatformPath(targetFolder);
+		AnalysisInstrumentation.Phase phase = instrumentation.startPhase("Loading target version");
+		T targetVersion = this.architectureVersionPersistency.load(targetFolderPath, filename, "target");
+		if (targetVersion == null) {
+			throw new IllegalArgumentException("The target version was not found in " + targetFolder);
+		}
+		if (targetVersion.getModificationMarkRepository() != null) {
+			instrumentation.addCount(AnalysisInstrumentation.COUNT_MODIFICATION_MARKS, 
+					AnalysisInstrumentation.countModificationMarks(targetVersion.getModificationMarkRepository()));
+		}
+		phase.end();
+
+		if (this.changePropagationAnalysis != null && targetVersion.getModificationMarkRepository() != null) {
+			phase = instrumentation.startPhase("Propagating changes");
+			//Clear results of previous run and start new run
+			targetVersion.getModificationMarkRepository().getChangePropagationSteps().clear();
+			this.changePropagationAnalysis.runChangePropagationAnalysis(targetVersion);
+			instrumentation.recordChangePropagationSteps(targetVersion.getModificationMarkRepository());
+			phase.end();
+			phase = instrumentation.startPhase("Saving modification marks");
+			try {
+				this.architectureVersionPersistency.saveModificationMarkFile(targetFolderPath, filename, targetVersion);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			phase.end();
+			result.propagationStepCount = targetVersion.getModificationMarkRepository().getChangePropagationSteps().size();
+		}
+
+		if (this.workplanDerivation != null) {
+			phase = instrumentation.startPhase("Deriving base work plan");
+			List<Activity> baseActivityList = this.workplanDerivation.deriveWorkplan(baseVersion, targetVersion);
+			instrumentation.addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, baseActivityList.size());
+			phase.end();
+			phase = instrumentation.startPhase("Removing duplicate activities");
+			baseActivityList = WorkplanDuplicateRemoval.removeModificationDuplicates(baseActivityList);
+			instrumentation.addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, baseActivityList.size());
+			phase.end();
+			phase = instrumentation.startPhase("Sorting base work plan");
+			WorkplanSorter.sortWorkplanActivities(baseActivityList);
+			phase.end();
+			phase = instrumentation.startPhase("Saving base work plan");
+			this.architectureVersionPersistency.saveActivityListToExcelFile(targetFolder,
+					WORKPLAN_BASE_FILENAME, baseActivityList);
+			phase.end();
+			result.activityCount = baseActivityList.size();
+
+			if (this.enrichedWorkplanDerivation != null) {
+				phase = instrumentation.startPhase("Deriving enriched work plan");
+				List<Activity> enrichedActivityList = this.enrichedWorkplanDerivation.
+						deriveEnrichedWorkplan(baseVersion, targetVersion, baseActivityList);
+				instrumentation.addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, enrichedActivityList.size());
+				phase.end();
+				phase = instrumentation.startPhase("Sorting enriched work plan");
+				WorkplanSorter.sortWorkplanActivities(enrichedActivityList);
+				phase.end();
+				phase = instrumentation.startPhase("Saving enriched work plan");
+				this.architectureVersionPersistency.saveActivityListToExcelFile(targetFolder,
+						WORKPLAN_ENRICHED_FILENAME, enrichedActivityList);
+				phase.end();
+				result.activityCount = enrichedActivityList.size();
+			}
+		}
+	}
+
+	/**
+	 * Returns the path of the <code>folder</code> relative to the workspace directory, as
+	 * used for <code>platform:/resource</code> URIs (e.g. <code>/project/folder</code>).
+	 */
+	public String toPlatformPath(File folder) {
+		String workspacePath = this.workspaceDirectory.toURI().normalize().getPath();
+		String folderPath = folder.getAbsoluteFile().toURI().normalize().getPath();
+		if (!folderPath.startsWith(workspacePath) || folderPath.length() == workspacePath.length()) {
+			throw new IllegalArgumentException("The folder " + folder + " is not located in the workspace directory "
+					+ this.workspaceDirectory);
+		}
+		String relativePath = folderPath.substring(workspacePath.length());
+		if (relativePath.endsWith("/")) {
+			relativePath = relativePath.substring(0, relativePath.length() - 1);
+		}
+		return "/" + relativePath;
+	}
+
+	public File getWorkspaceDirectory() {
+		return workspaceDirectory;
+	}
+
+	public AbstractArchitectureVersionPersistency<T> getArchitectureVersionPersistency() {
+		return architectureVersionPersistency;
+	}
+
+	/**
+	 * Returns the measurement of loading the base version, which is shared by the analyses
+	 * of all target versions.
+	 */
+	public AnalysisInstrumentation getBaseVersionInstrumentation() {
+		return baseVersionInstrumentation;
+	}
+
+	/**
+	 * The outcome of the analysis of one target version.
+	 */
+	public static class AnalysisResult {
+
+		private final File targetFolder;
+		private final AnalysisInstrumentation instrumentation;
+		private int propagationStepCount = -1;
+		private int activityCount = -1;
+		private RuntimeException failure;
+
+		public AnalysisResult(File targetFolder) {
+			this.targetFolder = targetFolder;
+			this.instrumentation = new AnalysisInstrumentation(targetFolder.getName());
+		}
+
+		public File getTargetFolder() {
+			return targetFolder;
+		}
+
+		/**
+		 * @return the number of change propagation steps, or -1 if the propagation was not run
+		 */
+		public int getPropagationStepCount() {
+			return propagationStepCount;
+		}
+
+		/**
+		 * @return the number of top-level activities of the (enriched) work plan, or -1 if no
+		 * work plan was derived
+		 */
+		public int getActivityCount() {
+			return activityCount;
+		}
+
+		/**
+		 * @return the measurements of the phases of the analysis (up to the failure, if it
+		 * failed)
+		 */
+		public AnalysisInstrumentation getInstrumentation() {
+			return instrumentation;
+		}
+
+		public RuntimeException getFailure() {
+			return failure;
+		}
+
+		public boolean isSuccessful() {
+			return failure == null;
+		}
+
+		@Override
+		public String toString() {
+			if (!this.isSuccessful()) {
+				return targetFolder.getName() + ": failed (" + failure + ")";
+			}
+			return targetFolder.getName() + ": " + propagationStepCount + " propagation steps, "
+					+ activityCount + " activities";
+		}
+	}
+
+}
@@ -0,0 +1,190 @@
+package edu.kit.ipd.sdq.kamp.headless;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.osgi.framework.Bundle;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.headless.HeadlessAnalysisRunner.AnalysisResult;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksPackage;
+
+/**
+ * Command-line application which runs the change propagation and the work plan derivation
+ * with a {@link HeadlessAnalysisRunner}, e.g. in continuous integration. It is registered
+ * as Eclipse application <code>edu.kit.ipd.sdq.kamp.headless</code> and can also be run
+ * as plain Java program (with EMF and the model plugins on the class path). As the 
+ * extension registry of Eclipse is not available then, the XMI resource factory and the
+ * modificationmarks package are registered by {@link #registerStandaloneModels()}; the 
+ * configuration has to register the packages of its own models (e.g. by accessing their
+ * <code>eINSTANCE</code> in its constructor) and their resource factories if they are 
+ * not XMI.<br>
+ * Arguments:
+ * <pre>
+ * -configuration &lt;class&gt;  sub-class of {@link AbstractHeadlessAnalysisConfiguration} (required)
+ * -bundle &lt;name&gt;          bundle which contains the configuration class (in Eclipse)
+ * -workspace &lt;dir&gt;        directory mapped to platform:/resource/ (default: working directory)
+ * -base &lt;dir&gt;             folder of the base version (required)
+ * -target &lt;dir&gt;           folder of a target version (can be repeated)
+ * -variants &lt;dir&gt;         each sub-folder is a target version
+ * -filename &lt;name&gt;        name of the model files (required)
+ * </pre>
+ * The result and the measured phases (see {@link edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation})
+ * of each target version are printed. The exit code is 0 if all target versions have been
+ * analyzed, 1 if an analysis failed, and 2 for invalid arguments.
+ */
+public class KampHeadlessApplication implements IApplication {
+
+	public static final int EXIT_FAILURE = 1;
+	public static final int EXIT_USAGE = 2;
+
+	@Override
+	public Object start(IApplicationContext context) throws Exception {
+		String[] arguments = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+		return run(arguments != null ? arguments : new String[0], true);
+	}
+
+	@Override
+	public void stop() {
+		// the analysis is not interrupted
+	}
+
+	public static void main(String[] arguments) {
+		System.exit(run(arguments, false));
+	}
+
+	/**
+	 * Parses the arguments and runs the analysis.
+	 *
+	 * @param inPlatform whether the application is run in Eclipse (so classes are loaded
+	 * from bundles)
+	 * @return the exit code
+	 */
+	public static int run(String[] arguments, boolean inPlatform) {
+		String configurationClassName = null;
+		String bundleName = null;
+		File workspaceDirectory = new File(".");
+		File baseFolder = null;
+		List<File> targetFolders = new ArrayList<File>();
+		String filename = null;
+		try {
+			for (int i = 0; i < arguments.length; i++) {
+				String argument = arguments[i];
+				if (i + 1 >= arguments.length) {
+					throw new IllegalArgumentException("Missing value of " + argument);
+				}
+				String value = arguments[++i];
+				if ("-configuration".equals(argument)) {
+					configurationClassName = value;
+				} else if ("-bundle".equals(argument)) {
+					bundleName = value;
+				} else if ("-workspace".equals(argument)) {
+					workspaceDirectory = new File(value);
+				} else if ("-base".equals(argument)) {
+					baseFolder = new File(value);
+				} else if ("-target".equals(argument)) {
+					targetFolders.add(new File(value));
+				} else if ("-variants".equals(argument)) {
+					targetFolders.addAll(HeadlessAnalysisRunner.listVersionFolders(new File(value)));
+				} else if ("-filename".equals(argument)) {
+					filename = value;
+				} else {
+					throw new IllegalArgumentException("Unknown argument " + argument);
+				}
+			}
+			if (configurationClassName == null || baseFolder == null || filename == null) {
+				throw new IllegalArgumentException("-configuration, -base and -filename are required");
+			}
+			if (targetFolders.isEmpty()) {
+				throw new IllegalArgumentException("No target versions given (-target or -variants)");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: -configuration <class> [-bundle <name>] [-workspace <dir>] -base <dir> "
+					+ "(-target <dir> | -variants <dir>)... -filename <name>");
+			return EXIT_USAGE;
+		}
+
+		List<AnalysisResult> results;
+		try {
+			if (!inPlatform) {
+				registerStandaloneModels();
+			}
+			AbstractHeadlessAnalysisConfiguration<?> configuration =
+					createConfiguration(configurationClassName, inPlatform ? bundleName : null);
+			results = runAnalysis(configuration, workspaceDirectory, baseFolder, targetFolders, filename);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			return EXIT_FAILURE;
+		}
+		int exitCode = 0;
+		for (AnalysisResult result: results) {
+			if (result.isSuccessful()) {
+				System.out.println(result);
+				System.out.println(result.getInstrumentation());
+			} else {
+				System.err.println(result);
+				result.getFailure().printStackTrace();
+				exitCode = EXIT_FAILURE;
+			}
+		}
+		return exitCode;
+	}
+
+	private static <T extends AbstractArchitectureVersion<?>> List<AnalysisResult> runAnalysis(
+			AbstractHeadlessAnalysisConfiguration<T> configuration, File workspaceDirectory,
+			File baseFolder, List<File> targetFolders, String filename) {
+		return new HeadlessAnalysisRunner<T>(configuration, workspaceDirectory).run(baseFolder, targetFolders, filename);
+	}
+
+	/**
+	 * Registers what the plugins of the models register in Eclipse, for runs as plain Java
+	 * program: the XMI resource factory as default (unless another default factory has 
+	 * been registered) and the modificationmarks package.
+	 */
+	public static void registerStandaloneModels() {
+		Map<String, Object> extensionToFactoryMap = Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap();
+		synchronized (extensionToFactoryMap) {
+			if (!extensionToFactoryMap.containsKey(Resource.Factory.Registry.DEFAULT_EXTENSION)) {
+				extensionToFactoryMap.put(Resource.Factory.Registry.DEFAULT_EXTENSION, new XMIResourceFactoryImpl());
+			}
+		}
+		// the generated package registers itself when it is initialized
+		ModificationmarksPackage.eINSTANCE.eClass();
+	}
+
+	/**
+	 * Creates the configuration with its constructor without parameters. The class is
+	 * loaded from the bundle <code>bundleName</code> or, if it is <code>null</code>, from
+	 * the class path.
+	 */
+	protected static AbstractHeadlessAnalysisConfiguration<?> createConfiguration(String className, String bundleName) {
+		try {
+			Class<?> configurationClass;
+			if (bundleName != null) {
+				Bundle bundle = Platform.getBundle(bundleName);
+				if (bundle == null) {
+					throw new IllegalArgumentException("The bundle " + bundleName + " was not found");
+				}
+				configurationClass = bundle.loadClass(className);
+			} else {
+				configurationClass = Class.forName(className);
+			}
+			return (AbstractHeadlessAnalysisConfiguration<?>) configurationClass.newInstance();
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException(e);
+		} catch (InstantiationException e) {
+			throw new RuntimeException(e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -0,0 +1,42 @@
+package edu.kit.ipd.sdq.kamp.propagation;
+
+import java.util.Collection;
+import java.util.Map;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+
+/**
+ * Declares a single step of a change propagation algorithm, so it can be run by the
+ * {@link ParallelChangePropagationExecutor}. Steps without dependencies between each
+ * other may run concurrently, so a step should only read the architecture version
+ * and write its results into its own {@link AbstractChangePropagationStep} container.
+ */
+public interface AbstractChangePropagationStepDefinition<T extends AbstractArchitectureVersion<?>> {
+
+	/**
+	 * Unique name of the step within one analysis.
+	 */
+	String getName();
+
+	/**
+	 * Names of the steps whose results are needed by this step. The step is only started
+	 * when all of them are finished.
+	 */
+	Collection<String> getDependencies();
+
+	/**
+	 * Creates the (empty) container for the modifications found by this step.
+	 */
+	AbstractChangePropagationStep createChangePropagationStep();
+
+	/**
+	 * Runs the step and adds the found modifications to the <code>changePropagationStep</code>.
+	 * The containers of the steps declared by {@link #getDependencies()} are passed in
+	 * <code>dependencyResults</code> (with the step names as keys), as they are not added 
+	 * to the modificationmarks repository before the whole analysis is finished.
+	 */
+	void runChangePropagationStep(T version, AbstractChangePropagationStep changePropagationStep,
+			Map<String, AbstractChangePropagationStep> dependencyResults);
+
+}
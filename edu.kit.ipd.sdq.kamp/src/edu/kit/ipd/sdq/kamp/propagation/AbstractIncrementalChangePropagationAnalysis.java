@@ -0,0 +1,25 @@
+package edu.kit.ipd.sdq.kamp.propagation;
+
+import java.util.Collection;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+
+/**
+ * Change propagation algorithms which can propagate the consequences of single seed
+ * elements, so {@link IncrementalChangePropagation} only has to calculate the 
+ * consequences of seed elements added since the last run.
+ */
+public interface AbstractIncrementalChangePropagationAnalysis<T extends AbstractArchitectureVersion<?>> 
+		extends AbstractChangePropagationAnalysis<T> {
+
+	/**
+	 * Runs the change propagation starting only from the <code>addedSeedElements</code>
+	 * and adds the found modifications as new change propagation steps to the 
+	 * modificationmarks repository (like {@link #runChangePropagationAnalysis(AbstractArchitectureVersion)}).
+	 * Elements which are already marked in the repository do not have to be propagated
+	 * further, but modifications (including their causes) should still be created for 
+	 * them, as they are merged with the existing ones afterwards.
+	 */
+	void runChangePropagationAnalysis(T version, Collection<Object> addedSeedElements);
+
+}
@@ -0,0 +1,36 @@
+package edu.kit.ipd.sdq.kamp.propagation;
+
+import java.util.List;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+
+/**
+ * Base class for change propagation algorithms whose steps are declared as
+ * {@link AbstractChangePropagationStepDefinition}s. Steps without dependencies between
+ * each other are run concurrently by a {@link ParallelChangePropagationExecutor}.
+ */
+public abstract class AbstractParallelChangePropagationAnalysis<T extends AbstractArchitectureVersion<?>> 
+		implements AbstractChangePropagationAnalysis<T> {
+
+	private ParallelChangePropagationExecutor<T> executor = new ParallelChangePropagationExecutor<T>();
+	
+	/**
+	 * Declares the steps of the change propagation algorithm and the dependencies
+	 * between them.
+	 */
+	protected abstract List<AbstractChangePropagationStepDefinition<T>> createChangePropagationStepDefinitions(T version);
+	
+	@Override
+	public void runChangePropagationAnalysis(T version) {
+		this.getExecutor().execute(version, this.createChangePropagationStepDefinitions(version));
+	}
+
+	protected ParallelChangePropagationExecutor<T> getExecutor() {
+		return executor;
+	}
+
+	protected void setExecutor(ParallelChangePropagationExecutor<T> executor) {
+		this.executor = executor;
+	}
+
+}
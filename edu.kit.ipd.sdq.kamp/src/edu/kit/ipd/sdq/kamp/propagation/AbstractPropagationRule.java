@@ -0,0 +1,31 @@
+package edu.kit.ipd.sdq.kamp.propagation;
+
+import java.util.Collection;
+
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+
+/**
+ * A single rule of a change propagation algorithm, evaluated by the {@link PropagationKernel}:
+ * For each newly marked element of type <code>A</code>, the related elements of type 
+ * <code>B</code> are marked with a modification created by the rule (with the element of 
+ * type <code>A</code> as cause).
+ */
+public interface AbstractPropagationRule<A, B> {
+
+	/**
+	 * Type of the marked elements the rule is applied to.
+	 */
+	Class<A> getCauseElementType();
+
+	/**
+	 * Looks up the elements which are affected by a change of the <code>causeElement</code>.
+	 */
+	Collection<? extends B> lookUpAffectedElements(A causeElement);
+
+	/**
+	 * Creates an empty modification (the affected element and the causes are set by the
+	 * kernel). All modifications created by one rule have to be of the same type.
+	 */
+	AbstractModification<?, ?> createModification();
+
+}
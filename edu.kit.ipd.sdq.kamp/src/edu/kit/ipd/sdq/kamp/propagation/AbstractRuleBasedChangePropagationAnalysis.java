@@ -0,0 +1,56 @@
+package edu.kit.ipd.sdq.kamp.propagation;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.emf.common.util.EList;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.architecture.ModificationMarkIndex;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+
+/**
+ * Base class for change propagation algorithms which are declared as a set of
+ * {@link AbstractPropagationRule}s. The rules are evaluated by a {@link PropagationKernel},
+ * starting from the seed elements, and the found modifications are added as a single
+ * change propagation step. As the kernel can start from any set of elements, the analysis
+ * can also be run incrementally by {@link IncrementalChangePropagation}.
+ */
+public abstract class AbstractRuleBasedChangePropagationAnalysis<T extends AbstractArchitectureVersion<?>> 
+		implements AbstractIncrementalChangePropagationAnalysis<T> {
+
+	/**
+	 * Declares the rules of the change propagation algorithm.
+	 */
+	protected abstract List<AbstractPropagationRule<?, ?>> createPropagationRules(T version);
+	
+	/**
+	 * Creates the (empty) container for the found modifications.
+	 */
+	protected abstract AbstractChangePropagationStep createChangePropagationStep();
+	
+	@Override
+	public void runChangePropagationAnalysis(T version) {
+		Collection<Object> seedElements = IncrementalChangePropagation.lookUpSeedElements(
+				version.getModificationMarkRepository()).values();
+		this.propagate(version, seedElements, seedElements);
+	}
+	
+	@Override
+	public void runChangePropagationAnalysis(T version, Collection<Object> addedSeedElements) {
+		this.propagate(version, addedSeedElements, ModificationMarkIndex.getIndex(
+				version.getModificationMarkRepository()).getAffectedElements(Object.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void propagate(T version, Collection<Object> initialElements, Collection<Object> alreadyMarkedElements) {
+		AbstractChangePropagationStep changePropagationStep = this.createChangePropagationStep();
+		new PropagationKernel(this.createPropagationRules(version)).propagate(
+				changePropagationStep, initialElements, alreadyMarkedElements);
+		if (!changePropagationStep.eContents().isEmpty()) {
+			((EList<AbstractChangePropagationStep>) version.getModificationMarkRepository().
+					getChangePropagationSteps()).add(changePropagationStep);
+		}
+	}
+	
+}
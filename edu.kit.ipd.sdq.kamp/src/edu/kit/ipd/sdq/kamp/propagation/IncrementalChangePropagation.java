@@ -0,0 +1,378 @@
+package edu.kit.ipd.sdq.kamp.propagation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.architecture.ModificationMarkIndex;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.SeedModifications;
+
+/**
+ * Runs a change propagation analysis incrementally: the seed elements of each run are
+ * recorded (per modificationmarks repository), so the next run only has to handle the
+ * seed elements which were added or removed in the meantime.
+ * <ul><li>For removed seed elements which are not affected by calculated modifications,
+ * the calculated modifications they caused lose the corresponding cause. Modifications 
+ * without remaining causes are removed, and their affected elements are retracted 
+ * transitively if they are not marked by any other modification (so, like 
+ * {@link UserDecisionAnalysis}, this relies on the causes set by the propagation 
+ * algorithm). If the remaining modifications cannot be derived from the remaining seed 
+ * elements (because their causes support each other in a cycle), the complete analysis
+ * is run.</li>
+ * <li>For added seed elements, an {@link AbstractIncrementalChangePropagationAnalysis}
+ * calculates their consequences, which are merged into the existing change propagation
+ * steps of the same type.</li></ul>
+ * The complete analysis is run if there is no record of a previous run, if the repository
+ * does not contain calculated modifications, if seed elements were added and the 
+ * analysis cannot propagate single seed elements, or if the architecture models have 
+ * changed since the previous run. To detect the latter, a fingerprint of the architecture
+ * (the time stamps of the files of the model roots and of the other resources in the 
+ * resource set of the repository, see {@link #calculateArchitectureFingerprint(AbstractArchitectureVersion)}) 
+ * is recorded with the seed elements. Changes of models which have neither been saved nor 
+ * been tracked as modification of their resource are not detected; call {@link #reset()} 
+ * in this case.<br>
+ * Callers which do not live as long as the Eclipse session (e.g. action delegates, which
+ * are created for each menu) get the instance for a modificationmarks file from
+ * {@link #getSessionPropagation(URI)}, so the recorded seed elements are kept between runs.
+ */
+public class IncrementalChangePropagation<T extends AbstractArchitectureVersion<?>> {
+
+	private static final Map<URI, IncrementalChangePropagation<?>> SESSION_PROPAGATIONS = 
+			new HashMap<URI, IncrementalChangePropagation<?>>();
+
+	private final Map<String, Set<String>> propagatedSeedElements = new HashMap<String, Set<String>>();
+	private final Map<String, Map<String, Long>> propagatedArchitectureFingerprints = new HashMap<String, Map<String, Long>>();
+	
+	public void runChangePropagation(T version, AbstractChangePropagationAnalysis<T> analysis) {
+		AbstractModificationRepository<?,?> repository = version.getModificationMarkRepository();
+		String repositoryURI = getElementURI(repository);
+		Map<String, Object> seedElements = lookUpSeedElements(repository);
+		Set<String> previousSeedElements = this.propagatedSeedElements.get(repositoryURI);
+		Map<String, Long> architectureFingerprint = calculateArchitectureFingerprint(version);
+		if (architectureFingerprint == null 
+				|| !architectureFingerprint.equals(this.propagatedArchitectureFingerprints.get(repositoryURI))) {
+			previousSeedElements = null;
+		}
+		
+		List<Object> addedSeedElements = new ArrayList<Object>();
+		Set<String> removedSeedElements = new HashSet<String>();
+		if (previousSeedElements != null) {
+			for (Map.Entry<String, Object> seedElement: seedElements.entrySet()) {
+				if (!previousSeedElements.contains(seedElement.getKey())) {
+					addedSeedElements.add(seedElement.getValue());
+				}
+			}
+			removedSeedElements.addAll(previousSeedElements);
+			removedSeedElements.removeAll(seedElements.keySet());
+		}
+		
+		boolean hasCalculatedModifications = !ModificationMarkIndex.getIndex(repository).
+				getCalculatedModifications(AbstractModification.class).isEmpty();
+		boolean completeRun = previousSeedElements == null || !hasCalculatedModifications || 
+				(!addedSeedElements.isEmpty() && !(analysis instanceof AbstractIncrementalChangePropagationAnalysis<?>));
+		if (!completeRun && !removedSeedElements.isEmpty()) {
+			completeRun = !retractSeedElements(repository, removedSeedElements, seedElements.values());
+		}
+		if (completeRun) {
+			repository.getChangePropagationSteps().clear();
+			analysis.runChangePropagationAnalysis(version);
+		} else if (!addedSeedElements.isEmpty()) {
+			propagateAddedSeedElements(version, (AbstractIncrementalChangePropagationAnalysis<T>) analysis, 
+					addedSeedElements);
+		}
+		
+		this.propagatedSeedElements.put(repositoryURI, new HashSet<String>(seedElements.keySet()));
+		this.propagatedArchitectureFingerprints.put(repositoryURI, architectureFingerprint);
+	}
+	
+	/**
+	 * Forgets all recorded seed elements, so the next run is a complete one.
+	 */
+	public void reset() {
+		this.propagatedSeedElements.clear();
+		this.propagatedArchitectureFingerprints.clear();
+	}
+	
+	/**
+	 * Returns the incremental propagation which records the runs on the modificationmarks
+	 * file during this session (a new one for the first call with the URI). The type of 
+	 * the architecture versions is the same for all runs on a file.
+	 */
+	@SuppressWarnings("unchecked")
+	public static synchronized <T extends AbstractArchitectureVersion<?>> IncrementalChangePropagation<T> 
+			getSessionPropagation(URI modificationMarkFileURI) {
+		IncrementalChangePropagation<?> propagation = SESSION_PROPAGATIONS.get(modificationMarkFileURI);
+		if (propagation == null) {
+			propagation = new IncrementalChangePropagation<T>();
+			SESSION_PROPAGATIONS.put(modificationMarkFileURI, propagation);
+		}
+		return (IncrementalChangePropagation<T>) propagation;
+	}
+	
+	/**
+	 * Forgets the runs on the modificationmarks file recorded in this session (e.g. after 
+	 * the propagation has been run completely without recording the seed elements), so 
+	 * the next incremental run is a complete one.
+	 */
+	public static synchronized void removeSessionPropagation(URI modificationMarkFileURI) {
+		SESSION_PROPAGATIONS.remove(modificationMarkFileURI);
+	}
+	
+	/**
+	 * Calculates the fingerprint of the architecture models of the <code>version</code>: 
+	 * the time stamp of each resource (except the one of the modificationmarks repository)
+	 * which contains a model root or is in the resource set of the repository, with the
+	 * URIs of the resources as keys. The time stamp of the file is used if the URI 
+	 * converter provides it, otherwise the time stamp of the resource (set when it is
+	 * loaded or saved).
+	 * 
+	 * @return the fingerprint, or <code>null</code> if a resource has been modified since 
+	 * it was loaded or saved (so the fingerprint does not describe its contents)
+	 */
+	protected Map<String, Long> calculateArchitectureFingerprint(T version) {
+		Resource repositoryResource = version.getModificationMarkRepository().eResource();
+		Set<Resource> resources = new LinkedHashSet<Resource>();
+		for (EObject modelRoot: version.getModelRoots()) {
+			if (modelRoot != null && modelRoot.eResource() != null) {
+				resources.add(modelRoot.eResource());
+			}
+		}
+		if (repositoryResource != null && repositoryResource.getResourceSet() != null) {
+			resources.addAll(repositoryResource.getResourceSet().getResources());
+		}
+		resources.remove(repositoryResource);
+		
+		Map<String, Long> fingerprint = new TreeMap<String, Long>();
+		for (Resource resource: resources) {
+			if (resource.isModified()) {
+				return null;
+			}
+			fingerprint.put(String.valueOf(resource.getURI()), getTimeStamp(resource));
+		}
+		return fingerprint;
+	}
+	
+	private static long getTimeStamp(Resource resource) {
+		if (resource.getURI() != null && resource.getResourceSet() != null) {
+			URIConverter uriConverter = resource.getResourceSet().getURIConverter();
+			Object timeStamp = uriConverter.getAttributes(resource.getURI(), null).get(URIConverter.ATTRIBUTE_TIME_STAMP);
+			if (timeStamp instanceof Long) {
+				return (Long) timeStamp;
+			}
+		}
+		return resource.getTimeStamp();
+	}
+	
+	/**
+	 * Removes the consequences of the removed seed elements from the repository. Removed
+	 * seed elements which are still affected by calculated modifications keep their 
+	 * consequences.
+	 * 
+	 * @return whether the remaining calculated modifications are derived from the 
+	 * <code>seedElements</code>; if not, the complete analysis has to be run
+	 */
+	protected boolean retractSeedElements(AbstractModificationRepository<?,?> repository, 
+			Set<String> removedSeedElementURIs, Collection<Object> seedElements) {
+		ModificationMarkIndex index = ModificationMarkIndex.getIndex(repository);
+		List<AbstractModification<?,?>> calculatedModifications = new ArrayList<AbstractModification<?,?>>();
+		for (AbstractModification<?,?> modification: index.getCalculatedModifications(AbstractModification.class)) {
+			calculatedModifications.add(modification);
+		}
+		Map<Object, List<AbstractModification<?,?>>> modificationsByCause = 
+				UserDecisionAnalysis.buildCauseIndex(calculatedModifications);
+		Set<Object> currentSeedElements = new HashSet<Object>(seedElements);
+		
+		Deque<Object> elementsToRetract = new ArrayDeque<Object>();
+		Set<AbstractModification<?,?>> modificationsToRemove = new HashSet<AbstractModification<?,?>>();
+		for (Object cause: modificationsByCause.keySet()) {
+			if (removedSeedElementURIs.contains(getElementURI(cause)) && 
+					!isMarkedByOtherModifications(index, cause, modificationsToRemove)) {
+				elementsToRetract.add(cause);
+			}
+		}
+		
+		while (!elementsToRetract.isEmpty()) {
+			Object elementToRetract = elementsToRetract.poll();
+			List<AbstractModification<?,?>> causedModifications = modificationsByCause.get(elementToRetract);
+			if (causedModifications != null) {
+				for (AbstractModification<?,?> modification: causedModifications) {
+					if (modification.getCausingElements().remove(elementToRetract) && 
+							modification.getCausingElements().isEmpty() && modificationsToRemove.add(modification)) {
+						Object affectedElement = modification.getAffectedElement();
+						if (affectedElement != null && !currentSeedElements.contains(affectedElement) &&
+								!isMarkedByOtherModifications(index, affectedElement, modificationsToRemove)) {
+							elementsToRetract.add(affectedElement);
+						}
+					}
+				}
+			}
+		}
+		
+		EcoreUtil.removeAll(modificationsToRemove);
+		UserDecisionAnalysis.removeEmptyChangePropagationSteps(repository);
+		
+		calculatedModifications.removeAll(modificationsToRemove);
+		return isDerivedFromSeedElements(calculatedModifications, currentSeedElements);
+	}
+	
+	/**
+	 * Checks whether all causes of the <code>modifications</code> are seed elements or
+	 * affected elements of modifications which are (transitively) caused by seed elements.
+	 */
+	private static boolean isDerivedFromSeedElements(Collection<AbstractModification<?,?>> modifications, 
+			Set<Object> seedElements) {
+		Map<Object, List<AbstractModification<?,?>>> modificationsByCause = 
+				UserDecisionAnalysis.buildCauseIndex(modifications);
+		Set<Object> derivedElements = new HashSet<Object>(seedElements);
+		Deque<Object> elementsToVisit = new ArrayDeque<Object>(seedElements);
+		while (!elementsToVisit.isEmpty()) {
+			List<AbstractModification<?,?>> causedModifications = modificationsByCause.get(elementsToVisit.poll());
+			if (causedModifications != null) {
+				for (AbstractModification<?,?> modification: causedModifications) {
+					Object affectedElement = modification.getAffectedElement();
+					if (affectedElement != null && derivedElements.add(affectedElement)) {
+						elementsToVisit.add(affectedElement);
+					}
+				}
+			}
+		}
+		return derivedElements.containsAll(modificationsByCause.keySet());
+	}
+	
+	private static boolean isMarkedByOtherModifications(ModificationMarkIndex index, Object element,
+			Set<AbstractModification<?,?>> modificationsToRemove) {
+		for (AbstractModification<?,?> modification: index.getModificationsOfAffectedElement(element)) {
+			if (!modificationsToRemove.contains(modification)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Calculates the consequences of the added seed elements and merges them into the 
+	 * existing change propagation steps.
+	 */
+	protected void propagateAddedSeedElements(T version, AbstractIncrementalChangePropagationAnalysis<T> analysis,
+			Collection<Object> addedSeedElements) {
+		EList<? extends AbstractChangePropagationStep> changePropagationSteps = 
+				version.getModificationMarkRepository().getChangePropagationSteps();
+		Set<AbstractChangePropagationStep> existingSteps = Collections.newSetFromMap(
+				new IdentityHashMap<AbstractChangePropagationStep, Boolean>());
+		existingSteps.addAll(changePropagationSteps);
+		
+		analysis.runChangePropagationAnalysis(version, addedSeedElements);
+		
+		Map<EClass, AbstractChangePropagationStep> existingStepsByType = 
+				new LinkedHashMap<EClass, AbstractChangePropagationStep>();
+		List<AbstractChangePropagationStep> mergedSteps = new ArrayList<AbstractChangePropagationStep>();
+		for (AbstractChangePropagationStep step: changePropagationSteps) {
+			if (existingSteps.contains(step)) {
+				if (!existingStepsByType.containsKey(step.eClass())) {
+					existingStepsByType.put(step.eClass(), step);
+				}
+			} else if (existingStepsByType.containsKey(step.eClass())) {
+				mergedSteps.add(step);
+			}
+		}
+		for (AbstractChangePropagationStep step: mergedSteps) {
+			mergeChangePropagationSteps(existingStepsByType.get(step.eClass()), step);
+		}
+		changePropagationSteps.removeAll(mergedSteps);
+	}
+	
+	/**
+	 * Moves the contents of the <code>newStep</code> into the <code>existingStep</code>
+	 * (of the same type). If the existing step already contains a modification of the
+	 * same type for the same affected element, only the causes are added to it.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void mergeChangePropagationSteps(AbstractChangePropagationStep existingStep, 
+			AbstractChangePropagationStep newStep) {
+		for (EReference containment: newStep.eClass().getEAllContainments()) {
+			if (!containment.isMany()) {
+				if (existingStep.eGet(containment) == null && newStep.eGet(containment) != null) {
+					existingStep.eSet(containment, newStep.eGet(containment));
+				}
+				continue;
+			}
+			EList<EObject> existingContents = (EList<EObject>) existingStep.eGet(containment);
+			Map<List<Object>, AbstractModification<?,?>> existingModifications = 
+					new HashMap<List<Object>, AbstractModification<?,?>>();
+			for (EObject existingObject: existingContents) {
+				if (existingObject instanceof AbstractModification<?,?>) {
+					existingModifications.put(getModificationKey((AbstractModification<?,?>) existingObject), 
+							(AbstractModification<?,?>) existingObject);
+				}
+			}
+			for (EObject newObject: new ArrayList<EObject>((EList<EObject>) newStep.eGet(containment))) {
+				AbstractModification<?,?> existingModification = null;
+				if (newObject instanceof AbstractModification<?,?>) {
+					existingModification = existingModifications.get(
+							getModificationKey((AbstractModification<?,?>) newObject));
+				}
+				if (existingModification != null) {
+					((EList<Object>) existingModification.getCausingElements()).addAll(
+							((AbstractModification<?,?>) newObject).getCausingElements());
+				} else {
+					existingContents.add(newObject);
+				}
+			}
+		}
+	}
+	
+	private static List<Object> getModificationKey(AbstractModification<?,?> modification) {
+		return Arrays.<Object>asList(modification.eClass(), modification.getAffectedElement());
+	}
+	
+	/**
+	 * Collects the affected elements of all seed modifications and the seed elements of
+	 * {@link SeedModifications}, identified by their URIs.
+	 */
+	public static Map<String, Object> lookUpSeedElements(AbstractModificationRepository<?,?> repository) {
+		Map<String, Object> seedElements = new LinkedHashMap<String, Object>();
+		for (Object seedElement: ModificationMarkIndex.getIndex(repository).
+				getAffectedElementsOfSeedModifications(Object.class)) {
+			seedElements.put(getElementURI(seedElement), seedElement);
+		}
+		if (repository.getSeedModifications() instanceof SeedModifications) {
+			for (EObject seedElement: ((SeedModifications) repository.getSeedModifications()).getSeedElements()) {
+				seedElements.put(getElementURI(seedElement), seedElement);
+			}
+		}
+		return seedElements;
+	}
+	
+	private static String getElementURI(Object element) {
+		if (element instanceof EObject) {
+			return EcoreUtil.getURI((EObject) element).toString();
+		}
+		return String.valueOf(element);
+	}
+
+}
@@ -0,0 +1,195 @@
+package edu.kit.ipd.sdq.kamp.propagation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
+import edu.kit.ipd.sdq.kamp.architecture.ModificationMarkIndex;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+
+/**
+ * Runs the steps of a change propagation algorithm, declared as 
+ * {@link AbstractChangePropagationStepDefinition}s, on a fork-join pool. A step is 
+ * started as soon as all steps it depends on are finished, so independent steps run
+ * concurrently. Each step writes into its own container; after all steps are finished,
+ * the non-empty containers are added to the modificationmarks repository in the order
+ * of the step definitions, so the result does not depend on the scheduling.<br>
+ * Reading an EMF model is not free of side effects: resolving a proxy replaces it in the
+ * model and notifies the adapters (e.g. the {@link ModificationMarkIndex}). Therefore, all
+ * proxies of the resource set of the modificationmarks repository are resolved and the
+ * affected elements are indexed (see {@link ModificationMarkIndex#prepareConcurrentReads()})
+ * before the steps start, which loads all referenced architecture models. While the steps 
+ * are running, they must only read the architecture version; the queries of the index are 
+ * synchronized.
+ */
+public class ParallelChangePropagationExecutor<T extends AbstractArchitectureVersion<?>> {
+
+	private final ForkJoinPool pool;
+
+	public ParallelChangePropagationExecutor() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public ParallelChangePropagationExecutor(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Runs all <code>stepDefinitions</code> and adds their results to the modificationmarks
+	 * repository of the <code>version</code>. If a step fails, its exception is rethrown
+	 * after all running steps are finished and no result is added to the repository.
+	 */
+	public void execute(T version, List<? extends AbstractChangePropagationStepDefinition<T>> stepDefinitions) {
+		Map<String, AbstractChangePropagationStepDefinition<T>> definitionsByName = 
+				new LinkedHashMap<String, AbstractChangePropagationStepDefinition<T>>();
+		for (AbstractChangePropagationStepDefinition<T> stepDefinition: stepDefinitions) {
+			if (definitionsByName.put(stepDefinition.getName(), stepDefinition) != null) {
+				throw new IllegalArgumentException("Change propagation step '" + stepDefinition.getName() 
+						+ "' is defined more than once");
+			}
+		}
+		
+		// Resolve the models and fill the index before the steps start, so the steps do not change them
+		resolveAllProxies(version.getModificationMarkRepository());
+		ModificationMarkIndex.getIndex(version.getModificationMarkRepository()).prepareConcurrentReads();
+		
+		Map<String, CompletableFuture<AbstractChangePropagationStep>> results = 
+				new HashMap<String, CompletableFuture<AbstractChangePropagationStep>>();
+		for (AbstractChangePropagationStepDefinition<T> stepDefinition: sortByDependencies(definitionsByName)) {
+			results.put(stepDefinition.getName(), scheduleStep(version, stepDefinition, results));
+		}
+		
+		List<AbstractChangePropagationStep> changePropagationSteps = new ArrayList<AbstractChangePropagationStep>();
+		try {
+			CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[results.size()])).join();
+			for (String name: definitionsByName.keySet()) {
+				changePropagationSteps.add(results.get(name).join());
+			}
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		
+		addChangePropagationStepsToRepository(version.getModificationMarkRepository(), changePropagationSteps);
+	}
+	
+	private CompletableFuture<AbstractChangePropagationStep> scheduleStep(final T version, 
+			final AbstractChangePropagationStepDefinition<T> stepDefinition, 
+			Map<String, CompletableFuture<AbstractChangePropagationStep>> results) {
+		final Map<String, CompletableFuture<AbstractChangePropagationStep>> dependencies = 
+				new HashMap<String, CompletableFuture<AbstractChangePropagationStep>>();
+		for (String dependency: stepDefinition.getDependencies()) {
+			dependencies.put(dependency, results.get(dependency));
+		}
+		
+		CompletableFuture<Void> dependenciesFinished = CompletableFuture.allOf(
+				dependencies.values().toArray(new CompletableFuture<?>[dependencies.size()]));
+		return dependenciesFinished.thenApplyAsync(new Function<Void, AbstractChangePropagationStep>() {
+			
+			@Override
+			public AbstractChangePropagationStep apply(Void ignored) {
+				Map<String, AbstractChangePropagationStep> dependencyResults = 
+						new HashMap<String, AbstractChangePropagationStep>();
+				for (Map.Entry<String, CompletableFuture<AbstractChangePropagationStep>> dependency: 
+						dependencies.entrySet()) {
+					dependencyResults.put(dependency.getKey(), dependency.getValue().join());
+				}
+				AbstractChangePropagationStep changePropagationStep = stepDefinition.createChangePropagationStep();
+				stepDefinition.runChangePropagationStep(version, changePropagationStep, dependencyResults);
+				return changePropagationStep;
+			}
+		}, this.pool);
+	}
+	
+	/**
+	 * Orders the step definitions such that every step comes after the steps it
+	 * depends on (keeping the declaration order where possible).
+	 */
+	private List<AbstractChangePropagationStepDefinition<T>> sortByDependencies(
+			Map<String, AbstractChangePropagationStepDefinition<T>> definitionsByName) {
+		Map<String, Integer> missingDependencies = new HashMap<String, Integer>();
+		Map<String, List<String>> dependentSteps = new HashMap<String, List<String>>();
+		Deque<String> readySteps = new ArrayDeque<String>();
+		for (AbstractChangePropagationStepDefinition<T> stepDefinition: definitionsByName.values()) {
+			for (String dependency: stepDefinition.getDependencies()) {
+				if (!definitionsByName.containsKey(dependency)) {
+					throw new IllegalArgumentException("Change propagation step '" + stepDefinition.getName() 
+							+ "' depends on unknown step '" + dependency + "'");
+				}
+				if (!dependentSteps.containsKey(dependency)) {
+					dependentSteps.put(dependency, new ArrayList<String>());
+				}
+				dependentSteps.get(dependency).add(stepDefinition.getName());
+			}
+			missingDependencies.put(stepDefinition.getName(), stepDefinition.getDependencies().size());
+			if (stepDefinition.getDependencies().isEmpty()) {
+				readySteps.add(stepDefinition.getName());
+			}
+		}
+		
+		List<AbstractChangePropagationStepDefinition<T>> result = 
+				new ArrayList<AbstractChangePropagationStepDefinition<T>>();
+		while (!readySteps.isEmpty()) {
+			String name = readySteps.poll();
+			result.add(definitionsByName.get(name));
+			if (dependentSteps.containsKey(name)) {
+				for (String dependentStep: dependentSteps.get(name)) {
+					int missing = missingDependencies.get(dependentStep) - 1;
+					missingDependencies.put(dependentStep, missing);
+					if (missing == 0) {
+						readySteps.add(dependentStep);
+					}
+				}
+			}
+		}
+		
+		if (result.size() != definitionsByName.size()) {
+			throw new IllegalArgumentException("The dependencies between change propagation steps are cyclic");
+		}
+		return result;
+	}
+	
+	/**
+	 * Resolves all proxies of the resource set (or, if there is none, the resource) which 
+	 * contains the <code>repository</code>.
+	 */
+	private static void resolveAllProxies(AbstractModificationRepository<?,?> repository) {
+		Resource resource = repository.eResource();
+		if (resource != null && resource.getResourceSet() != null) {
+			EcoreUtil.resolveAll(resource.getResourceSet());
+		} else if (resource != null) {
+			EcoreUtil.resolveAll(resource);
+		} else {
+			EcoreUtil.resolveAll(repository);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static void addChangePropagationStepsToRepository(AbstractModificationRepository<?,?> repository,
+			List<AbstractChangePropagationStep> changePropagationSteps) {
+		List<AbstractChangePropagationStep> nonEmptySteps = new ArrayList<AbstractChangePropagationStep>();
+		for (AbstractChangePropagationStep changePropagationStep: changePropagationSteps) {
+			if (!changePropagationStep.eContents().isEmpty()) {
+				nonEmptySteps.add(changePropagationStep);
+			}
+		}
+		((EList<AbstractChangePropagationStep>) repository.getChangePropagationSteps()).addAll(nonEmptySteps);
+	}
+
+}
@@ -0,0 +1,148 @@
+package edu.kit.ipd.sdq.kamp.propagation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EReference;
+
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+
+/**
+ * Evaluates a set of {@link AbstractPropagationRule}s up to their fixpoint. Instead of 
+ * reprocessing all marked elements in every round (like the loops over 
+ * {@link edu.kit.ipd.sdq.kamp.util.MapUtil#putOrAddToMap(Map, Map)}-style maps do), the 
+ * evaluation is semi-naive: only the elements which were newly marked in the previous round
+ * are passed to the rules. Each element is therefore processed once per rule.<br>
+ * The modifications are added to a given {@link AbstractChangePropagationStep}. If an element
+ * is reached several times, the causes are accumulated in a single modification per 
+ * modification type. The containment reference of the step which holds a modification type
+ * is looked up reflectively (the first many-valued containment whose type fits).
+ */
+public class PropagationKernel {
+
+	private final List<AbstractPropagationRule<?, ?>> rules;
+	
+	private final Map<AbstractPropagationRule<?, ?>, EClass> modificationTypes = 
+			new HashMap<AbstractPropagationRule<?, ?>, EClass>();
+	
+	private final Map<List<EClass>, EReference> containmentReferences = new HashMap<List<EClass>, EReference>();
+	
+	public PropagationKernel(Collection<? extends AbstractPropagationRule<?, ?>> rules) {
+		this.rules = new ArrayList<AbstractPropagationRule<?, ?>>(rules);
+	}
+	
+	/**
+	 * Propagates the changes of the <code>initialElements</code> and adds the found
+	 * modifications to the <code>changePropagationStep</code>.
+	 * 
+	 * @param alreadyMarkedElements elements which are marked already (e.g. by a previous run).
+	 *        They still get a modification when reached, but are not propagated further.
+	 * @return all elements which were marked newly during this propagation
+	 */
+	public Set<Object> propagate(AbstractChangePropagationStep changePropagationStep, 
+			Collection<?> initialElements, Collection<?> alreadyMarkedElements) {
+		Set<Object> markedElements = new HashSet<Object>(alreadyMarkedElements);
+		markedElements.addAll(initialElements);
+		Set<Object> newlyMarkedElements = new LinkedHashSet<Object>();
+		Map<List<Object>, ModificationEntry> modifications = new HashMap<List<Object>, ModificationEntry>();
+		
+		Collection<?> delta = new LinkedHashSet<Object>(initialElements);
+		while (!delta.isEmpty()) {
+			List<Object> nextDelta = new ArrayList<Object>();
+			for (Object causeElement: delta) {
+				for (AbstractPropagationRule<?, ?> rule: this.rules) {
+					if (rule.getCauseElementType().isInstance(causeElement)) {
+						for (Object affectedElement: lookUpAffectedElements(rule, causeElement)) {
+							this.mark(changePropagationStep, rule, affectedElement, causeElement, modifications);
+							if (markedElements.add(affectedElement)) {
+								newlyMarkedElements.add(affectedElement);
+								nextDelta.add(affectedElement);
+							}
+						}
+					}
+				}
+			}
+			delta = nextDelta;
+		}
+		return newlyMarkedElements;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <A> Collection<?> lookUpAffectedElements(AbstractPropagationRule<A, ?> rule, Object causeElement) {
+		Collection<?> affectedElements = rule.lookUpAffectedElements((A) causeElement);
+		if (affectedElements == null) {
+			return new ArrayList<Object>();
+		}
+		return affectedElements;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void mark(AbstractChangePropagationStep changePropagationStep, AbstractPropagationRule<?, ?> rule, 
+			Object affectedElement, Object causeElement, Map<List<Object>, ModificationEntry> modifications) {
+		EClass modificationType = this.modificationTypes.get(rule);
+		AbstractModification<?, ?> newModification = null;
+		if (modificationType == null) {
+			newModification = rule.createModification();
+			modificationType = newModification.eClass();
+			this.modificationTypes.put(rule, modificationType);
+		}
+		
+		List<Object> key = Arrays.<Object>asList(modificationType, affectedElement);
+		ModificationEntry entry = modifications.get(key);
+		if (entry == null) {
+			if (newModification == null) {
+				newModification = rule.createModification();
+			}
+			((AbstractModification<Object, ?>) newModification).setAffectedElement(affectedElement);
+			newModification.setToolderived(true);
+			((EList<Object>) changePropagationStep.eGet(this.getContainmentReference(
+					changePropagationStep.eClass(), modificationType))).add(newModification);
+			entry = new ModificationEntry(newModification);
+			modifications.put(key, entry);
+		}
+		if (entry.causes.add(causeElement)) {
+			((EList<Object>) entry.modification.getCausingElements()).add(causeElement);
+		}
+	}
+	
+	private EReference getContainmentReference(EClass stepType, EClass modificationType) {
+		List<EClass> key = Arrays.asList(stepType, modificationType);
+		EReference containmentReference = this.containmentReferences.get(key);
+		if (containmentReference == null) {
+			for (EReference reference: stepType.getEAllContainments()) {
+				if (reference.isMany() && reference.getEReferenceType().isSuperTypeOf(modificationType)) {
+					containmentReference = reference;
+					break;
+				}
+			}
+			if (containmentReference == null) {
+				throw new IllegalArgumentException("Change propagation step " + stepType.getName() 
+						+ " cannot contain modifications of type " + modificationType.getName());
+			}
+			this.containmentReferences.put(key, containmentReference);
+		}
+		return containmentReference;
+	}
+	
+	private static class ModificationEntry {
+		
+		private final AbstractModification<?, ?> modification;
+		private final Set<Object> causes = new HashSet<Object>();
+		
+		private ModificationEntry(AbstractModification<?, ?> modification) {
+			this.modification = modification;
+		}
+		
+	}
+
+}
@@ -1,18 +1,29 @@
 package edu.kit.ipd.sdq.kamp.propagation;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.URIConverter;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
 
-import edu.kit.ipd.sdq.kamp.architecture.ArchitectureModelLookup;
+import edu.kit.ipd.sdq.kamp.architecture.ModificationMarkIndex;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
 import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AcceptanceAndConfirmationState;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.ModificationmarksPackage;
 
 /**
  * Considers user decisions for modifications calculated by the change propagation 
@@ -37,6 +48,8 @@ public class UserDecisionAnalysis {
 	 * calculated, so the algorithm is transitive and iterates until there is no change.</li>
 	 * <li>Remove all modifications whose affected elements were determined by the 
 	 * previous step from the <code>modificationRepository</code>.</li></ol>
+	 * The modifications caused by an element are found through a reverse index which is
+	 * built once per run, so the run time is linear in the size of the repository.
 	 * Be aware that this algorithm is independent of the concrete propagation steps, so
 	 * it has not to be adapted if you add further ones. It does dependent on the causes
 	 * of modifications, so if you want the exclusion to propagate correctly, you should 
@@ -45,27 +58,106 @@ public class UserDecisionAnalysis {
 	 * easily sub-type this class and override {@link #removeCauseForElement(ModifyArchitectureElement, Object)}
 	 * and {@link #hasModificationNoCauses(ModifyArchitectureElement)}. 
 	 */
-	@SuppressWarnings("rawtypes")
 	public static void considerUserDecisions(AbstractModificationRepository<?,?> modificationRepository) {
-		List<Object> elementsToAnalyze = new ArrayList<Object>(ArchitectureModelLookup.
-				lookUpExcludedElements(modificationRepository));
-		List<Object> elementsToRemove = new ArrayList<Object>(elementsToAnalyze);	
-		Collection<AbstractModification> modifications = ArchitectureModelLookup.
-				lookUpAllModificationMarksOfAType(modificationRepository, AbstractModification.class);
+		Set<Object> elementsToRemove = determineElementsToRemove(modificationRepository, RESOLVED_ELEMENTS);
+		removeModificationsForElementsFromRepository(elementsToRemove, modificationRepository);
+	}
+	
+	/**
+	 * Runs the same algorithm as {@link #considerUserDecisions(AbstractModificationRepository)}, 
+	 * but without resolving the references to the affected and causing elements: the 
+	 * elements are identified by their URIs (the proxy URIs for unresolved elements), so
+	 * the architecture models are not loaded if only the modification marks file is loaded.
+	 * The URIs are normalized before they are compared (relative URIs are resolved against 
+	 * the URI of the resource of the repository, and the URI converter of its resource set
+	 * maps them, e.g. <code>platform:/resource</code> URIs to file URIs), so proxies and 
+	 * resolved elements are identified by the same URI.
+	 * Use this variant if the repository is loaded on its own, e.g. when applying user 
+	 * decisions in the modificationmarks editor.
+	 */
+	public static void considerUserDecisionsWithoutResolving(AbstractModificationRepository<?,?> modificationRepository) {
+		ElementURIs elementURIs = new ElementURIs(modificationRepository.eResource());
+		Set<Object> elementsToRemove = determineElementsToRemove(modificationRepository, elementURIs);
+		if (!elementsToRemove.isEmpty()) {
+			Set<AbstractModification<?,?>> modificationsToRemove = new HashSet<AbstractModification<?,?>>();
+			for (AbstractModification<?,?> modification: ModificationMarkIndex.getIndex(
+					modificationRepository).getAllModifications()) {
+				if (elementsToRemove.contains(elementURIs.getAffectedElement(modification))) {
+					modificationsToRemove.add(modification);
+				}
+			}
+			EcoreUtil.removeAll(modificationsToRemove);
+			removeEmptyChangePropagationSteps(modificationRepository);
+		}
+	}
+	
+	/**
+	 * Runs the first two steps of the algorithm (see 
+	 * {@link #considerUserDecisions(AbstractModificationRepository)}): removes the excluded
+	 * elements transitively as causes and returns the keys of all elements whose 
+	 * modifications have to be removed. The elements are identified by the keys calculated 
+	 * by <code>elementKeys</code>.
+	 */
+	private static Set<Object> determineElementsToRemove(AbstractModificationRepository<?,?> modificationRepository,
+			ElementKeys elementKeys) {
+		ModificationMarkIndex index = ModificationMarkIndex.getIndex(modificationRepository);
+		Set<Object> elementsToRemove = new HashSet<Object>();
+		Deque<Object> elementsToAnalyze = new ArrayDeque<Object>();
+		for (AbstractModification<?,?> excludedModification: index.getModificationsWithUserDecision(
+				AcceptanceAndConfirmationState.EXCLUDED)) {
+			Object excludedElement = elementKeys.getAffectedElement(excludedModification);
+			if (elementsToRemove.add(excludedElement) && excludedElement != null) {
+				elementsToAnalyze.add(excludedElement);
+			}
+		}
+		Map<Object, List<AbstractModification<?,?>>> modificationsByCause = buildCauseIndex(
+				index.getAllModifications(), elementKeys);
 		
 		while (!elementsToAnalyze.isEmpty()) {
-			Object objectToAnalyze = elementsToAnalyze.remove(0);
-			for (AbstractModification modification: modifications) {
-				boolean objectIsCause = removeCauseForElement(modification, objectToAnalyze);
-				if (objectIsCause && hasModificationNoCauses(modification) && 
-						!elementsToRemove.contains(modification.getAffectedElement())) {
-					elementsToRemove.add(modification.getAffectedElement());
-					elementsToAnalyze.add(modification.getAffectedElement());
+			Object elementToAnalyze = elementsToAnalyze.poll();
+			List<AbstractModification<?,?>> causedModifications = modificationsByCause.get(elementToAnalyze);
+			if (causedModifications != null) {
+				for (AbstractModification<?,?> modification: causedModifications) {
+					boolean elementIsCause = elementKeys.removeCause(modification, elementToAnalyze);
+					if (elementIsCause && hasModificationNoCauses(modification)) {
+						Object affectedElement = elementKeys.getAffectedElement(modification);
+						if (elementsToRemove.add(affectedElement) && affectedElement != null) {
+							elementsToAnalyze.add(affectedElement);
+						}
+					}
 				}
 			}
 		}
-		
-		removeModificationsForElementsFromRepository(elementsToRemove, modificationRepository);
+		return elementsToRemove;
+	}
+	
+	/**
+	 * Builds the reverse index from causing elements to the modifications they cause, so
+	 * the consequences of an excluded element can be found without visiting all
+	 * modifications of the repository.
+	 */
+	protected static Map<Object, List<AbstractModification<?,?>>> buildCauseIndex(
+			Collection<? extends AbstractModification<?,?>> modifications) {
+		return buildCauseIndex(modifications, RESOLVED_ELEMENTS);
+	}
+	
+	private static Map<Object, List<AbstractModification<?,?>>> buildCauseIndex(
+			Collection<? extends AbstractModification<?,?>> modifications, ElementKeys elementKeys) {
+		Map<Object, List<AbstractModification<?,?>>> modificationsByCause = 
+				new HashMap<Object, List<AbstractModification<?,?>>>();
+		for (AbstractModification<?,?> modification: modifications) {
+			Iterator<?> causes = elementKeys.getCausingElements(modification);
+			while (causes.hasNext()) {
+				Object cause = causes.next();
+				List<AbstractModification<?,?>> causedModifications = modificationsByCause.get(cause);
+				if (causedModifications == null) {
+					causedModifications = new ArrayList<AbstractModification<?,?>>();
+					modificationsByCause.put(cause, causedModifications);
+				}
+				causedModifications.add(modification);
+			}
+		}
+		return modificationsByCause;
 	}
 	
 	/**
@@ -95,31 +187,146 @@ public class UserDecisionAnalysis {
 	protected static void removeModificationsForElementsFromRepository(Collection<Object> 
 			affectedElementsToRemove, AbstractModificationRepository<?,?> modificationRepository) {
 		if (!affectedElementsToRemove.isEmpty()) {
-			//Removing directly in iterator throws exception
-			Collection<EObject> modificationsToRemove = new LinkedList<EObject>();
-			
-			TreeIterator<EObject> iterator = modificationRepository.eAllContents();			
-			while (iterator.hasNext()) {
-				EObject nextObject = iterator.next();
-				if (nextObject instanceof AbstractModification) {
-					AbstractModification<?,?> modification = 
-							(AbstractModification<?,?>) nextObject;
-					if (affectedElementsToRemove.contains(modification.getAffectedElement())) {
+			ModificationMarkIndex index = ModificationMarkIndex.getIndex(modificationRepository);
+			Set<AbstractModification<?,?>> modificationsToRemove = new HashSet<AbstractModification<?,?>>();
+			for (Object affectedElement: affectedElementsToRemove) {
+				modificationsToRemove.addAll(index.getModificationsOfAffectedElement(affectedElement));
+			}
+			if (affectedElementsToRemove.contains(null)) {
+				for (AbstractModification<?,?> modification: index.getAllModifications()) {
+					if (modification.getAffectedElement() == null) {
 						modificationsToRemove.add(modification);
 					}
 				}
 			}
 			
-			for (EObject modification: modificationsToRemove) {
-				EcoreUtil.remove(modification);
+			EcoreUtil.removeAll(modificationsToRemove);
+			removeEmptyChangePropagationSteps(modificationRepository);
+		}
+	}
+	
+	/**
+	 * Removes all ChangePropagationSteps which do not contain any modifications.
+	 */
+	protected static void removeEmptyChangePropagationSteps(AbstractModificationRepository<?,?> modificationRepository) {
+		List<AbstractChangePropagationStep> emptySteps = new ArrayList<AbstractChangePropagationStep>();
+		for (AbstractChangePropagationStep step: modificationRepository.getChangePropagationSteps()) {
+			if (step.eContents().isEmpty()) {
+				emptySteps.add(step);
 			}
-			
-			for (AbstractChangePropagationStep step: new ArrayList<AbstractChangePropagationStep>(
-					modificationRepository.getChangePropagationSteps())) {
-				if (step.eContents().isEmpty()) {
-					modificationRepository.getChangePropagationSteps().remove(step);
+		}
+		modificationRepository.getChangePropagationSteps().removeAll(emptySteps);
+	}
+	
+	/**
+	 * Identifies the affected and causing elements of modifications by keys, so the 
+	 * algorithm can either work on the resolved elements or on their URIs.
+	 */
+	private static abstract class ElementKeys {
+		
+		/**
+		 * Returns the key of the affected element of the modification.
+		 */
+		abstract Object getAffectedElement(AbstractModification<?,?> modification);
+		
+		/**
+		 * Returns the keys of the causing elements of the modification.
+		 */
+		abstract Iterator<?> getCausingElements(AbstractModification<?,?> modification);
+		
+		/**
+		 * Tries to remove the cause with the <code>key</code> from the list of causes.
+		 * 
+		 * @return Was a cause removed?
+		 */
+		abstract boolean removeCause(AbstractModification<?,?> modification, Object key);
+	}
+	
+	/**
+	 * Identifies the elements by themselves, resolving the references to them.
+	 */
+	private static final ElementKeys RESOLVED_ELEMENTS = new ElementKeys() {
+		
+		@Override
+		Object getAffectedElement(AbstractModification<?,?> modification) {
+			return modification.getAffectedElement();
+		}
+		
+		@Override
+		Iterator<?> getCausingElements(AbstractModification<?,?> modification) {
+			return modification.getCausingElements().iterator();
+		}
+		
+		@Override
+		boolean removeCause(AbstractModification<?,?> modification, Object key) {
+			return removeCauseForElement(modification, key);
+		}
+	};
+	
+	/**
+	 * Identifies the elements (resolved or proxies) by their URIs in a normalized form, so 
+	 * the URIs of the same element are equal, without resolving the references to them.
+	 */
+	private static class ElementURIs extends ElementKeys {
+		
+		private final URI baseURI;
+		private final URIConverter uriConverter;
+		
+		private ElementURIs(Resource resource) {
+			this.baseURI = resource != null ? resource.getURI() : null;
+			this.uriConverter = resource != null && resource.getResourceSet() != null 
+					? resource.getResourceSet().getURIConverter() : URIConverter.INSTANCE;
+		}
+		
+		@Override
+		Object getAffectedElement(AbstractModification<?,?> modification) {
+			return getURI(modification.eGet(
+					ModificationmarksPackage.Literals.ABSTRACT_MODIFICATION__AFFECTED_ELEMENT, false));
+		}
+		
+		@Override
+		Iterator<?> getCausingElements(AbstractModification<?,?> modification) {
+			final Iterator<?> causes = ((InternalEList<?>) modification.getCausingElements()).basicIterator();
+			return new Iterator<URI>() {
+				
+				@Override
+				public boolean hasNext() {
+					return causes.hasNext();
+				}
+				
+				@Override
+				public URI next() {
+					return getURI(causes.next());
 				}
+				
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		
+		@Override
+		boolean removeCause(AbstractModification<?,?> modification, Object key) {
+			InternalEList<?> causes = (InternalEList<?>) modification.getCausingElements();
+			for (int i = 0; i < causes.size(); i++) {
+				if (key.equals(getURI(causes.basicGet(i)))) {
+					causes.remove(i);
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		private URI getURI(Object element) {
+			if (!(element instanceof EObject)) {
+				return null;
+			}
+			URI uri = EcoreUtil.getURI((EObject) element);
+			if (uri.isRelative() && this.baseURI != null && !this.baseURI.isRelative()) {
+				uri = uri.resolve(this.baseURI);
 			}
+			return this.uriConverter.normalize(uri);
 		}
 	}
 	
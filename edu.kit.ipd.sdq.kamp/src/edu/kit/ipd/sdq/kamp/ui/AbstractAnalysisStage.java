@@ -0,0 +1,62 @@
+package edu.kit.ipd.sdq.kamp.ui;
+
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+
+/**
+ * One stage (e.g. loading, propagation, diffing, saving) of an {@link AnalysisPipelineJob}.
+ * The stages of a job are run one after another; a stage is shown as sub-task of the job
+ * and gets its share of the job's progress according to its amount of work.<br>
+ * Stages which write into the workspace (e.g. saving and refreshing the results) declare
+ * a scheduling rule, which the job holds only while the stage is running (see
+ * {@link AnalysisPipelineJob#createSchedulingRule(org.eclipse.core.resources.IResource)}).
+ * The other stages run without rule, so the workbench (e.g. saving an editor of the
+ * same folder) is not blocked by them.
+ */
+public abstract class AbstractAnalysisStage {
+
+	private final String name;
+	private final int work;
+	private final ISchedulingRule schedulingRule;
+
+	/**
+	 * @param name the name which is shown as sub-task of the job
+	 * @param work the amount of work of the stage, relative to the other stages of the job
+	 */
+	public AbstractAnalysisStage(String name, int work) {
+		this(name, work, null);
+	}
+
+	/**
+	 * @param name the name which is shown as sub-task of the job
+	 * @param work the amount of work of the stage, relative to the other stages of the job
+	 * @param schedulingRule the rule which is held while the stage is running, or 
+	 * <code>null</code>
+	 */
+	public AbstractAnalysisStage(String name, int work, ISchedulingRule schedulingRule) {
+		this.name = name;
+		this.work = work;
+		this.schedulingRule = schedulingRule;
+	}
+
+	/**
+	 * Runs the stage. Long-running stages should report their progress to the
+	 * <code>monitor</code> and check it for cancellation (e.g. with
+	 * {@link SubMonitor#split(int)}, which throws an
+	 * {@link org.eclipse.core.runtime.OperationCanceledException} if the job is canceled).
+	 */
+	public abstract void run(SubMonitor monitor);
+
+	public String getName() {
+		return name;
+	}
+
+	public int getWork() {
+		return work;
+	}
+
+	public ISchedulingRule getSchedulingRule() {
+		return schedulingRule;
+	}
+
+}
@@ -1,11 +1,20 @@
 package edu.kit.ipd.sdq.kamp.ui;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.swt.SWT;
@@ -16,7 +25,9 @@ import org.eclipse.ui.PlatformUI;
 
 import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
 import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersionPersistency;
+import edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation;
 import edu.kit.ipd.sdq.kamp.util.FileAndFolderManagement;
+import edu.kit.ipd.sdq.kamp.util.ModelLoadingExecutor;
 import edu.kit.ipd.sdq.kamp.workplan.AbstractEnrichedWorkplanDerivation;
 import edu.kit.ipd.sdq.kamp.workplan.AbstractWorkplanDerivation;
 import edu.kit.ipd.sdq.kamp.workplan.Activity;
@@ -35,7 +46,12 @@ import edu.kit.ipd.sdq.kamp.workplan.WorkplanSorter;
  * work directly.<br>
  * The action should be started from the folder containing the modified architecture
  * version (how it is started depends on your code, change a plugin.xml file to 
- * integrate the action into Eclipse).
+ * integrate the action into Eclipse).<br>
+ * The derivation runs as {@link AnalysisPipelineJob} in the background (with a progress
+ * sub-task per stage) and can be canceled. If concurrent loading is enabled (see 
+ * {@link #setConcurrentLoading(boolean)}), the base and the target version are loaded at 
+ * the same time. The cost of the stages is logged and saved as JSON file next to the 
+ * work plans (see {@link AnalysisInstrumentation}).
  */
 public abstract class AbstractDeriveWorkplanAction<T extends AbstractArchitectureVersion<?>> implements IActionDelegate {
 	
@@ -43,44 +59,111 @@ public abstract class AbstractDeriveWorkplanAction<T extends AbstractArchitectur
 	private AbstractEnrichedWorkplanDerivation<? super T> enrichedWorkplanDerivation;
 	private AbstractArchitectureVersionPersistency<? extends T> architectureVersionPersistency;
 	private ISelection selection;
+	private boolean concurrentLoading = false;
 
 	@Override
 	public void run(IAction action) {		
 		IContainer selectedFolder = FileAndFolderManagement.retrieveSelectedFolder(this.getSelection());
 		
 		if (selectedFolder != null) {
-			T targetversion = loadVersion(selectedFolder, "target");
-			T baseversion = loadVersion((IContainer)selectedFolder.getParent(), "base");
+			this.createWorkplanDerivationJob(selectedFolder).schedule();
+		}
+	}
+	
+	/**
+	 * Creates the job which loads the base version (from the parent folder) and the target
+	 * version (from the <code>selectedFolder</code>), derives the base and the enriched 
+	 * work plan and saves them (and the measurements of the stages) into the 
+	 * <code>selectedFolder</code>.
+	 */
+	protected AnalysisPipelineJob createWorkplanDerivationJob(final IContainer selectedFolder) {
+		final AnalysisPipelineJob job = new AnalysisPipelineJob("Deriving work plans");
+		final ISchedulingRule saveRule = AnalysisPipelineJob.createSchedulingRule(selectedFolder);
+		final WorkplanDerivationState<T> state = new WorkplanDerivationState<T>();
+		String username = System.getProperty("user.name");
+		final String usernameSuffix = (username != null) ? "-" + username : "";
+		final String folderPath = selectedFolder.getFullPath().toString();
+		job.setInstrumentationFile(selectedFolder.getFile(new Path("workplan-metrics" + usernameSuffix 
+				+ "." + AnalysisInstrumentation.FILEEXTENSION_JSON)));
+		
+		job.addStage(new AbstractAnalysisStage("Loading base and target version", 30) {
 			
-			if ((baseversion != null) && (targetversion != null)) {
-				String username = System.getProperty("user.name");
-				String usernameSuffix = (username != null) ? "-" + username : "";	
-				
-				List<Activity> baseActivityList = this.getWorkplanDerivation().
-						deriveWorkplan(baseversion, targetversion);
-				baseActivityList = WorkplanDuplicateRemoval.removeModificationDuplicates(baseActivityList);
-				WorkplanSorter.sortWorkplanActivities(baseActivityList);	
-				this.getArchitectureVersionPersistency().saveActivityListToExcelFile(
-						selectedFolder.getFullPath().toString(), "workplan-base"+usernameSuffix, 
-						baseActivityList);
-				
-				List<Activity> enrichedActivityList = this.getEnrichedWorkplanDerivation().
-						deriveEnrichedWorkplan(baseversion, targetversion, baseActivityList);
-				WorkplanSorter.sortWorkplanActivities(enrichedActivityList);
-				this.getArchitectureVersionPersistency().saveActivityListToExcelFile(
-						selectedFolder.getFullPath().toString(), "workplan-enriched"+usernameSuffix, 
-						enrichedActivityList);
-				
-				showMessage("Activity lists have been calculated.");
-				refreshAllProjectsInWorkspace();
+			@Override
+			public void run(SubMonitor monitor) {
+				Map<String, IContainer> versionFolders = new LinkedHashMap<String, IContainer>();
+				versionFolders.put("target", selectedFolder);
+				versionFolders.put("base", selectedFolder.getParent());
+				Map<String, T> versions = loadVersions(versionFolders);
+				state.targetversion = versions.get("target");
+				state.baseversion = versions.get("base");
+				if (state.baseversion == null) {
+					job.skipRemainingStages("Activity list could not be calculated, as the base version was not found.");
+				} else if (state.targetversion == null) {
+					job.skipRemainingStages("Activity list could not be calculated, as the target version was not found.");
+				} else if (state.targetversion.getModificationMarkRepository() != null) {
+					job.getInstrumentation().addCount(AnalysisInstrumentation.COUNT_MODIFICATION_MARKS, 
+							AnalysisInstrumentation.countModificationMarks(state.targetversion.getModificationMarkRepository()));
+				}
 			}
-			if (baseversion == null) {
-				showMessage("Activity list could not be calculated, as the base version was not found.");
+		});
+		job.addStage(new AbstractAnalysisStage("Deriving base work plan", 25) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				state.baseActivityList = getWorkplanDerivation().deriveWorkplan(state.baseversion, state.targetversion);
+				job.getInstrumentation().addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, state.baseActivityList.size());
 			}
-			if (targetversion == null) {
-				showMessage("Activity list could not be calculated, as the target version was not found.");
+		});
+		job.addStage(new AbstractAnalysisStage("Removing duplicate activities", 5) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				state.baseActivityList = WorkplanDuplicateRemoval.removeModificationDuplicates(state.baseActivityList);
+				job.getInstrumentation().addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, state.baseActivityList.size());
 			}
-		}
+		});
+		job.addStage(new AbstractAnalysisStage("Sorting base work plan", 5) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				WorkplanSorter.sortWorkplanActivities(state.baseActivityList);
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Saving base work plan", 10, saveRule) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				getArchitectureVersionPersistency().saveActivityListToExcelFile(folderPath, 
+						"workplan-base"+usernameSuffix, state.baseActivityList);
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Deriving enriched work plan", 10) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				state.enrichedActivityList = getEnrichedWorkplanDerivation().
+						deriveEnrichedWorkplan(state.baseversion, state.targetversion, state.baseActivityList);
+				job.getInstrumentation().addCount(AnalysisInstrumentation.COUNT_ACTIVITIES, state.enrichedActivityList.size());
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Sorting enriched work plan", 5) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				WorkplanSorter.sortWorkplanActivities(state.enrichedActivityList);
+			}
+		});
+		job.addStage(new AbstractAnalysisStage("Saving enriched work plan", 10, saveRule) {
+			
+			@Override
+			public void run(SubMonitor monitor) {
+				getArchitectureVersionPersistency().saveActivityListToExcelFile(folderPath, 
+						"workplan-enriched"+usernameSuffix, state.enrichedActivityList);
+				refreshFolder(selectedFolder, monitor);
+				job.setResultMessage("Activity lists have been calculated.");
+			}
+		});
+		return job;
 	}
 	
 	protected T loadVersion(IContainer folder, String versionName) {
@@ -91,6 +174,41 @@ public abstract class AbstractDeriveWorkplanAction<T extends AbstractArchitectur
 		return result;
 	}
 	
+	/**
+	 * Loads a version from each folder with {@link #loadVersion(IContainer, String)}; the keys
+	 * of <code>versionFolders</code> are the version names. If concurrent loading is enabled,
+	 * the versions are loaded in parallel by the {@link ModelLoadingExecutor}.
+	 * 
+	 * @return the loaded versions (<code>null</code> if the folder is <code>null</code>), 
+	 * with the version names as keys (in the order of <code>versionFolders</code>)
+	 */
+	protected Map<String, T> loadVersions(Map<String, IContainer> versionFolders) {
+		List<String> versionNames = new ArrayList<String>(versionFolders.keySet());
+		Map<String, T> result = new LinkedHashMap<String, T>();
+		if (this.isConcurrentLoading()) {
+			List<Callable<T>> tasks = new ArrayList<Callable<T>>();
+			for (final String versionName: versionNames) {
+				final IContainer folder = versionFolders.get(versionName);
+				tasks.add(new Callable<T>() {
+
+					@Override
+					public T call() {
+						return loadVersion(folder, versionName);
+					}
+				});
+			}
+			List<T> versions = ModelLoadingExecutor.invokeAll(tasks);
+			for (int i = 0; i < versionNames.size(); i++) {
+				result.put(versionNames.get(i), versions.get(i));
+			}
+		} else {
+			for (String versionName: versionNames) {
+				result.put(versionName, loadVersion(versionFolders.get(versionName), versionName));
+			}
+		}
+		return result;
+	}
+	
 	public static void showMessage(String text) {
 		if ((text != null) && !(text.trim().equals(""))) {
 			Shell shell = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getShell();
@@ -101,13 +219,28 @@ public abstract class AbstractDeriveWorkplanAction<T extends AbstractArchitectur
 		}
 	}
 	
+	/**
+	 * Refreshes all projects of the workspace.
+	 * 
+	 * @deprecated refresh only the folder the files have been written into, see 
+	 * {@link #refreshFolder(IContainer, IProgressMonitor)}
+	 */
+	@Deprecated
 	protected static void refreshAllProjectsInWorkspace() {
 		for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
-			try {
-				project.refreshLocal(IProject.DEPTH_INFINITE, null);
-			} catch (CoreException e) {
-				throw new RuntimeException(e);
-			}
+			refreshFolder(project, null);
+		}
+	}
+	
+	/**
+	 * Refreshes the folder after files have been written into it (within the scheduling 
+	 * rule of the saving stage of an {@link AnalysisPipelineJob}, see {@link AnalysisPipelineJob#createSchedulingRule(org.eclipse.core.resources.IResource)}).
+	 */
+	protected static void refreshFolder(IContainer folder, IProgressMonitor monitor) {
+		try {
+			folder.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+		} catch (CoreException e) {
+			throw new RuntimeException(e);
 		}
 	}
 	
@@ -120,6 +253,30 @@ public abstract class AbstractDeriveWorkplanAction<T extends AbstractArchitectur
 		this.selection = selection;
 	}
 
+	/**
+	 * Intermediate results of a work plan derivation, passed between the stages of the job.
+	 */
+	private static class WorkplanDerivationState<V> {
+		private V baseversion;
+		private V targetversion;
+		private List<Activity> baseActivityList;
+		private List<Activity> enrichedActivityList;
+	}
+
+	public boolean isConcurrentLoading() {
+		return concurrentLoading;
+	}
+
+	/**
+	 * Enables loading the base and the target version at the same time. Only enable it
+	 * if the <code>load</code> methods of the architecture version persistency are thread-safe 
+	 * (e.g. each call uses its own resource set, see 
+	 * {@link AbstractArchitectureVersionPersistency#loadEmfModelsFromResources(String, List, org.eclipse.emf.ecore.resource.ResourceSet)}).
+	 */
+	public void setConcurrentLoading(boolean concurrentLoading) {
+		this.concurrentLoading = concurrentLoading;
+	}
+
 	protected AbstractWorkplanDerivation<? super T> getWorkplanDerivation() {
 		return workplanDerivation;
 	}
@@ -0,0 +1,223 @@
+package edu.kit.ipd.sdq.kamp.ui;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.MultiRule;
+import org.eclipse.ui.PlatformUI;
+
+import edu.kit.ipd.sdq.kamp.Activator;
+import edu.kit.ipd.sdq.kamp.util.AnalysisInstrumentation;
+
+/**
+ * Runs the stages of an analysis (e.g. load, propagate, diff, deduplicate, sort, save) as
+ * Eclipse {@link Job}, so the UI is not blocked while the analysis is running. Each stage
+ * is shown as sub-task in the progress view. The job can be canceled; the cancellation
+ * is checked before each stage (and within stages which check their monitor), so the
+ * remaining stages are skipped and no partial results are saved by them.<br>
+ * The job itself runs without scheduling rule, so the workbench remains usable (e.g. an
+ * editor of the analyzed folder can be saved while the models are loaded and analyzed).
+ * Only the stages which save and refresh files hold a rule for the folder of the analyzed
+ * version while they are running (see {@link AbstractAnalysisStage#getSchedulingRule()}
+ * and {@link #createSchedulingRule(IResource)}). Messages for the user are shown in the UI
+ * thread when the job is done (see {@link #setResultMessage(String)} and
+ * {@link #skipRemainingStages(String)}).<br>
+ * Each stage is measured as a phase of the job's {@link AnalysisInstrumentation}; stages
+ * can add element counts to it (see {@link #getInstrumentation()}). When the job is done
+ * (also if a stage failed or the job was canceled, which is recorded as failure of the 
+ * instrumentation), a summary is written to the log and, if an instrumentation file is 
+ * set (see {@link #setInstrumentationFile(IFile)}), the measurements are saved as JSON.
+ */
+public class AnalysisPipelineJob extends Job {
+
+	private final List<AbstractAnalysisStage> stages = new ArrayList<AbstractAnalysisStage>();
+	private volatile String resultMessage;
+	private volatile boolean remainingStagesSkipped = false;
+	private final AnalysisInstrumentation instrumentation;
+	private IFile instrumentationFile;
+
+	public AnalysisPipelineJob(String name) {
+		super(name);
+		this.instrumentation = new AnalysisInstrumentation(name);
+		this.setUser(true);
+	}
+
+	/**
+	 * Returns a rule for writing files into the <code>folder</code> and refreshing it, for
+	 * the stages which save the results (see
+	 * {@link AbstractAnalysisStage#AbstractAnalysisStage(String, int, ISchedulingRule)}).
+	 */
+	public static ISchedulingRule createSchedulingRule(IResource folder) {
+		return MultiRule.combine(folder,
+				ResourcesPlugin.getWorkspace().getRuleFactory().refreshRule(folder));
+	}
+
+	public AnalysisPipelineJob addStage(AbstractAnalysisStage stage) {
+		this.stages.add(stage);
+		return this;
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		int totalWork = 0;
+		for (AbstractAnalysisStage stage: this.stages) {
+			totalWork += stage.getWork();
+		}
+		SubMonitor subMonitor = SubMonitor.convert(monitor, this.getName(), totalWork);
+		IStatus status = Status.OK_STATUS;
+		try {
+			for (AbstractAnalysisStage stage: this.stages) {
+				if (subMonitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				if (this.remainingStagesSkipped) {
+					break;
+				}
+				subMonitor.subTask(stage.getName());
+				AnalysisInstrumentation.Phase phase = this.instrumentation.startPhase(stage.getName());
+				ISchedulingRule rule = stage.getSchedulingRule();
+				try {
+					SubMonitor stageMonitor = subMonitor.split(stage.getWork());
+					if (rule != null) {
+						// waits for other jobs writing into the folder (or until the job is canceled)
+						Job.getJobManager().beginRule(rule, stageMonitor);
+					}
+					stage.run(stageMonitor);
+				} finally {
+					if (rule != null) {
+						Job.getJobManager().endRule(rule);
+					}
+					phase.end();
+				}
+			}
+		} catch (OperationCanceledException e) {
+			this.instrumentation.recordFailure("Canceled");
+			status = Status.CANCEL_STATUS;
+		} catch (RuntimeException e) {
+			this.instrumentation.recordFailure(e.toString());
+			status = new Status(IStatus.ERROR, Activator.PLUGIN_ID,
+					this.getName() + " failed: " + e.getMessage(), e);
+		} finally {
+			status = this.finishInstrumentation(status);
+			monitor.done();
+		}
+
+		if (status.isOK()) {
+			showMessageInUIThread(this.resultMessage);
+		}
+		return status;
+	}
+
+	/**
+	 * Logs and saves the measurements. If they cannot be saved, the returned status is an
+	 * error (unless the job has already failed with the <code>status</code>).
+	 */
+	private IStatus finishInstrumentation(IStatus status) {
+		this.log(new Status(IStatus.INFO, Activator.PLUGIN_ID, this.instrumentation.toString()));
+		if (this.instrumentationFile != null) {
+			try {
+				this.saveInstrumentationFile();
+			} catch (RuntimeException e) {
+				IStatus saveStatus = new Status(IStatus.ERROR, Activator.PLUGIN_ID,
+						"The measurements of " + this.getName() + " could not be saved: " + e.getMessage(), e);
+				if (status.isOK()) {
+					return saveStatus;
+				}
+				this.log(saveStatus);
+			}
+		}
+		return status;
+	}
+
+	private void log(IStatus status) {
+		if (Activator.getDefault() != null) {
+			Activator.getDefault().getLog().log(status);
+		}
+	}
+
+	private void saveInstrumentationFile() {
+		ByteArrayInputStream json = new ByteArrayInputStream(
+				this.instrumentation.toJson().getBytes(StandardCharsets.UTF_8));
+		try {
+			if (this.instrumentationFile.exists()) {
+				this.instrumentationFile.setContents(json, true, false, null);
+			} else {
+				this.instrumentationFile.create(json, true, null);
+			}
+		} catch (CoreException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Shows the message with {@link AbstractDeriveWorkplanAction#showMessage(String)} in the
+	 * UI thread (without waiting for it).
+	 */
+	public static void showMessageInUIThread(final String message) {
+		if (message != null && PlatformUI.isWorkbenchRunning()) {
+			PlatformUI.getWorkbench().getDisplay().asyncExec(new Runnable() {
+
+				@Override
+				public void run() {
+					AbstractDeriveWorkplanAction.showMessage(message);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Skips the stages after the current one (e.g. if a model could not be loaded) and
+	 * shows the <code>message</code> instead of the result message.
+	 */
+	public void skipRemainingStages(String message) {
+		this.resultMessage = message;
+		this.remainingStagesSkipped = true;
+	}
+
+	/**
+	 * Returns the measurements of the stages; a stage can add counts to its own phase with
+	 * {@link AnalysisInstrumentation#addCount(String, long)}.
+	 */
+	public AnalysisInstrumentation getInstrumentation() {
+		return instrumentation;
+	}
+
+	public IFile getInstrumentationFile() {
+		return instrumentationFile;
+	}
+
+	/**
+	 * Sets the file (e.g. next to the work plan, with the extension
+	 * {@link AnalysisInstrumentation#FILEEXTENSION_JSON}) into which the measurements are
+	 * saved as JSON when all stages have been run.
+	 */
+	public void setInstrumentationFile(IFile instrumentationFile) {
+		this.instrumentationFile = instrumentationFile;
+	}
+
+	public String getResultMessage() {
+		return resultMessage;
+	}
+
+	/**
+	 * Sets the message which is shown to the user if all stages have been run (stages
+	 * may set or change it).
+	 */
+	public void setResultMessage(String resultMessage) {
+		this.resultMessage = resultMessage;
+	}
+
+}
@@ -0,0 +1,477 @@
+package edu.kit.ipd.sdq.kamp.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.eclipse.emf.ecore.EObject;
+
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractChangePropagationStep;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModification;
+import edu.kit.ipd.sdq.kamp.model.modificationmarks.AbstractModificationRepository;
+
+/**
+ * Records the cost of the phases of an analysis run (e.g. loading, propagation, user
+ * decisions, work plan derivation, duplicate removal, sorting and export): the wall time,
+ * the allocated bytes (if the JVM can measure them) and element counts reported by the phases, as well as the number of modification marks of
+ * each change propagation step (see {@link #recordChangePropagationSteps(AbstractModificationRepository)}).
+ * The results can be read with {@link #getPhases()}, logged as summary with
+ * {@link #toString()} and written as JSON file next to the work plan (see
+ * {@link #saveToJsonFile(File)}), so the cost of the analysis of a model can be tracked
+ * over time.<br>
+ * A phase should be started and ended by the same thread. Two allocation numbers are 
+ * recorded per phase: the bytes allocated by all threads (including the workers of the 
+ * fork-join pools and the {@link ModelLoadingExecutor} used by parallel phases, but also 
+ * by unrelated threads running at the same time; threads which terminate during the phase
+ * are not counted), and the bytes allocated by the thread running the phase only.
+ */
+public class AnalysisInstrumentation {
+
+	public static final String FILEEXTENSION_JSON = "json";
+	public static final String COUNT_MODIFICATION_MARKS = "modificationMarks";
+	public static final String COUNT_CHANGE_PROPAGATION_STEPS = "changePropagationSteps";
+	public static final String COUNT_ACTIVITIES = "activities";
+
+	private static final Method GET_THREAD_ALLOCATED_BYTES = findThreadAllocatedBytesMethod(long.class);
+	private static final Method GET_THREADS_ALLOCATED_BYTES = findThreadAllocatedBytesMethod(long[].class);
+
+	private final String name;
+	private final Date startDate = new Date();
+	private final List<Phase> phases = new ArrayList<Phase>();
+	private final List<ChangePropagationStepRecord> changePropagationSteps = new ArrayList<ChangePropagationStepRecord>();
+	private Phase currentPhase;
+	private String failure;
+
+	public AnalysisInstrumentation(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Starts measuring a phase. The phase is the current phase (see
+	 * {@link #addCount(String, long)}) until it is ended with {@link Phase#end()} or the next
+	 * phase is started.
+	 */
+	public synchronized Phase startPhase(String phaseName) {
+		Phase phase = new Phase(phaseName);
+		this.phases.add(phase);
+		this.currentPhase = phase;
+		return phase;
+	}
+
+	/**
+	 * Adds the <code>value</code> to a counter of the current phase, e.g.
+	 * <code>addCount(COUNT_ACTIVITIES, activityList.size())</code>. The count is ignored if
+	 * no phase is running.
+	 */
+	public synchronized void addCount(String counterName, long value) {
+		if (this.currentPhase != null && this.currentPhase.isRunning()) {
+			this.currentPhase.addCount(counterName, value);
+		}
+	}
+
+	/**
+	 * Records the number of modification marks of each change propagation step of the
+	 * <code>repository</code> and adds the number of steps and marks to the current phase
+	 * (which should be the propagation). Steps recorded by a previous call are replaced.
+	 */
+	public synchronized void recordChangePropagationSteps(AbstractModificationRepository<?, ?> repository) {
+		this.changePropagationSteps.clear();
+		int modificationMarkCount = 0;
+		for (AbstractChangePropagationStep changePropagationStep: repository.getChangePropagationSteps()) {
+			int stepModificationMarkCount = countModificationMarks(changePropagationStep);
+			this.changePropagationSteps.add(new ChangePropagationStepRecord(this.changePropagationSteps.size() + 1,
+					changePropagationStep.eClass().getName(), stepModificationMarkCount));
+			modificationMarkCount += stepModificationMarkCount;
+		}
+		this.addCount(COUNT_CHANGE_PROPAGATION_STEPS, this.changePropagationSteps.size());
+		this.addCount(COUNT_MODIFICATION_MARKS, modificationMarkCount);
+	}
+
+	/**
+	 * Counts the modification marks contained (directly or indirectly) in the
+	 * <code>container</code>, e.g. a change propagation step or a whole repository.
+	 */
+	public static int countModificationMarks(EObject container) {
+		int count = 0;
+		for (Iterator<EObject> iterator = container.eAllContents(); iterator.hasNext();) {
+			if (iterator.next() instanceof AbstractModification) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Records that the analysis failed or was canceled (e.g. the exception thrown by a 
+	 * phase), so the measurements of failed runs can be told apart from successful ones.
+	 * Only the first failure is kept.
+	 */
+	public synchronized void recordFailure(String failure) {
+		if (this.failure == null) {
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * @return the failure recorded by {@link #recordFailure(String)}, or <code>null</code>
+	 * if the analysis has not failed
+	 */
+	public synchronized String getFailure() {
+		return failure;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized List<Phase> getPhases() {
+		return new ArrayList<Phase>(this.phases);
+	}
+
+	public synchronized List<ChangePropagationStepRecord> getChangePropagationSteps() {
+		return new ArrayList<ChangePropagationStepRecord>(this.changePropagationSteps);
+	}
+
+	/**
+	 * Returns the sum of the wall times of the ended phases in nanoseconds.
+	 */
+	public synchronized long getTotalWallTimeNanos() {
+		long total = 0;
+		for (Phase phase: this.phases) {
+			if (!phase.isRunning()) {
+				total += phase.getWallTimeNanos();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Returns whether the JVM can measure the allocations of a thread (otherwise, the
+	 * allocated bytes of the phases are -1).
+	 */
+	public static boolean isAllocationMeasurementSupported() {
+		return getCurrentThreadAllocatedBytes() >= 0;
+	}
+
+	/**
+	 * Looks up <code>com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)</code>
+	 * (or <code>(long[])</code>) reflectively, as it is not available on all JVMs.
+	 */
+	private static Method findThreadAllocatedBytesMethod(Class<?> parameterType) {
+		try {
+			ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			Class<?> extendedThreadMXBean = Class.forName("com.sun.management.ThreadMXBean", false,
+					threadMXBean.getClass().getClassLoader());
+			if (!extendedThreadMXBean.isInstance(threadMXBean)) {
+				return null;
+			}
+			return extendedThreadMXBean.getMethod("getThreadAllocatedBytes", parameterType);
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the bytes allocated by the current thread so far, or -1 if they cannot be
+	 * measured
+	 */
+	private static long getCurrentThreadAllocatedBytes() {
+		if (GET_THREAD_ALLOCATED_BYTES == null) {
+			return -1;
+		}
+		try {
+			return (Long) GET_THREAD_ALLOCATED_BYTES.invoke(ManagementFactory.getThreadMXBean(),
+					Thread.currentThread().getId());
+		} catch (IllegalAccessException e) {
+			return -1;
+		} catch (InvocationTargetException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the bytes allocated so far by each live thread (-1 for threads which have
+	 * terminated in the meantime), with the thread IDs as keys, or <code>null</code> if 
+	 * they cannot be measured
+	 */
+	private static Map<Long, Long> getAllThreadsAllocatedBytes() {
+		if (GET_THREADS_ALLOCATED_BYTES == null) {
+			return null;
+		}
+		long[] threadIds = ManagementFactory.getThreadMXBean().getAllThreadIds();
+		try {
+			long[] allocatedBytes = (long[]) GET_THREADS_ALLOCATED_BYTES.invoke(ManagementFactory.getThreadMXBean(),
+					(Object) threadIds);
+			Map<Long, Long> result = new HashMap<Long, Long>();
+			for (int i = 0; i < threadIds.length; i++) {
+				result.put(threadIds[i], allocatedBytes[i]);
+			}
+			return result;
+		} catch (IllegalAccessException e) {
+			return null;
+		} catch (InvocationTargetException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the results as JSON (see {@link #toJson()}) into the <code>file</code>.
+	 */
+	public void saveToJsonFile(File file) {
+		try {
+			Files.write(file.toPath(), this.toJson().getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the results as JSON object with the name and the start time of the analysis,
+	 * the failure (<code>null</code> if the analysis has not failed), the total wall time,
+	 * the phases (with wall time in nanoseconds, bytes allocated by all threads and by the
+	 * thread running the phase, and counts; phases which are still running have a wall time
+	 * of -1) and the change propagation steps (with the number of modification marks).
+	 */
+	public synchronized String toJson() {
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"analysis\": ").append(quote(this.name)).append(",\n");
+		json.append("  \"start\": ").append(quote(dateFormat.format(this.startDate))).append(",\n");
+		json.append("  \"failure\": ").append(this.failure != null ? quote(this.failure) : "null").append(",\n");
+		json.append("  \"totalWallTimeNanos\": ").append(this.getTotalWallTimeNanos()).append(",\n");
+		json.append("  \"phases\": [");
+		for (int i = 0; i < this.phases.size(); i++) {
+			Phase phase = this.phases.get(i);
+			json.append(i > 0 ? ",\n" : "\n");
+			json.append("    {\"name\": ").append(quote(phase.getName()));
+			json.append(", \"wallTimeNanos\": ").append(phase.getWallTimeNanos());
+			json.append(", \"allocatedBytes\": ").append(phase.getAllocatedBytes());
+			json.append(", \"threadAllocatedBytes\": ").append(phase.getThreadAllocatedBytes());
+			json.append(", \"counts\": {");
+			String separator = "";
+			for (Map.Entry<String, Long> count: phase.getCounts().entrySet()) {
+				json.append(separator).append(quote(count.getKey())).append(": ").append(count.getValue());
+				separator = ", ";
+			}
+			json.append("}}");
+		}
+		json.append(this.phases.isEmpty() ? "],\n" : "\n  ],\n");
+		json.append("  \"changePropagationSteps\": [");
+		for (int i = 0; i < this.changePropagationSteps.size(); i++) {
+			ChangePropagationStepRecord changePropagationStep = this.changePropagationSteps.get(i);
+			json.append(i > 0 ? ",\n" : "\n");
+			json.append("    {\"index\": ").append(changePropagationStep.getIndex());
+			json.append(", \"type\": ").append(quote(changePropagationStep.getType()));
+			json.append(", \"modificationMarks\": ").append(changePropagationStep.getModificationMarkCount()).append("}");
+		}
+		json.append(this.changePropagationSteps.isEmpty() ? "]\n" : "\n  ]\n");
+		json.append("}\n");
+		return json.toString();
+	}
+
+	private static String quote(String value) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < ' ') {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Returns a summary for the log: the failure (if any), one line per phase with wall time,
+	 * allocations and counts, followed by the modification marks per change propagation step.
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder summary = new StringBuilder();
+		summary.append(this.name).append(": ").append(formatMillis(this.getTotalWallTimeNanos()));
+		if (this.failure != null) {
+			summary.append("\n  failed: ").append(this.failure);
+		}
+		for (Phase phase: this.phases) {
+			summary.append("\n  ").append(phase);
+		}
+		for (ChangePropagationStepRecord changePropagationStep: this.changePropagationSteps) {
+			summary.append("\n  ").append(changePropagationStep);
+		}
+		return summary.toString();
+	}
+
+	private static String formatMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+	}
+
+	/**
+	 * The measurement of one phase of an analysis.
+	 */
+	public static class Phase {
+
+		private final String name;
+		private final long startNanos;
+		private final long startThreadAllocatedBytes;
+		private final Map<Long, Long> startAllocatedBytes;
+		private final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		private long wallTimeNanos = -1;
+		private long allocatedBytes = -1;
+		private long threadAllocatedBytes = -1;
+		private boolean running = true;
+
+		private Phase(String name) {
+			this.name = name;
+			this.startAllocatedBytes = getAllThreadsAllocatedBytes();
+			this.startThreadAllocatedBytes = getCurrentThreadAllocatedBytes();
+			this.startNanos = System.nanoTime();
+		}
+
+		/**
+		 * Ends the phase (only the first call has an effect).
+		 */
+		public synchronized void end() {
+			if (this.running) {
+				this.wallTimeNanos = System.nanoTime() - this.startNanos;
+				long endThreadAllocatedBytes = getCurrentThreadAllocatedBytes();
+				if (this.startThreadAllocatedBytes >= 0 && endThreadAllocatedBytes >= 0) {
+					this.threadAllocatedBytes = endThreadAllocatedBytes - this.startThreadAllocatedBytes;
+				}
+				Map<Long, Long> endAllocatedBytes = getAllThreadsAllocatedBytes();
+				if (this.startAllocatedBytes != null && endAllocatedBytes != null) {
+					this.allocatedBytes = 0;
+					for (Map.Entry<Long, Long> endThreadBytes: endAllocatedBytes.entrySet()) {
+						if (endThreadBytes.getValue() >= 0) {
+							// threads started during the phase have allocated all their bytes in it
+							Long start = this.startAllocatedBytes.get(endThreadBytes.getKey());
+							this.allocatedBytes += endThreadBytes.getValue() - (start != null && start >= 0 ? start : 0);
+						}
+					}
+				}
+				this.running = false;
+			}
+		}
+
+		public synchronized void addCount(String counterName, long value) {
+			Long count = this.counts.get(counterName);
+			this.counts.put(counterName, (count != null ? count : 0L) + value);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public synchronized boolean isRunning() {
+			return running;
+		}
+
+		/**
+		 * @return the wall time in nanoseconds, or -1 if the phase is still running
+		 */
+		public synchronized long getWallTimeNanos() {
+			return wallTimeNanos;
+		}
+
+		/**
+		 * @return the bytes allocated by all threads which were alive at the end of the phase
+		 * (see {@link AnalysisInstrumentation}), or -1 if the phase is still running or the 
+		 * allocations cannot be measured
+		 */
+		public synchronized long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+
+		/**
+		 * @return the bytes allocated by the thread which ran the phase, or -1 if the phase is
+		 * still running or the allocations cannot be measured
+		 */
+		public synchronized long getThreadAllocatedBytes() {
+			return threadAllocatedBytes;
+		}
+
+		public synchronized Map<String, Long> getCounts() {
+			return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(this.counts));
+		}
+
+		@Override
+		public synchronized String toString() {
+			StringBuilder summary = new StringBuilder(this.name).append(": ");
+			summary.append(this.running ? "running" : formatMillis(this.wallTimeNanos));
+			if (this.allocatedBytes >= 0) {
+				summary.append(String.format(Locale.ROOT, ", %.1f MB allocated by all threads", 
+						this.allocatedBytes / (1024.0 * 1024.0)));
+			}
+			if (this.threadAllocatedBytes >= 0) {
+				summary.append(String.format(Locale.ROOT, " (%.1f MB by the phase thread)", 
+						this.threadAllocatedBytes / (1024.0 * 1024.0)));
+			}
+			for (Map.Entry<String, Long> count: this.counts.entrySet()) {
+				summary.append(", ").append(count.getKey()).append("=").append(count.getValue());
+			}
+			return summary.toString();
+		}
+	}
+
+	/**
+	 * The number of modification marks found by one change propagation step.
+	 */
+	public static class ChangePropagationStepRecord {
+
+		private final int index;
+		private final String type;
+		private final int modificationMarkCount;
+
+		public ChangePropagationStepRecord(int index, String type, int modificationMarkCount) {
+			this.index = index;
+			this.type = type;
+			this.modificationMarkCount = modificationMarkCount;
+		}
+
+		/**
+		 * @return the position of the step in the repository (starting with 1)
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return the name of the class of the step
+		 */
+		public String getType() {
+			return type;
+		}
+
+		public int getModificationMarkCount() {
+			return modificationMarkCount;
+		}
+
+		@Override
+		public String toString() {
+			return "Change propagation step " + index + " (" + type + "): " + modificationMarkCount + " modification marks";
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+package edu.kit.ipd.sdq.kamp.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns dense int IDs to elements (in the order of their registration), so sets of 
+ * elements can be stored as bitsets (see {@link MarkedElementSet}). Elements are 
+ * identified by identity (like EObjects). IDs are never reused, so the registry should 
+ * live as long as the elements, e.g. one per architecture version
+ * (see {@link edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion#getElementIdRegistry()}).<br>
+ * The registry is not synchronized, as it is read on the hot path of propagation 
+ * algorithms: elements should be registered in a single pass by one thread (e.g. by
+ * {@link edu.kit.ipd.sdq.kamp.architecture.ArchitectureGraph#build(java.util.Collection, ElementIdRegistry)}).
+ * Afterwards, several threads may read it concurrently (including {@link #register(Object)}
+ * for elements which are already registered), as long as no further elements are registered.
+ */
+public class ElementIdRegistry<T> {
+
+	private final Map<Object, Integer> ids = new IdentityHashMap<Object, Integer>();
+	private final List<T> elements = new ArrayList<T>();
+
+	/**
+	 * Returns the ID of the element, registering it if necessary.
+	 */
+	public int register(T element) {
+		Integer id = this.ids.get(element);
+		if (id == null) {
+			id = this.elements.size();
+			this.ids.put(element, id);
+			this.elements.add(element);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the ID of the element or <code>-1</code> if it is not registered.
+	 */
+	public int getId(Object element) {
+		Integer id = this.ids.get(element);
+		return id != null ? id : -1;
+	}
+
+	public T getElement(int id) {
+		return this.elements.get(id);
+	}
+
+	/**
+	 * Number of registered elements. The IDs are <code>0</code> to <code>size() - 1</code>.
+	 */
+	public int size() {
+		return this.elements.size();
+	}
+
+}
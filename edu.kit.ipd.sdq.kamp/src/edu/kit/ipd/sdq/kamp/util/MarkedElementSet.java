@@ -0,0 +1,277 @@
+package edu.kit.ipd.sdq.kamp.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of elements stored as a <code>long[]</code> bitset over the IDs of an
+ * {@link ElementIdRegistry}. Propagation algorithms can use it as a drop-in replacement
+ * for <code>HashSet</code>s of marked elements: It implements the {@link java.util.Set}
+ * API (so it can be used with {@link MapUtil} and the results of 
+ * {@link edu.kit.ipd.sdq.kamp.architecture.ArchitectureModelLookup}), but 
+ * {@link #addAll(Collection)}, {@link #removeAll(Collection)}, {@link #retainAll(Collection)}
+ * and {@link #containsAll(Collection)} work word by word if the other collection is a 
+ * MarkedElementSet of the same registry, and no entry objects are allocated per element.
+ * Like the registry, the set identifies elements by identity (which equals the equality 
+ * of EObjects).
+ */
+public class MarkedElementSet<T> extends AbstractSet<T> {
+
+	private static final long[] EMPTY_WORDS = new long[0];
+	
+	private final ElementIdRegistry<? super T> registry;
+	private long[] words = EMPTY_WORDS;
+	private int size = 0;
+	private int modificationCount = 0;
+
+	public MarkedElementSet(ElementIdRegistry<? super T> registry) {
+		this.registry = registry;
+	}
+
+	public MarkedElementSet(ElementIdRegistry<? super T> registry, Collection<? extends T> elements) {
+		this(registry);
+		this.addAll(elements);
+	}
+
+	/**
+	 * Creates a set of all elements whose IDs are set in the <code>ids</code> and which are
+	 * instances of the <code>elementClass</code> (e.g. the result of a propagation on an
+	 * {@link edu.kit.ipd.sdq.kamp.architecture.ArchitectureGraph} with the same registry).
+	 */
+	public static <T> MarkedElementSet<T> fromBitSet(ElementIdRegistry<? super T> registry, BitSet ids, 
+			Class<T> elementClass) {
+		MarkedElementSet<T> set = new MarkedElementSet<T>(registry);
+		set.words = ids.toLongArray();
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+			if (!elementClass.isInstance(registry.getElement(id))) {
+				set.clearBit(id);
+			}
+		}
+		set.size = countBits(set.words);
+		return set;
+	}
+
+	public ElementIdRegistry<? super T> getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Returns a copy of the IDs of the elements.
+	 */
+	public BitSet toBitSet() {
+		return BitSet.valueOf(this.words);
+	}
+
+	/**
+	 * Returns a copy of this set.
+	 */
+	public MarkedElementSet<T> copy() {
+		MarkedElementSet<T> copy = new MarkedElementSet<T>(this.registry);
+		copy.words = this.words.clone();
+		copy.size = this.size;
+		return copy;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean contains(Object element) {
+		int id = this.registry.getId(element);
+		return id >= 0 && this.isSet(id);
+	}
+
+	@Override
+	public boolean add(T element) {
+		int id = this.registry.register(element);
+		if (this.isSet(id)) {
+			return false;
+		}
+		int wordIndex = id >>> 6;
+		if (wordIndex >= this.words.length) {
+			this.words = Arrays.copyOf(this.words, Math.max(wordIndex + 1, this.words.length * 2));
+		}
+		this.words[wordIndex] |= 1L << id;
+		this.size++;
+		this.modificationCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object element) {
+		int id = this.registry.getId(element);
+		if (id < 0 || !this.isSet(id)) {
+			return false;
+		}
+		this.clearBit(id);
+		this.size--;
+		this.modificationCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		this.words = EMPTY_WORDS;
+		this.size = 0;
+		this.modificationCount++;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends T> elements) {
+		MarkedElementSet<?> other = this.asCompatibleSet(elements);
+		if (other == null) {
+			return super.addAll(elements);
+		}
+		if (other.words.length > this.words.length) {
+			this.words = Arrays.copyOf(this.words, other.words.length);
+		}
+		for (int i = 0; i < other.words.length; i++) {
+			this.words[i] |= other.words[i];
+		}
+		return this.updateSize();
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> elements) {
+		MarkedElementSet<?> other = this.asCompatibleSet(elements);
+		if (other == null) {
+			boolean changed = false;
+			for (Object element: elements) {
+				changed |= this.remove(element);
+			}
+			return changed;
+		}
+		int length = Math.min(this.words.length, other.words.length);
+		for (int i = 0; i < length; i++) {
+			this.words[i] &= ~other.words[i];
+		}
+		return this.updateSize();
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> elements) {
+		MarkedElementSet<?> other = this.asCompatibleSet(elements);
+		if (other == null) {
+			return super.retainAll(elements);
+		}
+		for (int i = 0; i < this.words.length; i++) {
+			this.words[i] &= i < other.words.length ? other.words[i] : 0L;
+		}
+		return this.updateSize();
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> elements) {
+		MarkedElementSet<?> other = this.asCompatibleSet(elements);
+		if (other == null) {
+			return super.containsAll(elements);
+		}
+		for (int i = 0; i < other.words.length; i++) {
+			long word = i < this.words.length ? this.words[i] : 0L;
+			if ((other.words[i] & ~word) != 0L) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			
+			private int nextId = nextSetBit(0);
+			private int lastId = -1;
+			private int expectedModificationCount = modificationCount;
+
+			@Override
+			public boolean hasNext() {
+				return this.nextId >= 0;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public T next() {
+				if (this.expectedModificationCount != modificationCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (this.nextId < 0) {
+					throw new NoSuchElementException();
+				}
+				this.lastId = this.nextId;
+				this.nextId = nextSetBit(this.nextId + 1);
+				return (T) registry.getElement(this.lastId);
+			}
+
+			@Override
+			public void remove() {
+				if (this.lastId < 0) {
+					throw new IllegalStateException();
+				}
+				if (this.expectedModificationCount != modificationCount) {
+					throw new ConcurrentModificationException();
+				}
+				clearBit(this.lastId);
+				size--;
+				this.lastId = -1;
+				this.expectedModificationCount = ++modificationCount;
+			}
+		};
+	}
+
+	private MarkedElementSet<?> asCompatibleSet(Collection<?> elements) {
+		if (elements instanceof MarkedElementSet<?> && ((MarkedElementSet<?>) elements).registry == this.registry) {
+			return (MarkedElementSet<?>) elements;
+		}
+		return null;
+	}
+
+	private boolean isSet(int id) {
+		int wordIndex = id >>> 6;
+		return wordIndex < this.words.length && (this.words[wordIndex] & (1L << id)) != 0L;
+	}
+
+	private void clearBit(int id) {
+		this.words[id >>> 6] &= ~(1L << id);
+	}
+
+	private int nextSetBit(int fromId) {
+		int wordIndex = fromId >>> 6;
+		if (wordIndex >= this.words.length) {
+			return -1;
+		}
+		long word = this.words[wordIndex] & (-1L << fromId);
+		while (word == 0L) {
+			if (++wordIndex == this.words.length) {
+				return -1;
+			}
+			word = this.words[wordIndex];
+		}
+		return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	private boolean updateSize() {
+		int newSize = countBits(this.words);
+		boolean changed = newSize != this.size;
+		this.size = newSize;
+		if (changed) {
+			this.modificationCount++;
+		}
+		return changed;
+	}
+
+	private static int countBits(long[] words) {
+		int count = 0;
+		for (long word: words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,105 @@
+package edu.kit.ipd.sdq.kamp.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking tasks (e.g. loading model files or architecture versions) on a dedicated,
+ * bounded thread pool, so they do not block the workers of the common fork-join pool
+ * which is used by the computations of the analysis (e.g.
+ * {@link edu.kit.ipd.sdq.kamp.workplan.WorkplanSorter}).<br>
+ * While waiting for the results, the calling thread runs the tasks which have not been
+ * started by a worker yet. Thus, tasks may submit and wait for further tasks (e.g. the
+ * files of a version loaded in parallel to other versions) without deadlocking the pool.
+ */
+public final class ModelLoadingExecutor {
+
+	private static final int MAXIMUM_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+	private ModelLoadingExecutor() {
+	}
+
+	private static ThreadPoolExecutor createExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(MAXIMUM_THREADS, MAXIMUM_THREADS,
+				30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "KAMP model loading " + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Runs the <code>tasks</code> in parallel and waits for their results. If a task fails,
+	 * its exception is rethrown (checked exceptions wrapped in a RuntimeException) after all
+	 * tasks have finished.
+	 *
+	 * @return the results of the tasks, in the order of the <code>tasks</code>
+	 */
+	public static <V> List<V> invokeAll(List<? extends Callable<V>> tasks) {
+		List<FutureTask<V>> futures = new ArrayList<FutureTask<V>>(tasks.size());
+		for (Callable<V> task: tasks) {
+			FutureTask<V> future = new FutureTask<V>(task);
+			futures.add(future);
+			EXECUTOR.execute(future);
+		}
+
+		List<V> result = new ArrayList<V>(futures.size());
+		Throwable failure = null;
+		for (FutureTask<V> future: futures) {
+			// does nothing if a worker has already started the task
+			future.run();
+			try {
+				result.add(getUninterruptibly(future));
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause();
+				}
+				result.add(null);
+			}
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new RuntimeException(failure);
+		}
+		return result;
+	}
+
+	private static <V> V getUninterruptibly(FutureTask<V> future) throws ExecutionException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
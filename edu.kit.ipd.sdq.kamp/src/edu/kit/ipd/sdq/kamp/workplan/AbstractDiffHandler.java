@@ -0,0 +1,20 @@
+package edu.kit.ipd.sdq.kamp.workplan;
+
+import java.util.List;
+
+import org.eclipse.emf.compare.ReferenceChange;
+
+/**
+ * Creates activities for an added or deleted element of a certain 
+ * {@link AbstractActivityElementType}. Handlers are registered in a {@link DiffDispatchTable}.
+ */
+public interface AbstractDiffHandler {
+
+	/**
+	 * Handles the <code>diff</code> whose value (the added or deleted element) is an 
+	 * instance of the element class of the <code>elementType</code>. Created activities
+	 * should be added to the <code>workplan</code>.
+	 */
+	void handleDifference(ReferenceChange diff, AbstractActivityElementType elementType, List<Activity> workplan);
+
+}
@@ -1,16 +1,40 @@
 package edu.kit.ipd.sdq.kamp.workplan;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import org.eclipse.emf.common.util.Monitor;
 import org.eclipse.emf.compare.Comparison;
 import org.eclipse.emf.compare.Diff;
 import org.eclipse.emf.compare.DifferenceKind;
 import org.eclipse.emf.compare.EMFCompare;
+import org.eclipse.emf.compare.Match;
 import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.compare.diff.DefaultDiffEngine;
+import org.eclipse.emf.compare.diff.DiffBuilder;
+import org.eclipse.emf.compare.diff.FeatureFilter;
+import org.eclipse.emf.compare.diff.IDiffEngine;
+import org.eclipse.emf.compare.equi.IEquiEngine;
+import org.eclipse.emf.compare.match.IMatchEngine;
+import org.eclipse.emf.compare.match.impl.MatchEngineFactoryImpl;
+import org.eclipse.emf.compare.match.impl.MatchEngineFactoryRegistryImpl;
+import org.eclipse.emf.compare.postprocessor.PostProcessorDescriptorRegistryImpl;
+import org.eclipse.emf.compare.req.IReqEngine;
 import org.eclipse.emf.compare.scope.DefaultComparisonScope;
 import org.eclipse.emf.compare.scope.IComparisonScope;
+import org.eclipse.emf.compare.utils.UseIdentifiers;
+import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 
 import edu.kit.ipd.sdq.kamp.architecture.AbstractArchitectureVersion;
 import edu.kit.ipd.sdq.kamp.propagation.AbstractChangePropagationAnalysis;
@@ -59,6 +83,73 @@ public abstract class AbstractWorkplanDerivation<T extends AbstractArchitectureV
 		return differences;
 	}
 	
+	/**
+	 * Like {@link #calculateDiffModel(EObject, EObject)}, but uses a comparison configured
+	 * for models whose elements have stable IDs (see {@link #createIdentifierBasedComparison()}), 
+	 * which is much faster for large models. Only {@link ReferenceChange}s are calculated.
+	 */
+	public static List<Diff> calculateDiffModelByIdentifiers(EObject source, EObject target) {
+		IComparisonScope scope = new DefaultComparisonScope(target, source, null);
+		Comparison comparison = createIdentifierBasedComparison().compare(scope);
+		
+		List<Diff> differences = comparison.getDifferences();
+		
+		return differences;
+	}
+	
+	/**
+	 * Creates an EMF Compare configuration which only computes what the work plan 
+	 * derivation needs:
+	 * <ul><li>elements are matched by their IDs only (no similarity-based matching),</li>
+	 * <li>only references are compared (no attribute changes, no ordering changes),</li>
+	 * <li>no requirements and equivalences between the differences are computed and
+	 * no post-processors are run.</li></ul>
+	 * Conflicts are not detected anyway, as the comparison is a two-way comparison.
+	 */
+	public static EMFCompare createIdentifierBasedComparison() {
+		IMatchEngine.Factory.Registry matchEngineFactoryRegistry = new MatchEngineFactoryRegistryImpl();
+		matchEngineFactoryRegistry.add(new MatchEngineFactoryImpl(UseIdentifiers.ONLY));
+		
+		IDiffEngine diffEngine = new DefaultDiffEngine(new DiffBuilder()) {
+			
+			@Override
+			protected FeatureFilter createFeatureFilter() {
+				return new FeatureFilter() {
+					
+					@Override
+					public Iterator<EAttribute> getAttributesToCheck(Match match) {
+						return Collections.<EAttribute>emptyIterator();
+					}
+					
+					@Override
+					public boolean checkForOrderingChanges(EStructuralFeature feature) {
+						return false;
+					}
+				};
+			}
+		};
+		
+		return EMFCompare.builder()
+				.setMatchEngineFactoryRegistry(matchEngineFactoryRegistry)
+				.setDiffEngine(diffEngine)
+				.setRequirementEngine(new IReqEngine() {
+					
+					@Override
+					public void computeRequirements(Comparison comparison, Monitor monitor) {
+						// requirements between differences are not needed for the work plan
+					}
+				})
+				.setEquivalenceEngine(new IEquiEngine() {
+					
+					@Override
+					public void computeEquivalences(Comparison comparison, Monitor monitor) {
+						// equivalences between differences are not needed for the work plan
+					}
+				})
+				.setPostProcessorRegistry(new PostProcessorDescriptorRegistryImpl<String>())
+				.build();
+	}
+	
 	/**
 	 * Goes through all detected model differences and adds activities to the 
 	 * work plan, using {@link #checkForDifferencesAndAddToWorkplan(Diff, List)}.
@@ -70,6 +161,107 @@ public abstract class AbstractWorkplanDerivation<T extends AbstractArchitectureV
 		}
 		return workplan;
 	}
+	
+	/**
+	 * Like {@link #deriveAddAndRemoveActivities(List)}, but added and deleted elements are
+	 * dispatched to the handlers registered in the <code>dispatchTable</code> (which should 
+	 * be created once per derivation). Only the other differences are passed to
+	 * {@link #checkForDifferencesAndAddToWorkplan(Diff, List)}.
+	 */
+	protected List<Activity> deriveAddAndRemoveActivities(List<Diff> diff, DiffDispatchTable dispatchTable) {
+		List<Activity> workplan = new ArrayList<Activity>();	
+		for (Diff diffElement : diff) {
+			this.handleDifference(diffElement, dispatchTable, workplan);
+		}
+		return workplan;
+	}
+	
+	/**
+	 * Compares several pairs of models (e.g. the different model files of an architecture
+	 * version) and derives the add/remove activities for them, like 
+	 * {@link #deriveAddAndRemoveActivities(List, DiffDispatchTable)}.
+	 * If <code>parallel</code> is set, the pairs are compared concurrently in the common 
+	 * fork/join pool, so {@link #checkForDifferencesAndAddToWorkplan(Diff, List)} and the
+	 * handlers of the <code>dispatchTable</code> (if not <code>null</code>) may be called
+	 * concurrently for different pairs (each pair has its own workplan list). All proxies of
+	 * the models are resolved beforehand, so the comparisons only read the models.
+	 * The activities are returned in the order of the pairs, regardless of which 
+	 * comparison finishes first.
+	 */
+	protected List<Activity> deriveAddAndRemoveActivities(List<DiffModelPair> modelPairs, 
+			final DiffDispatchTable dispatchTable, boolean parallel) {
+		List<List<Activity>> workplans = new ArrayList<List<Activity>>();
+		if (!parallel || modelPairs.size() < 2) {
+			for (DiffModelPair modelPair: modelPairs) {
+				List<Activity> workplan = new ArrayList<Activity>();
+				this.deriveAddAndRemoveActivities(modelPair, dispatchTable, workplan);
+				workplans.add(workplan);
+			}
+		} else {
+			resolveAllProxies(modelPairs);
+			List<ForkJoinTask<List<Activity>>> tasks = new ArrayList<ForkJoinTask<List<Activity>>>();
+			for (final DiffModelPair modelPair: modelPairs) {
+				tasks.add(ForkJoinPool.commonPool().submit(new Callable<List<Activity>>() {
+
+					@Override
+					public List<Activity> call() {
+						List<Activity> workplan = new ArrayList<Activity>();
+						deriveAddAndRemoveActivities(modelPair, dispatchTable, workplan);
+						return workplan;
+					}
+				}));
+			}
+			for (ForkJoinTask<List<Activity>> task: tasks) {
+				workplans.add(task.join());
+			}
+		}
+		
+		List<Activity> result = new ArrayList<Activity>();
+		for (List<Activity> workplan: workplans) {
+			result.addAll(workplan);
+		}
+		return result;
+	}
+	
+	/**
+	 * Compares a single pair of models and adds the activities for the differences to the
+	 * <code>workplan</code>.
+	 */
+	protected void deriveAddAndRemoveActivities(DiffModelPair modelPair, DiffDispatchTable dispatchTable, 
+			List<Activity> workplan) {
+		List<Diff> differences = modelPair.isIdentifierBased() 
+				? calculateDiffModelByIdentifiers(modelPair.getBaseRoot(), modelPair.getTargetRoot())
+				: calculateDiffModel(modelPair.getBaseRoot(), modelPair.getTargetRoot());
+		for (Diff diffElement: differences) {
+			this.handleDifference(diffElement, dispatchTable, workplan);
+		}
+	}
+	
+	private static void resolveAllProxies(List<DiffModelPair> modelPairs) {
+		Set<Object> resolved = new HashSet<Object>();
+		for (DiffModelPair modelPair: modelPairs) {
+			for (EObject root: new EObject[] {modelPair.getBaseRoot(), modelPair.getTargetRoot()}) {
+				ResourceSet resourceSet = root.eResource() != null ? root.eResource().getResourceSet() : null;
+				if (resourceSet != null) {
+					if (resolved.add(resourceSet)) {
+						EcoreUtil.resolveAll(resourceSet);
+					}
+				} else if (resolved.add(root)) {
+					EcoreUtil.resolveAll(root);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Dispatches a single difference via the <code>dispatchTable</code> (if not 
+	 * <code>null</code>) or passes it to {@link #checkForDifferencesAndAddToWorkplan(Diff, List)}.
+	 */
+	protected void handleDifference(Diff diffElement, DiffDispatchTable dispatchTable, List<Activity> workplan) {
+		if (dispatchTable == null || !dispatchTable.dispatch(diffElement, workplan)) {
+			this.checkForDifferencesAndAddToWorkplan(diffElement, workplan);
+		}
+	}
 
 	/**
 	 * Finds out if the element affected by the diff has the given class or a sub-class.
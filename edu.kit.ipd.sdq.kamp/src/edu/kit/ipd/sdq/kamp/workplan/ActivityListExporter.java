@@ -0,0 +1,240 @@
+package edu.kit.ipd.sdq.kamp.workplan;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes a list of Activities (including their sub- and follow-up activities) as text.
+ * The activity tree is walked depth-first with an explicit stack, so deep trees do not
+ * overflow the call stack, and each line is written piecewise into a buffered writer
+ * instead of being concatenated first. Supported formats are:
+ * <ul><li>{@link Format#PLAIN}: the activity list format (<code>prefix basicActivity
+ * elementType elementName</code>, with "=" for sub-activities and "->" for follow-up
+ * activities in the prefix),</li>
+ * <li>{@link Format#CSV}: one row per activity with header row (RFC 4180 quoting),</li>
+ * <li>{@link Format#JSONL}: one JSON object per activity and line.</li></ul>
+ */
+public class ActivityListExporter {
+
+	public enum Format {
+		PLAIN("activitylist"),
+		CSV("csv"),
+		JSONL("jsonl");
+
+		private final String fileExtension;
+
+		private Format(String fileExtension) {
+			this.fileExtension = fileExtension;
+		}
+
+		public String getFileExtension() {
+			return this.fileExtension;
+		}
+	}
+
+	public static final String PREFIX_SUBACTIVITY = "=";
+	public static final String PREFIX_FOLLOWUPACTIVITY = "->";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final String CSV_HEADER = "Prefix,Basic activity,Element type,Affected element,"
+			+ "Activity type,Activity description,Causing elements";
+
+	/**
+	 * Writes the activities into the file (which is created or truncated) through a buffered
+	 * file channel, in UTF-8.
+	 */
+	public void export(Path file, List<Activity> activityList, Format format) {
+		this.export(file, activityList, format, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the activities into the file (which is created or truncated) through a buffered
+	 * file channel, in the <code>charset</code>.
+	 */
+	public void export(Path file, List<Activity> activityList, Format format, Charset charset) {
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			Writer writer = new BufferedWriter(Channels.newWriter(channel,
+					charset.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+			try {
+				this.export(writer, activityList, "", format);
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Writes the activities into the writer. The writer is neither flushed nor closed.
+	 */
+	public void export(Writer writer, List<Activity> activityList, String prefix, Format format) throws IOException {
+		if (format == Format.CSV) {
+			writer.write(CSV_HEADER);
+			writer.write('\n');
+		}
+		// the prefixes of all levels share one builder, each level only remembers its suffix
+		StringBuilder currentPrefix = new StringBuilder();
+		Deque<ActivityIterator> stack = new ArrayDeque<ActivityIterator>();
+		stack.push(new ActivityIterator(activityList.iterator(), 0, prefix != null ? prefix : ""));
+		while (!stack.isEmpty()) {
+			ActivityIterator current = stack.peek();
+			if (!current.iterator.hasNext()) {
+				stack.pop();
+				continue;
+			}
+			Activity activity = current.iterator.next();
+			currentPrefix.setLength(current.parentPrefixLength);
+			currentPrefix.append(current.prefixSuffix);
+			switch (format) {
+			case CSV: writeCsvLine(writer, currentPrefix, activity); break;
+			case JSONL: writeJsonLine(writer, currentPrefix, activity); break;
+			default: writePlainLine(writer, currentPrefix, activity);
+			}
+
+			if (!activity.getFollowupActivities().isEmpty()) {
+				stack.push(new ActivityIterator(activity.getFollowupActivities().iterator(),
+						currentPrefix.length(), PREFIX_FOLLOWUPACTIVITY));
+			}
+			if (!activity.getSubActivities().isEmpty()) {
+				stack.push(new ActivityIterator(activity.getSubActivities().iterator(),
+						currentPrefix.length(), PREFIX_SUBACTIVITY));
+			}
+		}
+	}
+
+	private static void writePlainLine(Writer writer, CharSequence prefix, Activity activity) throws IOException {
+		writer.append(prefix);
+		writer.write(' ');
+		writer.write(String.valueOf(activity.getBasicActivity()));
+		writer.write(' ');
+		writer.write(String.valueOf(activity.getElementType()));
+		writer.write(' ');
+		writer.write(String.valueOf(activity.getElementName()));
+		writer.write('\n');
+	}
+
+	private static void writeCsvLine(Writer writer, CharSequence prefix, Activity activity) throws IOException {
+		writeCsvValue(writer, prefix);
+		writer.write(',');
+		writeCsvValue(writer, activity.getBasicActivity() != null ? activity.getBasicActivity().getName() : null);
+		writer.write(',');
+		writeCsvValue(writer, activity.getElementType() != null ? activity.getElementType().getName() : null);
+		writer.write(',');
+		writeCsvValue(writer, activity.getElementName());
+		writer.write(',');
+		writeCsvValue(writer, activity.getType() != null ? activity.getType().getName() : null);
+		writer.write(',');
+		writeCsvValue(writer, activity.getDescription());
+		writer.write(',');
+		writeCsvValue(writer, String.join(", ", activity.getCausingElementsNames()));
+		writer.write('\n');
+	}
+
+	private static void writeCsvValue(Writer writer, CharSequence value) throws IOException {
+		if (value == null) {
+			return;
+		}
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char character = value.charAt(i);
+			quote = character == ',' || character == '"' || character == '\n' || character == '\r';
+		}
+		if (!quote) {
+			writer.append(value);
+			return;
+		}
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char character = value.charAt(i);
+			if (character == '"') {
+				writer.write('"');
+			}
+			writer.write(character);
+		}
+		writer.write('"');
+	}
+
+	private static void writeJsonLine(Writer writer, CharSequence prefix, Activity activity) throws IOException {
+		writer.write("{\"prefix\":");
+		writeJsonString(writer, prefix);
+		writer.write(",\"basicActivity\":");
+		writeJsonString(writer, activity.getBasicActivity() != null ? activity.getBasicActivity().getName() : null);
+		writer.write(",\"elementType\":");
+		writeJsonString(writer, activity.getElementType() != null ? activity.getElementType().getName() : null);
+		writer.write(",\"elementName\":");
+		writeJsonString(writer, activity.getElementName());
+		writer.write(",\"activityType\":");
+		writeJsonString(writer, activity.getType() != null ? activity.getType().getName() : null);
+		writer.write(",\"description\":");
+		writeJsonString(writer, activity.getDescription());
+		writer.write(",\"causingElements\":[");
+		boolean first = true;
+		for (String cause: activity.getCausingElementsNames()) {
+			if (!first) {
+				writer.write(',');
+			}
+			writeJsonString(writer, cause);
+			first = false;
+		}
+		writer.write("]}\n");
+	}
+
+	private static void writeJsonString(Writer writer, CharSequence value) throws IOException {
+		if (value == null) {
+			writer.write("null");
+			return;
+		}
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char character = value.charAt(i);
+			switch (character) {
+			case '"': writer.write("\\\""); break;
+			case '\\': writer.write("\\\\"); break;
+			case '\n': writer.write("\\n"); break;
+			case '\r': writer.write("\\r"); break;
+			case '\t': writer.write("\\t"); break;
+			default:
+				if (character < 0x20) {
+					writer.write(String.format("\\u%04x", (int) character));
+				} else {
+					writer.write(character);
+				}
+			}
+		}
+		writer.write('"');
+	}
+
+	private static class ActivityIterator {
+
+		private final Iterator<Activity> iterator;
+		private final int parentPrefixLength;
+		private final String prefixSuffix;
+
+		private ActivityIterator(Iterator<Activity> iterator, int parentPrefixLength, String prefixSuffix) {
+			this.iterator = iterator;
+			this.parentPrefixLength = parentPrefixLength;
+			this.prefixSuffix = prefixSuffix;
+		}
+
+	}
+
+}
@@ -0,0 +1,138 @@
+package edu.kit.ipd.sdq.kamp.workplan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * Dispatches added and deleted elements to the {@link AbstractDiffHandler}s registered for
+ * their {@link AbstractActivityElementType}s. Instead of checking every element type for
+ * every difference (like calling {@link AbstractWorkplanDerivation#detectionRuleAdded(Diff, Class)}
+ * and {@link AbstractWorkplanDerivation#detectionRuleDeleted(Diff, Class)} in a loop), the
+ * matching handlers are determined once per EClass of the changed elements and cached.
+ * The table should be created once per work plan derivation (after all handlers are
+ * registered, it can be used concurrently).
+ */
+public class DiffDispatchTable {
+
+	private final List<Registration> addRegistrations = new ArrayList<Registration>();
+	private final List<Registration> deleteRegistrations = new ArrayList<Registration>();
+
+	private final Map<EClass, List<Registration>> addHandlersByEClass = new ConcurrentHashMap<EClass, List<Registration>>();
+	private final Map<EClass, List<Registration>> deleteHandlersByEClass = new ConcurrentHashMap<EClass, List<Registration>>();
+
+	/**
+	 * Registers a handler for added elements of the <code>elementType</code> (including 
+	 * elements of sub-classes of its element class).
+	 */
+	public void registerAddHandler(AbstractActivityElementType elementType, AbstractDiffHandler handler) {
+		this.addRegistrations.add(new Registration(elementType, handler));
+		this.addHandlersByEClass.clear();
+	}
+
+	/**
+	 * Registers a handler for deleted elements of the <code>elementType</code> (including 
+	 * elements of sub-classes of its element class).
+	 */
+	public void registerDeleteHandler(AbstractActivityElementType elementType, AbstractDiffHandler handler) {
+		this.deleteRegistrations.add(new Registration(elementType, handler));
+		this.deleteHandlersByEClass.clear();
+	}
+
+	/**
+	 * Passes the <code>diff</code> to all handlers registered for the element types of its
+	 * value (in the order of their registration).
+	 * 
+	 * @return <code>true</code> if the diff is an added or deleted element and at least one 
+	 *         handler matched; otherwise, the diff has not been handled by this table and 
+	 *         should be checked in another way (e.g. by
+	 *         {@link AbstractWorkplanDerivation#checkForDifferencesAndAddToWorkplan(Diff, List)})
+	 */
+	public boolean dispatch(Diff diff, List<Activity> workplan) {
+		if (!(diff instanceof ReferenceChange)) {
+			return false;
+		}
+		ReferenceChange referenceChange = (ReferenceChange) diff;
+		List<Registration> registrations;
+		if (diff.getKind() == DifferenceKind.ADD) {
+			registrations = this.getRegistrations(referenceChange.getValue(), this.addRegistrations, this.addHandlersByEClass);
+		} else if (diff.getKind() == DifferenceKind.DELETE) {
+			registrations = this.getRegistrations(referenceChange.getValue(), this.deleteRegistrations, this.deleteHandlersByEClass);
+		} else {
+			return false;
+		}
+		for (Registration registration: registrations) {
+			registration.handler.handleDifference(referenceChange, registration.elementType, workplan);
+		}
+		return !registrations.isEmpty();
+	}
+
+	/**
+	 * Returns the element types of all handlers for added (<code>added == true</code>) or
+	 * deleted elements which match the <code>element</code>.
+	 */
+	public List<AbstractActivityElementType> getElementTypes(EObject element, boolean added) {
+		List<AbstractActivityElementType> elementTypes = new ArrayList<AbstractActivityElementType>();
+		for (Registration registration: added 
+				? this.getRegistrations(element, this.addRegistrations, this.addHandlersByEClass)
+				: this.getRegistrations(element, this.deleteRegistrations, this.deleteHandlersByEClass)) {
+			elementTypes.add(registration.elementType);
+		}
+		return elementTypes;
+	}
+
+	private List<Registration> getRegistrations(EObject element, List<Registration> allRegistrations, 
+			Map<EClass, List<Registration>> registrationsByEClass) {
+		if (element == null) {
+			return Collections.emptyList();
+		}
+		EClass eClass = element.eClass();
+		List<Registration> registrations = registrationsByEClass.get(eClass);
+		if (registrations == null) {
+			Class<?> instanceClass = eClass.getInstanceClass();
+			if (instanceClass == null) {
+				// dynamic EClass: the Java class does not tell the model type, so it cannot be cached
+				return getMatchingRegistrations(element, allRegistrations);
+			}
+			registrations = new ArrayList<Registration>();
+			for (Registration registration: allRegistrations) {
+				if (registration.elementType.getElementClass().isAssignableFrom(instanceClass)) {
+					registrations.add(registration);
+				}
+			}
+			registrationsByEClass.put(eClass, registrations);
+		}
+		return registrations;
+	}
+
+	private static List<Registration> getMatchingRegistrations(EObject element, List<Registration> allRegistrations) {
+		List<Registration> registrations = new ArrayList<Registration>();
+		for (Registration registration: allRegistrations) {
+			if (registration.elementType.getElementClass().isInstance(element)) {
+				registrations.add(registration);
+			}
+		}
+		return registrations;
+	}
+
+	private static class Registration {
+
+		private final AbstractActivityElementType elementType;
+		private final AbstractDiffHandler handler;
+
+		private Registration(AbstractActivityElementType elementType, AbstractDiffHandler handler) {
+			this.elementType = elementType;
+			this.handler = handler;
+		}
+
+	}
+
+}
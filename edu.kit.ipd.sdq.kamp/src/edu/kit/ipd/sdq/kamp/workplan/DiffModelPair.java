@@ -0,0 +1,43 @@
+package edu.kit.ipd.sdq.kamp.workplan;
+
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * The root elements of one model file in the base and in the target version, which
+ * should be compared to find added and removed elements (see
+ * {@link AbstractWorkplanDerivation#deriveAddAndRemoveActivities(java.util.List, DiffDispatchTable, boolean)}).
+ */
+public class DiffModelPair {
+
+	private final EObject baseRoot;
+	private final EObject targetRoot;
+	private final boolean identifierBased;
+
+	public DiffModelPair(EObject baseRoot, EObject targetRoot) {
+		this(baseRoot, targetRoot, false);
+	}
+
+	/**
+	 * @param identifierBased whether the elements of the models have stable IDs, so the 
+	 *        faster comparison of {@link AbstractWorkplanDerivation#calculateDiffModelByIdentifiers(EObject, EObject)}
+	 *        can be used
+	 */
+	public DiffModelPair(EObject baseRoot, EObject targetRoot, boolean identifierBased) {
+		this.baseRoot = baseRoot;
+		this.targetRoot = targetRoot;
+		this.identifierBased = identifierBased;
+	}
+
+	public EObject getBaseRoot() {
+		return baseRoot;
+	}
+
+	public EObject getTargetRoot() {
+		return targetRoot;
+	}
+
+	public boolean isIdentifierBased() {
+		return identifierBased;
+	}
+
+}
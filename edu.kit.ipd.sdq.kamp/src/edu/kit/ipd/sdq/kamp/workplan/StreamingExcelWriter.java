@@ -0,0 +1,305 @@
+package edu.kit.ipd.sdq.kamp.workplan;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a list of Activities to Excel files in the Office Open XML format (*.xlsx), with
+ * the same columns as the {@link ExcelWriter}. In contrast to the {@link ExcelWriter}, no
+ * workbook is built in memory: each row is written to the (zipped) sheet as soon as its
+ * activity is reached while walking the activity tree, so the memory consumption does not
+ * depend on the size of the workplan.<br>
+ * If a sheet reaches the maximum number of rows, the output is continued on a new sheet
+ * (with the header row repeated), and if a file reaches the maximum number of sheets, the
+ * output is continued in a new file (<code>name_2.xlsx</code>, <code>name_3.xlsx</code>, ...).
+ */
+public class StreamingExcelWriter {
+
+	public static final String FILEEXTENSION = "xlsx";
+
+	/**
+	 * Maximum number of rows of a sheet in the Office Open XML format.
+	 */
+	public static final int MAX_ROWS_PER_SHEET = 1048576;
+
+	private static final int MAX_SHEET_NAME_LENGTH = 31;
+
+	private static final String[] HEADER = new String[] {
+			"", "Activity type", "Activity description", "Affected element", "Causing elements"};
+
+	private int maxRowsPerSheet = MAX_ROWS_PER_SHEET;
+	private int maxSheetsPerFile = Integer.MAX_VALUE;
+
+	private String basePath;
+	private String sheetName;
+	private List<String> writtenFiles;
+	private ZipOutputStream zipOutputStream;
+	private Writer writer;
+	private int sheetCount;
+	private int currentRow;
+
+	/**
+	 * Saves the activities to <code>basePath + ".xlsx"</code> (and further files if the
+	 * row limits are reached).
+	 *
+	 * @return the paths of all written files
+	 */
+	public List<String> saveActivitiesToExcelFile(String basePath, List<Activity> activityList, String prefix) {
+		this.basePath = basePath;
+		this.writtenFiles = new ArrayList<String>();
+		String username = System.getProperty("user.name");
+		this.sheetName = sanitizeSheetName("Work plan" + ((username!=null) ? " " + username : ""));
+
+		try {
+			try {
+				this.openFile();
+				this.writeActivities(activityList, prefix);
+			} finally {
+				this.closeFile();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return this.writtenFiles;
+	}
+
+	/**
+	 * Walks the activity tree (depth-first, sub-activities before follow-up activities) with an
+	 * explicit stack, so the depth of the tree is not limited by the call stack.
+	 */
+	protected void writeActivities(List<Activity> activityList, String prefix) throws IOException {
+		Deque<ActivityIterator> stack = new ArrayDeque<ActivityIterator>();
+		stack.push(new ActivityIterator(activityList.iterator(), prefix));
+		while (!stack.isEmpty()) {
+			ActivityIterator current = stack.peek();
+			if (!current.iterator.hasNext()) {
+				stack.pop();
+				continue;
+			}
+			Activity activity = current.iterator.next();
+			this.writeRow(current.prefix, activity.getType().getName(), activity.getDescription(),
+					activity.getElementName(), concatenate(activity.getCausingElementsNames()));
+
+			if (!activity.getFollowupActivities().isEmpty()) {
+				stack.push(new ActivityIterator(activity.getFollowupActivities().iterator(), current.prefix + "=>"));
+			}
+			if (!activity.getSubActivities().isEmpty()) {
+				stack.push(new ActivityIterator(activity.getSubActivities().iterator(), current.prefix + "="));
+			}
+		}
+	}
+
+	protected void writeRow(String... cells) throws IOException {
+		if (this.currentRow >= this.maxRowsPerSheet) {
+			if (this.sheetCount >= this.maxSheetsPerFile) {
+				this.closeFile();
+				this.openFile();
+			} else {
+				this.closeSheet();
+				this.openSheet();
+			}
+		}
+		this.writeCells(cells);
+	}
+
+	private void writeCells(String[] cells) throws IOException {
+		this.currentRow++;
+		this.writer.write("<row r=\"");
+		this.writer.write(Integer.toString(this.currentRow));
+		this.writer.write("\">");
+		for (int column = 0; column < cells.length; column++) {
+			if (cells[column] != null && !cells[column].isEmpty()) {
+				this.writer.write("<c r=\"");
+				this.writer.write((char) ('A' + column));
+				this.writer.write(Integer.toString(this.currentRow));
+				this.writer.write("\" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+				writeEscaped(this.writer, cells[column]);
+				this.writer.write("</t></is></c>");
+			}
+		}
+		this.writer.write("</row>\n");
+	}
+
+	private void openFile() throws IOException {
+		String path = this.basePath + (this.writtenFiles.isEmpty() ? "" : "_" + (this.writtenFiles.size() + 1))
+				+ "." + FILEEXTENSION;
+		this.writtenFiles.add(path);
+		this.zipOutputStream = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+		this.writer = new BufferedWriter(new OutputStreamWriter(this.zipOutputStream, StandardCharsets.UTF_8));
+		this.sheetCount = 0;
+		this.openSheet();
+	}
+
+	private void openSheet() throws IOException {
+		this.sheetCount++;
+		this.currentRow = 0;
+		this.zipOutputStream.putNextEntry(new ZipEntry("xl/worksheets/sheet" + this.sheetCount + ".xml"));
+		this.writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+		this.writer.write("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>\n");
+		this.writeCells(HEADER);
+	}
+
+	private void closeSheet() throws IOException {
+		this.writer.write("</sheetData></worksheet>");
+		this.writer.flush();
+		this.zipOutputStream.closeEntry();
+	}
+
+	/**
+	 * Closes the current sheet and writes the workbook parts, which can only be written
+	 * after the number of sheets is known.
+	 */
+	private void closeFile() throws IOException {
+		if (this.zipOutputStream == null) {
+			return;
+		}
+		try {
+			this.closeSheet();
+
+			StringBuilder workbook = new StringBuilder();
+			StringBuilder workbookRelations = new StringBuilder();
+			StringBuilder contentTypes = new StringBuilder();
+			for (int sheet = 1; sheet <= this.sheetCount; sheet++) {
+				String name = this.sheetName;
+				if (sheet > 1) {
+					String suffix = " (" + sheet + ")";
+					name = name.substring(0, Math.min(name.length(), MAX_SHEET_NAME_LENGTH - suffix.length())) + suffix;
+				}
+				workbook.append("<sheet name=\"").append(escape(name)).append("\" sheetId=\"").append(sheet)
+						.append("\" r:id=\"rId").append(sheet).append("\"/>");
+				workbookRelations.append("<Relationship Id=\"rId").append(sheet).append("\" Type=\"")
+						.append("http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet")
+						.append("\" Target=\"worksheets/sheet").append(sheet).append(".xml\"/>");
+				contentTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(sheet).append(".xml\" ")
+						.append("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+			}
+
+			this.writeEntry("xl/workbook.xml",
+					"<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+					+ "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>"
+					+ workbook + "</sheets></workbook>");
+			this.writeEntry("xl/_rels/workbook.xml.rels",
+					"<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+					+ workbookRelations + "</Relationships>");
+			this.writeEntry("_rels/.rels",
+					"<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+					+ "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" "
+					+ "Target=\"xl/workbook.xml\"/></Relationships>");
+			this.writeEntry("[Content_Types].xml",
+					"<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+					+ "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+					+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+					+ "<Override PartName=\"/xl/workbook.xml\" "
+					+ "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+					+ contentTypes + "</Types>");
+		} finally {
+			this.writer.close();
+			this.zipOutputStream = null;
+			this.writer = null;
+		}
+	}
+
+	private void writeEntry(String name, String content) throws IOException {
+		this.zipOutputStream.putNextEntry(new ZipEntry(name));
+		this.writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+		this.writer.write(content);
+		this.writer.flush();
+		this.zipOutputStream.closeEntry();
+	}
+
+	private static String sanitizeSheetName(String name) {
+		String sanitized = name.replaceAll("[\\[\\]:*?/\\\\]", "_");
+		return sanitized.substring(0, Math.min(sanitized.length(), MAX_SHEET_NAME_LENGTH));
+	}
+
+	private static String escape(String text) {
+		StringBuilder result = new StringBuilder(text.length());
+		try {
+			writeEscaped(result, text);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Escapes the XML special characters and drops characters which are not allowed in XML.
+	 */
+	private static void writeEscaped(Appendable out, String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			char character = text.charAt(i);
+			switch (character) {
+			case '<': out.append("&lt;"); break;
+			case '>': out.append("&gt;"); break;
+			case '&': out.append("&amp;"); break;
+			case '"': out.append("&quot;"); break;
+			default:
+				if (character >= 0x20 || character == '\t' || character == '\n' || character == '\r') {
+					out.append(character);
+				}
+			}
+		}
+	}
+
+	private static String concatenate(Collection<String> strings) {
+		StringBuilder result = new StringBuilder();
+		for (String oneString: strings) {
+			result = result.append(oneString).append(", ");
+		}
+		if (result.length() >= 2) {
+			result.delete(result.length() - 2, result.length());
+		}
+		return result.toString();
+	}
+
+	public int getMaxRowsPerSheet() {
+		return maxRowsPerSheet;
+	}
+
+	/**
+	 * Sets the maximum number of rows per sheet (including the header row).
+	 */
+	public void setMaxRowsPerSheet(int maxRowsPerSheet) {
+		if (maxRowsPerSheet < 2 || maxRowsPerSheet > MAX_ROWS_PER_SHEET) {
+			throw new IllegalArgumentException("Rows per sheet have to be between 2 and " + MAX_ROWS_PER_SHEET);
+		}
+		this.maxRowsPerSheet = maxRowsPerSheet;
+	}
+
+	public int getMaxSheetsPerFile() {
+		return maxSheetsPerFile;
+	}
+
+	public void setMaxSheetsPerFile(int maxSheetsPerFile) {
+		if (maxSheetsPerFile < 1) {
+			throw new IllegalArgumentException("A file needs at least one sheet");
+		}
+		this.maxSheetsPerFile = maxSheetsPerFile;
+	}
+
+	private static class ActivityIterator {
+
+		private final Iterator<Activity> iterator;
+		private final String prefix;
+
+		private ActivityIterator(Iterator<Activity> iterator, String prefix) {
+			this.iterator = iterator;
+			this.prefix = prefix;
+		}
+
+	}
+
+}
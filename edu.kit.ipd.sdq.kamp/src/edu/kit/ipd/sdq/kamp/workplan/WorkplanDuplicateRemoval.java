@@ -1,14 +1,12 @@
 package edu.kit.ipd.sdq.kamp.workplan;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-
-import org.eclipse.emf.ecore.EObject;
-
-import edu.kit.ipd.sdq.kamp.util.MapUtil;
 
 /**
  * An element might be detected as possible modification by multiple propagation
@@ -21,38 +19,51 @@ public class WorkplanDuplicateRemoval {
 	 * Goes through the list of activities and merges modification activities (all
 	 * other kinds of BasicActivity are just copied) such that there is only one 
 	 * modification activity per affected element and ActivityType. The merged list 
-	 * is returned so the input list remains unchanged.
+	 * is returned so the input list remains unchanged.<br>
+	 * The modification activities are looked up by element and ActivityType in a hash
+	 * map, and the sub- and follow-up activities of merged activities are merged in place
+	 * (each level keeps its own map), so every activity is copied once and the run time
+	 * is linear in the size of the activity tree.
 	 */
 	public static List<Activity> removeModificationDuplicates(List<Activity> actvityList) {
-		List<Activity> result = new LinkedList<Activity>();
-		Map<EObject, Set<Activity>> objectsWithActivity = new HashMap<EObject, Set<Activity>>();
-		
-		for (Activity activityToAnalyze: actvityList) {
+		MergeLevel level = new MergeLevel(new LinkedList<Activity>());
+		new WorkplanDuplicateRemoval().mergeIntoLevel(level, actvityList, false);
+		return level.activities;
+	}
+	
+	/**
+	 * Lazily created levels of the sub- and follow-up activities of the copied activities.
+	 * A level is only needed when something is merged into an activity, as the children 
+	 * of activities which are never merged are copied unchanged.
+	 */
+	private final Map<Activity, MergeLevel> subActivityLevels = new IdentityHashMap<Activity, MergeLevel>();
+	private final Map<Activity, MergeLevel> followUpActivityLevels = new IdentityHashMap<Activity, MergeLevel>();
+	
+	private WorkplanDuplicateRemoval() {
+	}
+	
+	/**
+	 * Adds the <code>activities</code> to the <code>level</code>, merging modification 
+	 * activities with existing ones of the same element and ActivityType. Activities which
+	 * are <code>owned</code> are copies created by this merge and are reused instead of
+	 * being copied again.
+	 */
+	private void mergeIntoLevel(MergeLevel level, List<Activity> activities, boolean owned) {
+		for (Activity activityToAnalyze: activities) {
 			if (activityToAnalyze.getBasicActivity().equals(BasicActivity.MODIFY)) {
-				boolean merged = false;
-				if (objectsWithActivity.containsKey(activityToAnalyze.getElement())) {
-					for (Activity existingActivity: objectsWithActivity.get(activityToAnalyze.getElement())) {
-						//Besides the element, the ActivityType should be the same.
-						if (existingActivity.getElement().equals(activityToAnalyze.getElement())
-								&& existingActivity.getType().equals(activityToAnalyze.getType())) {
-							mergeActivities(existingActivity, activityToAnalyze);
-							merged = true;
-							break;
-						}
-					}
-				}
-				if (!merged) { // no activity for element or no activity with same type
-					Activity modificationActivity = copyActivity(activityToAnalyze);
-					result.add(modificationActivity);
-					MapUtil.putOrAddToMap(objectsWithActivity, modificationActivity.getElement(), 
-							modificationActivity);
+				List<Object> key = Arrays.<Object>asList(activityToAnalyze.getElement(), activityToAnalyze.getType());
+				Activity existingActivity = level.modificationActivities.get(key);
+				if (existingActivity != null) {
+					this.mergeActivities(existingActivity, activityToAnalyze, owned);
+				} else { // no activity for element or no activity with same type
+					Activity modificationActivity = owned ? activityToAnalyze : copyActivity(activityToAnalyze);
+					level.add(modificationActivity);
+					level.modificationActivities.put(key, modificationActivity);
 				}
 			} else { // no modification activity
-				result.add(copyActivity(activityToAnalyze));
+				level.add(owned ? activityToAnalyze : copyActivity(activityToAnalyze));
 			}
 		}
-		
-		return result;
 	}
 
 	/**
@@ -75,8 +86,9 @@ public class WorkplanDuplicateRemoval {
 	
 	/**
 	 * Adds information from the <code>activityToAnalyze</code> to the 
-	 * <code>existingActivity</code>. It is assumed that the following 
-	 * attributes are already equal (some of them checked in the calling method):
+	 * <code>existingActivity</code> (which is a copy owned by this merge). It is assumed 
+	 * that the following attributes are already equal (some of them checked in the 
+	 * calling method):
 	 * <ul><li>type (same type is condition for merge)</li>
 	 * <li>elementName (should be the same if element the same)</li>
 	 * <li>element (same element is condition for merge)</li>
@@ -84,22 +96,14 @@ public class WorkplanDuplicateRemoval {
 	 * <li>description (should be the same for the same type and element)</li>
 	 * <li>parentActivity (only sub-activities of the same parent should be merged)</li></ul>
 	 */
-	private static void mergeActivities(Activity existingActivity, Activity activityToAnalyze) {
-		// Merge follow-up activities and remove duplicates (recursive)
-		List<Activity> followUpActivities = new LinkedList<Activity>();
-		followUpActivities.addAll(existingActivity.getFollowupActivities());
-		followUpActivities.addAll(activityToAnalyze.getFollowupActivities());
-		followUpActivities = removeModificationDuplicates(followUpActivities);
-		existingActivity.getFollowupActivities().clear();
-		existingActivity.addFollowUpActivities(followUpActivities);
+	private void mergeActivities(Activity existingActivity, Activity activityToAnalyze, boolean owned) {
+		// Merge follow-up activities and remove duplicates
+		this.mergeIntoLevel(this.getLevel(this.followUpActivityLevels, existingActivity, false), 
+				activityToAnalyze.getFollowupActivities(), owned);
 		
-		// Merge sub-activities and remove duplicates (recursive)
-		List<Activity> subActivities = new LinkedList<Activity>();
-		subActivities.addAll(existingActivity.getSubActivities());
-		subActivities.addAll(activityToAnalyze.getSubActivities());
-		subActivities = removeModificationDuplicates(subActivities);
-		existingActivity.getSubActivities().clear();
-		existingActivity.addSubActivities(subActivities);
+		// Merge sub-activities and remove duplicates
+		this.mergeIntoLevel(this.getLevel(this.subActivityLevels, existingActivity, true), 
+				activityToAnalyze.getSubActivities(), owned);
 
 		// Use more specific ActivityElementType
 		if (existingActivity.getElementType().getElementClass().isAssignableFrom(
@@ -112,4 +116,51 @@ public class WorkplanDuplicateRemoval {
 				activityToAnalyze.getCausingElementsNames());
 	}
 	
+	/**
+	 * Returns the level of the sub- or follow-up activities of the <code>activity</code>.
+	 * When it is created, the current children of the activity (which are owned copies, 
+	 * but may contain duplicates) are merged into it first.
+	 */
+	private MergeLevel getLevel(Map<Activity, MergeLevel> levels, Activity activity, boolean subActivities) {
+		MergeLevel level = levels.get(activity);
+		if (level == null) {
+			List<Activity> children = subActivities ? activity.getSubActivities() : activity.getFollowupActivities();
+			List<Activity> existingChildren = new ArrayList<Activity>(children);
+			children.clear();
+			level = new MergeLevel(activity, subActivities, children);
+			levels.put(activity, level);
+			this.mergeIntoLevel(level, existingChildren, true);
+		}
+		return level;
+	}
+	
+	private static class MergeLevel {
+		
+		private final Activity parentActivity;
+		private final boolean subActivities;
+		private final List<Activity> activities;
+		private final Map<List<Object>, Activity> modificationActivities = new HashMap<List<Object>, Activity>();
+		
+		private MergeLevel(List<Activity> activities) {
+			this(null, false, activities);
+		}
+		
+		private MergeLevel(Activity parentActivity, boolean subActivities, List<Activity> activities) {
+			this.parentActivity = parentActivity;
+			this.subActivities = subActivities;
+			this.activities = activities;
+		}
+		
+		private void add(Activity activity) {
+			if (this.parentActivity == null) {
+				this.activities.add(activity);
+			} else if (this.subActivities) {
+				this.parentActivity.addSubActivity(activity);
+			} else {
+				this.parentActivity.addFollowupActivity(activity);
+			}
+		}
+		
+	}
+	
 }
@@ -1,8 +1,12 @@
 package edu.kit.ipd.sdq.kamp.workplan;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Sorts work plan Activities, so they are a) easier to find in huge work plans and
@@ -13,21 +17,109 @@ import java.util.List;
 public class WorkplanSorter {
 	
 	/**
-	 * Sorts the activities by their description (string). The algorithm is applied
-	 * recursively to sub- and follow-up-activities.
+	 * Lists with at least this many activities are sorted with a parallel merge sort.
+	 */
+	private static final int PARALLEL_SORT_THRESHOLD = 8192;
+	
+	/**
+	 * Minimum number of activities a task has to sort before it splits its work.
+	 */
+	private static final int FORK_THRESHOLD = 2048;
+	
+	private static final Comparator<Activity> DESCRIPTION_COMPARATOR = new Comparator<Activity>() {
+
+		@Override
+		public int compare(Activity activity1, Activity activity2) {
+			String description1 = activity1.getDescription();
+			String description2 = activity2.getDescription();
+			if (description1 == null) {
+				return description2 == null ? 0 : -1;
+			}
+			return description2 == null ? 1 : description1.compareTo(description2);
+		}
+	};
+	
+	/**
+	 * Sorts the activities by their description (string, activities without description
+	 * first). The algorithm is applied to sub- and follow-up-activities as well: the lists
+	 * of independent subtrees are sorted concurrently in the common fork/join pool. As the 
+	 * sort is stable, activities with the same description keep their relative order.
 	 */
 	public static void sortWorkplanActivities(List<Activity> activities) {
-		Collections.sort(activities, new Comparator<Activity>() {
+		List<List<Activity>> lists = new ArrayList<List<Activity>>();
+		lists.add(activities);
+		ForkJoinPool.commonPool().invoke(new SortTask(lists));
+	}
+	
+	/**
+	 * Sorts a single list in an array copy (large lists with a parallel sort).
+	 */
+	private static void sortActivityList(List<Activity> activities) {
+		if (activities.size() < 2) {
+			return;
+		}
+		Activity[] sortedActivities = activities.toArray(new Activity[activities.size()]);
+		if (sortedActivities.length >= PARALLEL_SORT_THRESHOLD) {
+			Arrays.parallelSort(sortedActivities, DESCRIPTION_COMPARATOR);
+		} else {
+			Arrays.sort(sortedActivities, DESCRIPTION_COMPARATOR);
+		}
+		ListIterator<Activity> iterator = activities.listIterator();
+		for (Activity activity: sortedActivities) {
+			iterator.next();
+			iterator.set(activity);
+		}
+	}
+	
+	/**
+	 * Sorts a set of activity lists and (level by level) the lists of their sub- and 
+	 * follow-up activities. If the pending lists contain enough activities, they are
+	 * split between two new tasks.
+	 */
+	private static class SortTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final List<List<Activity>> lists;
+		
+		private SortTask(List<List<Activity>> lists) {
+			this.lists = lists;
+		}
 
-			@Override
-			public int compare(Activity activity1, Activity activity2) {
-				return activity1.getDescription().compareTo(activity2.getDescription());
+		@Override
+		protected void compute() {
+			List<List<Activity>> pendingLists = this.lists;
+			while (!pendingLists.isEmpty()) {
+				if (pendingLists.size() > 1 && countActivities(pendingLists) >= FORK_THRESHOLD) {
+					int middle = pendingLists.size() / 2;
+					invokeAll(new SortTask(new ArrayList<List<Activity>>(pendingLists.subList(0, middle))),
+							new SortTask(new ArrayList<List<Activity>>(pendingLists.subList(middle, pendingLists.size()))));
+					return;
+				}
+				List<List<Activity>> nextLists = new ArrayList<List<Activity>>();
+				for (List<Activity> activities: pendingLists) {
+					sortActivityList(activities);
+					for (Activity activity: activities) {
+						if (!activity.getSubActivities().isEmpty()) {
+							nextLists.add(activity.getSubActivities());
+						}
+						if (!activity.getFollowupActivities().isEmpty()) {
+							nextLists.add(activity.getFollowupActivities());
+						}
+					}
+				}
+				pendingLists = nextLists;
+			}
+		}
+		
+		private static int countActivities(List<List<Activity>> lists) {
+			int count = 0;
+			for (List<Activity> activities: lists) {
+				count += activities.size();
 			}
-		});
-		for (Activity activity: activities) {
-			sortWorkplanActivities(activity.getSubActivities());
-			sortWorkplanActivities(activity.getFollowupActivities());
+			return count;
 		}
+		
 	}
 	
 }